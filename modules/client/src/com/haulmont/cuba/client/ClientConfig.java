@@ -377,4 +377,19 @@ public interface ClientConfig extends Config {
     @Property("cuba.gui.validationNotificationType")
     @Default("TRAY")
     String getValidationNotificationType();
+
+    /**
+     * @return number of rows after which the RowsCount component stops counting and shows the number with "+"
+     * sign. Used only if the entity has in-memory constraints. 0 to always show the exact number.
+     */
+    @Property("cuba.gui.rowsCountLimit")
+    @DefaultInt(0)
+    int getRowsCountLimit();
+
+    /**
+     * @return whether the RowsCount component executes count queries in a background thread
+     */
+    @Property("cuba.gui.loadRowsCountInBackground")
+    @DefaultBoolean(false)
+    boolean getLoadRowsCountInBackground();
 }
\ No newline at end of file
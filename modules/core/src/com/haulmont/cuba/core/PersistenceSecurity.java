@@ -17,10 +17,12 @@
 
 package com.haulmont.cuba.core;
 
+import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.global.Security;
 import com.haulmont.cuba.core.global.View;
 
+import javax.annotation.Nullable;
 import java.util.Collection;
 
 /**
@@ -44,6 +46,17 @@ public interface PersistenceSecurity extends Security {
      */
     boolean applyConstraints(Query query);
 
+    /**
+     * Modifies the query depending on current user's security constraints.
+     *
+     * @param query                      query to modify
+     * @param inMemoryConstraintsChecked true if the caller checks in-memory constraints for the loaded entities. In
+     *                                   this case simple conditions of in-memory constraints are also added to the
+     *                                   query to reduce the number of loaded rows.
+     * @return true if any constraints have been applied
+     */
+    boolean applyConstraints(Query query, boolean inMemoryConstraintsChecked);
+
     /**
      * Sets the query param to a value provided by user session (see constants above).
      *
@@ -77,6 +90,16 @@ public interface PersistenceSecurity extends Security {
      */
     boolean filterByConstraints(Entity entity);
 
+    /**
+     * Returns a view containing only attributes used by in-memory read constraints of the entity. Such a view
+     * can be used to load entities just for checking the constraints, e.g. for counting.
+     *
+     * @param metaClass entity meta-class
+     * @return view or null if the attributes cannot be determined from the constraint scripts
+     */
+    @Nullable
+    View getInMemoryConstraintsView(MetaClass metaClass);
+
     /**
      * Reads security token and restores security state
      * @param entity - entity to restore security state
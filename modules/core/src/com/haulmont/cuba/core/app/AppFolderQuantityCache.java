@@ -0,0 +1,403 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.entity.AppFolder;
+import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.sys.SecurityContextAwareCallable;
+import groovy.lang.Binding;
+import org.apache.commons.lang3.StringUtils;
+import org.codehaus.groovy.ast.ASTNode;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.CodeVisitorSupport;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.Parameter;
+import org.codehaus.groovy.ast.builder.AstBuilder;
+import org.codehaus.groovy.ast.expr.*;
+import org.codehaus.groovy.ast.stmt.CatchStatement;
+import org.codehaus.groovy.ast.stmt.ForStatement;
+import org.codehaus.groovy.control.CompilePhase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Evaluates quantity scripts of {@link AppFolder}s in parallel and keeps the results for
+ * {@link ServerConfig#getAppFolderQuantityCacheTtlSec()}.
+ * <p>
+ * Results are shared by all users only if the script uses no variables except {@code persistence},
+ * {@code metadata}, {@code folder} and {@code style}, other results are cached per user. The same script is
+ * evaluated only once at a time, concurrent requests wait for its result.
+ */
+@Component(AppFolderQuantityCache.NAME)
+public class AppFolderQuantityCache {
+
+    public static final String NAME = "cuba_AppFolderQuantityCache";
+
+    private static final Logger log = LoggerFactory.getLogger(AppFolderQuantityCache.class);
+
+    /**
+     * Script variables that do not depend on the current user.
+     */
+    protected static final Set<String> SHARED_SCRIPT_VARIABLES =
+            ImmutableSet.of("persistence", "metadata", "folder", "style", "this", "super");
+
+    @Inject
+    protected ServerConfig serverConfig;
+
+    @Inject
+    protected Persistence persistence;
+
+    @Inject
+    protected Metadata metadata;
+
+    @Inject
+    protected Scripting scripting;
+
+    @Inject
+    protected Resources resources;
+
+    @Inject
+    protected UserSessionSource userSessionSource;
+
+    @Inject
+    protected TimeSource timeSource;
+
+    protected Cache<QuantityKey, CompletableFuture<Quantity>> quantities;
+
+    protected Cache<String, Boolean> sharedScripts;
+
+    protected ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        quantities = CacheBuilder.newBuilder()
+                .expireAfterWrite(Math.max(serverConfig.getAppFolderQuantityCacheTtlSec(), 0), TimeUnit.SECONDS)
+                .maximumSize(serverConfig.getAppFolderQuantityCacheMaxSize())
+                .build();
+        sharedScripts = CacheBuilder.newBuilder()
+                .maximumSize(serverConfig.getAppFolderQuantityCacheMaxSize())
+                .build();
+
+        executor = Executors.newFixedThreadPool(serverConfig.getAppFolderQuantityThreads(),
+                new ThreadFactoryBuilder().setNameFormat("AppFolderQuantity-%d").setDaemon(true).build());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Sets quantities and item styles of the folders having quantity scripts. Must be invoked in a user session.
+     * Folders whose scripts fail or are not evaluated within {@link ServerConfig#getAppFolderQuantityTimeoutSec()}
+     * keep their previous values.
+     */
+    public void loadQuantities(Collection<AppFolder> folders) {
+        Map<AppFolder, CompletableFuture<Quantity>> pending = new LinkedHashMap<>();
+        for (AppFolder folder : folders) {
+            if (StringUtils.isBlank(folder.getQuantityScript())) {
+                continue;
+            }
+            String script = getScriptText(folder.getQuantityScript());
+            pending.put(folder, serverConfig.getAppFolderQuantityCacheTtlSec() > 0 ?
+                    getCachedQuantity(folder, script) : evaluate(folder, script));
+        }
+
+        long deadline = timeSource.currentTimeMillis() + serverConfig.getAppFolderQuantityTimeoutSec() * 1000L;
+        for (Map.Entry<AppFolder, CompletableFuture<Quantity>> entry : pending.entrySet()) {
+            AppFolder folder = entry.getKey();
+            try {
+                long timeout = Math.max(deadline - timeSource.currentTimeMillis(), 0);
+                Quantity quantity = entry.getValue().get(timeout, TimeUnit.MILLISECONDS);
+                folder.setQuantity(quantity.quantity);
+                folder.setItemStyle(quantity.style);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                log.warn("Unable to evaluate AppFolder quantity script for folder: id: {} , name: {}",
+                        folder.getId(), folder.getName(), e.getCause());
+            } catch (TimeoutException e) {
+                // the result is cached when the evaluation completes
+                log.warn("AppFolder quantity script has not been evaluated in time for folder: id: {} , name: {}",
+                        folder.getId(), folder.getName());
+            }
+        }
+    }
+
+    /**
+     * Discards all cached quantities.
+     */
+    public void invalidateAll() {
+        quantities.invalidateAll();
+    }
+
+    protected CompletableFuture<Quantity> getCachedQuantity(AppFolder folder, String script) {
+        QuantityKey key = createKey(folder, script);
+        CompletableFuture<Quantity> result = getOrEvaluate(key, folder, script);
+        if (result.isCompletedExceptionally()) {
+            // waiting requests can see a failure before it is removed
+            quantities.asMap().remove(key, result);
+            result = getOrEvaluate(key, folder, script);
+        }
+
+        // failures are not cached
+        CompletableFuture<Quantity> evaluated = result;
+        evaluated.whenComplete((quantity, e) -> {
+            if (e != null) {
+                quantities.asMap().remove(key, evaluated);
+            }
+        });
+        return evaluated;
+    }
+
+    protected CompletableFuture<Quantity> getOrEvaluate(QuantityKey key, AppFolder folder, String script) {
+        try {
+            return quantities.get(key, () -> evaluate(folder, script));
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Unable to evaluate AppFolder quantity script", e.getCause());
+        }
+    }
+
+    protected CompletableFuture<Quantity> evaluate(AppFolder folder, String script) {
+        CompletableFuture<Quantity> result = new CompletableFuture<>();
+        Callable<Quantity> task = new SecurityContextAwareCallable<>(() -> evaluateScript(folder, script));
+        try {
+            executor.execute(() -> {
+                try {
+                    result.complete(task.call());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    protected Quantity evaluateScript(AppFolder folder, String script) {
+        Binding binding = new Binding();
+        binding.setVariable("persistence", persistence);
+        binding.setVariable("metadata", metadata);
+        binding.setVariable("userSession", userSessionSource.getUserSession());
+        binding.setVariable("folder", folder);
+        binding.setVariable("style", null);
+
+        try (Transaction tx = persistence.createTransaction()) {
+            Number qty = scripting.evaluateGroovy(script, binding);
+            tx.commit();
+            return new Quantity(qty == null ? null : qty.intValue(), (String) binding.getVariable("style"));
+        }
+    }
+
+    protected String getScriptText(String script) {
+        script = StringUtils.trim(script);
+        if (script.endsWith(".groovy")) {
+            script = resources.getResourceAsString(script);
+        }
+        return script;
+    }
+
+    protected QuantityKey createKey(AppFolder folder, String script) {
+        boolean shared;
+        try {
+            shared = sharedScripts.get(script, () -> isSharedScript(script));
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Unable to parse AppFolder quantity script", e.getCause());
+        }
+        UUID userId = shared ? null : userSessionSource.currentOrSubstitutedUserId();
+        return new QuantityKey(folder.getId(), script, userId);
+    }
+
+    /**
+     * @return true if the result of the script does not depend on the current user: the script uses only
+     * {@link #SHARED_SCRIPT_VARIABLES} and its own variables and methods, and refers to no classes
+     */
+    protected boolean isSharedScript(String script) {
+        List<ASTNode> nodes;
+        try {
+            nodes = new AstBuilder().buildFromString(CompilePhase.CONVERSION, false, script);
+        } catch (RuntimeException e) {
+            log.debug("Unable to parse AppFolder quantity script, its result is cached per user", e);
+            return false;
+        }
+
+        ScriptVariablesCollector collector = new ScriptVariablesCollector();
+        for (ASTNode node : nodes) {
+            if (node instanceof ClassNode) {
+                for (MethodNode method : ((ClassNode) node).getMethods()) {
+                    // the script body is in the run method, main is generated
+                    if ("main".equals(method.getName()) || method.getCode() == null) {
+                        continue;
+                    }
+                    if (!"run".equals(method.getName())) {
+                        collector.declaredVariables.add(method.getName());
+                    }
+                    collector.declareParameters(method.getParameters());
+                    method.getCode().visit(collector);
+                }
+            }
+        }
+        if (collector.refersToClasses) {
+            return false;
+        }
+        Set<String> variables = new HashSet<>(collector.usedVariables);
+        variables.removeAll(collector.declaredVariables);
+        return SHARED_SCRIPT_VARIABLES.containsAll(variables);
+    }
+
+    /**
+     * Collects names of variables and methods used and declared by a script. Classes are not resolved in the
+     * conversion phase, so references to them are collected as variables too.
+     */
+    protected static class ScriptVariablesCollector extends CodeVisitorSupport {
+
+        protected final Set<String> usedVariables = new HashSet<>();
+        protected final Set<String> declaredVariables = new HashSet<>();
+        protected boolean refersToClasses;
+
+        protected void declareParameters(Parameter[] parameters) {
+            if (parameters != null) {
+                for (Parameter parameter : parameters) {
+                    declaredVariables.add(parameter.getName());
+                }
+            }
+        }
+
+        @Override
+        public void visitVariableExpression(VariableExpression expression) {
+            usedVariables.add(expression.getName());
+            super.visitVariableExpression(expression);
+        }
+
+        @Override
+        public void visitDeclarationExpression(DeclarationExpression expression) {
+            if (expression.isMultipleAssignmentDeclaration()) {
+                for (Expression variable : expression.getTupleExpression().getExpressions()) {
+                    declaredVariables.add(((VariableExpression) variable).getName());
+                }
+            } else {
+                declaredVariables.add(expression.getVariableExpression().getName());
+            }
+            super.visitDeclarationExpression(expression);
+        }
+
+        @Override
+        public void visitClosureExpression(ClosureExpression expression) {
+            if (expression.isParameterSpecified()) {
+                declareParameters(expression.getParameters());
+            } else {
+                declaredVariables.add("it");
+            }
+            super.visitClosureExpression(expression);
+        }
+
+        @Override
+        public void visitForLoop(ForStatement statement) {
+            declaredVariables.add(statement.getVariable().getName());
+            super.visitForLoop(statement);
+        }
+
+        @Override
+        public void visitCatchStatement(CatchStatement statement) {
+            declaredVariables.add(statement.getVariable().getName());
+            super.visitCatchStatement(statement);
+        }
+
+        @Override
+        public void visitMethodCallExpression(MethodCallExpression call) {
+            if (call.isImplicitThis()) {
+                usedVariables.add(call.getMethodAsString());
+            }
+            super.visitMethodCallExpression(call);
+        }
+
+        @Override
+        public void visitClassExpression(ClassExpression expression) {
+            refersToClasses = true;
+        }
+
+        @Override
+        public void visitConstructorCallExpression(ConstructorCallExpression call) {
+            refersToClasses = true;
+            super.visitConstructorCallExpression(call);
+        }
+
+        @Override
+        public void visitStaticMethodCallExpression(StaticMethodCallExpression call) {
+            refersToClasses = true;
+            super.visitStaticMethodCallExpression(call);
+        }
+
+    }
+
+    /**
+     * Identifies a quantity script evaluated for a folder and, if the script depends on the user, for a user.
+     */
+    protected static class QuantityKey {
+
+        protected final UUID folderId;
+        protected final String script;
+        protected final UUID userId;
+
+        protected QuantityKey(UUID folderId, String script, UUID userId) {
+            this.folderId = folderId;
+            this.script = script;
+            this.userId = userId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            QuantityKey that = (QuantityKey) o;
+            return Objects.equals(folderId, that.folderId)
+                    && Objects.equals(script, that.script)
+                    && Objects.equals(userId, that.userId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(folderId, script, userId);
+        }
+    }
+
+    protected static class Quantity {
+
+        protected final Integer quantity;
+        protected final String style;
+
+        protected Quantity(Integer quantity, String style) {
+            this.quantity = quantity;
+            this.style = style;
+        }
+    }
+}
@@ -66,4 +66,42 @@ public interface ClusterConfig extends Config {
     @Property("cuba.cluster.messageSendingQueueCapacity")
     @DefaultInt(Integer.MAX_VALUE)
     int getClusterMessageSendingQueueCapacity();
+
+    /**
+     * @return whether asynchronously sent messages are combined into batches. Must be the same on all cluster members.
+     */
+    @Property("cuba.cluster.messageBatching")
+    @DefaultBoolean(false)
+    boolean getMessageBatchingEnabled();
+
+    /**
+     * @return whether the state is sent to joining members as a stream of chunks written by each listener, instead
+     * of collecting the whole state in memory first. Members of previous versions cannot read the streamed state,
+     * so it must be enabled on all cluster members together. The state is received in both formats regardless of
+     * this property.
+     */
+    @Property("cuba.cluster.stateStreaming")
+    @DefaultBoolean(false)
+    boolean getStateStreamingEnabled();
+
+    /**
+     * @return time in milliseconds during which asynchronously sent messages are accumulated in a batch
+     */
+    @Property("cuba.cluster.messageBatchDelay")
+    @DefaultInt(5)
+    int getMessageBatchDelay();
+
+    /**
+     * @return maximum size of serialized messages in a batch in bytes. Bigger batches are split.
+     */
+    @Property("cuba.cluster.messageBatchMaxBytes")
+    @DefaultInt(32768)
+    int getMessageBatchMaxBytes();
+
+    /**
+     * @return minimum size of a batch in bytes to compress it. 0 disables compression.
+     */
+    @Property("cuba.cluster.messageBatchCompressionThreshold")
+    @DefaultInt(1024)
+    int getMessageBatchCompressionThreshold();
 }
@@ -16,6 +16,12 @@
  */
 package com.haulmont.cuba.core.app;
 
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 /**
  * Interface to be implemented by middleware cluster listeners. A cluster listener receives messages from other nodes
  * in the cluster.
@@ -50,4 +56,44 @@ public interface ClusterListener<T> {
      * @param state byte array containing the state
      */
     void setState(byte[] state);
+
+    /**
+     * Write state of this cluster node to the stream when a new node joins the cluster. Used instead of
+     * {@link #getState()} if {@link ClusterConfig#getStateStreamingEnabled()} is true.
+     *
+     * <p>The default implementation writes the result of {@link #getState()}. Listeners with large state should
+     * override this method and {@link #readState(InputStream)} to write the state directly to the stream without
+     * building it in memory.</p>
+     *
+     * @param out stream to write the state to. Closing it does not close the underlying connection, but wrapping
+     *            streams must be flushed before return.
+     */
+    default void writeState(OutputStream out) throws IOException {
+        byte[] state = getState();
+        if (state != null) {
+            out.write(state);
+        }
+    }
+
+    /**
+     * Read state written by {@link #writeState(OutputStream)} on another node.
+     *
+     * <p>The default implementation reads the whole stream and passes it to {@link #setState(byte[])}.</p>
+     *
+     * @param in stream containing the state of this listener only
+     */
+    default void readState(InputStream in) throws IOException {
+        byte[] state = IOUtils.toByteArray(in);
+        if (state.length > 0) {
+            setState(state);
+        }
+    }
+
+    /**
+     * @return order of the state of this listener in the state transfer. States with lower values are transferred
+     * first, so they are available on the joining node earlier.
+     */
+    default int getStateOrder() {
+        return 0;
+    }
 }
@@ -43,9 +43,7 @@ import javax.inject.Inject;
 import javax.management.MBeanServer;
 import java.io.*;
 import java.lang.management.ManagementFactory;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.LongAdder;
 
@@ -65,6 +63,8 @@ public class ClusterManager implements ClusterManagerAPI {
 
     protected ThreadPoolExecutor executor;
 
+    protected ScheduledExecutorService batchExecutor;
+
     @Inject
     protected Resources resources;
 
@@ -78,8 +78,20 @@ public class ClusterManager implements ClusterManagerAPI {
 
     protected Map<String, MessageStat> messagesStat = new ConcurrentHashMap<>();
 
+    protected final Object batchLock = new Object();
+    protected final Object batchSendLock = new Object();
+    protected List<Serializable> batch = new ArrayList<>();
+    protected Set<Serializable> batchIdempotentMessages = new HashSet<>();
+    protected boolean batchFlushScheduled;
+
+    protected BatchStat batchStat = new BatchStat();
+
     protected static final String STATE_MAGIC = "CUBA_STATE";
 
+    protected static final String STREAM_STATE_MAGIC = "CUBA_STATE_STREAM_1";
+
+    protected static final int STATE_CHUNK_SIZE = 64 * 1024;
+
     public JChannel getChannel() {
         return channel;
     }
@@ -97,6 +109,10 @@ public class ClusterManager implements ClusterManagerAPI {
                         log.info("Queue capacity is exceeded. Message: {}: {}", sendMessageRunnable.message.getClass(), sendMessageRunnable.message);
                     }
                 });
+        if (clusterConfig.getMessageBatchingEnabled()) {
+            batchExecutor = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("ClusterManagerBatchSender-%d").build());
+        }
     }
 
     @EventListener(AppContextInitializedEvent.class)
@@ -110,6 +126,10 @@ public class ClusterManager implements ClusterManagerAPI {
     @EventListener(AppContextStoppedEvent.class)
     protected void applicationStopped() {
         executor.shutdown();
+        if (batchExecutor != null) {
+            batchExecutor.shutdown();
+            flushBatch();
+        }
         stop();
     }
 
@@ -120,7 +140,11 @@ public class ClusterManager implements ClusterManagerAPI {
 
         Boolean sync = forceSyncSending.get();
         if (sync != null && sync) {
+            flushBatch();
             internalSend(message, true);
+        } else if (batchExecutor != null) {
+            log.trace("Adding message: {}: {} to batch", message.getClass(), message);
+            addToBatch(message);
         } else {
             log.trace("Submitting message: {}: {} to send asynchronously", message.getClass(), message);
             executor.execute(new SendMessageRunnable(message));
@@ -132,6 +156,7 @@ public class ClusterManager implements ClusterManagerAPI {
         if (channel == null)
             return;
 
+        flushBatch();
         internalSend(message, true);
     }
 
@@ -144,20 +169,116 @@ public class ClusterManager implements ClusterManagerAPI {
             if (stat != null) {
                 stat.updateSent(bytes.length);
             }
-            Message msg = new Message(null, null, bytes);
-            if (sync) {
-                msg.setFlag(Message.Flag.RSVP);
+            sendBytes(bytes, sync);
+        } finally {
+            sw.stop();
+        }
+    }
+
+    protected void sendBytes(byte[] bytes, boolean sync) {
+        JChannel channel = this.channel;
+        if (channel == null)
+            return;
+
+        Message msg = new Message(null, null, bytes);
+        if (sync) {
+            msg.setFlag(Message.Flag.RSVP);
+        }
+        try {
+            channel.send(msg);
+        } catch (Exception e) {
+            log.error("Error sending message", e);
+        }
+    }
+
+    protected void addToBatch(Serializable message) {
+        synchronized (batchLock) {
+            if (message instanceof IdempotentClusterMessage && !batchIdempotentMessages.add(message)) {
+                log.trace("Message {} is already in batch", message);
+                batchStat.deduplicatedMessages.increment();
+                return;
             }
-            try {
-                channel.send(msg);
-            } catch (Exception e) {
-                log.error("Error sending message", e);
+            batch.add(message);
+            if (!batchFlushScheduled) {
+                batchFlushScheduled = true;
+                try {
+                    batchExecutor.schedule(this::flushBatch, clusterConfig.getMessageBatchDelay(), TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    log.debug("Batch executor is shut down, message {} will be sent on stop", message.getClass());
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends messages accumulated in the current batch.
+     */
+    protected void flushBatch() {
+        if (batchExecutor == null)
+            return;
+
+        synchronized (batchSendLock) {
+            List<Serializable> messages;
+            synchronized (batchLock) {
+                messages = batch;
+                batch = new ArrayList<>();
+                batchIdempotentMessages.clear();
+                batchFlushScheduled = false;
+            }
+            if (!messages.isEmpty()) {
+                sendBatch(messages);
+            }
+        }
+    }
+
+    protected void sendBatch(List<Serializable> messages) {
+        StopWatch sw = new Slf4JStopWatch("sendClusterMessageBatch");
+        try {
+            int maxBytes = clusterConfig.getMessageBatchMaxBytes();
+            List<byte[]> frames = new ArrayList<>();
+            int size = 0;
+            for (Serializable message : messages) {
+                byte[] bytes;
+                try {
+                    bytes = SerializationSupport.serialize(message);
+                } catch (Exception e) {
+                    log.error("Error serializing message {}", message.getClass(), e);
+                    continue;
+                }
+                log.debug("Sending message in batch: {}: {} ({} bytes)", message.getClass(), message, bytes.length);
+                MessageStat stat = messagesStat.get(message.getClass().getName());
+                if (stat != null) {
+                    stat.updateSent(bytes.length);
+                }
+                if (!frames.isEmpty() && size + bytes.length > maxBytes) {
+                    sendFrames(frames);
+                    frames = new ArrayList<>();
+                    size = 0;
+                }
+                frames.add(bytes);
+                size += bytes.length;
+            }
+            if (!frames.isEmpty()) {
+                sendFrames(frames);
             }
         } finally {
             sw.stop();
         }
     }
 
+    protected void sendFrames(List<byte[]> frames) {
+        if (frames.size() == 1) {
+            // a single message is sent as is, without the envelope
+            sendBytes(frames.get(0), false);
+            return;
+        }
+        ClusterMessageBatch batch = ClusterMessageBatch.create(frames, clusterConfig.getMessageBatchCompressionThreshold());
+        byte[] bytes = SerializationSupport.serialize(batch);
+        log.debug("Sending batch: {} ({} bytes)", batch, bytes.length);
+        batchStat.updateSent(batch);
+        sendBytes(bytes, false);
+    }
+
     @Override
     public boolean getSyncSendingForCurrentThread() {
         return forceSyncSending.get() == null ? false : forceSyncSending.get();
@@ -344,6 +465,32 @@ public class ClusterManager implements ClusterManagerAPI {
         return messagesStats.toString();
     }
 
+    @Override
+    public String printBatchesStat() {
+        if (batchExecutor == null)
+            return "Message batching is disabled";
+
+        long batches = batchStat.getSentBatches();
+        return String.format("Batches sent: %s; messages in batches: %s, average batch size: %.1f; " +
+                        "deduplicated messages: %s; bytes before compression: %s, after: %s, compression ratio: %.2f; " +
+                        "batches received: %s",
+                batches, batchStat.getBatchedMessages(), getAverageBatchSize(),
+                batchStat.getDeduplicatedMessages(), batchStat.getUncompressedBytes(), batchStat.getCompressedBytes(),
+                getBatchCompressionRatio(), batchStat.getReceivedBatches());
+    }
+
+    @Override
+    public double getAverageBatchSize() {
+        long batches = batchStat.getSentBatches();
+        return batches == 0 ? 0 : (double) batchStat.getBatchedMessages() / batches;
+    }
+
+    @Override
+    public double getBatchCompressionRatio() {
+        long compressedBytes = batchStat.getCompressedBytes();
+        return compressedBytes == 0 ? 1 : (double) batchStat.getUncompressedBytes() / compressedBytes;
+    }
+
     @Override
     public long getSentMessages(String className) {
         Preconditions.checkNotNullArgument(className, "Message class is null");
@@ -393,10 +540,23 @@ public class ClusterManager implements ClusterManagerAPI {
                 log.debug("Null buffer received");
                 return;
             }
+            Serializable data = (Serializable) SerializationSupport.deserialize(bytes);
+            if (data instanceof ClusterMessageBatch) {
+                ClusterMessageBatch batch = (ClusterMessageBatch) data;
+                log.debug("Received batch: {} ({} bytes)", batch, bytes.length);
+                batchStat.receivedBatches.increment();
+                for (byte[] messageBytes : batch.getMessages()) {
+                    receive(messageBytes, (Serializable) SerializationSupport.deserialize(messageBytes));
+                }
+            } else {
+                receive(bytes, data);
+            }
+        }
+
+        protected void receive(byte[] bytes, Serializable data) {
             StopWatch sw = new Slf4JStopWatch();
             String simpleClassName = null;
             try {
-                Serializable data = (Serializable) SerializationSupport.deserialize(bytes);
                 String className = data.getClass().getName();
                 simpleClassName = data.getClass().getSimpleName();
                 log.debug("Received message: {}: {} ({} bytes)", data.getClass(), data, bytes.length);
@@ -423,35 +583,69 @@ public class ClusterManager implements ClusterManagerAPI {
         public void getState(OutputStream output) {
             log.debug("Sending state");
             try (DataOutputStream out = new DataOutputStream(output)) {
-                Map<String, byte[]> state = new HashMap<>();
-                for (Map.Entry<String, ClusterListener> entry : listeners.entrySet()) {
-                    byte[] data;
-                    StopWatch sw = new Slf4JStopWatch(String.format("getClusterState(%s)", entry.getKey()));
-                    try {
-                        data = entry.getValue().getState();
-                    } finally {
-                        sw.stop();
-                    }
-                    if (data != null && data.length > 0) {
-                        state.put(entry.getKey(), data);
-                    }
-                }
-
-                if (state.size() > 0) {
-                    out.writeUTF(STATE_MAGIC);
-                    out.writeInt(state.size());
-                    for (Map.Entry<String, byte[]> entry : state.entrySet()) {
-                        log.debug("Sending state: {} ({} bytes)", entry.getKey(), entry.getValue().length);
-                        out.writeUTF(entry.getKey());
-                        out.writeInt(entry.getValue().length);
-                        out.write(entry.getValue());
-                    }
+                if (clusterConfig.getStateStreamingEnabled()) {
+                    writeStreamState(out);
+                } else {
+                    writeState(out);
                 }
             } catch (Exception e) {
                 log.error("Error sending state", e);
             }
         }
 
+        protected void writeStreamState(DataOutputStream out) throws IOException {
+            List<Map.Entry<String, ClusterListener>> entries = new ArrayList<>(listeners.entrySet());
+            entries.sort(Comparator.comparingInt(entry -> entry.getValue().getStateOrder()));
+
+            out.writeUTF(STREAM_STATE_MAGIC);
+            for (Map.Entry<String, ClusterListener> entry : entries) {
+                out.writeBoolean(true);
+                out.writeUTF(entry.getKey());
+                StateChunkOutputStream chunks = new StateChunkOutputStream(out);
+                StopWatch sw = new Slf4JStopWatch(String.format("getClusterState(%s)", entry.getKey()));
+                try {
+                    entry.getValue().writeState(chunks);
+                } catch (Exception e) {
+                    log.error("Error writing state: {}", entry.getKey(), e);
+                } finally {
+                    chunks.finish();
+                    sw.stop();
+                }
+                log.debug("Sent state: {} ({} bytes)", entry.getKey(), chunks.getSize());
+            }
+            out.writeBoolean(false);
+        }
+
+        /**
+         * Writes state in the format of previous versions, collecting state of all listeners before sending.
+         */
+        protected void writeState(DataOutputStream out) throws IOException {
+            Map<String, byte[]> state = new HashMap<>();
+            for (Map.Entry<String, ClusterListener> entry : listeners.entrySet()) {
+                byte[] data;
+                StopWatch sw = new Slf4JStopWatch(String.format("getClusterState(%s)", entry.getKey()));
+                try {
+                    data = entry.getValue().getState();
+                } finally {
+                    sw.stop();
+                }
+                if (data != null && data.length > 0) {
+                    state.put(entry.getKey(), data);
+                }
+            }
+
+            if (state.size() > 0) {
+                out.writeUTF(STATE_MAGIC);
+                out.writeInt(state.size());
+                for (Map.Entry<String, byte[]> entry : state.entrySet()) {
+                    log.debug("Sending state: {} ({} bytes)", entry.getKey(), entry.getValue().length);
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(entry.getValue().length);
+                    out.write(entry.getValue());
+                }
+            }
+        }
+
         @Override
         public void suspect(Address suspected_mbr) {
             log.info("Suspected member: {}", suspected_mbr);
@@ -466,37 +660,65 @@ public class ClusterManager implements ClusterManagerAPI {
                     return;
 
                 String magic = in.readUTF();
-                if (!STATE_MAGIC.equals(magic)) {
+                if (STATE_MAGIC.equals(magic)) {
+                    readState(in);
+                } else if (STREAM_STATE_MAGIC.equals(magic)) {
+                    readStreamState(in);
+                } else {
                     log.debug("Invalid magic in state received");
                     return;
                 }
-                int count = in.readInt();
-                for (int i = 0; i < count; i++) {
-                    String name = in.readUTF();
-                    int len = in.readInt();
-                    StopWatch sw = new Slf4JStopWatch(String.format("setClusterState(%s)", name));
-                    try {
-                        log.debug("Receiving state: {} ({} bytes)", name, len);
-                        byte[] data = new byte[len];
-                        int c = in.read(data);
-                        if (c != len) {
-                            log.error("Error receiving state: invalid data length");
-                            return;
-                        }
-                        ClusterListener listener = listeners.get(name);
-                        if (listener != null) {
-                            listener.setState(data);
-                        }
-                    } finally {
-                        sw.stop();
-                    }
-                }
                 log.debug("State received");
             } catch (Exception e) {
                 log.error("Error receiving state", e);
             }
         }
 
+        protected void readStreamState(DataInputStream in) throws IOException {
+            while (in.readBoolean()) {
+                String name = in.readUTF();
+                StateChunkInputStream chunks = new StateChunkInputStream(in);
+                StopWatch sw = new Slf4JStopWatch(String.format("setClusterState(%s)", name));
+                try {
+                    ClusterListener listener = listeners.get(name);
+                    if (listener != null) {
+                        try {
+                            listener.readState(chunks);
+                        } catch (Exception e) {
+                            log.error("Error reading state: {}", name, e);
+                        }
+                    }
+                    chunks.skipRemaining();
+                    log.debug("Received state: {} ({} bytes)", name, chunks.getSize());
+                } finally {
+                    sw.stop();
+                }
+            }
+        }
+
+        /**
+         * Reads state sent by previous versions which collect state of all listeners before sending.
+         */
+        protected void readState(DataInputStream in) throws IOException {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                int len = in.readInt();
+                StopWatch sw = new Slf4JStopWatch(String.format("setClusterState(%s)", name));
+                try {
+                    log.debug("Receiving state: {} ({} bytes)", name, len);
+                    byte[] data = new byte[len];
+                    in.readFully(data);
+                    ClusterListener listener = listeners.get(name);
+                    if (listener != null) {
+                        listener.setState(data);
+                    }
+                } finally {
+                    sw.stop();
+                }
+            }
+        }
+
         @Override
         public void block() {
         }
@@ -506,6 +728,135 @@ public class ClusterManager implements ClusterManagerAPI {
         }
     }
 
+    /**
+     * Splits the state of a listener into length-prefixed chunks, so the state can be written without knowing its
+     * size in advance and the receiver can skip the state of unknown listeners.
+     */
+    protected static class StateChunkOutputStream extends OutputStream {
+        protected final DataOutputStream out;
+        protected final byte[] buffer = new byte[STATE_CHUNK_SIZE];
+        protected int count;
+        protected long size;
+
+        public StateChunkOutputStream(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                writeChunk();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) {
+                    writeChunk();
+                }
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void close() {
+            // the state is finished by ClusterManager, the underlying stream remains open
+        }
+
+        public void finish() throws IOException {
+            writeChunk();
+            out.writeInt(0);
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        protected void writeChunk() throws IOException {
+            if (count > 0) {
+                out.writeInt(count);
+                out.write(buffer, 0, count);
+                size += count;
+                count = 0;
+            }
+        }
+    }
+
+    /**
+     * Reads the state of a listener written by {@link StateChunkOutputStream}.
+     */
+    protected static class StateChunkInputStream extends InputStream {
+        protected final DataInputStream in;
+        protected int remaining;
+        protected boolean finished;
+        protected long size;
+
+        public StateChunkInputStream(DataInputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!nextChunk())
+                return -1;
+            int b = in.read();
+            if (b < 0)
+                throw new EOFException();
+            remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0)
+                return 0;
+            if (!nextChunk())
+                return -1;
+            int n = in.read(b, off, Math.min(len, remaining));
+            if (n < 0)
+                throw new EOFException();
+            remaining -= n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+            // the rest of the state is skipped by ClusterManager, the underlying stream remains open
+        }
+
+        public void skipRemaining() throws IOException {
+            while (nextChunk()) {
+                IOUtils.skipFully(in, remaining);
+                remaining = 0;
+            }
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        protected boolean nextChunk() throws IOException {
+            while (remaining == 0) {
+                if (finished)
+                    return false;
+                int len = in.readInt();
+                if (len == 0) {
+                    finished = true;
+                    return false;
+                }
+                remaining = len;
+                size += len;
+            }
+            return true;
+        }
+    }
+
     protected class SendMessageRunnable implements Runnable {
         protected Serializable message;
 
@@ -551,4 +902,44 @@ public class ClusterManager implements ClusterManagerAPI {
             return receivedMessages.longValue();
         }
     }
+
+    protected static class BatchStat {
+        protected LongAdder sentBatches = new LongAdder();
+        protected LongAdder batchedMessages = new LongAdder();
+        protected LongAdder uncompressedBytes = new LongAdder();
+        protected LongAdder compressedBytes = new LongAdder();
+        protected LongAdder deduplicatedMessages = new LongAdder();
+        protected LongAdder receivedBatches = new LongAdder();
+
+        public void updateSent(ClusterMessageBatch batch) {
+            sentBatches.increment();
+            batchedMessages.add(batch.getMessageCount());
+            uncompressedBytes.add(batch.getSize());
+            compressedBytes.add(batch.getDataSize());
+        }
+
+        public long getSentBatches() {
+            return sentBatches.longValue();
+        }
+
+        public long getBatchedMessages() {
+            return batchedMessages.longValue();
+        }
+
+        public long getUncompressedBytes() {
+            return uncompressedBytes.longValue();
+        }
+
+        public long getCompressedBytes() {
+            return compressedBytes.longValue();
+        }
+
+        public long getDeduplicatedMessages() {
+            return deduplicatedMessages.longValue();
+        }
+
+        public long getReceivedBatches() {
+            return receivedBatches.longValue();
+        }
+    }
 }
\ No newline at end of file
@@ -124,6 +124,23 @@ public interface ClusterManagerAPI {
      */
     String printMessagesStat();
 
+    /**
+     * Message batches statistics
+     *
+     * @return statistics
+     */
+    String printBatchesStat();
+
+    /**
+     * @return average number of messages in sent batches
+     */
+    double getAverageBatchSize();
+
+    /**
+     * @return ratio of the batches size before compression to their size after compression
+     */
+    double getBatchCompressionRatio();
+
     /**
      * Get sent messages count for specified {@code className}
      *
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * INTERNAL.
+ * Envelope for several serialized cluster messages sent as one JGroups message.
+ * <p>
+ * Messages are stored as length-prefixed frames. The frames are compressed with Deflate if their total size
+ * exceeds the compression threshold and compression makes them smaller.
+ */
+public class ClusterMessageBatch implements Serializable {
+
+    private static final long serialVersionUID = 4279125539624850392L;
+
+    protected final int messageCount;
+    protected final int size;
+    protected final boolean compressed;
+    protected final byte[] data;
+
+    protected ClusterMessageBatch(int messageCount, int size, boolean compressed, byte[] data) {
+        this.messageCount = messageCount;
+        this.size = size;
+        this.compressed = compressed;
+        this.data = data;
+    }
+
+    /**
+     * Creates a batch.
+     *
+     * @param messages             serialized messages
+     * @param compressionThreshold minimum size of frames in bytes to compress them, 0 to disable compression
+     */
+    public static ClusterMessageBatch create(List<byte[]> messages, int compressionThreshold) {
+        byte[] frames;
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bos);
+            for (byte[] message : messages) {
+                out.writeInt(message.length);
+                out.write(message);
+            }
+            out.flush();
+            frames = bos.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing cluster message batch", e);
+        }
+
+        if (compressionThreshold > 0 && frames.length >= compressionThreshold) {
+            byte[] deflated = deflate(frames);
+            if (deflated.length < frames.length) {
+                return new ClusterMessageBatch(messages.size(), frames.length, true, deflated);
+            }
+        }
+        return new ClusterMessageBatch(messages.size(), frames.length, false, frames);
+    }
+
+    /**
+     * @return serialized messages in the order they were added
+     */
+    public List<byte[]> getMessages() {
+        List<byte[]> messages = new ArrayList<>(messageCount);
+        try (DataInputStream in = new DataInputStream(compressed ?
+                new InflaterInputStream(new ByteArrayInputStream(data)) : new ByteArrayInputStream(data))) {
+            for (int i = 0; i < messageCount; i++) {
+                byte[] message = new byte[in.readInt()];
+                in.readFully(message);
+                messages.add(message);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading cluster message batch", e);
+        }
+        return messages;
+    }
+
+    public int getMessageCount() {
+        return messageCount;
+    }
+
+    /**
+     * @return size of the frames before compression
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return size of the frames after compression
+     */
+    public int getDataSize() {
+        return data.length;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    protected static byte[] deflate(byte[] bytes) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(bytes.length / 2);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(bos, deflater)) {
+            IOUtils.write(bytes, out);
+        } catch (IOException e) {
+            throw new RuntimeException("Error compressing cluster message batch", e);
+        } finally {
+            deflater.end();
+        }
+        return bos.toByteArray();
+    }
+
+    @Override
+    public String toString() {
+        return "ClusterMessageBatch{messages=" + messageCount + ", size=" + size
+                + (compressed ? ", compressed=" + data.length : "") + "}";
+    }
+}
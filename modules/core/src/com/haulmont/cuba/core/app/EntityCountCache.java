@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.global.queryconditions.Condition;
+import com.haulmont.cuba.core.global.queryconditions.ConditionJpqlGenerator;
+import com.haulmont.cuba.security.global.UserSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps results of {@link DataManager#getCount(LoadContext)} for a short time, see
+ * {@link ServerConfig#getEntityCountCacheTtlSec()}.
+ * <p>
+ * Counts are cached by query, parameters and, if the user has security constraints, by user session. Counts of
+ * queries selecting an entity are discarded when instances of the entity are changed through the persistence layer
+ * of any middleware block of the cluster. Changes made by JPQL update statements or directly in the database are
+ * visible after the time to live.
+ * <p>
+ * The time to live and the maximum size are applied on startup.
+ */
+@Component(EntityCountCache.NAME)
+public class EntityCountCache {
+
+    public static final String NAME = "cuba_EntityCountCache";
+
+    private static final Logger log = LoggerFactory.getLogger(EntityCountCache.class);
+
+    @Inject
+    protected ServerConfig serverConfig;
+
+    @Inject
+    protected ClusterManagerAPI clusterManager;
+
+    @Inject
+    protected Metadata metadata;
+
+    @Inject
+    protected UserSessionSource userSessionSource;
+
+    @Inject
+    protected ConditionJpqlGenerator conditionJpqlGenerator;
+
+    protected Cache<CountKey, Long> counts;
+
+    @PostConstruct
+    public void init() {
+        counts = CacheBuilder.newBuilder()
+                .expireAfterWrite(Math.max(serverConfig.getEntityCountCacheTtlSec(), 0), TimeUnit.SECONDS)
+                .maximumSize(serverConfig.getEntityCountCacheMaxSize())
+                .build();
+
+        clusterManager.addListener(InvalidateCountsMsg.class, new ClusterListenerAdapter<InvalidateCountsMsg>() {
+            @Override
+            public void receive(InvalidateCountsMsg message) {
+                invalidate(message.typeNames, false);
+            }
+        });
+    }
+
+    /**
+     * @return true if the time to live of cached counts is set
+     */
+    public boolean isEnabled() {
+        return serverConfig.getEntityCountCacheTtlSec() > 0;
+    }
+
+    /**
+     * Creates a key of the count query. Must be invoked in the user session of the query.
+     *
+     * @return key or null if the count of the query cannot be cached
+     */
+    @Nullable
+    public CountKey createKey(LoadContext<? extends Entity> context, String storeName) {
+        LoadContext.Query contextQuery = context.getQuery();
+        // a joined transaction can contain uncommitted changes
+        if (contextQuery == null || !context.getPrevQueries().isEmpty() || context.isJoinTransaction()) {
+            return null;
+        }
+
+        String queryString = contextQuery.getQueryString();
+        Map<String, Object> parameters = new HashMap<>(contextQuery.getParameters());
+        Condition condition = contextQuery.getCondition();
+        if (condition != null) {
+            queryString = conditionJpqlGenerator.processQuery(queryString, condition.actualize(parameters.keySet()));
+        }
+
+        Set<String> typeNames;
+        try {
+            QueryParser parser = QueryTransformerFactory.createParser(queryString);
+            typeNames = parser.getAllEntityNames();
+        } catch (RuntimeException e) {
+            log.debug("Unable to parse query, the count is not cached: {}", queryString, e);
+            return null;
+        }
+
+        UserSession userSession = userSessionSource.getUserSession();
+        // constraints can depend on user session attributes
+        UUID sessionId = userSession.hasConstraints() ? userSession.getId() : null;
+
+        return new CountKey(storeName, queryString, parameters, context.isSoftDeletion(), context.getCountLimit(),
+                new HashMap<>(context.getDbHints()), sessionId, getDescendants(typeNames));
+    }
+
+    /**
+     * @return cached count or null if it is not cached or expired
+     */
+    @Nullable
+    public Long get(CountKey key) {
+        return counts.getIfPresent(key);
+    }
+
+    public void put(CountKey key, long count) {
+        counts.put(key, count);
+    }
+
+    /**
+     * Discards cached counts of queries using the given entities.
+     *
+     * @param typeNames     names of changed entities
+     * @param sendInCluster whether to discard counts in all middleware blocks of the cluster
+     */
+    public void invalidate(Set<String> typeNames, boolean sendInCluster) {
+        if (typeNames.isEmpty() || !isEnabled()) {
+            return;
+        }
+        counts.asMap().keySet().removeIf(key -> !Collections.disjoint(key.typeNames, typeNames));
+        if (sendInCluster) {
+            clusterManager.send(new InvalidateCountsMsg(new HashSet<>(typeNames)));
+        }
+    }
+
+    public void invalidateAll() {
+        counts.invalidateAll();
+    }
+
+    protected Set<String> getDescendants(Set<String> typeNames) {
+        Set<String> result = new HashSet<>(typeNames);
+        for (String typeName : typeNames) {
+            MetaClass metaClass = metadata.getClass(typeName);
+            if (metaClass != null && metaClass.getDescendants() != null) {
+                for (MetaClass descendant : metaClass.getDescendants()) {
+                    result.add(descendant.getName());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Identifies a count query.
+     */
+    public static class CountKey {
+
+        protected final String storeName;
+        protected final String queryString;
+        protected final Map<String, Object> parameters;
+        protected final boolean softDeletion;
+        protected final long countLimit;
+        protected final Map<String, Object> dbHints;
+        protected final UUID sessionId;
+        protected final Set<String> typeNames;
+
+        protected CountKey(String storeName, String queryString, Map<String, Object> parameters, boolean softDeletion,
+                           long countLimit, Map<String, Object> dbHints, UUID sessionId, Set<String> typeNames) {
+            this.storeName = storeName;
+            this.queryString = queryString;
+            this.parameters = parameters;
+            this.softDeletion = softDeletion;
+            this.countLimit = countLimit;
+            this.dbHints = dbHints;
+            this.sessionId = sessionId;
+            this.typeNames = typeNames;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            CountKey that = (CountKey) o;
+            return softDeletion == that.softDeletion
+                    && countLimit == that.countLimit
+                    && Objects.equals(storeName, that.storeName)
+                    && Objects.equals(queryString, that.queryString)
+                    && Objects.equals(parameters, that.parameters)
+                    && Objects.equals(dbHints, that.dbHints)
+                    && Objects.equals(sessionId, that.sessionId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(storeName, queryString, parameters, softDeletion, countLimit, dbHints, sessionId);
+        }
+
+        @Override
+        public String toString() {
+            return "CountKey{query=" + queryString + ", parameters=" + parameters + "}";
+        }
+    }
+
+    protected static class InvalidateCountsMsg implements IdempotentClusterMessage {
+
+        private static final long serialVersionUID = -2351853480212489562L;
+
+        protected Set<String> typeNames;
+
+        public InvalidateCountsMsg(Set<String> typeNames) {
+            this.typeNames = typeNames;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            return Objects.equals(typeNames, ((InvalidateCountsMsg) o).typeNames);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(typeNames);
+        }
+    }
+}
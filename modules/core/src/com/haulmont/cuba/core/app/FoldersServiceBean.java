@@ -83,6 +83,9 @@ public class FoldersServiceBean implements FoldersService {
     @Inject
     protected TimeSource timeSource;
 
+    @Inject
+    protected AppFolderQuantityCache appFolderQuantityCache;
+
     @Override
     public List<AppFolder> loadAppFolders() {
         log.debug("Loading AppFolders");
@@ -114,31 +117,24 @@ public class FoldersServiceBean implements FoldersService {
             Iterator<AppFolder> iterator = resultList.iterator();
             while (iterator.hasNext()) {
                 AppFolder folder = iterator.next();
+                if (StringUtils.isBlank(folder.getVisibilityScript())) {
+                    continue;
+                }
                 try (Transaction tx = persistence.createTransaction()) {
-                    boolean evaluatedVisibilityScript = true;
-                    try {
-                        if (!StringUtils.isBlank(folder.getVisibilityScript())) {
-                            binding.setVariable("folder", folder);
-                            Boolean visible = runScript(folder.getVisibilityScript(), binding);
-                            if (BooleanUtils.isFalse(visible)) {
-                                iterator.remove();
-                                continue;
-                            }
-                        }
-                    } catch (Exception e) {
-                        log.warn("Unable to evaluate AppFolder visibility script for folder: id: {}  name: {}",
-                                folder.getId(), folder.getName(), e);
-                        // because EclipseLink Query marks transaction as rollback-only on JPQL syntax errors
-                        evaluatedVisibilityScript = false;
-                    }
-
-                    boolean evaluatedQuantityScript = loadFolderQuantity(binding, folder);
-
-                    if (evaluatedVisibilityScript && evaluatedQuantityScript) {
-                        tx.commit();
+                    binding.setVariable("folder", folder);
+                    Boolean visible = runScript(folder.getVisibilityScript(), binding);
+                    if (BooleanUtils.isFalse(visible)) {
+                        iterator.remove();
                     }
+                    // EclipseLink Query marks transaction as rollback-only on JPQL syntax errors, so commit on success only
+                    tx.commit();
+                } catch (Exception e) {
+                    log.warn("Unable to evaluate AppFolder visibility script for folder: id: {}  name: {}",
+                            folder.getId(), folder.getName(), e);
                 }
             }
+
+            appFolderQuantityCache.loadQuantities(resultList);
         }
 
         return resultList;
@@ -163,21 +159,7 @@ public class FoldersServiceBean implements FoldersService {
 
         try {
             if (!folders.isEmpty()) {
-                Binding binding = new Binding();
-                binding.setVariable("persistence", persistence);
-                binding.setVariable("metadata", metadata);
-                binding.setProperty("userSession", userSessionSource.getUserSession());
-
-                for (AppFolder folder : folders) {
-                    Transaction tx = persistence.createTransaction();
-                    try {
-                        if (loadFolderQuantity(binding, folder)) {
-                            tx.commit();
-                        }
-                    } finally {
-                        tx.end();
-                    }
-                }
+                appFolderQuantityCache.loadQuantities(folders);
             }
 
             return folders;
@@ -186,27 +168,6 @@ public class FoldersServiceBean implements FoldersService {
         }
     }
 
-    protected boolean loadFolderQuantity(Binding binding, AppFolder folder) {
-        if (!StringUtils.isBlank(folder.getQuantityScript())) {
-            binding.setVariable("folder", folder);
-
-            String styleVariable = "style";
-            binding.setVariable(styleVariable, null);
-
-            try {
-                Number qty = runScript(folder.getQuantityScript(), binding);
-                folder.setItemStyle((String) binding.getVariable(styleVariable));
-                folder.setQuantity(qty == null ? null : qty.intValue());
-            } catch (Exception e) {
-                log.warn("Unable to evaluate AppFolder quantity script for folder: id: {} , name: {}",
-                        folder.getId(), folder.getName(), e);
-                return false;
-            }
-        }
-
-        return true;
-    }
-
     @Override
     public List<SearchFolder> loadSearchFolders() {
         log.debug("Loading SearchFolders");
@@ -75,6 +75,8 @@ public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
 
     private static final Logger log = LoggerFactory.getLogger(LockManager.class);
 
+    protected static final int STATE_RESET_INTERVAL = 1000;
+
     private volatile Map<String, LockDescriptor> config;
 
     private Map<LockKey, LockInfo> locks = new ConcurrentHashMap<>();
@@ -269,4 +271,31 @@ public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
             receive(lockInfo);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public void writeState(OutputStream out) throws IOException {
+        ObjectOutputStream oos = new ObjectOutputStream(out);
+        int count = 0;
+        for (LockInfo lockInfo : locks.values()) {
+            oos.writeBoolean(true);
+            oos.writeObject(lockInfo);
+            if (++count % STATE_RESET_INTERVAL == 0) {
+                oos.reset();
+            }
+        }
+        oos.writeBoolean(false);
+        oos.flush();
+    }
+
+    @Override
+    public void readState(InputStream in) throws IOException {
+        ObjectInputStream ois = new ObjectInputStream(in);
+        while (ois.readBoolean()) {
+            try {
+                receive((LockInfo) ois.readObject());
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Error deserializing LockInfo", e);
+            }
+        }
+    }
+}
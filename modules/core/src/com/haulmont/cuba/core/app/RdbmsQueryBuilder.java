@@ -23,6 +23,7 @@ import com.haulmont.chile.core.model.*;
 import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.PersistenceSecurity;
 import com.haulmont.cuba.core.Query;
+import com.haulmont.cuba.core.app.queryresults.QueryResultsManagerAPI;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.global.queryconditions.Condition;
 import com.haulmont.cuba.core.global.queryconditions.ConditionJpqlGenerator;
@@ -55,6 +56,7 @@ public class RdbmsQueryBuilder {
     protected String[] noConversionParams;
     protected String entityName;
     protected boolean singleResult;
+    protected boolean inMemoryConstraintsChecked;
 
     @Inject
     protected Metadata metadata;
@@ -65,6 +67,9 @@ public class RdbmsQueryBuilder {
     @Inject
     private ConditionJpqlGenerator conditionJpqlGenerator;
 
+    @Inject
+    protected QueryResultsManagerAPI queryResultsManager;
+
     public void init(@Nullable String queryString, Condition condition, Sort sort,
                      Map<String, Object> queryParams, String[] noConversionParams,
                      @Nullable Object id, String entityName)
@@ -103,12 +108,35 @@ public class RdbmsQueryBuilder {
         this.singleResult = singleResult;
     }
 
+    /**
+     * @param inMemoryConstraintsChecked true if the loaded entities are checked by in-memory constraints afterwards
+     */
+    public void setInMemoryConstraintsChecked(boolean inMemoryConstraintsChecked) {
+        this.inMemoryConstraintsChecked = inMemoryConstraintsChecked;
+    }
+
     public void restrictByPreviousResults(UUID sessionId, int queryKey) {
         QueryTransformer transformer = QueryTransformerFactory.createTransformer(queryString);
         MetaClass metaClass = metadata.getClassNN(entityName);
         MetaProperty primaryKey = metadata.getTools().getPrimaryKeyProperty(metaClass);
         if (primaryKey == null)
             throw new IllegalStateException(String.format("Entity %s has no primary key", entityName));
+
+        // the parameters are passed by the caller and can be immutable
+        this.queryParams = new HashMap<>(this.queryParams);
+
+        List<Object> ids = queryResultsManager.getResultIds(sessionId, queryKey);
+        if (ids != null) {
+            if (ids.isEmpty()) {
+                transformer.addWhere(String.format("{E}.%s is null", primaryKey.getName()));
+            } else {
+                transformer.addWhere(String.format("{E}.%s in :_qr_ids", primaryKey.getName()));
+                this.queryParams.put("_qr_ids", ids);
+            }
+            queryString = transformer.getResult();
+            return;
+        }
+
         Class type = primaryKey.getJavaType();
         String entityIdField;
         if (UUID.class.equals(type)) {
@@ -270,7 +298,7 @@ public class RdbmsQueryBuilder {
     }
 
     protected void applyConstraints(Query query) {
-        boolean constraintsApplied = security.applyConstraints(query);
+        boolean constraintsApplied = security.applyConstraints(query, inMemoryConstraintsChecked);
         if (constraintsApplied && singleResult) {
             QueryParser parser = QueryTransformerFactory.createParser(query.getQueryString());
             if (parser.isQueryWithJoins()) {
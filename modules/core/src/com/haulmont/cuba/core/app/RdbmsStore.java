@@ -59,6 +59,8 @@ public class RdbmsStore implements DataStore {
 
     private static final Logger log = LoggerFactory.getLogger(RdbmsStore.class);
 
+    protected static final String LAST_LOADED_ID_PARAM = "_lastLoadedId";
+
     @Inject
     protected Metadata metadata;
 
@@ -101,6 +103,9 @@ public class RdbmsStore implements DataStore {
     @Inject
     protected EntityChangedEventManager entityChangedEventManager;
 
+    @Inject
+    protected EntityCountCache entityCountCache;
+
     protected String storeName;
 
     public RdbmsStore(String storeName) {
@@ -281,33 +286,26 @@ public class RdbmsStore implements DataStore {
             context.getQuery().setQueryString("select e from " + metaClass.getName() + " e");
         }
 
-        if (security.hasInMemoryConstraints(metaClass, ConstraintOperationType.READ, ConstraintOperationType.ALL)) {
-            List resultList;
-            try (Transaction tx = getLoadTransaction(context.isJoinTransaction())) {
-                EntityManager em = persistence.getEntityManager(storeName);
-                em.setSoftDeletion(context.isSoftDeletion());
-                persistence.getEntityManagerContext(storeName).setDbHints(context.getDbHints());
-
-                boolean ensureDistinct = false;
-                if (serverConfig.getInMemoryDistinct() && context.getQuery() != null) {
-                    QueryTransformer transformer = QueryTransformerFactory.createTransformer(
-                            context.getQuery().getQueryString());
-                    ensureDistinct = transformer.removeDistinct();
-                    if (ensureDistinct) {
-                        context.getQuery().setQueryString(transformer.getResult());
-                    }
-                }
-                context.getQuery().setFirstResult(0);
-                context.getQuery().setMaxResults(0);
+        EntityCountCache.CountKey countKey = entityCountCache.isEnabled() ? entityCountCache.createKey(context, storeName) : null;
+        if (countKey != null) {
+            Long cachedCount = entityCountCache.get(countKey);
+            if (cachedCount != null) {
+                log.debug("getCount: returning cached count {}", cachedCount);
+                return cachedCount;
+            }
+        }
 
-                Query query = createQuery(em, context, false);
-                query.setView(createRestrictedView(context));
+        long count = getCountFromStore(context, metaClass);
 
-                resultList = getResultList(context, query, ensureDistinct);
+        if (countKey != null) {
+            entityCountCache.put(countKey, count);
+        }
+        return count;
+    }
 
-                tx.commit();
-            }
-            return resultList.size();
+    protected long getCountFromStore(LoadContext<? extends Entity> context, MetaClass metaClass) {
+        if (security.hasInMemoryConstraints(metaClass, ConstraintOperationType.READ, ConstraintOperationType.ALL)) {
+            return getCountWithInMemoryConstraints(context, metaClass);
         } else {
             QueryTransformer transformer = QueryTransformerFactory.createTransformer(context.getQuery().getQueryString());
             transformer.replaceWithCount();
@@ -329,6 +327,98 @@ public class RdbmsStore implements DataStore {
         }
     }
 
+    /**
+     * Counts entities checking in-memory read constraints. Entities are loaded in batches ordered by the primary key,
+     * if possible only with attributes used by the constraints, and are not kept after checking.
+     */
+    @SuppressWarnings("unchecked")
+    protected long getCountWithInMemoryConstraints(LoadContext<? extends Entity> context, MetaClass metaClass) {
+        int batchSize = serverConfig.getInMemoryConstraintsCountBatchSize();
+        long countLimit = context.getCountLimit();
+        long count = 0;
+        try (Transaction tx = getLoadTransaction(context.isJoinTransaction())) {
+            EntityManager em = persistence.getEntityManager(storeName);
+            em.setSoftDeletion(context.isSoftDeletion());
+            persistence.getEntityManagerContext(storeName).setDbHints(context.getDbHints());
+
+            LoadContext.Query contextQuery = context.getQuery();
+            QueryParser parser = queryTransformerFactory.parser(contextQuery.getQueryString());
+            QueryTransformer transformer = QueryTransformerFactory.createTransformer(contextQuery.getQueryString());
+            boolean ensureDistinct = serverConfig.getInMemoryDistinct() && transformer.removeDistinct();
+            String primaryKeyName = metadataTools.getPrimaryKeyName(metaClass);
+            // batches are selected by the last loaded primary key, so the database does not scan skipped rows.
+            // Rows of an entity joined with a collection can be split between batches, so it is done only
+            // if duplicates are removed anyway.
+            boolean keyset = primaryKeyName != null && !metadataTools.hasCompositePrimaryKey(metaClass)
+                    && (ensureDistinct || !parser.isQueryWithJoins());
+            String firstBatchQuery;
+            String nextBatchQuery = null;
+            if (keyset) {
+                transformer.replaceOrderBy(false, primaryKeyName);
+                firstBatchQuery = transformer.getResult();
+                transformer.addWhere("{E}." + primaryKeyName + " > :" + LAST_LOADED_ID_PARAM);
+                nextBatchQuery = transformer.getResult();
+            } else {
+                if (primaryKeyName != null) {
+                    // batches must not overlap
+                    transformer.addOrderByIdIfNotExists(primaryKeyName);
+                }
+                firstBatchQuery = transformer.getResult();
+            }
+            contextQuery.setFirstResult(0);
+            contextQuery.setMaxResults(0);
+
+            View view = security.getInMemoryConstraintsView(metaClass);
+            if (view == null) {
+                view = createRestrictedView(context);
+            }
+
+            Set<Object> ids = ensureDistinct ? new HashSet<>() : null;
+            Object lastId = null;
+            int firstResult = 0;
+            while (countLimit <= 0 || count <= countLimit) {
+                if (lastId == null) {
+                    contextQuery.setQueryString(firstBatchQuery);
+                } else {
+                    contextQuery.setQueryString(nextBatchQuery);
+                    contextQuery.setParameter(LAST_LOADED_ID_PARAM, lastId);
+                }
+                Query query = createQuery(em, context, false);
+                query.setView(view);
+                if (!keyset) {
+                    query.setFirstResult(firstResult);
+                }
+                query.setMaxResults(batchSize);
+                List<Entity> list = executeQuery(query, false);
+                int loaded = list.size();
+                if (keyset && loaded > 0) {
+                    Object id = list.get(loaded - 1).getId();
+                    lastId = id instanceof IdProxy ? ((IdProxy) id).getNN() : id;
+                }
+
+                security.filterByConstraints(list);
+                if (ids != null) {
+                    list.forEach(entity -> ids.add(entity.getId()));
+                    count = ids.size();
+                } else {
+                    count += list.size();
+                }
+
+                if (loaded < batchSize) {
+                    break;
+                }
+                firstResult += batchSize;
+                if (!context.isJoinTransaction()) {
+                    // the entity manager belongs to this method only
+                    em.getDelegate().clear();
+                }
+            }
+
+            tx.commit();
+        }
+        return count;
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public Set<Entity> commit(CommitContext context) {
@@ -585,7 +675,7 @@ public class RdbmsStore implements DataStore {
     protected View getViewFromContext(CommitContext context, Entity entity) {
         View view = context.getViews().get(entity);
         if (view == null) {
-            view = viewRepository.getView(entity.getClass(), View.LOCAL);
+            view = viewRepository.getFrozenView(metadata.getClassNN(entity.getClass()), View.LOCAL);
         }
         return isAuthorizationRequired(context) ? attributeSecurity.createRestrictedView(view) : view;
     }
@@ -626,6 +716,8 @@ public class RdbmsStore implements DataStore {
         );
 
         queryBuilder.setSingleResult(singleResult);
+        // loaded entities are always filtered if the entity has in-memory constraints
+        queryBuilder.setInMemoryConstraintsChecked(needToFilterByInMemoryReadConstraints(context));
 
         if (!context.getPrevQueries().isEmpty()) {
             log.debug("Restrict query by previous results");
@@ -648,15 +740,17 @@ public class RdbmsStore implements DataStore {
 
     protected View createRestrictedView(LoadContext context) {
         View view = context.getView() != null ? context.getView() :
-                viewRepository.getView(metadata.getClassNN(context.getMetaClass()), View.LOCAL);
-        View copy = View.copy(isAuthorizationRequired(context) ? attributeSecurity.createRestrictedView(view) : view);
-        if (context.isLoadPartialEntities()
+                viewRepository.getFrozenView(metadata.getClassNN(context.getMetaClass()), View.LOCAL);
+        View restrictedView = isAuthorizationRequired(context) ? attributeSecurity.createRestrictedView(view) : view;
+        boolean loadPartialEntities = context.isLoadPartialEntities()
                 && !needToApplyInMemoryReadConstraints(context)
                 && !needToFilterByInMemoryReadConstraints(context)
-                && !needToApplyAttributeAccess(context)) {
-            copy.setLoadPartialEntities(true);
+                && !needToApplyAttributeAccess(context);
+        // the view is not modified afterwards, so it is copied only to change the flag
+        if (restrictedView.loadPartialEntities() != loadPartialEntities) {
+            restrictedView = restrictedView.derive().setLoadPartialEntities(loadPartialEntities);
         }
-        return copy;
+        return restrictedView;
     }
 
     @SuppressWarnings("unchecked")
@@ -969,7 +1063,7 @@ public class RdbmsStore implements DataStore {
         }
 
         Session session = metadata.getSession();
-        for (Class aClass : collectEntityClasses(context.getView(), new HashSet<>())) {
+        for (Class aClass : collectEntityClasses(context.getView())) {
             if (hasConstraints.test(session.getClassNN(aClass))) {
                 return true;
             }
@@ -981,27 +1075,23 @@ public class RdbmsStore implements DataStore {
         if (view == null) {
             return Collections.emptySet();
         }
-        return collectEntityClasses(view, new HashSet<>()).stream()
+        return collectEntityClasses(view).stream()
                 .filter(BaseGenericIdEntity.class::isAssignableFrom)
                 .filter(aClass -> !dynamicAttributesManagerAPI.getAttributesForMetaClass(metadata.getClassNN(aClass)).isEmpty())
                 .collect(Collectors.toSet());
     }
 
-    protected Set<Class> collectEntityClasses(View view, Set<View> visited) {
-        if (visited.contains(view)) {
-            return Collections.emptySet();
-        } else {
-            visited.add(view);
-        }
+    @SuppressWarnings("unchecked")
+    protected Set<Class> collectEntityClasses(View view) {
+        return (Set) view.getEntityClasses();
+    }
 
-        HashSet<Class> classes = new HashSet<>();
-        classes.add(view.getEntityClass());
-        for (ViewProperty viewProperty : view.getProperties()) {
-            if (viewProperty.getView() != null) {
-                classes.addAll(collectEntityClasses(viewProperty.getView(), visited));
-            }
-        }
-        return classes;
+    /**
+     * @deprecated use {@link #collectEntityClasses(View)}
+     */
+    @Deprecated
+    protected Set<Class> collectEntityClasses(View view, Set<View> visited) {
+        return collectEntityClasses(view);
     }
 
     protected Transaction getLoadTransaction(boolean useCurrentTransaction) {
@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.global.Stores;
+import com.haulmont.cuba.core.sys.events.AppContextStoppedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Issues numbers from blocks reserved in a database sequence (hi/lo allocation).
+ * <p>
+ * The increment of a {@link Sequence} passed to this bean is the block size: a single call to
+ * {@link Sequences#createNextValue(Sequence)} returning {@code v} reserves numbers from {@code v - increment + 1}
+ * to {@code v} for this middleware block. So the start value of the sequence must be the last number of the first
+ * block, and after {@link Sequences#setCurrentValue(Sequence, long)} with {@code v} the next block starts with
+ * {@code v + 1}. Numbers are issued from the reserved block without locking,
+ * the next block is reserved in background when {@link ServerConfig#getUniqueNumbersBlockPrefetchPercent()} percent
+ * of the current block is left.
+ * <p>
+ * Numbers are unique, but not gapless: the rest of reserved blocks is lost on restart, and numbers issued by
+ * different middleware blocks interleave. {@link #discard(Sequence)} is sent to all middleware blocks of the cluster
+ * asynchronously, so other blocks can issue numbers from their old blocks until they receive the message.
+ */
+@Component(SequenceBlockAllocator.NAME)
+public class SequenceBlockAllocator {
+
+    public static final String NAME = "cuba_SequenceBlockAllocator";
+
+    private static final Logger log = LoggerFactory.getLogger(SequenceBlockAllocator.class);
+
+    @Inject
+    protected Sequences sequences;
+
+    @Inject
+    protected Persistence persistence;
+
+    @Inject
+    protected ServerConfig serverConfig;
+
+    @Inject
+    protected ClusterManagerAPI clusterManager;
+
+    protected ConcurrentMap<String, SequenceBlocks> sequenceBlocks = new ConcurrentHashMap<>();
+
+    protected ExecutorService prefetchExecutor = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("SequenceBlockPrefetch-%d").setDaemon(true).build());
+
+    protected LongAdder issuedCount = new LongAdder();
+    protected AtomicLong reservedCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        clusterManager.addListener(DiscardBlocksMsg.class, new ClusterListenerAdapter<DiscardBlocksMsg>() {
+            @Override
+            public void receive(DiscardBlocksMsg message) {
+                sequenceBlocks.remove(message.key);
+            }
+        });
+    }
+
+    /**
+     * Returns the next number from the block reserved for the sequence, reserving a new block if needed.
+     *
+     * @param sequence sequence with the block size as increment
+     * @return next number
+     */
+    public long getNext(Sequence sequence) {
+        Preconditions.checkNotNull(sequence, "Sequence can't be null");
+        Preconditions.checkArgument(sequence.getIncrement() > 0, "Block size must be positive");
+
+        SequenceBlocks blocks = sequenceBlocks.computeIfAbsent(getKey(sequence), key -> new SequenceBlocks(sequence));
+        long value = blocks.next();
+        issuedCount.increment();
+        return value;
+    }
+
+    /**
+     * @return the last number issued by this middleware block for the sequence, or null if no numbers were issued
+     * since startup or the last {@link #discard(Sequence)}
+     */
+    @Nullable
+    public Long getLastIssued(Sequence sequence) {
+        SequenceBlocks blocks = sequenceBlocks.get(getKey(sequence));
+        return blocks != null ? blocks.lastIssued() : null;
+    }
+
+    /**
+     * Discards blocks reserved for the sequence by all middleware blocks of the cluster. Should be invoked when
+     * the sequence is modified or deleted.
+     */
+    public void discard(Sequence sequence) {
+        String key = getKey(sequence);
+        sequenceBlocks.remove(key);
+        clusterManager.send(new DiscardBlocksMsg(key));
+    }
+
+    /**
+     * @return number of blocks reserved in the database since startup
+     */
+    public long getReservedBlockCount() {
+        return reservedCount.get();
+    }
+
+    /**
+     * @return number of issued numbers
+     */
+    public long getIssuedCount() {
+        return issuedCount.sum();
+    }
+
+    /**
+     * @return number of database calls avoided since startup
+     */
+    public long getSavedDbCallCount() {
+        return Math.max(0, getIssuedCount() - getReservedBlockCount());
+    }
+
+    /**
+     * @return blocks currently used by this middleware block, by sequence
+     */
+    public Map<String, String> getBlocksInfo() {
+        Map<String, String> result = new TreeMap<>();
+        for (Map.Entry<String, SequenceBlocks> entry : sequenceBlocks.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().toString());
+        }
+        return result;
+    }
+
+    @EventListener(AppContextStoppedEvent.class)
+    protected void applicationStopped() {
+        prefetchExecutor.shutdownNow();
+    }
+
+    protected String getKey(Sequence sequence) {
+        return getDataStore(sequence) + "/" + sequence.getName();
+    }
+
+    protected String getDataStore(Sequence sequence) {
+        return sequence.getDataStore() == null ? Stores.MAIN : sequence.getDataStore();
+    }
+
+    protected Block reserve(Sequence sequence) {
+        long value;
+        // Reserve in a separate transaction, so the block is not returned to the sequence if the caller rolls back
+        try (Transaction tx = persistence.createTransaction(getDataStore(sequence))) {
+            value = sequences.createNextValue(sequence);
+            tx.commit();
+        }
+        reservedCount.incrementAndGet();
+
+        long size = sequence.getIncrement();
+        long prefetchThreshold = size * serverConfig.getUniqueNumbersBlockPrefetchPercent() / 100;
+        log.debug("Reserved block {}..{} of sequence {}", value - size + 1, value, getKey(sequence));
+        return new Block(value - size + 1, value, prefetchThreshold > 0 ? value - prefetchThreshold : null);
+    }
+
+    protected static class Block {
+
+        protected final long first;
+        protected final long last;
+        protected final Long prefetchAt;
+        protected final AtomicLong next;
+
+        protected Block(long first, long last, @Nullable Long prefetchAt) {
+            this.first = first;
+            this.last = last;
+            this.prefetchAt = prefetchAt;
+            this.next = new AtomicLong(first);
+        }
+
+        @Override
+        public String toString() {
+            return Math.min(next.get(), last + 1) + ".." + last;
+        }
+    }
+
+    protected class SequenceBlocks {
+
+        protected final Sequence sequence;
+
+        protected volatile Block current = new Block(1, 0, null);
+        protected volatile Future<Block> prefetched;
+
+        protected SequenceBlocks(Sequence sequence) {
+            this.sequence = sequence;
+        }
+
+        protected long next() {
+            while (true) {
+                Block block = current;
+                long value = block.next.getAndIncrement();
+                if (value <= block.last) {
+                    if (block.prefetchAt != null && value == block.prefetchAt) {
+                        prefetch();
+                    }
+                    return value;
+                }
+                switchBlock(block);
+            }
+        }
+
+        @Nullable
+        protected Long lastIssued() {
+            Block block = current;
+            long issued = Math.min(block.next.get(), block.last + 1) - 1;
+            return issued >= block.first ? issued : null;
+        }
+
+        protected synchronized void prefetch() {
+            if (prefetched == null) {
+                try {
+                    prefetched = prefetchExecutor.submit(() -> reserve(sequence));
+                } catch (RejectedExecutionException e) {
+                    // the application is stopping, the next block will be reserved on switching
+                    log.debug("Unable to prefetch block of sequence {}: {}", getKey(sequence), e.toString());
+                }
+            }
+        }
+
+        protected synchronized void switchBlock(Block exhausted) {
+            if (current != exhausted)
+                return;
+
+            Block block = null;
+            Future<Block> future = prefetched;
+            prefetched = null;
+            if (future != null) {
+                try {
+                    block = future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    log.warn("Unable to prefetch block of sequence {}", getKey(sequence), e.getCause());
+                }
+            }
+            current = block != null ? block : reserve(sequence);
+        }
+
+        @Override
+        public String toString() {
+            return current + " (block size " + sequence.getIncrement() + (prefetched != null ? ", next block prefetched)" : ")");
+        }
+    }
+
+    protected static class DiscardBlocksMsg implements Serializable {
+
+        private static final long serialVersionUID = -5327464178513402461L;
+
+        protected final String key;
+
+        public DiscardBlocksMsg(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public String toString() {
+            return "DiscardBlocksMsg{key=" + key + "}";
+        }
+    }
+}
@@ -21,8 +21,12 @@ import com.haulmont.cuba.core.config.Property;
 import com.haulmont.cuba.core.config.Source;
 import com.haulmont.cuba.core.config.SourceType;
 import com.haulmont.cuba.core.config.defaults.*;
+import com.haulmont.cuba.core.config.type.CommaSeparatedStringListTypeFactory;
+import com.haulmont.cuba.core.config.type.Factory;
 import com.haulmont.cuba.security.app.UserSessionsAPI;
 
+import java.util.List;
+
 /**
  * Configuration parameters interface used by the CORE layer.
  */
@@ -94,6 +98,23 @@ public interface ServerConfig extends Config {
     int getUserSessionSendTimeoutSec();
     void setUserSessionSendTimeoutSec(int timeout);
 
+    /**
+     * @return whether refreshed user sessions are sent to the cluster as compact touch messages holding only session
+     * ids and last used timestamps instead of whole sessions. Must be enabled only when all cluster members support
+     * the messages.
+     */
+    @Property("cuba.userSessionTouchMessages")
+    @DefaultBoolean(false)
+    boolean getUserSessionTouchMessagesEnabled();
+
+    /**
+     * @return interval in seconds after which a refreshed user session is sent to the cluster as a whole again
+     * if {@link #getUserSessionTouchMessagesEnabled()} is true, so cluster members that missed the session get it
+     */
+    @Property("cuba.userSessionFullSendTimeoutSec")
+    @DefaultInt(600)
+    int getUserSessionFullSendTimeoutSec();
+
     /**
      * {@link UserSessionsAPI} will update last used timestamp for a session only if the old value is older than
      * the current + timeout.
@@ -131,6 +152,15 @@ public interface ServerConfig extends Config {
     @DefaultBoolean(true)
     boolean getImmutableFileStorage();
 
+    /**
+     * @return maximum number of files waiting for replication to secondary storage directories in
+     * {@link com.haulmont.cuba.core.app.filestorage.ContentAddressedFileStorage}. When the queue is full, files are
+     * replicated synchronously by the saving thread.
+     */
+    @Property("cuba.fileStorageReplicationQueueSize")
+    @DefaultInt(1000)
+    int getFileStorageReplicationQueueSize();
+
     /**
      * @return Scheduled tasks execution control.
      */
@@ -167,6 +197,58 @@ public interface ServerConfig extends Config {
     boolean getInMemoryDistinct();
     void setInMemoryDistinct(boolean value);
 
+    /**
+     * @return number of entities loaded at once when counting entities having in-memory read constraints
+     */
+    @Property("cuba.inMemoryConstraintsCountBatchSize")
+    @DefaultInt(1000)
+    int getInMemoryConstraintsCountBatchSize();
+
+    /**
+     * @return time to live in seconds of entity counts cached by {@link EntityCountCache}. 0 to disable the cache.
+     * Changes take effect after restart.
+     */
+    @Property("cuba.entityCountCacheTtlSec")
+    @DefaultInt(0)
+    int getEntityCountCacheTtlSec();
+
+    /**
+     * @return maximum number of entity counts cached by {@link EntityCountCache}. Changes take effect after restart.
+     */
+    @Property("cuba.entityCountCacheMaxSize")
+    @DefaultInt(10000)
+    int getEntityCountCacheMaxSize();
+
+    /**
+     * @return time to live in seconds of AppFolder quantities cached by {@link AppFolderQuantityCache}.
+     * 0 to evaluate quantity scripts on each request. Changes take effect after restart.
+     */
+    @Property("cuba.appFolderQuantityCacheTtlSec")
+    @DefaultInt(60)
+    int getAppFolderQuantityCacheTtlSec();
+
+    /**
+     * @return maximum number of AppFolder quantities cached by {@link AppFolderQuantityCache}
+     */
+    @Property("cuba.appFolderQuantityCacheMaxSize")
+    @DefaultInt(1000)
+    int getAppFolderQuantityCacheMaxSize();
+
+    /**
+     * @return time in seconds to wait for AppFolder quantities, folders whose quantities are not evaluated in time
+     * keep their previous values
+     */
+    @Property("cuba.appFolderQuantityTimeoutSec")
+    @DefaultInt(10)
+    int getAppFolderQuantityTimeoutSec();
+
+    /**
+     * @return number of threads evaluating AppFolder quantity scripts
+     */
+    @Property("cuba.appFolderQuantityThreads")
+    @DefaultInt(4)
+    int getAppFolderQuantityThreads();
+
     /**
      * @return Default database query timeout in seconds. If 0, middleware doesn't apply any timeout to queries.
      */
@@ -308,4 +390,65 @@ public interface ServerConfig extends Config {
     @Property("cuba.implicitConversionOfJpqlParams")
     @DefaultBoolean(false)
     boolean getImplicitConversionOfJpqlParams();
-}
\ No newline at end of file
+
+    /**
+     * @return maximum number of ids in a single query when {@code EntityImportExport} loads existing
+     * and referenced entities
+     */
+    @Property("cuba.entityImport.loadBatchSize")
+    @DefaultInt(500)
+    int getEntityImportLoadBatchSize();
+
+    /**
+     * @return number of source entities committed in a single transaction by {@code EntityImportExport}.
+     * 0 (default) means that all entities are committed in one transaction. If the value is positive, imported
+     * entities can reference only entities from the same or previous batches.
+     */
+    @Property("cuba.entityImport.commitBatchSize")
+    @DefaultInt(0)
+    int getEntityImportCommitBatchSize();
+
+    /**
+     * @return if true, ids selected by previous queries for "search in results" are kept in the middleware memory
+     * instead of the SYS_QUERY_RESULT table. Requires sticky sessions if there is more than one middleware block.
+     */
+    @Property("cuba.queryResults.inMemory")
+    @DefaultBoolean(false)
+    boolean getQueryResultsInMemory();
+
+    /**
+     * @return maximum number of ids kept in memory for a query. Larger results are saved to the SYS_QUERY_RESULT
+     * table, because the ids are passed to the database as a query parameter.
+     */
+    @Property("cuba.queryResults.inMemoryMaxSize")
+    @DefaultInt(1000)
+    int getQueryResultsInMemoryMaxSize();
+
+    /**
+     * @return size of number blocks reserved in the database at once by {@link UniqueNumbersAPI} for domains not
+     * listed in {@link #getUniqueNumbersDomainBlockSizes()}. 0 (default) means that every number is obtained from
+     * the database. If the value is positive, numbers are unique, but may have gaps and are not ordered between
+     * middleware blocks.
+     */
+    @Property("cuba.uniqueNumbers.blockSize")
+    @Source(type = SourceType.DATABASE)
+    @DefaultInt(0)
+    int getUniqueNumbersBlockSize();
+
+    /**
+     * @return block sizes of particular {@link UniqueNumbersAPI} domains in the form {@code domain:size}, for example
+     * {@code invoice:100, contract:0}
+     */
+    @Property("cuba.uniqueNumbers.domainBlockSizes")
+    @Source(type = SourceType.DATABASE)
+    @Factory(factory = CommaSeparatedStringListTypeFactory.class)
+    List<String> getUniqueNumbersDomainBlockSizes();
+
+    /**
+     * @return percentage of a number block left when the next block is reserved in background. 0 means that
+     * the next block is reserved when the current one is exhausted.
+     */
+    @Property("cuba.uniqueNumbers.blockPrefetchPercent")
+    @DefaultInt(20)
+    int getUniqueNumbersBlockPrefetchPercent();
+}
@@ -16,24 +16,58 @@
  */
 package com.haulmont.cuba.core.app;
 
+import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.Transaction;
 import com.haulmont.cuba.core.global.Stores;
+import com.haulmont.cuba.core.sys.persistence.DbmsSpecificFactory;
+import com.haulmont.cuba.core.sys.persistence.SequenceSupport;
 import org.apache.commons.lang3.StringUtils;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Provides unique numbers based on database sequences.
+ * <p>
+ * If a positive block size is configured for a domain by {@link ServerConfig#getUniqueNumbersBlockSize()} or
+ * {@link ServerConfig#getUniqueNumbersDomainBlockSizes()}, numbers are issued by {@link SequenceBlockAllocator}
+ * from a separate sequence with the block size as increment. When this sequence is created, it continues from the
+ * current value of the sequence used without blocks, if it exists. The block size is fixed when the sequence is
+ * created, so to change it, delete the sequence by {@link #deleteSequence(String)} and set the current number by
+ * {@link #setCurrentNumber(String, long)}. The same must be done before switching a domain back to issuing numbers
+ * without blocks.
  */
 @Component(UniqueNumbersAPI.NAME)
 public class UniqueNumbers implements UniqueNumbersAPI {
 
+    private static final Logger log = LoggerFactory.getLogger(UniqueNumbers.class);
+
     @Inject
     protected Sequences sequences;
 
+    @Inject
+    protected SequenceBlockAllocator blockAllocator;
+
+    @Inject
+    protected ServerConfig serverConfig;
+
+    @Inject
+    protected Persistence persistence;
+
+    protected ConcurrentMap<String, Sequence> blockSequences = new ConcurrentHashMap<>();
+
     @Override
     public long getNextNumber(String domain) {
+        int blockSize = getBlockSize(domain);
+        if (blockSize > 0) {
+            return blockAllocator.getNext(getBlockSequence(domain, blockSize));
+        }
         Sequence sequence = Sequence.withName(getSequenceName(domain))
                 .setStore(getDataStore(domain))
                 .setStartValue(1)
@@ -43,6 +77,12 @@ public class UniqueNumbers implements UniqueNumbersAPI {
 
     @Override
     public long getCurrentNumber(String domain) {
+        int blockSize = getBlockSize(domain);
+        if (blockSize > 0) {
+            Sequence sequence = getBlockSequence(domain, blockSize);
+            Long lastIssued = blockAllocator.getLastIssued(sequence);
+            return lastIssued != null ? lastIssued : sequences.getCurrentValue(sequence);
+        }
         Sequence sequence = Sequence.withName(getSequenceName(domain))
                 .setStore(getDataStore(domain));
         return sequences.getCurrentValue(sequence);
@@ -50,6 +90,13 @@ public class UniqueNumbers implements UniqueNumbersAPI {
 
     @Override
     public void setCurrentNumber(String domain, long value) {
+        int blockSize = getBlockSize(domain);
+        if (blockSize > 0) {
+            Sequence sequence = getBlockSequence(domain, blockSize);
+            sequences.setCurrentValue(sequence, value);
+            blockAllocator.discard(sequence);
+            return;
+        }
         Sequence sequence = Sequence.withName(getSequenceName(domain))
                 .setStore(getDataStore(domain));
         sequences.setCurrentValue(sequence, value);
@@ -57,6 +104,14 @@ public class UniqueNumbers implements UniqueNumbersAPI {
 
     @Override
     public void deleteSequence(String domain) {
+        int blockSize = getBlockSize(domain);
+        if (blockSize > 0) {
+            Sequence sequence = getBlockSequence(domain, blockSize);
+            blockAllocator.discard(sequence);
+            sequences.deleteSequence(sequence);
+            blockSequences.remove(domain);
+            return;
+        }
         Sequence sequence = Sequence.withName(getSequenceName(domain))
                 .setStore(getDataStore(domain));
         sequences.deleteSequence(sequence);
@@ -77,4 +132,63 @@ public class UniqueNumbers implements UniqueNumbersAPI {
             throw new IllegalArgumentException("Domain name can not be blank");
         return "seq_un_" + domain;
     }
+
+    /**
+     * Returns the size of number blocks reserved at once for the domain. Override this method if you want to
+     * control block sizes programmatically.
+     *
+     * @param domain    sequence identifier passed to the interface methods
+     * @return          block size, 0 if every number should be obtained from the database
+     */
+    protected int getBlockSize(String domain) {
+        List<String> domainBlockSizes = serverConfig.getUniqueNumbersDomainBlockSizes();
+        if (domainBlockSizes != null) {
+            for (String domainBlockSize : domainBlockSizes) {
+                String[] parts = domainBlockSize.split(":");
+                if (parts.length == 2 && parts[0].trim().equals(domain)) {
+                    try {
+                        return Integer.parseInt(parts[1].trim());
+                    } catch (NumberFormatException e) {
+                        log.warn("Invalid block size of unique numbers domain '{}': {}", domain, parts[1]);
+                        return 0;
+                    }
+                }
+            }
+        }
+        return serverConfig.getUniqueNumbersBlockSize();
+    }
+
+    protected Sequence getBlockSequence(String domain, int blockSize) {
+        if (StringUtils.isBlank(domain))
+            throw new IllegalArgumentException("Domain name can not be blank");
+        Sequence sequence = blockSequences.get(domain);
+        if (sequence == null || sequence.getIncrement() != blockSize) {
+            // the start value is the last number of the first block
+            sequence = Sequence.withName("seq_unb_" + domain)
+                    .setStore(getDataStore(domain))
+                    .setStartValue(getStrictCurrentNumber(domain) + blockSize)
+                    .setIncrement(blockSize);
+            blockSequences.put(domain, sequence);
+        }
+        return sequence;
+    }
+
+    /**
+     * @return current value of the sequence used for the domain without blocks, 0 if the sequence does not exist
+     */
+    protected long getStrictCurrentNumber(String domain) {
+        String sequenceName = getSequenceName(domain);
+        String storeName = getDataStore(domain);
+        boolean exists;
+        try (Transaction tx = persistence.createTransaction(storeName)) {
+            SequenceSupport sequenceSupport = DbmsSpecificFactory.getSequenceSupport(storeName);
+            exists = !persistence.getEntityManager(storeName)
+                    .createNativeQuery(sequenceSupport.sequenceExistsSql(sequenceName))
+                    .getResultList().isEmpty();
+            tx.commit();
+        }
+        if (!exists)
+            return 0;
+        return sequences.getCurrentValue(Sequence.withName(sequenceName).setStore(storeName));
+    }
 }
\ No newline at end of file
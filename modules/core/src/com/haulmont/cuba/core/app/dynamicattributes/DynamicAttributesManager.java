@@ -27,6 +27,7 @@ import com.haulmont.cuba.core.Transaction;
 import com.haulmont.cuba.core.TypedQuery;
 import com.haulmont.cuba.core.app.ClusterListenerAdapter;
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
+import com.haulmont.cuba.core.app.IdempotentClusterMessage;
 import com.haulmont.cuba.core.entity.*;
 import com.haulmont.cuba.core.global.*;
 import org.apache.commons.collections4.CollectionUtils;
@@ -38,7 +39,6 @@ import org.springframework.stereotype.Component;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
-import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
@@ -511,7 +511,17 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
                 .getResultList();
     }
 
-    private static class ReloadCacheMsg implements Serializable {
+    private static class ReloadCacheMsg implements IdempotentClusterMessage {
         private static final long serialVersionUID = -3116358584797500962L;
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof ReloadCacheMsg;
+        }
+
+        @Override
+        public int hashCode() {
+            return ReloadCacheMsg.class.hashCode();
+        }
     }
 }
\ No newline at end of file
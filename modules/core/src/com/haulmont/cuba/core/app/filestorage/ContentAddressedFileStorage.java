@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.core.app.filestorage;
+
+import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.haulmont.cuba.core.app.ServerConfig;
+import com.haulmont.cuba.core.entity.FileDescriptor;
+import com.haulmont.cuba.core.global.FileStorageException;
+import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.SecurityContext;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * File storage keeping each distinct file content once.
+ * <p>
+ * Saved content is hashed with SHA-256 while it is written, and stored once per storage directory in the
+ * {@link #BLOBS_DIR} subdirectory under its digest. The file of a {@link FileDescriptor} in the usual date-based
+ * directory is a hard link to the blob, so files are read in the same way as in {@link FileStorage}, and the number
+ * of references to a blob is its link count maintained by the file system. A blob is deleted together with the last
+ * file referencing it.
+ * <p>
+ * Files are replicated to secondary storage directories in background through a bounded queue, see
+ * {@link ServerConfig#getFileStorageReplicationQueueSize()}. If a secondary directory already contains the blob,
+ * the file is linked to it without copying.
+ * <p>
+ * Storage directories on file systems without hard links or link counts are used as in {@link FileStorage}.
+ * <p>
+ * To use this storage, register it in {@code spring.xml} of the core module:
+ * <pre>
+ * &lt;bean name="cuba_FileStorage" class="com.haulmont.cuba.core.app.filestorage.ContentAddressedFileStorage"/&gt;
+ * </pre>
+ */
+public class ContentAddressedFileStorage extends FileStorage {
+
+    private static final Logger log = LoggerFactory.getLogger(ContentAddressedFileStorage.class);
+
+    public static final String BLOBS_DIR = "blobs";
+
+    protected static final String TEMP_DIR = "tmp";
+
+    protected static final String DIGEST_ALGORITHM = "SHA-256";
+
+    protected static final int REPLICATION_THREADS = 5;
+
+    protected Striped<Lock> blobLocks = Striped.lock(64);
+
+    protected Map<File, Boolean> linksSupported = new ConcurrentHashMap<>();
+
+    protected ThreadPoolExecutor replicationExecutor;
+
+    @Override
+    public void init() {
+        super.init();
+        int queueSize = configuration.getConfig(ServerConfig.class).getFileStorageReplicationQueueSize();
+        replicationExecutor = new ThreadPoolExecutor(REPLICATION_THREADS, REPLICATION_THREADS,
+                60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+                new ThreadFactoryBuilder().setNameFormat("FileStorageReplication-%d").build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        replicationExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * INTERNAL. Don't use in application code.
+     */
+    public File getBlobsDir(File rootDir) {
+        return new File(rootDir, BLOBS_DIR);
+    }
+
+    @Override
+    public long saveStream(FileDescriptor fileDescr, InputStream inputStream) throws FileStorageException {
+        checkFileDescriptor(fileDescr);
+
+        File[] roots = getStorageRoots();
+
+        checkStorageDefined(roots, fileDescr);
+        checkPrimaryStorageAccessible(roots, fileDescr);
+
+        if (!isLinksSupported(roots[0])) {
+            return super.saveStream(fileDescr, inputStream);
+        }
+
+        File dir = getStorageDir(roots[0], fileDescr);
+        dir.mkdirs();
+        checkDirectoryExists(dir);
+
+        File file = new File(dir, getFileName(fileDescr));
+        checkFileExists(file);
+
+        long size;
+        String digest;
+        File tempFile = null;
+        try {
+            tempFile = createTempFile(roots[0]);
+            MessageDigest messageDigest = createMessageDigest();
+            try (OutputStream os = new DigestOutputStream(new FileOutputStream(tempFile), messageDigest)) {
+                size = IOUtils.copyLarge(inputStream, os);
+            }
+            digest = Hex.encodeHexString(messageDigest.digest());
+
+            storeBlob(roots[0], digest, tempFile, file);
+            writeLog(file, false);
+        } catch (IOException e) {
+            throw new FileStorageException(FileStorageException.Type.IO_EXCEPTION, file.getAbsolutePath(), e);
+        } finally {
+            if (tempFile != null) {
+                FileUtils.deleteQuietly(tempFile);
+            }
+        }
+
+        replicate(fileDescr, file, digest, roots);
+
+        return size;
+    }
+
+    @Override
+    public void removeFile(FileDescriptor fileDescr) throws FileStorageException {
+        checkFileDescriptor(fileDescr);
+
+        File[] roots = getStorageRoots();
+        if (roots.length == 0) {
+            log.error("No storage directories defined");
+            return;
+        }
+
+        for (File root : roots) {
+            File dir = getStorageDir(root, fileDescr);
+            File file = new File(dir, getFileName(fileDescr));
+            if (file.exists()) {
+                try {
+                    String digest = isLinksSupported(root) && getLinkCount(file) > 1 ? getDigest(file) : null;
+                    Files.delete(file.toPath());
+                    writeLog(file, true);
+                    if (digest != null) {
+                        releaseBlob(root, digest);
+                    }
+                } catch (IOException e) {
+                    throw new FileStorageException(FileStorageException.Type.IO_EXCEPTION,
+                            "Unable to delete file " + file.getAbsolutePath(), e);
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void stopWriteExecutor() {
+        if (replicationExecutor != null) {
+            replicationExecutor.shutdown();
+        }
+        super.stopWriteExecutor();
+    }
+
+    protected void replicate(FileDescriptor fileDescr, File file, String digest, File[] roots) {
+        SecurityContext securityContext = AppContext.getSecurityContext();
+        for (int i = 1; i < roots.length; i++) {
+            File root = roots[i];
+            if (!root.exists()) {
+                log.error("Error saving {} into {} : directory doesn't exist", fileDescr, root);
+                continue;
+            }
+
+            File fileCopy = new File(getStorageDir(root, fileDescr), getFileName(fileDescr));
+
+            replicationExecutor.execute(() -> {
+                try {
+                    AppContext.setSecurityContext(securityContext);
+                    if (isLinksSupported(root)) {
+                        fileCopy.getParentFile().mkdirs();
+                        storeBlob(root, digest, file, fileCopy);
+                    } else {
+                        FileUtils.copyFile(file, fileCopy, true);
+                    }
+                    writeLog(fileCopy, false);
+                } catch (Exception e) {
+                    log.error("Error saving {} into {} : {}", fileDescr, fileCopy.getAbsolutePath(), e.getMessage());
+                } finally {
+                    AppContext.setSecurityContext(null);
+                }
+            });
+        }
+    }
+
+    /**
+     * Links the file to the blob with the given digest, creating the blob from the content if it does not exist.
+     *
+     * @param content file with the content. If it is a temporary file in the same root, it is moved to the blob,
+     *                otherwise it is copied.
+     */
+    protected void storeBlob(File root, String digest, File content, File file) throws IOException {
+        Path blob = getBlobFile(root, digest).toPath();
+
+        File tempFile = null;
+        try {
+            Path source = null;
+            if (isTempFile(root, content)) {
+                source = content.toPath();
+            } else if (!Files.exists(blob)) {
+                // copy outside of the lock
+                tempFile = copyToTempFile(root, content);
+                source = tempFile.toPath();
+            }
+
+            Lock lock = blobLocks.get(digest);
+            lock.lock();
+            try {
+                if (!Files.exists(blob)) {
+                    if (source == null) {
+                        // the blob has been removed after the check
+                        tempFile = copyToTempFile(root, content);
+                        source = tempFile.toPath();
+                    }
+                    Files.createDirectories(blob.getParent());
+                    Files.move(source, blob, StandardCopyOption.ATOMIC_MOVE);
+                    log.debug("Created blob {}", blob);
+                }
+                Files.deleteIfExists(file.toPath());
+                try {
+                    Files.createLink(file.toPath(), blob);
+                } catch (FileSystemException e) {
+                    // e.g. maximum number of links is exceeded
+                    log.warn("Unable to link {} to {}, copying: {}", file, blob, e.getMessage());
+                    Files.copy(blob, file.toPath());
+                }
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            if (tempFile != null) {
+                FileUtils.deleteQuietly(tempFile);
+            }
+        }
+    }
+
+    /**
+     * Deletes the blob if it is not referenced by files anymore.
+     */
+    protected void releaseBlob(File root, String digest) throws IOException {
+        Path blob = getBlobFile(root, digest).toPath();
+        Lock lock = blobLocks.get(digest);
+        lock.lock();
+        try {
+            if (Files.exists(blob) && getLinkCount(blob.toFile()) <= 1) {
+                Files.delete(blob);
+                log.debug("Deleted blob {}", blob);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    protected File getBlobFile(File root, String digest) {
+        return new File(getBlobsDir(root), digest.substring(0, 2) + "/" + digest.substring(2, 4) + "/" + digest);
+    }
+
+    protected File createTempFile(File root) throws IOException {
+        File tempDir = new File(getBlobsDir(root), TEMP_DIR);
+        Files.createDirectories(tempDir.toPath());
+        return File.createTempFile("blob", null, tempDir);
+    }
+
+    protected File copyToTempFile(File root, File content) throws IOException {
+        File tempFile = createTempFile(root);
+        Files.copy(content.toPath(), tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return tempFile;
+    }
+
+    protected boolean isTempFile(File root, File file) {
+        return new File(getBlobsDir(root), TEMP_DIR).equals(file.getParentFile());
+    }
+
+    protected String getDigest(File file) throws IOException {
+        MessageDigest messageDigest = createMessageDigest();
+        try (InputStream is = new DigestInputStream(new FileInputStream(file), messageDigest)) {
+            IOUtils.copyLarge(is, NullOutputStream.NULL_OUTPUT_STREAM);
+        }
+        return Hex.encodeHexString(messageDigest.digest());
+    }
+
+    protected MessageDigest createMessageDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    protected int getLinkCount(File file) throws IOException {
+        return (Integer) Files.getAttribute(file.toPath(), "unix:nlink");
+    }
+
+    /**
+     * @return whether the file system of the storage directory supports hard links and link counts
+     */
+    protected boolean isLinksSupported(File root) {
+        return linksSupported.computeIfAbsent(root, dir -> {
+            try {
+                FileStore fileStore = Files.getFileStore(dir.toPath());
+                boolean supported = fileStore.supportsFileAttributeView("unix");
+                if (!supported) {
+                    log.warn("File system of {} does not support link counts, files are not deduplicated", dir);
+                }
+                return supported;
+            } catch (IOException e) {
+                log.warn("Unable to check file system of {}", dir, e);
+                return false;
+            }
+        });
+    }
+}
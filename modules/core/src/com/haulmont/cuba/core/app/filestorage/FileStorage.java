@@ -35,11 +35,12 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import java.io.*;
-import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -66,6 +67,8 @@ public class FileStorage implements FileStorageAPI {
 
     protected volatile File[] storageRoots;
 
+    protected Map<File, FileStorageLog> storageLogs = new ConcurrentHashMap<>();
+
     @PostConstruct
     public void init() {
         this.isImmutableFileStorage = configuration.getConfig(ServerConfig.class).getImmutableFileStorage();
@@ -193,7 +196,7 @@ public class FileStorage implements FileStorageAPI {
         saveStream(fileDescr, new ByteArrayInputStream(data));
     }
 
-    protected synchronized void writeLog(File file, boolean remove) {
+    protected void writeLog(File file, boolean remove) {
         File rootDir;
         try {
             rootDir = file.getParentFile().getParentFile().getParentFile().getParentFile();
@@ -215,11 +218,10 @@ public class FileStorage implements FileStorageAPI {
         sb.append(remove ? "REMOVE" : "CREATE").append(" ");
         sb.append("\"").append(file.getAbsolutePath()).append("\"\n");
 
-        File logFile = new File(rootDir, "storage.log");
+        FileStorageLog storageLog = storageLogs.computeIfAbsent(rootDir,
+                dir -> new FileStorageLog(new File(dir, "storage.log")));
         try {
-            try (FileOutputStream fos = new FileOutputStream(logFile, true)) {
-                IOUtils.write(sb.toString(), fos, StandardCharsets.UTF_8);
-            }
+            storageLog.append(sb.toString());
         } catch (IOException e) {
             log.error("Unable to write log", e);
         }
@@ -339,5 +341,8 @@ public class FileStorage implements FileStorageAPI {
     @PreDestroy
     protected void stopWriteExecutor() {
         writeExecutor.shutdown();
+        for (FileStorageLog storageLog : storageLogs.values()) {
+            IOUtils.closeQuietly(storageLog);
+        }
     }
 }
\ No newline at end of file
@@ -17,6 +17,7 @@
 
 package com.haulmont.cuba.core.app.importexport;
 
+import com.google.common.collect.Iterables;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.chile.core.model.Range;
@@ -24,6 +25,7 @@ import com.haulmont.cuba.core.Persistence;
 import com.haulmont.cuba.core.PersistenceSecurity;
 import com.haulmont.cuba.core.app.DataStore;
 import com.haulmont.cuba.core.app.RdbmsStore;
+import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.app.StoreFactory;
 import com.haulmont.cuba.core.app.dynamicattributes.DynamicAttributesManagerAPI;
 import com.haulmont.cuba.core.app.dynamicattributes.DynamicAttributesUtils;
@@ -93,6 +95,9 @@ public class EntityImportExport implements EntityImportExportAPI {
     @Inject
     protected GlobalConfig globalConfig;
 
+    @Inject
+    protected ServerConfig serverConfig;
+
     @Override
     public byte[] exportEntitiesToZIP(Collection<? extends Entity> entities, View view) {
         return exportEntitiesToZIP(reloadEntities(entities, view));
@@ -206,6 +211,23 @@ public class EntityImportExport implements EntityImportExportAPI {
 
     @Override
     public Collection<Entity> importEntities(Collection<? extends Entity> entities, EntityImportView importView, boolean validate, boolean optimisticLocking) {
+        int commitBatchSize = serverConfig.getEntityImportCommitBatchSize();
+        if (commitBatchSize <= 0 || entities.size() <= commitBatchSize) {
+            return importEntitiesBatch(entities, importView, validate, optimisticLocking);
+        }
+
+        Set<Entity> result = new LinkedHashSet<>();
+        for (List<? extends Entity> batch : Iterables.partition(entities, commitBatchSize)) {
+            result.addAll(importEntitiesBatch(batch, importView, validate, optimisticLocking));
+        }
+        return result;
+    }
+
+    /**
+     * Imports the entities and commits them in a single transaction.
+     */
+    protected Collection<Entity> importEntitiesBatch(Collection<? extends Entity> entities, EntityImportView importView,
+                                                     boolean validate, boolean optimisticLocking) {
         List<ReferenceInfo> referenceInfoList = new ArrayList<>();
         CommitContext commitContext = new CommitContext();
         commitContext.setSoftDeletion(false);
@@ -215,27 +237,34 @@ public class EntityImportExport implements EntityImportExportAPI {
         //
         //1. entities that should be persisted are processed first, fields that should be references to existing entities
         //are stored in the referenceInfoList variable
+        View regularView = buildViewFromImportView(importView);
+        Map<Entity, Entity> dstEntities = loadDstEntities(entities, regularView);
         for (Entity srcEntity : entities) {
-            View regularView = buildViewFromImportView(importView);
-            //set softDeletion to false because we can import deleted entity, so we'll restore it and update
-            LoadContext<? extends Entity> ctx = LoadContext.create(srcEntity.getClass())
-                    .setSoftDeletion(false)
-                    .setView(regularView)
-                    .setLoadDynamicAttributes(true)
-                    .setId(srcEntity.getId())
-                    .setAuthorizationRequired(true);
-            Entity dstEntity = dataManager.load(ctx);
+            Entity dstEntity;
+            if (dstEntities.containsKey(srcEntity)) {
+                dstEntity = dstEntities.get(srcEntity);
+            } else {
+                //set softDeletion to false because we can import deleted entity, so we'll restore it and update
+                LoadContext<? extends Entity> ctx = LoadContext.create(srcEntity.getClass())
+                        .setSoftDeletion(false)
+                        .setView(regularView)
+                        .setLoadDynamicAttributes(true)
+                        .setId(srcEntity.getId())
+                        .setAuthorizationRequired(true);
+                dstEntity = dataManager.load(ctx);
+            }
 
             importEntity(srcEntity, dstEntity, importView, regularView, commitContext, referenceInfoList, optimisticLocking);
         }
 
         //2. references to existing entities are processed
 
-        //store a list of loaded entities in the collection to prevent unnecessary database requests for searching the
-        //same instance
-        Set<Entity> loadedEntities = new HashSet<>();
+        //store loaded entities in the map to prevent unnecessary database requests for searching the same instance
+        Map<Entity, Entity> loadedEntities = new HashMap<>();
+        Map<Entity, Entity> commitInstances = new HashMap<>();
+        loadReferencedEntities(referenceInfoList, commitContext, loadedEntities);
         for (ReferenceInfo referenceInfo : referenceInfoList) {
-            processReferenceInfo(referenceInfo, commitContext, loadedEntities);
+            processReferenceInfo(referenceInfo, commitContext, commitInstances, loadedEntities);
         }
 
         for (Entity commitInstance : commitContext.getCommitInstances()) {
@@ -562,7 +591,8 @@ public class EntityImportExport implements EntityImportExportAPI {
      * Method finds and set a reference value to the entity or throws EntityImportException if ERROR_ON_MISSING policy
      * is violated
      */
-    protected void processReferenceInfo(ReferenceInfo referenceInfo, CommitContext commitContext, Set<Entity> loadedEntities) {
+    protected void processReferenceInfo(ReferenceInfo referenceInfo, CommitContext commitContext,
+                                        Map<Entity, Entity> commitInstances, Map<Entity, Entity> loadedEntities) {
         Entity entity = referenceInfo.getEntity();
         EntityImportViewProperty viewProperty = referenceInfo.getViewProperty();
         MetaProperty metaProperty = entity.getMetaClass().getPropertyNN(viewProperty.getName());
@@ -582,7 +612,7 @@ public class EntityImportExport implements EntityImportExportAPI {
             CollectionCompare.with()
                     .onCreate(e -> {
                         if (!dstFilteredIds.contains(referenceToEntitySupport.getReferenceId(e))) {
-                            Entity result = findReferenceEntity(e, viewProperty, commitContext, loadedEntities);
+                            Entity result = findReferenceEntity(e, viewProperty, commitContext, commitInstances, loadedEntities);
                             if (result != null) {
                                 newCollectionValue.add(result);
                             }
@@ -590,7 +620,7 @@ public class EntityImportExport implements EntityImportExportAPI {
                     })
                     .onUpdate((src, dst) -> {
                         if (!dstFilteredIds.contains(referenceToEntitySupport.getReferenceId(dst))) {
-                            Entity result = findReferenceEntity(src, viewProperty, commitContext, loadedEntities);
+                            Entity result = findReferenceEntity(src, viewProperty, commitContext, commitInstances, loadedEntities);
                             if (result != null) {
                                 newCollectionValue.add(result);
                             }
@@ -624,7 +654,7 @@ public class EntityImportExport implements EntityImportExportAPI {
                 }
             } else {
                 if (dstFilteredIds.isEmpty()) {
-                    Entity result = findReferenceEntity(entityValue, viewProperty, commitContext, loadedEntities);
+                    Entity result = findReferenceEntity(entityValue, viewProperty, commitContext, commitInstances, loadedEntities);
                     if (result != null) {
                         entity.setValue(metaProperty.getName(), result);
                     }
@@ -698,23 +728,159 @@ public class EntityImportExport implements EntityImportExportAPI {
     }
 
     protected Entity findReferenceEntity(Entity entity, EntityImportViewProperty viewProperty, CommitContext commitContext,
-                                         Set<Entity> loadedEntities) {
-        Entity result = Stream.concat(loadedEntities.stream(), commitContext.getCommitInstances().stream())
-                .filter(item -> item.equals(entity))
-                .findFirst().orElse(null);
-        if (result == null) {
+                                         Map<Entity, Entity> commitInstances, Map<Entity, Entity> loadedEntities) {
+        Entity result = findCommitInstance(entity, commitContext, commitInstances);
+        if (result != null) {
+            return result;
+        }
+        if (loadedEntities.containsKey(entity)) {
+            result = loadedEntities.get(entity);
+        } else {
             LoadContext<? extends Entity> ctx = LoadContext.create(entity.getClass())
                     .setSoftDeletion(false)
                     .setView(View.MINIMAL)
                     .setId(entity.getId());
             result = dataManager.load(ctx);
-            if (result == null) {
-                if (viewProperty.getReferenceImportBehaviour() == ReferenceImportBehaviour.ERROR_ON_MISSING) {
-                    throw new EntityImportException(String.format("Referenced entity for property '%s' with id = %s is missing",
-                            viewProperty.getName(), entity.getId()));
+            loadedEntities.put(entity, result);
+        }
+        if (result == null && viewProperty.getReferenceImportBehaviour() == ReferenceImportBehaviour.ERROR_ON_MISSING) {
+            throw new EntityImportException(String.format("Referenced entity for property '%s' with id = %s is missing",
+                    viewProperty.getName(), entity.getId()));
+        }
+        return result;
+    }
+
+    /**
+     * Finds the instance equal to the entity among the instances of the commit context. The {@code commitInstances}
+     * index is rebuilt when the commit context contains the entity but the index does not.
+     *
+     * @return instance to be committed or null if the commit context does not contain the entity
+     */
+    @Nullable
+    protected Entity findCommitInstance(Entity entity, CommitContext commitContext, Map<Entity, Entity> commitInstances) {
+        Collection<Entity> instances = commitContext.getCommitInstances();
+        if (!instances.contains(entity)) {
+            return null;
+        }
+        Entity result = commitInstances.get(entity);
+        if (result == null) {
+            commitInstances.clear();
+            for (Entity instance : instances) {
+                commitInstances.putIfAbsent(instance, instance);
+            }
+            result = commitInstances.get(entity);
+        }
+        return result;
+    }
+
+    /**
+     * Loads existing instances of the imported entities using one query per entity class and chunk of ids.
+     *
+     * @return map of source entities to the loaded instances or null if an instance does not exist. Entities that
+     * cannot be loaded by a list of ids are not included.
+     */
+    protected Map<Entity, Entity> loadDstEntities(Collection<? extends Entity> entities, View regularView) {
+        Map<Entity, Entity> result = new IdentityHashMap<>();
+        Map<Class<? extends Entity>, List<Entity>> entitiesByClass = groupByClass(entities);
+        for (Map.Entry<Class<? extends Entity>, List<Entity>> entry : entitiesByClass.entrySet()) {
+            //set softDeletion to false because we can import deleted entity, so we'll restore it and update
+            Map<Object, Entity> loaded = loadByIds(entry.getKey(), entry.getValue(), regularView, true);
+            for (Entity entity : entry.getValue()) {
+                result.put(entity, loaded.get(getBatchLoadingId(entity)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Loads entities referenced by the imported entities and puts them to the {@code loadedEntities} map. Missing
+     * entities are put with null values. Entities of the commit context are not loaded.
+     */
+    protected void loadReferencedEntities(Collection<ReferenceInfo> referenceInfoList, CommitContext commitContext,
+                                          Map<Entity, Entity> loadedEntities) {
+        Set<Entity> references = new LinkedHashSet<>();
+        for (ReferenceInfo referenceInfo : referenceInfoList) {
+            Object value = referenceInfo.getPropertyValue();
+            if (value instanceof Entity) {
+                references.add((Entity) value);
+            } else if (value instanceof Collection) {
+                for (Object item : (Collection) value) {
+                    if (item instanceof Entity) {
+                        references.add((Entity) item);
+                    }
                 }
-            } else {
-                loadedEntities.add(result);
+            }
+        }
+        references.removeIf(reference -> loadedEntities.containsKey(reference)
+                || commitContext.getCommitInstances().contains(reference));
+
+        Map<Class<? extends Entity>, List<Entity>> referencesByClass = groupByClass(references);
+        for (Map.Entry<Class<? extends Entity>, List<Entity>> entry : referencesByClass.entrySet()) {
+            View view = viewRepository.getView(metadata.getClassNN(entry.getKey()), View.MINIMAL);
+            Map<Object, Entity> loaded = loadByIds(entry.getKey(), entry.getValue(), view, false);
+            for (Entity entity : entry.getValue()) {
+                loadedEntities.put(entity, loaded.get(getBatchLoadingId(entity)));
+            }
+        }
+    }
+
+    /**
+     * Groups entities that can be loaded by a list of ids by their classes.
+     */
+    protected Map<Class<? extends Entity>, List<Entity>> groupByClass(Collection<? extends Entity> entities) {
+        Map<Class<? extends Entity>, List<Entity>> result = new LinkedHashMap<>();
+        for (Entity entity : entities) {
+            if (getBatchLoadingId(entity) != null) {
+                result.computeIfAbsent(entity.getClass(), k -> new ArrayList<>()).add(entity);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return id to be used in the {@code in} condition of the batch loading query or null if the entity should be
+     * loaded separately
+     */
+    @Nullable
+    protected Object getBatchLoadingId(Entity entity) {
+        MetaClass metaClass = entity.getMetaClass();
+        MetadataTools metadataTools = metadata.getTools();
+        if (metadataTools.hasCompositePrimaryKey(metaClass) || metadataTools.getPrimaryKeyName(metaClass) == null) {
+            return null;
+        }
+        if (!(storeFactory.get(metadataTools.getStoreName(metaClass)) instanceof RdbmsStore)) {
+            return null;
+        }
+        Object id = entity.getId();
+        if (id instanceof IdProxy) {
+            id = ((IdProxy) id).get();
+        }
+        return id;
+    }
+
+    protected Map<Object, Entity> loadByIds(Class<? extends Entity> entityClass, List<Entity> entities, View view,
+                                            boolean forImport) {
+        Map<Object, Entity> result = new HashMap<>();
+        int batchSize = Math.max(serverConfig.getEntityImportLoadBatchSize(), 1);
+        for (List<Entity> batch : Iterables.partition(entities, batchSize)) {
+            List<Object> ids = batch.stream()
+                    .map(this::getBatchLoadingId)
+                    .distinct()
+                    .collect(Collectors.toList());
+
+            LoadContext<? extends Entity> ctx = LoadContext.create(entityClass);
+            String pkName = metadata.getTools().getPrimaryKeyName(metadata.getClassNN(entityClass));
+            ctx.setQuery(LoadContext.createQuery(format("select e from %s e where e.%s in :ids", ctx.getMetaClass(), pkName))
+                    .setParameter("ids", ids))
+                    .setSoftDeletion(false)
+                    .setView(view);
+            if (forImport) {
+                ctx.setLoadDynamicAttributes(true)
+                        .setAuthorizationRequired(true);
+            }
+
+            for (Entity entity : dataManager.loadList(ctx)) {
+                result.put(getBatchLoadingId(entity), entity);
             }
         }
         return result;
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app.queryresults;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable compact set of entity ids selected by a query.
+ * <p>
+ * Duplicates are removed. UUID, Long and Integer ids are sorted and stored in primitive arrays, ids of other types
+ * keep their order.
+ */
+public final class QueryResultIdSet {
+
+    private static final QueryResultIdSet EMPTY = new QueryResultIdSet(IdType.OBJECT, 0, null, null, null);
+
+    private enum IdType {UUID, LONG, INTEGER, OBJECT}
+
+    private final IdType type;
+    private final int size;
+    private final long[] longs;
+    private final long[] leastSigBits;
+    private final Object[] objects;
+
+    private QueryResultIdSet(IdType type, int size, long[] longs, long[] leastSigBits, Object[] objects) {
+        this.type = type;
+        this.size = size;
+        this.longs = longs;
+        this.leastSigBits = leastSigBits;
+        this.objects = objects;
+    }
+
+    /**
+     * Creates a set from the list of ids of the same type.
+     */
+    public static QueryResultIdSet of(List<?> ids) {
+        if (ids.isEmpty()) {
+            return EMPTY;
+        }
+        Object first = ids.get(0);
+        if (first instanceof UUID && isHomogeneous(ids, UUID.class)) {
+            UUID[] uuids = ids.stream().map(UUID.class::cast).sorted().distinct().toArray(UUID[]::new);
+            long[] mostSigBits = new long[uuids.length];
+            long[] leastSigBits = new long[uuids.length];
+            for (int i = 0; i < uuids.length; i++) {
+                mostSigBits[i] = uuids[i].getMostSignificantBits();
+                leastSigBits[i] = uuids[i].getLeastSignificantBits();
+            }
+            return new QueryResultIdSet(IdType.UUID, uuids.length, mostSigBits, leastSigBits, null);
+        }
+        if (first instanceof Long && isHomogeneous(ids, Long.class)) {
+            long[] longs = ids.stream().mapToLong(Long.class::cast).sorted().distinct().toArray();
+            return new QueryResultIdSet(IdType.LONG, longs.length, longs, null, null);
+        }
+        if (first instanceof Integer && isHomogeneous(ids, Integer.class)) {
+            long[] longs = ids.stream().mapToLong(Integer.class::cast).sorted().distinct().toArray();
+            return new QueryResultIdSet(IdType.INTEGER, longs.length, longs, null, null);
+        }
+        Object[] objects = new LinkedHashSet<>(ids).toArray();
+        return new QueryResultIdSet(IdType.OBJECT, objects.length, null, null, objects);
+    }
+
+    /**
+     * Creates an empty set which is not identical to any other instance, so it can be used as a marker compared
+     * by reference. {@link #of(List)} returns a shared instance for an empty list.
+     */
+    public static QueryResultIdSet newEmptySet() {
+        return new QueryResultIdSet(IdType.OBJECT, 0, null, null, null);
+    }
+
+    private static boolean isHomogeneous(List<?> ids, Class<?> type) {
+        for (Object id : ids) {
+            if (id == null || id.getClass() != type)
+                return false;
+        }
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return new list of ids
+     */
+    public List<Object> toList() {
+        List<Object> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            switch (type) {
+                case UUID:
+                    list.add(new UUID(longs[i], leastSigBits[i]));
+                    break;
+                case LONG:
+                    list.add(longs[i]);
+                    break;
+                case INTEGER:
+                    list.add((int) longs[i]);
+                    break;
+                default:
+                    list.add(objects[i]);
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryResultIdSet{" + toList().stream().limit(10).map(String::valueOf).collect(Collectors.joining(", "))
+                + (size > 10 ? ", ..." : "") + "}";
+    }
+}
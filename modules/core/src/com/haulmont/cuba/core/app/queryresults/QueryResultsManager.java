@@ -21,6 +21,7 @@ import com.haulmont.bali.db.QueryRunner;
 import com.haulmont.cuba.core.*;
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
 import com.haulmont.cuba.core.app.RdbmsQueryBuilder;
+import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.QueryHolder;
@@ -31,9 +32,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -68,6 +71,18 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
 
     protected static final int INACTIVE_DELETION_MAX = 100000;
 
+    protected static final int IN_MEMORY_QUERIES_MAX = 10;
+
+    /**
+     * Marks results of a query saved to SYS_QUERY_RESULT in the in-memory mode because they are too large.
+     */
+    protected static final QueryResultIdSet SAVED_IN_TABLE = QueryResultIdSet.newEmptySet();
+
+    /**
+     * Query results kept in memory if {@link ServerConfig#getQueryResultsInMemory()} is true.
+     */
+    protected Map<UUID, Map<Integer, QueryResultIdSet>> inMemoryResults = new ConcurrentHashMap<>();
+
     @Override
     public void savePreviousQueryResults(LoadContext loadContext) {
         List<LoadContext.Query> prevQueries = loadContext.getPrevQueries();
@@ -83,7 +98,7 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
 
         int queryKey = loadContext.getQueryKey();
 
-        if (resultsAlreadySaved(queryKey, contextQuery))
+        if (resultsAlreadySaved(queryKey, contextQuery) && !resultsLostInMemory(queryKey))
             return;
 
         List idList;
@@ -146,12 +161,35 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
         return queryHolder.equals(oldQueryHolder);
     }
 
+    /**
+     * Results saved in memory of another middleware block or before restart must be saved again.
+     */
+    protected boolean resultsLostInMemory(int queryKey) {
+        if (!isInMemory())
+            return false;
+        Map<Integer, QueryResultIdSet> sessionResults = inMemoryResults.get(userSessionSource.getUserSession().getId());
+        return sessionResults == null || !sessionResults.containsKey(queryKey);
+    }
+
+    protected boolean isInMemory() {
+        return configuration.getConfig(ServerConfig.class).getQueryResultsInMemory();
+    }
+
     @Override
     public void insert(int queryKey, List idList) {
+        UUID userSessionId = userSessionSource.getUserSession().getId();
+        if (isInMemory()) {
+            if (idList.size() <= configuration.getConfig(ServerConfig.class).getQueryResultsInMemoryMaxSize()) {
+                insertInMemory(userSessionId, queryKey, idList);
+                return;
+            }
+            // the results are not lost while they are in the table
+            getSessionResults(userSessionId).put(queryKey, SAVED_IN_TABLE);
+        }
+
         if (idList.isEmpty())
             return;
 
-        UUID userSessionId = userSessionSource.getUserSession().getId();
         long start = System.currentTimeMillis();
         String logMsg = "Insert " + idList.size() + " query results for " + userSessionId + " / " + queryKey;
         log.debug(logMsg);
@@ -196,10 +234,49 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
         }
     }
 
+    protected void insertInMemory(UUID userSessionId, int queryKey, List<?> idList) {
+        QueryResultIdSet idSet = QueryResultIdSet.of(idList);
+        log.debug("Keep {} query results in memory for {} / {}", idSet.size(), userSessionId, queryKey);
+
+        getSessionResults(userSessionId).put(queryKey, idSet);
+    }
+
+    protected Map<Integer, QueryResultIdSet> getSessionResults(UUID userSessionId) {
+        return inMemoryResults.computeIfAbsent(userSessionId, id ->
+                Collections.synchronizedMap(new LinkedHashMap<Integer, QueryResultIdSet>() {
+                    private static final long serialVersionUID = 4129508203712574582L;
+
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<Integer, QueryResultIdSet> eldest) {
+                        return size() > IN_MEMORY_QUERIES_MAX;
+                    }
+                }));
+    }
+
+    @Nullable
+    @Override
+    public List<Object> getResultIds(UUID sessionId, int queryKey) {
+        Map<Integer, QueryResultIdSet> sessionResults = inMemoryResults.get(sessionId);
+        if (sessionResults == null)
+            return null;
+        QueryResultIdSet idSet = sessionResults.get(queryKey);
+        return idSet != null && idSet != SAVED_IN_TABLE ? idSet.toList() : null;
+    }
+
     @Override
     public void delete(int queryKey) {
         DbTypeConverter converter = persistence.getDbTypeConverter();
         UUID userSessionId = userSessionSource.getUserSession().getId();
+
+        Map<Integer, QueryResultIdSet> sessionResults = inMemoryResults.get(userSessionId);
+        if (sessionResults != null) {
+            QueryResultIdSet idSet = sessionResults.remove(queryKey);
+            if (idSet != null && idSet != SAVED_IN_TABLE) {
+                // results kept in memory are never saved to the table
+                return;
+            }
+        }
+
         String userSessionIdStr = converter.getSqlObject(userSessionId).toString();
         long start = System.currentTimeMillis();
         String logMsg = "Delete query results for " + userSessionId + " / " + queryKey;
@@ -219,6 +296,8 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
 
     @Override
     public void deleteForCurrentSession() {
+        inMemoryResults.remove(userSessionSource.getUserSession().getId());
+
         QueryRunner runner = new QueryRunner(persistence.getDataSource());
         try {
             DbTypeConverter converter = persistence.getDbTypeConverter();
@@ -233,7 +312,13 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
 
     @Override
     public void deleteForInactiveSessions() {
-        if (!AppContext.isStarted() || !clusterManager.isMaster()
+        if (!AppContext.isStarted())
+            return;
+
+        // each middleware block keeps its own in-memory results
+        deleteInMemoryForInactiveSessions();
+
+        if (!clusterManager.isMaster()
                 || !configuration.getConfig(GlobalConfig.class).getAllowQueryFromSelected())
             return;
 
@@ -273,6 +358,14 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
             delete(ids);
     }
 
+    protected void deleteInMemoryForInactiveSessions() {
+        if (inMemoryResults.isEmpty())
+            return;
+
+        Set<UUID> sessionIds = userSessions.getUserSessionsStream().map(UserSession::getId).collect(Collectors.toSet());
+        inMemoryResults.keySet().removeIf(sessionId -> !sessionIds.contains(sessionId));
+    }
+
     protected void delete(List<Long> ids) {
         log.debug("Deleting " + ids.size() + " records");
         String str = ids.stream().map(String::valueOf).collect(Collectors.joining(","));
@@ -19,6 +19,7 @@ package com.haulmont.cuba.core.app.queryresults;
 
 import com.haulmont.cuba.core.global.LoadContext;
 
+import javax.annotation.Nullable;
 import java.util.List;
 import java.util.UUID;
 
@@ -34,6 +35,17 @@ public interface QueryResultsManagerAPI {
 
     void insert(int queryKey, List idList);
 
+    /**
+     * Returns ids of previous query results kept in memory.
+     *
+     * @param sessionId user session id
+     * @param queryKey  query key
+     * @return list of ids or null if the results are not kept in memory and should be taken from the
+     * SYS_QUERY_RESULT table
+     */
+    @Nullable
+    List<Object> getResultIds(UUID sessionId, int queryKey);
+
     void delete(int queryKey);
 
     void deleteForCurrentSession();
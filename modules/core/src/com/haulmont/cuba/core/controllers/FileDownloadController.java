@@ -25,6 +25,7 @@ import com.haulmont.cuba.core.global.FileTypesHelper;
 import com.haulmont.cuba.core.global.LoadContext;
 import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.SecurityContext;
+import com.haulmont.cuba.core.sys.servlet.FileDownloadHelper;
 import com.haulmont.cuba.security.app.UserSessionsAPI;
 import com.haulmont.cuba.security.global.UserSession;
 import org.apache.commons.io.FileUtils;
@@ -80,9 +81,12 @@ public class FileDownloadController {
             if (fd == null && file == null)
                 return;
 
-            response.setHeader("Cache-Control", "no-cache");
-            response.setHeader("Pragma", "no-cache");
+            // revalidate on each request, contents of a file descriptor never change
+            response.setHeader("Cache-Control", "private, no-cache");
             response.setIntHeader("Expires", -1);
+            String eTag = fd != null ? FileDownloadHelper.getETag(fd) : getETag(file);
+            if (FileDownloadHelper.checkNotModified(request, response, eTag))
+                return;
             response.setHeader("Content-Type", FileTypesHelper.DEFAULT_MIME_TYPE);
 
             InputStream is = null;
@@ -90,7 +94,8 @@ public class FileDownloadController {
             try {
                 is = fd != null ? fileStorage.openStream(fd) : FileUtils.openInputStream(file);
                 os = response.getOutputStream();
-                IOUtils.copy(is, os);
+                Long length = fd != null ? fd.getSize() : Long.valueOf(file.length());
+                FileDownloadHelper.writeContent(request, response, is, length);
                 os.flush();
             } catch (FileStorageException e) {
                 log.error("Unable to download file", e);
@@ -151,6 +156,10 @@ public class FileDownloadController {
         return null;
     }
 
+    protected String getETag(File file) {
+        return "\"" + Long.toHexString(file.length()) + "-" + Long.toHexString(file.lastModified()) + "\"";
+    }
+
     protected boolean isPermittedDirectory(String filePath) {
         String directories = AppContext.getProperty("cuba.download.directories");
         if (directories != null && filePath != null ) {
@@ -16,6 +16,7 @@
  */
 package com.haulmont.cuba.core.jmx;
 
+import com.haulmont.cuba.core.app.AppFolderQuantityCache;
 import com.haulmont.cuba.core.app.ConfigStorageAPI;
 import com.haulmont.cuba.core.app.dynamicattributes.DynamicAttributesManagerAPI;
 import com.haulmont.cuba.core.global.Messages;
@@ -49,6 +50,9 @@ public class CachingFacade implements CachingFacadeMBean {
     @Inject
     protected DynamicAttributesManagerAPI dynamicAttributesManagerAPI;
 
+    @Inject
+    protected AppFolderQuantityCache appFolderQuantityCache;
+
     @Override
     public int getMessagesCacheSize() {
         return messages.getCacheSize();
@@ -88,4 +92,9 @@ public class CachingFacade implements CachingFacadeMBean {
     public void clearViewRepositoryCache() {
         ((AbstractViewRepository) viewRepository).reset();
     }
+
+    @Override
+    public void clearAppFolderQuantityCache() {
+        appFolderQuantityCache.invalidateAll();
+    }
 }
\ No newline at end of file
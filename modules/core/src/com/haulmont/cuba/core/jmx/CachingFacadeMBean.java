@@ -33,4 +33,6 @@ public interface CachingFacadeMBean {
     void clearDynamicAttributesCache();
 
     void clearSystemPropertiesCache();
+
+    void clearAppFolderQuantityCache();
 }
\ No newline at end of file
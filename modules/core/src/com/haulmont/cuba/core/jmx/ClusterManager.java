@@ -92,6 +92,21 @@ public class ClusterManager implements ClusterManagerMBean {
         return clusterManager.printMessagesStat();
     }
 
+    @Override
+    public String printBatchesStat() {
+        return clusterManager.printBatchesStat();
+    }
+
+    @Override
+    public double getAverageBatchSize() {
+        return clusterManager.getAverageBatchSize();
+    }
+
+    @Override
+    public double getBatchCompressionRatio() {
+        return clusterManager.getBatchCompressionRatio();
+    }
+
     @Override
     public long getSentMessages(String className) {
         return className == null ? -1 : clusterManager.getSentMessages(className);
@@ -67,6 +67,21 @@ public interface ClusterManagerMBean {
     @ManagedOperation(description = "Sent/received messages statistics")
     String printMessagesStat();
 
+    @ManagedOperation(description = "Message batches statistics")
+    String printBatchesStat();
+
+    /**
+     * @return average number of messages in sent batches
+     * @see com.haulmont.cuba.core.app.ClusterManagerAPI#getAverageBatchSize()
+     */
+    double getAverageBatchSize();
+
+    /**
+     * @return ratio of the batches size before compression to their size after compression
+     * @see com.haulmont.cuba.core.app.ClusterManagerAPI#getBatchCompressionRatio()
+     */
+    double getBatchCompressionRatio();
+
     @ManagedOperation(description = "Get sent messages count for specified class")
     long getSentMessages(String className);
 
@@ -23,6 +23,7 @@ import com.haulmont.cuba.core.Persistence;
 import com.haulmont.cuba.core.Transaction;
 import com.haulmont.cuba.core.TypedQuery;
 import com.haulmont.cuba.core.app.FileStorageAPI;
+import com.haulmont.cuba.core.app.filestorage.ContentAddressedFileStorage;
 import com.haulmont.cuba.core.entity.FileDescriptor;
 import com.haulmont.cuba.core.global.AppBeans;
 import com.haulmont.cuba.core.global.FileStorageException;
@@ -118,6 +119,11 @@ public class FileStorage implements FileStorageMBean {
         Collection<File> filesInRootFolder = FileUtils.listFiles(storageFolder, null, false);
         //remove files of root storage folder (e.g. storage.log) from files collection
         systemFiles.removeAll(filesInRootFolder);
+        if (fileStorageAPI instanceof ContentAddressedFileStorage) {
+            //remove blobs referenced by files
+            String blobsDir = ((ContentAddressedFileStorage) fileStorageAPI).getBlobsDir(storageFolder).getPath();
+            systemFiles.removeIf(file -> file.getPath().startsWith(blobsDir + File.separator));
+        }
 
         List<FileDescriptor> fileDescriptors;
         Transaction tx = persistence.createTransaction();
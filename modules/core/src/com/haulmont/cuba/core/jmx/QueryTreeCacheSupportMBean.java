@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.jmx;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+@ManagedResource(description = "Manages cache of parsed JPQL query trees")
+public interface QueryTreeCacheSupportMBean {
+
+    @ManagedAttribute(description = "Current number of cached query trees")
+    long getSize();
+
+    @ManagedAttribute(description = "Number of lookups that found a parsed tree in the cache")
+    long getHitCount();
+
+    @ManagedAttribute(description = "Number of lookups that required parsing")
+    long getMissCount();
+
+    @ManagedAttribute(description = "Ratio of cache hits to all lookups")
+    double getHitRate();
+
+    @ManagedAttribute(description = "Number of evicted query trees")
+    long getEvictionCount();
+
+    @ManagedAttribute(description = "Number of parsed queries")
+    long getParseCount();
+
+    @ManagedAttribute(description = "Total time spent in parsing queries, ms")
+    long getParseTime();
+
+    @ManagedOperation(description = "Discard all cached query trees")
+    String evictAll();
+}
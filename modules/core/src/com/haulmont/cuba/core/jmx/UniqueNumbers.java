@@ -17,10 +17,12 @@
 
 package com.haulmont.cuba.core.jmx;
 
+import com.haulmont.cuba.core.app.SequenceBlockAllocator;
 import com.haulmont.cuba.core.app.UniqueNumbersAPI;
 
 import org.springframework.stereotype.Component;
 import javax.inject.Inject;
+import java.util.Map;
 
 @Component("cuba_UniqueNumbersMBean")
 public class UniqueNumbers implements UniqueNumbersMBean {
@@ -28,6 +30,9 @@ public class UniqueNumbers implements UniqueNumbersMBean {
     @Inject
     protected UniqueNumbersAPI uniqueNumbers;
 
+    @Inject
+    protected SequenceBlockAllocator blockAllocator;
+
     @Override
     public long getCurrentNumber(String domain) {
         return uniqueNumbers.getCurrentNumber(domain);
@@ -42,4 +47,27 @@ public class UniqueNumbers implements UniqueNumbersMBean {
     public long getNextNumber(String domain) {
         return uniqueNumbers.getNextNumber(domain);
     }
+
+    @Override
+    public long getReservedBlockCount() {
+        return blockAllocator.getReservedBlockCount();
+    }
+
+    @Override
+    public long getSavedDbCallCount() {
+        return blockAllocator.getSavedDbCallCount();
+    }
+
+    @Override
+    public String printBlocks() {
+        Map<String, String> blocks = blockAllocator.getBlocksInfo();
+        if (blocks.isEmpty())
+            return "No blocks reserved";
+
+        StringBuilder sb = new StringBuilder();
+        blocks.forEach((sequence, info) -> sb.append(sequence).append(": ").append(info).append("\n"));
+        sb.append("Numbers issued: ").append(blockAllocator.getIssuedCount())
+                .append(", blocks reserved: ").append(blockAllocator.getReservedBlockCount());
+        return sb.toString();
+    }
 }
\ No newline at end of file
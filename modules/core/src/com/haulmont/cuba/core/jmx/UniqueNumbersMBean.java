@@ -16,6 +16,8 @@
  */
 package com.haulmont.cuba.core.jmx;
 
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
 import org.springframework.jmx.export.annotation.ManagedOperationParameter;
 import org.springframework.jmx.export.annotation.ManagedOperationParameters;
 
@@ -36,4 +38,13 @@ public interface UniqueNumbersMBean {
 
     @ManagedOperationParameters({@ManagedOperationParameter(name = "domain", description = "")})
     long getNextNumber(String domain);
+
+    @ManagedAttribute(description = "Number of blocks reserved in the database since startup")
+    long getReservedBlockCount();
+
+    @ManagedAttribute(description = "Number of database calls avoided by issuing numbers from reserved blocks")
+    long getSavedDbCallCount();
+
+    @ManagedOperation(description = "Print number blocks currently used by this middleware block")
+    String printBlocks();
 }
@@ -51,6 +51,9 @@ public class FetchGroupManager {
 
     private final Logger log = LoggerFactory.getLogger(FetchGroupManager.class);
 
+    private static final String FETCH_GROUP_FIELDS_KEY = FetchGroupManager.class.getName() + ".fetchGroupFields";
+    private static final String LOAD_GROUP_FIELDS_KEY = FetchGroupManager.class.getName() + ".loadGroupFields";
+
     @Inject
     private Metadata metadata;
 
@@ -132,8 +135,14 @@ public class FetchGroupManager {
                                                      View view,
                                                      boolean singleResultExpected,
                                                      boolean useFetchGroup) {
-        Set<FetchGroupField> fetchGroupFields = new LinkedHashSet<>();
-        processView(view, null, fetchGroupFields, useFetchGroup);
+        // fields depend only on the view, so they are calculated once for a frozen view
+        Set<FetchGroupField> fetchGroupFields = view.getCachedData(
+                useFetchGroup ? FETCH_GROUP_FIELDS_KEY : LOAD_GROUP_FIELDS_KEY,
+                v -> {
+                    Set<FetchGroupField> fields = new LinkedHashSet<>();
+                    processView(v, null, fields, useFetchGroup);
+                    return Collections.unmodifiableSet(fields);
+                });
 
         FetchGroupDescription description = new FetchGroupDescription();
 
@@ -412,7 +421,7 @@ public class FetchGroupManager {
                     FetchGroupField field = createFetchGroupField(entityClass, parentField, relatedProperty);
                     fetchGroupFields.add(field);
                     if (relatedMetaProp.getRange().isClass()) {
-                        View relatedView = viewRepository.getView(relatedMetaProp.getRange().asClass(), View.MINIMAL);
+                        View relatedView = viewRepository.getFrozenView(relatedMetaProp.getRange().asClass(), View.MINIMAL);
                         processView(relatedView, field, fetchGroupFields, useFetchGroup);
                     }
                 }
@@ -38,6 +38,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.io.Serializable;
 import java.util.*;
@@ -70,24 +71,49 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
     @Inject
     protected GlobalConfig globalConfig;
 
+    @Inject
+    protected ViewRepository viewRepository;
+
     @Override
     public boolean applyConstraints(Query query) {
+        return applyConstraints(query, false);
+    }
+
+    @Override
+    public boolean applyConstraints(Query query, boolean inMemoryConstraintsChecked) {
         QueryParser parser = QueryTransformerFactory.createParser(query.getQueryString());
         String entityName = parser.getEntityName();
 
-        List<ConstraintData> constraints = getConstraints(metadata.getClassNN(entityName), constraint ->
-                constraint.getCheckType().database()
-                        && (constraint.getOperationType() == ConstraintOperationType.READ
+        MetaClass metaClass = metadata.getClassNN(entityName);
+        List<ConstraintData> constraints = getConstraints(metaClass, constraint ->
+                (constraint.getOperationType() == ConstraintOperationType.READ
                         || constraint.getOperationType() == ConstraintOperationType.ALL));
 
-        if (constraints.isEmpty())
+        List<ConstraintData> databaseConstraints = new ArrayList<>();
+        List<String> inMemoryWhereClauses = new ArrayList<>();
+        for (ConstraintData constraint : constraints) {
+            if (constraint.getCheckType().database()) {
+                databaseConstraints.add(constraint);
+            } else if (inMemoryConstraintsChecked && isInMemoryScriptConstraint(constraint)) {
+                // the constraint is still checked in memory, the condition only reduces the number of loaded rows
+                String where = getCompiledConstraint(constraint).getJpqlWhere(metaClass, metadataTools);
+                if (where != null) {
+                    inMemoryWhereClauses.add(where);
+                }
+            }
+        }
+
+        if (databaseConstraints.isEmpty() && inMemoryWhereClauses.isEmpty())
             return false;
 
         QueryTransformer transformer = QueryTransformerFactory.createTransformer(query.getQueryString());
 
-        for (ConstraintData constraint : constraints) {
+        for (ConstraintData constraint : databaseConstraints) {
             processConstraint(transformer, constraint, entityName);
         }
+        for (String where : inMemoryWhereClauses) {
+            transformer.addWhere(where);
+        }
         query.setQueryString(transformer.getResult());
 
         for (String paramName : transformer.getAddedParams()) {
@@ -130,16 +156,8 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
 
     @Override
     public boolean filterByConstraints(Collection<Entity> entities) {
-        boolean filtered = false;
-        for (Iterator<Entity> iterator = entities.iterator(); iterator.hasNext(); ) {
-            Entity entity = iterator.next();
-            if (!isPermittedInMemory(entity)) {
-                //we ignore situations when the collection is immutable
-                iterator.remove();
-                filtered = true;
-            }
-        }
-        return filtered;
+        //we ignore situations when the collection is immutable
+        return filterPermitted(entities, this::isInMemoryReadConstraint);
     }
 
     @Override
@@ -147,6 +165,54 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
         return !isPermittedInMemory(entity);
     }
 
+    @Nullable
+    @Override
+    public View getInMemoryConstraintsView(MetaClass metaClass) {
+        View view = new View(metaClass.getJavaClass(), false).setLoadPartialEntities(true);
+        for (ConstraintData constraint : getConstraints(metaClass, this::isInMemoryReadConstraint)) {
+            if (!isInMemoryScriptConstraint(constraint)) {
+                continue;
+            }
+            List<String[]> paths = getCompiledConstraint(constraint).getEntityPaths();
+            if (paths == null) {
+                return null;
+            }
+            for (String[] path : paths) {
+                if (!addConstraintPropertyPath(view, metaClass, path, 0)) {
+                    return null;
+                }
+            }
+        }
+        return view;
+    }
+
+    protected boolean addConstraintPropertyPath(View view, MetaClass metaClass, String[] path, int index) {
+        MetaProperty metaProperty = metaClass.getProperty(path[index]);
+        if (metaProperty == null || !metadataTools.isPersistent(metaProperty)) {
+            // a method or a non-persistent attribute can use any attributes
+            return false;
+        }
+        if (!metaProperty.getRange().isClass()) {
+            view.addProperty(metaProperty.getName());
+            return true;
+        }
+
+        MetaClass propertyMetaClass = metaProperty.getRange().asClass();
+        ViewProperty viewProperty = view.getProperty(metaProperty.getName());
+        View propertyView = viewProperty != null && viewProperty.getView() != null ?
+                viewProperty.getView() : new View(propertyMetaClass.getJavaClass(), false);
+        view.addProperty(metaProperty.getName(), propertyView);
+
+        if (index + 1 < path.length && propertyMetaClass.getProperty(path[index + 1]) != null) {
+            return addConstraintPropertyPath(propertyView, propertyMetaClass, path, index + 1);
+        }
+        // the referenced entity itself is used by the script
+        for (ViewProperty localProperty : viewRepository.getView(propertyMetaClass, View.LOCAL).getProperties()) {
+            propertyView.addProperty(localProperty.getName());
+        }
+        return true;
+    }
+
     @Override
     public void applyConstraints(Collection<Entity> entities) {
         Set<EntityId> handled = new LinkedHashSet<>();
@@ -375,10 +441,13 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
     }
 
     protected boolean isPermittedInMemory(Entity entity) {
-        return isPermitted(entity, constraint ->
-                constraint.getCheckType().memory()
-                        && (constraint.getOperationType() == ConstraintOperationType.READ
-                        || constraint.getOperationType() == ConstraintOperationType.ALL));
+        return isPermitted(entity, this::isInMemoryReadConstraint);
+    }
+
+    protected boolean isInMemoryReadConstraint(ConstraintData constraint) {
+        return constraint.getCheckType().memory()
+                && (constraint.getOperationType() == ConstraintOperationType.READ
+                || constraint.getOperationType() == ConstraintOperationType.ALL);
     }
 
     protected static class EntityId {
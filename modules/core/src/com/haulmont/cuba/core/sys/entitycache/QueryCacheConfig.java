@@ -34,4 +34,12 @@ public interface QueryCacheConfig extends Config {
     @Property("cuba.queryCache.maxSize")
     @DefaultInt(100)
     int getQueryCacheMaxSize();
+
+    /**
+     * Maximum total number of entity identifiers held by cached query results. If set to a positive value,
+     * the cache is bounded by this weight instead of {@link #getQueryCacheMaxSize()}.
+     */
+    @Property("cuba.queryCache.maxWeight")
+    @DefaultInt(0)
+    int getQueryCacheMaxWeight();
 }
@@ -24,6 +24,7 @@ import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.Persistence;
 import com.haulmont.cuba.core.app.ClusterListenerAdapter;
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
+import com.haulmont.cuba.core.app.IdempotentClusterMessage;
 import com.haulmont.cuba.core.entity.BaseGenericIdEntity;
 import com.haulmont.cuba.core.global.Metadata;
 import com.haulmont.cuba.core.global.View;
@@ -35,7 +36,6 @@ import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.persistence.MappedSuperclass;
 import javax.persistence.TypedQuery;
-import java.io.Serializable;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -272,7 +272,7 @@ public class QueryCacheManager {
         return newRelatedTypes;
     }
 
-    protected static class InvalidateQueryCacheMsg implements Serializable {
+    protected static class InvalidateQueryCacheMsg implements IdempotentClusterMessage {
         private static final long serialVersionUID = -9099037380378341477L;
 
         protected Set<String> typeNames;
@@ -290,5 +290,21 @@ public class QueryCacheManager {
         public InvalidateQueryCacheMsg(QueryKey queryKey) {
             this.queryKey = queryKey;
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            InvalidateQueryCacheMsg that = (InvalidateQueryCacheMsg) o;
+            return invalidateAll == that.invalidateAll
+                    && Objects.equals(typeNames, that.typeNames)
+                    && Objects.equals(queryKey, that.queryKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(typeNames, queryKey, invalidateAll);
+        }
     }
 }
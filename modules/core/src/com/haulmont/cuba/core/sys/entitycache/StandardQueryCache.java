@@ -18,8 +18,9 @@ package com.haulmont.cuba.core.sys.entitycache;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -29,7 +30,6 @@ import javax.inject.Inject;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -38,8 +38,11 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 public class StandardQueryCache implements QueryCache {
 
     protected Cache<QueryKey, QueryResult> data;
-    protected ConcurrentMap<String, CopyOnWriteArrayList<QueryKey>> typeIndex = new ConcurrentHashMap<>();
+    protected ConcurrentMap<String, Set<QueryKey>> typeIndex = new ConcurrentHashMap<>();
+    protected ConcurrentMap<UUID, QueryKey> idIndex = new ConcurrentHashMap<>();
+    protected Map<QueryKey, UUID> keyIds = new HashMap<>();
     protected ReadWriteLock lock = new ReentrantReadWriteLock();
+    protected final Object indexLock = new Object();
 
     @Inject
     protected QueryCacheConfig queryCacheConfig;
@@ -48,7 +51,53 @@ public class StandardQueryCache implements QueryCache {
 
     @PostConstruct
     protected void init() {
-        data = CacheBuilder.newBuilder().maximumSize(queryCacheConfig.getQueryCacheMaxSize()).build();
+        CacheBuilder<QueryKey, QueryResult> builder = CacheBuilder.newBuilder()
+                .removalListener(this::onRemoval);
+        int maxWeight = queryCacheConfig.getQueryCacheMaxWeight();
+        if (maxWeight > 0) {
+            builder.maximumWeight(maxWeight).weigher(this::weigh);
+        } else {
+            builder.maximumSize(queryCacheConfig.getQueryCacheMaxSize());
+        }
+        data = builder.build();
+    }
+
+    protected int weigh(QueryKey queryKey, QueryResult queryResult) {
+        return 1 + (queryResult.getResult() != null ? queryResult.getResult().size() : 0);
+    }
+
+    /**
+     * Keeps secondary indexes in sync with the cache content. Indexes are updated under {@link #indexLock} together
+     * with the cache itself in {@link #put(QueryKey, QueryResult)}, so an entry put again with the same key before
+     * the notification is delivered keeps its index entries.
+     */
+    protected void onRemoval(RemovalNotification<QueryKey, QueryResult> notification) {
+        QueryKey queryKey = notification.getKey();
+        QueryResult queryResult = notification.getValue();
+        if (notification.getCause() == RemovalCause.REPLACED || queryKey == null) {
+            return;
+        }
+        synchronized (indexLock) {
+            if (data.asMap().containsKey(queryKey)) {
+                return;
+            }
+            UUID queryId = keyIds.remove(queryKey);
+            if (queryId != null) {
+                idIndex.remove(queryId);
+            }
+            if (queryResult != null) {
+                removeFromTypeIndex(queryKey, queryResult.getRelatedTypes());
+            }
+        }
+    }
+
+    protected void removeFromTypeIndex(QueryKey queryKey, Set<String> types) {
+        for (String type : types) {
+            Set<QueryKey> keys = typeIndex.get(type);
+            if (keys != null) {
+                keys.remove(queryKey);
+            }
+        }
     }
 
     @Override
@@ -61,15 +110,18 @@ public class StandardQueryCache implements QueryCache {
         Lock readLock = lock.readLock();
         readLock.lock();
         try {
-            data.put(queryKey, queryResult);
+            synchronized (indexLock) {
+                data.put(queryKey, queryResult);
 
-            for (String type : queryResult.getRelatedTypes()) {
-                CopyOnWriteArrayList<QueryKey> keys = typeIndex.get(type);
-                if (keys == null) {
-                    typeIndex.putIfAbsent(type, new CopyOnWriteArrayList<>());
-                    keys = typeIndex.get(type);
+                // an equal key put earlier can have another identifier
+                UUID prevQueryId = keyIds.put(queryKey, queryKey.getId());
+                if (prevQueryId != null && !prevQueryId.equals(queryKey.getId())) {
+                    idIndex.remove(prevQueryId);
+                }
+                idIndex.put(queryKey.getId(), queryKey);
+                for (String type : queryResult.getRelatedTypes()) {
+                    typeIndex.computeIfAbsent(type, t -> ConcurrentHashMap.newKeySet()).add(queryKey);
                 }
-                keys.add(queryKey);
             }
         } finally {
             readLock.unlock();
@@ -78,13 +130,8 @@ public class StandardQueryCache implements QueryCache {
 
     @Override
     public QueryKey findQueryKeyById(UUID queryId) {
-        Set<QueryKey> keys = Sets.newHashSet(data.asMap().keySet());
-        for (QueryKey key : keys) {
-            if (Objects.equals(queryId, key.getId())) {
-                return key;
-            }
-        }
-        return null;
+        QueryKey queryKey = idIndex.get(queryId);
+        return queryKey != null && data.asMap().containsKey(queryKey) ? queryKey : null;
     }
 
     @Override
@@ -104,10 +151,7 @@ public class StandardQueryCache implements QueryCache {
         Lock readLock = lock.readLock();
         readLock.lock();
         try {
-            CopyOnWriteArrayList<QueryKey> keys = typeIndex.get(typeName);
-            if (keys == null) return;
-            log.debug("Invalidate cache for type {}", typeName);
-            Arrays.stream(keys.toArray()).forEach(it -> data.invalidate(it));
+            invalidateType(typeName);
         } finally {
             readLock.unlock();
         }
@@ -118,30 +162,33 @@ public class StandardQueryCache implements QueryCache {
         Lock readLock = lock.readLock();
         readLock.lock();
         try {
-            typeNames.forEach(typeName -> {
-                        CopyOnWriteArrayList<QueryKey> keys = typeIndex.get(typeName);
-                        if (keys == null) return;
-                        log.debug("Invalidate cache for type {}", typeName);
-                        Arrays.stream(keys.toArray()).forEach(it -> data.invalidate(it));
-                    }
-            );
+            typeNames.forEach(this::invalidateType);
         } finally {
             readLock.unlock();
         }
     }
 
+    protected void invalidateType(String typeName) {
+        Set<QueryKey> keys = typeIndex.get(typeName);
+        if (keys == null) return;
+        log.debug("Invalidate cache for type {}", typeName);
+        for (Iterator<QueryKey> it = keys.iterator(); it.hasNext(); ) {
+            QueryKey queryKey = it.next();
+            it.remove();
+            data.invalidate(queryKey);
+        }
+    }
+
     @Override
     public QueryKey invalidate(UUID queryId) {
         Lock readLock = lock.readLock();
         readLock.lock();
         try {
-            Set<QueryKey> keys = Sets.newHashSet(data.asMap().keySet());
-            for (QueryKey key : keys) {
-                if (Objects.equals(queryId, key.getId())) {
-                    log.debug("Invalidate query by identifier {}", queryId);
-                    data.invalidate(key);
-                    return key;
-                }
+            QueryKey queryKey = idIndex.remove(queryId);
+            if (queryKey != null && data.asMap().containsKey(queryKey)) {
+                log.debug("Invalidate query by identifier {}", queryId);
+                data.invalidate(queryKey);
+                return queryKey;
             }
         } finally {
             readLock.unlock();
@@ -156,7 +203,11 @@ public class StandardQueryCache implements QueryCache {
         try {
             log.debug("Invalidate all cache");
             data.invalidateAll();
-            typeIndex.clear();
+            synchronized (indexLock) {
+                typeIndex.clear();
+                idIndex.clear();
+                keyIds.clear();
+            }
         } finally {
             writeLock.unlock();
         }
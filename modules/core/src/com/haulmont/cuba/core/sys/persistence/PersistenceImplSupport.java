@@ -22,6 +22,7 @@ import com.google.common.collect.Sets;
 import com.haulmont.bali.util.StackTrace;
 import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.app.EntityCountCache;
 import com.haulmont.cuba.core.app.FtsSender;
 import com.haulmont.cuba.core.app.MiddlewareStatisticsAccumulator;
 import com.haulmont.cuba.core.app.events.EntityChangedEvent;
@@ -90,6 +91,9 @@ public class PersistenceImplSupport implements ApplicationContextAware {
     @Inject
     protected QueryCacheManager queryCacheManager;
 
+    @Inject
+    protected EntityCountCache entityCountCache;
+
     @Inject
     protected EntityLogAPI entityLog;
 
@@ -388,6 +392,8 @@ public class PersistenceImplSupport implements ApplicationContextAware {
 
         protected final ContainerResourceHolder container;
 
+        protected Set<String> countTypeNames;
+
         public ContainerResourceSynchronization(ContainerResourceHolder resourceHolder, String resourceKey) {
             super(resourceHolder, resourceKey);
             this.container = resourceHolder;
@@ -445,6 +451,14 @@ public class PersistenceImplSupport implements ApplicationContextAware {
                     transactionListener.beforeCommit(persistence.getEntityManager(container.getStoreName()), allInstances);
                 }
                 queryCacheManager.invalidate(typeNames, true);
+                if (entityCountCache.isEnabled()) {
+                    // counts can depend on any attribute, so all entities of the transaction are considered changed
+                    countTypeNames = new HashSet<>();
+                    for (Entity entity : allInstances) {
+                        countTypeNames.add(entity.getMetaClass().getName());
+                    }
+                    entityCountCache.invalidate(countTypeNames, true);
+                }
                 List<EntityChangedEvent> collectedEvents = entityChangedEventManager.collect(container.getAllInstances());
                 detachAll();
                 publishEntityChangedEvents(collectedEvents);
@@ -478,6 +492,10 @@ public class PersistenceImplSupport implements ApplicationContextAware {
                 for (AfterCompleteTransactionListener listener : afterCompleteTxListeners) {
                     listener.afterComplete(status == TransactionSynchronization.STATUS_COMMITTED, instances);
                 }
+                if (countTypeNames != null && status == TransactionSynchronization.STATUS_COMMITTED) {
+                    // a count executed concurrently before the commit could be cached after the first invalidation
+                    entityCountCache.invalidate(countTypeNames, true);
+                }
             } finally {
                 super.afterCompletion(status);
             }
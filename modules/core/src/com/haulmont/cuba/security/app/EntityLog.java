@@ -56,6 +56,8 @@ public class EntityLog implements EntityLogAPI {
 
     private static final Logger log = LoggerFactory.getLogger(EntityLog.class);
 
+    protected static final String ASYNC_ITEMS_ATTR = EntityLog.class.getName() + ".asyncItems";
+
     @Inject
     protected TimeSource timeSource;
     @Inject
@@ -77,6 +79,8 @@ public class EntityLog implements EntityLogAPI {
     protected DataManager dataManager;
     @Inject
     protected ServerConfig serverConfig;
+    @Inject
+    protected EntityLogWriter entityLogWriter;
 
     protected volatile boolean loaded;
     protected EntityLogConfig config;
@@ -111,16 +115,67 @@ public class EntityLog implements EntityLogAPI {
         if (items == null || items.isEmpty())
             return;
 
-        for (EntityLogItem item : items) {
-            List<EntityLogItem> sameEntityList = items.stream()
-                    .filter(entityLogItem -> entityLogItem.getDbGeneratedIdEntity() != null ?
-                            entityLogItem.getDbGeneratedIdEntity().equals(item.getDbGeneratedIdEntity()) :
-                            entityLogItem.getObjectEntityId().equals(item.getObjectEntityId()))
-                    .collect(Collectors.toList());
+        List<EntityLogItem> itemsToSave = new ArrayList<>();
+        for (List<EntityLogItem> sameEntityList : groupItems(items)) {
             EntityLogItem itemToSave = sameEntityList.get(0);
             computeChanges(itemToSave, sameEntityList);
-            saveItem(itemToSave);
+            itemsToSave.add(itemToSave);
         }
+
+        if (config.getAsyncWrite()) {
+            saveItemsAsync(context, itemsToSave);
+        } else {
+            for (EntityLogItem itemToSave : itemsToSave) {
+                saveItem(itemToSave);
+            }
+        }
+    }
+
+    /**
+     * Groups items by the logged entity preserving the registration order.
+     */
+    protected Collection<List<EntityLogItem>> groupItems(List<EntityLogItem> items) {
+        Map<Object, List<EntityLogItem>> groups = new LinkedHashMap<>();
+        for (EntityLogItem item : items) {
+            Object key = item.getDbGeneratedIdEntity() != null ?
+                    item.getDbGeneratedIdEntity() :
+                    Arrays.asList(item.getEntity(), item.getObjectEntityId());
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(item);
+        }
+        return groups.values();
+    }
+
+    protected void saveItemsAsync(EntityManagerContext context, List<EntityLogItem> itemsToSave) {
+        Date ts = timeSource.currentTimestamp();
+        String login = auditInfoProvider.getCurrentUserLogin();
+        for (EntityLogItem item : itemsToSave) {
+            item.setCreateTs(ts);
+            item.setCreatedBy(login);
+        }
+
+        // a repeated flush in the same transaction replaces the items to write, like em.persist() of the same
+        // items does in the synchronous mode
+        List<EntityLogItem> pendingItems = context.getAttribute(ASYNC_ITEMS_ATTR);
+        if (pendingItems != null) {
+            pendingItems.clear();
+            pendingItems.addAll(itemsToSave);
+            return;
+        }
+        List<EntityLogItem> newPendingItems = new ArrayList<>(itemsToSave);
+        context.setAttribute(ASYNC_ITEMS_ATTR, newPendingItems);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                List<EntityLogItem> items = new ArrayList<>(newPendingItems);
+                for (EntityLogItem item : items) {
+                    if (item.getDbGeneratedIdEntity() != null) {
+                        item.setObjectEntityId(item.getDbGeneratedIdEntity().getId().getNN());
+                    }
+                }
+                entityLogWriter.enqueue(items);
+            }
+        });
     }
 
     protected void computeChanges(EntityLogItem itemToSave, List<EntityLogItem> sameEntityList) {
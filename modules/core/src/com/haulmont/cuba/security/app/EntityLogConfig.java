@@ -21,6 +21,7 @@ import com.haulmont.cuba.core.config.Property;
 import com.haulmont.cuba.core.config.Source;
 import com.haulmont.cuba.core.config.SourceType;
 import com.haulmont.cuba.core.config.defaults.DefaultBoolean;
+import com.haulmont.cuba.core.config.defaults.DefaultInt;
 
 /**
  * {@link com.haulmont.cuba.security.app.EntityLog} configuration parameters
@@ -35,4 +36,37 @@ public interface EntityLogConfig extends Config {
     @DefaultBoolean(true)
     boolean getEnabled();
     void setEnabled(boolean value);
+
+    /**
+     * @return Whether to write log items in a background thread after the business transaction is committed
+     */
+    @Property("cuba.entityLog.asyncWrite")
+    @Source(type = SourceType.APP)
+    @DefaultBoolean(false)
+    boolean getAsyncWrite();
+
+    /**
+     * @return Maximum number of log items waiting to be written in asynchronous mode
+     */
+    @Property("cuba.entityLog.asyncQueueCapacity")
+    @Source(type = SourceType.APP)
+    @DefaultInt(10000)
+    int getAsyncQueueCapacity();
+
+    /**
+     * @return Maximum number of log items inserted in one JDBC batch in asynchronous mode
+     */
+    @Property("cuba.entityLog.asyncBatchSize")
+    @Source(type = SourceType.APP)
+    @DefaultInt(500)
+    int getAsyncBatchSize();
+
+    /**
+     * @return Time in milliseconds to wait for free space in a full queue before writing the items
+     * in the calling thread
+     */
+    @Property("cuba.entityLog.asyncEnqueueTimeout")
+    @Source(type = SourceType.APP)
+    @DefaultInt(1000)
+    int getAsyncEnqueueTimeout();
 }
\ No newline at end of file
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.security.app;
+
+import com.haulmont.cuba.core.EntityManager;
+import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.entity.ReferenceToEntity;
+import com.haulmont.cuba.core.global.Configuration;
+import com.haulmont.cuba.core.sys.events.AppContextStoppedEvent;
+import com.haulmont.cuba.core.sys.persistence.DbTypeConverter;
+import com.haulmont.cuba.security.entity.EntityLogItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes {@link EntityLogItem}s to the database in a background thread using JDBC batches.
+ * <p>
+ * Used by {@link EntityLog} if {@link EntityLogConfig#getAsyncWrite()} is true. When the queue is full,
+ * the caller waits for {@link EntityLogConfig#getAsyncEnqueueTimeout()} and then writes the items itself.
+ * Items remaining in the queue are written on application shutdown.
+ */
+@Component(EntityLogWriter.NAME)
+public class EntityLogWriter {
+
+    public static final String NAME = "cuba_EntityLogWriter";
+
+    private static final Logger log = LoggerFactory.getLogger(EntityLogWriter.class);
+
+    protected static final String INSERT_SQL = "insert into SEC_ENTITY_LOG (ID, CREATE_TS, CREATED_BY, EVENT_TS, " +
+            "USER_ID, CHANGE_TYPE, ENTITY, ENTITY_ID, STRING_ENTITY_ID, INT_ENTITY_ID, LONG_ENTITY_ID, CHANGES) " +
+            "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Inject
+    protected Persistence persistence;
+
+    protected EntityLogConfig config;
+
+    protected volatile BlockingQueue<EntityLogItem> queue;
+    protected volatile Thread writerThread;
+    protected volatile boolean stopped;
+
+    protected AtomicLong writtenCount = new AtomicLong();
+    protected AtomicLong failedCount = new AtomicLong();
+    protected AtomicLong batchCount = new AtomicLong();
+    protected AtomicLong callerWrittenCount = new AtomicLong();
+
+    @Inject
+    public void setConfiguration(Configuration configuration) {
+        config = configuration.getConfig(EntityLogConfig.class);
+    }
+
+    /**
+     * Puts the items to the write queue. Should be invoked after the transaction that produced the items
+     * is committed.
+     */
+    public void enqueue(Collection<EntityLogItem> items) {
+        if (items.isEmpty())
+            return;
+
+        if (stopped) {
+            write(new ArrayList<>(items));
+            return;
+        }
+
+        BlockingQueue<EntityLogItem> queue = startIfNeeded();
+        List<EntityLogItem> rejected = null;
+        for (EntityLogItem item : items) {
+            boolean accepted;
+            try {
+                accepted = rejected == null && queue.offer(item, config.getAsyncEnqueueTimeout(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                accepted = false;
+            }
+            if (!accepted) {
+                if (rejected == null) {
+                    rejected = new ArrayList<>();
+                }
+                rejected.add(item);
+            }
+        }
+        if (rejected != null) {
+            log.debug("Entity log queue is full, writing {} items in the calling thread", rejected.size());
+            callerWrittenCount.addAndGet(rejected.size());
+            write(rejected);
+        }
+    }
+
+    protected BlockingQueue<EntityLogItem> startIfNeeded() {
+        if (writerThread == null) {
+            synchronized (this) {
+                if (writerThread == null) {
+                    queue = new LinkedBlockingQueue<>(config.getAsyncQueueCapacity());
+                    Thread thread = new Thread(this::processQueue, "EntityLogWriter");
+                    thread.setDaemon(true);
+                    thread.start();
+                    writerThread = thread;
+                }
+            }
+        }
+        return queue;
+    }
+
+    protected void processQueue() {
+        List<EntityLogItem> batch = new ArrayList<>();
+        while (!stopped) {
+            try {
+                EntityLogItem item = queue.poll(1, TimeUnit.SECONDS);
+                if (item == null)
+                    continue;
+                batch.add(item);
+                queue.drainTo(batch, config.getAsyncBatchSize() - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Throwable e) {
+                log.error("Error in entity log writer", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    @EventListener(AppContextStoppedEvent.class)
+    protected void applicationStopped() {
+        stopped = true;
+        Thread thread = writerThread;
+        if (thread == null)
+            return;
+
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<EntityLogItem> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        int batchSize = config.getAsyncBatchSize();
+        for (int i = 0; i < remaining.size(); i += batchSize) {
+            write(remaining.subList(i, Math.min(i + batchSize, remaining.size())));
+        }
+        log.debug("Entity log writer stopped, {} remaining items written", remaining.size());
+    }
+
+    protected void write(List<EntityLogItem> items) {
+        try (Transaction tx = persistence.createTransaction()) {
+            EntityManager em = persistence.getEntityManager();
+            insert(em.getConnection(), items);
+            tx.commit();
+            writtenCount.addAndGet(items.size());
+            batchCount.incrementAndGet();
+        } catch (Exception e) {
+            failedCount.addAndGet(items.size());
+            log.error("Unable to save {} entity log items", items.size(), e);
+        }
+    }
+
+    protected void insert(Connection connection, List<EntityLogItem> items) throws SQLException {
+        DbTypeConverter converter = persistence.getDbTypeConverter();
+        int[] types = new int[]{
+                converter.getSqlType(UUID.class), converter.getSqlType(Date.class), Types.VARCHAR,
+                converter.getSqlType(Date.class), converter.getSqlType(UUID.class), Types.VARCHAR, Types.VARCHAR,
+                converter.getSqlType(UUID.class), Types.VARCHAR, Types.INTEGER, Types.BIGINT, Types.VARCHAR
+        };
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+            for (EntityLogItem item : items) {
+                ReferenceToEntity ref = item.getEntityRef();
+                Object[] values = new Object[]{
+                        converter.getSqlObject(item.getId()),
+                        converter.getSqlObject(item.getCreateTs()),
+                        item.getCreatedBy(),
+                        converter.getSqlObject(item.getEventTs()),
+                        item.getUser() != null ? converter.getSqlObject(item.getUser().getId()) : null,
+                        item.getType() != null ? item.getType().getId() : null,
+                        item.getEntity(),
+                        converter.getSqlObject(ref.getEntityId()),
+                        ref.getStringEntityId(),
+                        ref.getIntEntityId(),
+                        ref.getLongEntityId(),
+                        item.getChanges()
+                };
+                for (int i = 0; i < values.length; i++) {
+                    if (values[i] != null) {
+                        statement.setObject(i + 1, values[i]);
+                    } else {
+                        statement.setNull(i + 1, types[i]);
+                    }
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * @return number of items waiting to be written
+     */
+    public int getQueueSize() {
+        BlockingQueue<EntityLogItem> queue = this.queue;
+        return queue != null ? queue.size() : 0;
+    }
+
+    /**
+     * @return number of items successfully written since startup
+     */
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    /**
+     * @return number of items that could not be written because of errors
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * @return number of executed batches
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * @return number of items written in calling threads because the queue was full
+     */
+    public long getCallerWrittenCount() {
+        return callerWrittenCount.get();
+    }
+}
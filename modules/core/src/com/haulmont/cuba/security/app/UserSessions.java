@@ -17,6 +17,7 @@ package com.haulmont.cuba.security.app;
 
 import com.haulmont.bali.util.Preconditions;
 import com.haulmont.cuba.core.app.ClusterListener;
+import com.haulmont.cuba.core.app.ClusterListenerAdapter;
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
 import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.global.Configuration;
@@ -53,12 +54,14 @@ public class UserSessions implements UserSessionsAPI {
         public final long since;
         public volatile long lastUsedTs; // set to 0 when propagating removal to cluster
         public volatile long lastSentTs;
+        public transient volatile long lastFullSentTs;
 
         public UserSessionInfo(UserSession session, long now) {
             this.session = session;
             this.since = now;
             this.lastUsedTs = now;
             this.lastSentTs = now;
+            this.lastFullSentTs = now;
         }
 
         public UserSession getSession() {
@@ -84,16 +87,58 @@ public class UserSessions implements UserSessionsAPI {
         }
     }
 
+    /**
+     * Compact cluster message refreshing {@code lastUsedTs} of sessions already replicated to the cluster.
+     */
+    public static class UserSessionsTouchMsg implements Serializable {
+        private static final long serialVersionUID = 3606377361457616183L;
+
+        public final long[] idMostSigBits;
+        public final long[] idLeastSigBits;
+        public final long[] lastUsedTs;
+
+        public UserSessionsTouchMsg(int size) {
+            idMostSigBits = new long[size];
+            idLeastSigBits = new long[size];
+            lastUsedTs = new long[size];
+        }
+
+        public int size() {
+            return lastUsedTs.length;
+        }
+
+        public UUID getId(int index) {
+            return new UUID(idMostSigBits[index], idLeastSigBits[index]);
+        }
+
+        @Override
+        public String toString() {
+            return "UserSessionsTouchMsg{sessions=" + size() + "}";
+        }
+    }
+
     private static final Logger log = LoggerFactory.getLogger(UserSessions.class);
 
+    protected static final int TOUCH_MSG_MAX_SIZE = 1000;
+
+    protected static final int STATE_RESET_INTERVAL = 1000;
+
+    protected static final int STATE_ORDER = -100;
+
     protected Map<UUID, UserSessionInfo> cache = new ConcurrentHashMap<>();
 
+    protected Set<UUID> touchedSessions = ConcurrentHashMap.newKeySet();
+
     protected volatile int expirationTimeout = 1800;
 
     protected volatile int sendTimeout = 10;
 
     protected volatile int touchTimeout = 1;
 
+    protected volatile boolean touchMessagesEnabled;
+
+    protected volatile int fullSendTimeout = 600;
+
     protected ClusterManagerAPI clusterManager;
 
     protected UserSession NO_USER_SESSION;
@@ -128,6 +173,8 @@ public class UserSessions implements UserSessionsAPI {
         setExpirationTimeoutSec(serverConfig.getUserSessionExpirationTimeoutSec());
         setSendTimeoutSec(serverConfig.getUserSessionSendTimeoutSec());
         touchTimeout = serverConfig.getUserSessionTouchTimeoutSec();
+        touchMessagesEnabled = serverConfig.getUserSessionTouchMessagesEnabled();
+        fullSendTimeout = serverConfig.getUserSessionFullSendTimeoutSec();
     }
 
     @Inject
@@ -151,6 +198,31 @@ public class UserSessions implements UserSessionsAPI {
                     public void setState(byte[] state) {
                         receiveClusterState(state);
                     }
+
+                    @Override
+                    public void writeState(OutputStream out) throws IOException {
+                        writeClusterState(out);
+                    }
+
+                    @Override
+                    public void readState(InputStream in) throws IOException {
+                        readClusterState(in);
+                    }
+
+                    @Override
+                    public int getStateOrder() {
+                        // sessions are needed to serve requests as soon as possible
+                        return STATE_ORDER;
+                    }
+                }
+        );
+        this.clusterManager.addListener(
+                UserSessionsTouchMsg.class,
+                new ClusterListenerAdapter<UserSessionsTouchMsg>() {
+                    @Override
+                    public void receive(UserSessionsTouchMsg message) {
+                        receiveTouchMessage(message);
+                    }
                 }
         );
     }
@@ -168,6 +240,20 @@ public class UserSessions implements UserSessionsAPI {
         }
     }
 
+    protected void receiveTouchMessage(UserSessionsTouchMsg message) {
+        int touched = 0;
+        for (int i = 0; i < message.size(); i++) {
+            UUID id = message.getId(i);
+            UserSessionInfo usi = getSessionInfo(id);
+            if (usi != null && usi.lastUsedTs != 0 && usi.lastUsedTs < message.lastUsedTs[i]) {
+                usi.lastUsedTs = message.lastUsedTs[i];
+                putSessionInfo(id, usi);
+                touched++;
+            }
+        }
+        log.debug("Received touches of {} sessions, {} refreshed", message.size(), touched);
+    }
+
     protected void receiveClusterState(byte[] state) {
         if (state == null || state.length == 0) {
             log.debug("Received empty user sessions cache");
@@ -208,6 +294,50 @@ public class UserSessions implements UserSessionsAPI {
         return bytes;
     }
 
+    /**
+     * Writes non-system sessions one by one, most recently used first, so the joining node can serve active users
+     * before the whole state is received.
+     */
+    protected void writeClusterState(OutputStream out) throws IOException {
+        // lastUsedTs is changed concurrently, so sort by the values read once
+        List<UserSessionInfo> infoList = getSessionInfoStream()
+                .filter(usi -> !usi.session.isSystem())
+                .map(usi -> new AbstractMap.SimpleImmutableEntry<>(usi.lastUsedTs, usi))
+                .sorted(Map.Entry.<Long, UserSessionInfo>comparingByKey().reversed())
+                .map(Map.Entry::getValue)
+                .collect(Collectors.toList());
+
+        ObjectOutputStream oos = new ObjectOutputStream(out);
+        int count = 0;
+        for (UserSessionInfo usi : infoList) {
+            oos.writeBoolean(true);
+            oos.writeObject(usi);
+            // do not keep references to all written objects
+            if (++count % STATE_RESET_INTERVAL == 0) {
+                oos.reset();
+            }
+        }
+        oos.writeBoolean(false);
+        oos.flush();
+        log.debug("Sent user sessions cache to cluster: {} sessions", count);
+    }
+
+    protected void readClusterState(InputStream in) throws IOException {
+        ObjectInputStream ois = new ObjectInputStream(in);
+        int count = 0;
+        while (ois.readBoolean()) {
+            UserSessionInfo usi;
+            try {
+                usi = (UserSessionInfo) ois.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Error reading user session", e);
+            }
+            receiveClusterMessage(usi);
+            count++;
+        }
+        log.debug("Received user sessions cache: {} sessions. Cache now contains {} sessions", count, cache.size());
+    }
+
     @Override
     public void add(UserSession session) {
         UserSessionInfo usi = new UserSessionInfo(session, timeSource.currentTimeMillis());
@@ -292,7 +422,13 @@ public class UserSessions implements UserSessionsAPI {
                 if (propagate && !usi.session.isSystem()) {
                     if (now > (usi.lastSentTs + toMillis(sendTimeout))) {
                         usi.lastSentTs = now;
-                        clusterManager.send(usi);
+                        if (touchMessagesEnabled && now <= (usi.lastFullSentTs + toMillis(fullSendTimeout))) {
+                            // the session itself has been sent already, send only the timestamp
+                            touchedSessions.add(id);
+                        } else {
+                            usi.lastFullSentTs = now;
+                            clusterManager.send(usi);
+                        }
                     }
                 }
             }
@@ -308,11 +444,49 @@ public class UserSessions implements UserSessionsAPI {
             long now = timeSource.currentTimeMillis();
             usi.lastUsedTs = now;
             usi.lastSentTs = now;
+            usi.lastFullSentTs = now;
             putSessionInfo(id, usi);
             clusterManager.send(usi);
         }
     }
 
+    @Override
+    public void sendTouches() {
+        if (touchedSessions.isEmpty())
+            return;
+
+        List<UUID> ids = new ArrayList<>();
+        List<Long> timestamps = new ArrayList<>();
+        for (Iterator<UUID> it = touchedSessions.iterator(); it.hasNext(); ) {
+            UUID id = it.next();
+            it.remove();
+            UserSessionInfo usi = getSessionInfo(id);
+            if (usi != null && usi.lastUsedTs != 0) {
+                ids.add(id);
+                timestamps.add(usi.lastUsedTs);
+            }
+            if (ids.size() == TOUCH_MSG_MAX_SIZE) {
+                sendTouchMessage(ids, timestamps);
+                ids.clear();
+                timestamps.clear();
+            }
+        }
+        if (!ids.isEmpty()) {
+            sendTouchMessage(ids, timestamps);
+        }
+    }
+
+    protected void sendTouchMessage(List<UUID> ids, List<Long> timestamps) {
+        UserSessionsTouchMsg message = new UserSessionsTouchMsg(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            message.idMostSigBits[i] = ids.get(i).getMostSignificantBits();
+            message.idLeastSigBits[i] = ids.get(i).getLeastSignificantBits();
+            message.lastUsedTs[i] = timestamps.get(i);
+        }
+        log.debug("Sending touches of {} sessions", ids.size());
+        clusterManager.send(message);
+    }
+
     @Override
     public int getExpirationTimeoutSec() {
         return expirationTimeout;
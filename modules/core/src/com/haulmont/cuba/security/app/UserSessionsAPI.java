@@ -15,6 +15,7 @@
  */
 package com.haulmont.cuba.security.app;
 
+import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.sys.UserSessionFinder;
 import com.haulmont.cuba.security.entity.UserSessionEntity;
 import com.haulmont.cuba.security.global.NoUserSessionException;
@@ -184,4 +185,12 @@ public interface UserSessionsAPI extends UserSessionFinder {
      * Evict timed out sessions from the cache.
      */
     void processEviction();
+
+    /**
+     * INTERNAL.
+     *
+     * Sends timestamps of sessions used since the last propagation to the cluster. Does nothing unless
+     * {@link ServerConfig#getUserSessionTouchMessagesEnabled()} is true.
+     */
+    void sendTouches();
 }
\ No newline at end of file
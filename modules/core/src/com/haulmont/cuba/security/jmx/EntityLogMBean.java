@@ -36,4 +36,29 @@ public interface EntityLogMBean {
      * The configuration will be recreated from the database on next lifecycle event.
      */
     void invalidateCache();
+
+    /**
+     * @return number of log items waiting to be written in asynchronous mode
+     */
+    int getAsyncQueueSize();
+
+    /**
+     * @return number of log items written in asynchronous mode
+     */
+    long getAsyncWrittenCount();
+
+    /**
+     * @return number of log items that could not be written in asynchronous mode
+     */
+    long getAsyncFailedCount();
+
+    /**
+     * @return number of JDBC batches executed in asynchronous mode
+     */
+    long getAsyncBatchCount();
+
+    /**
+     * @return number of log items written in calling threads because the asynchronous queue was full
+     */
+    long getAsyncCallerWrittenCount();
 }
@@ -20,6 +20,7 @@ import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.LoggerContext;
 import com.haulmont.bali.db.QueryRunner;
 import com.haulmont.bali.db.ResultSetHandler;
+import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.cuba.core.entity.EntitySnapshot;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.security.entity.*;
@@ -459,6 +460,35 @@ public class ViewTest {
         assertNull(viewRepository.getView(User.class, View.LOCAL).getProperty("group"));
     }
 
+    @Test
+    public void testFrozenView() throws Exception {
+        ViewRepository viewRepository = cont.metadata().getViewRepository();
+        MetaClass metaClass = cont.metadata().getClassNN(User.class);
+        View view = viewRepository.getFrozenView(metaClass, "user.edit");
+
+        assertTrue(view.isFrozen());
+        assertSame(view, viewRepository.getFrozenView(metaClass, "user.edit"));
+        assertFail(() -> view.addProperty("name"));
+        assertFail(() -> view.setLoadPartialEntities(true));
+
+        View groupView = view.getProperty("group").getView();
+        assertTrue(groupView.isFrozen());
+        assertFail(() -> groupView.addProperty("name"));
+
+        View modifiable = viewRepository.getView(User.class, "user.edit");
+        assertFalse(modifiable.isFrozen());
+        assertNotSame(modifiable, viewRepository.getView(User.class, "user.edit"));
+        modifiable.setLoadPartialEntities(true);
+        assertFalse(view.loadPartialEntities());
+
+        View derived = view.derive().addProperty("group", groupView.derive().addProperty("name"));
+        assertFalse(derived.isFrozen());
+        assertSame(view.getProperty("login"), derived.getProperty("login"));
+        assertNotSame(groupView, derived.getProperty("group").getView());
+        assertTrue(derived.getEntityClasses().containsAll(view.getEntityClasses()));
+        assertSame(view.getEntityClasses(), view.getEntityClasses());
+    }
+
     @Test
     public void testFetchGroupIsAbsentIfViewIsFull() throws Exception {
         ViewRepository viewRepository = cont.metadata().getViewRepository();
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import com.haulmont.cuba.core.entity.AppFolder;
+import com.haulmont.cuba.core.global.TimeSource;
+import com.haulmont.cuba.core.global.UserSessionSource;
+import com.haulmont.cuba.core.sys.AppComponents;
+import com.haulmont.cuba.core.sys.AppContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AppFolderQuantityCacheTest {
+
+    private TestCache cache;
+    private volatile UUID userId = UUID.randomUUID();
+
+    @Before
+    public void setUp() {
+        // scripts are evaluated in the security context of the caller
+        AppContext.Internals.setAppComponents(new AppComponents("test"));
+
+        cache = new TestCache();
+        cache.serverConfig = (ServerConfig) Proxy.newProxyInstance(ServerConfig.class.getClassLoader(),
+                new Class[]{ServerConfig.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getAppFolderQuantityCacheTtlSec":
+                            return 60;
+                        case "getAppFolderQuantityCacheMaxSize":
+                            return 100;
+                        case "getAppFolderQuantityTimeoutSec":
+                            return 1;
+                        case "getAppFolderQuantityThreads":
+                            return 2;
+                        default:
+                            return null;
+                    }
+                });
+        cache.userSessionSource = (UserSessionSource) Proxy.newProxyInstance(UserSessionSource.class.getClassLoader(),
+                new Class[]{UserSessionSource.class}, (proxy, method, args) -> {
+                    if ("currentOrSubstitutedUserId".equals(method.getName())) {
+                        return userId;
+                    }
+                    return null;
+                });
+        cache.timeSource = (TimeSource) Proxy.newProxyInstance(TimeSource.class.getClassLoader(),
+                new Class[]{TimeSource.class}, (proxy, method, args) -> {
+                    if ("currentTimeMillis".equals(method.getName())) {
+                        return System.currentTimeMillis();
+                    }
+                    return null;
+                });
+        cache.init();
+    }
+
+    @After
+    public void tearDown() {
+        cache.shutdown();
+    }
+
+    @Test
+    public void testSharedScripts() {
+        assertTrue(cache.isSharedScript("def em = persistence.getEntityManager()\n" +
+                "def q = em.createQuery('select count(o) from sales$Order o')\n" +
+                "def count = q.getSingleResult()\n" +
+                "style = count > 0 ? 'emphasized' : null\n" +
+                "return count"));
+        assertTrue(cache.isSharedScript("[1, 2].sum { it * 2 }"));
+        assertTrue(cache.isSharedScript("def f(x) { x + 1 }\nf(folder.sortOrder)"));
+
+        assertFalse(cache.isSharedScript("userSession.getAttribute('department')"));
+        assertFalse(cache.isSharedScript("AppBeans.get(DataManager).getCount(null)"));
+        assertFalse(cache.isSharedScript("com.haulmont.cuba.core.global.AppBeans.get('cuba_DataManager')"));
+        assertFalse(cache.isSharedScript("new LoadContext(null)"));
+        assertFalse(cache.isSharedScript("getBinding().getVariable('userSession')"));
+        assertFalse(cache.isSharedScript("def x = "));
+    }
+
+    @Test
+    public void testResultsAreCachedPerUserUnlessShared() {
+        AppFolder shared = createFolder("persistence.hashCode()");
+        AppFolder userDependent = createFolder("userSession.hashCode()");
+
+        cache.loadQuantities(Collections.singletonList(shared));
+        cache.loadQuantities(Collections.singletonList(userDependent));
+        assertEquals(2, cache.evaluations.get());
+
+        userId = UUID.randomUUID();
+        cache.loadQuantities(Collections.singletonList(shared));
+        cache.loadQuantities(Collections.singletonList(userDependent));
+        assertEquals(3, cache.evaluations.get());
+        assertEquals(Integer.valueOf(3), userDependent.getQuantity());
+
+        cache.invalidateAll();
+        cache.loadQuantities(Collections.singletonList(shared));
+        assertEquals(4, cache.evaluations.get());
+    }
+
+    @Test
+    public void testFailuresAreNotCached() {
+        AppFolder folder = createFolder("persistence.hashCode()");
+        folder.setQuantity(10);
+        cache.failure = true;
+
+        cache.loadQuantities(Collections.singletonList(folder));
+        assertEquals(Integer.valueOf(10), folder.getQuantity());
+
+        cache.failure = false;
+        cache.loadQuantities(Collections.singletonList(folder));
+        assertEquals(Integer.valueOf(2), folder.getQuantity());
+    }
+
+    @Test
+    public void testTimeoutKeepsPreviousValues() throws Exception {
+        AppFolder folder = createFolder("persistence.hashCode()");
+        folder.setQuantity(10);
+        cache.latch = new CountDownLatch(1);
+
+        cache.loadQuantities(Collections.singletonList(folder));
+        assertEquals(Integer.valueOf(10), folder.getQuantity());
+
+        // the evaluation started before the timeout is completed and cached
+        cache.latch.countDown();
+        cache.latch = null;
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (cache.completed.get() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        cache.loadQuantities(Collections.singletonList(folder));
+        assertEquals(Integer.valueOf(1), folder.getQuantity());
+        assertEquals(1, cache.evaluations.get());
+    }
+
+    private AppFolder createFolder(String script) {
+        AppFolder folder = new AppFolder();
+        folder.setName(script);
+        folder.setQuantityScript(script);
+        return folder;
+    }
+
+    private static class TestCache extends AppFolderQuantityCache {
+
+        private final AtomicInteger evaluations = new AtomicInteger();
+        private final AtomicInteger completed = new AtomicInteger();
+        private volatile boolean failure;
+        private volatile CountDownLatch latch;
+
+        @Override
+        protected Quantity evaluateScript(AppFolder folder, String script) {
+            int evaluation = evaluations.incrementAndGet();
+            if (failure) {
+                throw new RuntimeException("Test failure");
+            }
+            CountDownLatch latch = this.latch;
+            if (latch != null) {
+                try {
+                    latch.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            completed.incrementAndGet();
+            return new Quantity(evaluation, null);
+        }
+    }
+}
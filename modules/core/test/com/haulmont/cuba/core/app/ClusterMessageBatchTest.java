@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ClusterMessageBatchTest {
+
+    @Test
+    public void testUncompressed() {
+        List<byte[]> messages = Arrays.asList(new byte[]{1, 2, 3}, new byte[0], new byte[]{4});
+
+        ClusterMessageBatch batch = ClusterMessageBatch.create(messages, 0);
+
+        assertFalse(batch.isCompressed());
+        assertEquals(3, batch.getMessageCount());
+        assertEquals(16, batch.getSize());
+        assertMessagesEqual(messages, batch.getMessages());
+    }
+
+    @Test
+    public void testCompressed() {
+        List<byte[]> messages = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            byte[] message = new byte[100];
+            Arrays.fill(message, (byte) i);
+            messages.add(message);
+        }
+
+        ClusterMessageBatch batch = ClusterMessageBatch.create(messages, 1024);
+
+        assertTrue(batch.isCompressed());
+        assertTrue(batch.getDataSize() < batch.getSize());
+        assertMessagesEqual(messages, batch.getMessages());
+    }
+
+    private void assertMessagesEqual(List<byte[]> expected, List<byte[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ClusterStateChunkStreamTest {
+
+    @Test
+    public void testSections() throws IOException {
+        byte[] large = new byte[ClusterManager.STATE_CHUNK_SIZE * 2 + 17];
+        new Random(1).nextBytes(large);
+        byte[] small = {1, 2, 3};
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bos);
+        writeSection(out, large);
+        writeSection(out, new byte[0]);
+        writeSection(out, small);
+        out.writeUTF("end");
+        out.flush();
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bos.toByteArray()));
+
+        ClusterManager.StateChunkInputStream chunks = new ClusterManager.StateChunkInputStream(in);
+        assertArrayEquals(large, IOUtils.toByteArray(chunks));
+        assertEquals(large.length, chunks.getSize());
+
+        chunks = new ClusterManager.StateChunkInputStream(in);
+        assertEquals(-1, chunks.read());
+
+        // unread section is skipped
+        chunks = new ClusterManager.StateChunkInputStream(in);
+        assertEquals(1, chunks.read());
+        chunks.skipRemaining();
+
+        assertEquals("end", in.readUTF());
+    }
+
+    private void writeSection(DataOutputStream out, byte[] data) throws IOException {
+        ClusterManager.StateChunkOutputStream chunks = new ClusterManager.StateChunkOutputStream(out);
+        chunks.write(data);
+        chunks.close();
+        chunks.finish();
+        assertEquals(data.length, chunks.getSize());
+    }
+}
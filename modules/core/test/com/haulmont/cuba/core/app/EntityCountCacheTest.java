@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class EntityCountCacheTest {
+
+    private EntityCountCache cache;
+    private List<Serializable> sentMessages;
+    private ClusterListener<EntityCountCache.InvalidateCountsMsg> clusterListener;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        sentMessages = new ArrayList<>();
+
+        cache = new EntityCountCache();
+        cache.serverConfig = (ServerConfig) Proxy.newProxyInstance(ServerConfig.class.getClassLoader(),
+                new Class[]{ServerConfig.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getEntityCountCacheTtlSec":
+                            return 60;
+                        case "getEntityCountCacheMaxSize":
+                            return 3;
+                        default:
+                            return null;
+                    }
+                });
+        cache.clusterManager = (ClusterManagerAPI) Proxy.newProxyInstance(ClusterManagerAPI.class.getClassLoader(),
+                new Class[]{ClusterManagerAPI.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "send":
+                            sentMessages.add((Serializable) args[0]);
+                            return null;
+                        case "addListener":
+                            clusterListener = (ClusterListener<EntityCountCache.InvalidateCountsMsg>) args[1];
+                            return null;
+                        default:
+                            return null;
+                    }
+                });
+        cache.init();
+    }
+
+    @Test
+    public void testPutAndGet() {
+        EntityCountCache.CountKey key = createKey("select u from sec$User u", "sec$User");
+        assertNull(cache.get(key));
+
+        cache.put(key, 10);
+        assertEquals(Long.valueOf(10), cache.get(key));
+        assertEquals(Long.valueOf(10), cache.get(createKey("select u from sec$User u", "sec$User")));
+        assertNull(cache.get(createKey("select u from sec$User u where u.active = true", "sec$User")));
+    }
+
+    @Test
+    public void testInvalidateByEntity() {
+        EntityCountCache.CountKey userKey = createKey("select u from sec$User u", "sec$User");
+        EntityCountCache.CountKey joinKey = createKey("select u from sec$User u join u.group g", "sec$User", "sec$Group");
+        EntityCountCache.CountKey roleKey = createKey("select r from sec$Role r", "sec$Role");
+        cache.put(userKey, 1);
+        cache.put(joinKey, 2);
+        cache.put(roleKey, 3);
+
+        cache.invalidate(Collections.singleton("sec$Group"), true);
+
+        assertEquals(Long.valueOf(1), cache.get(userKey));
+        assertNull(cache.get(joinKey));
+        assertEquals(Long.valueOf(3), cache.get(roleKey));
+        assertEquals(1, sentMessages.size());
+    }
+
+    @Test
+    public void testInvalidateFromCluster() {
+        EntityCountCache.CountKey userKey = createKey("select u from sec$User u", "sec$User");
+        cache.put(userKey, 1);
+
+        clusterListener.receive(new EntityCountCache.InvalidateCountsMsg(Collections.singleton("sec$User")));
+
+        assertNull(cache.get(userKey));
+        assertTrue(sentMessages.isEmpty());
+    }
+
+    @Test
+    public void testMaxSize() {
+        for (int i = 0; i < 10; i++) {
+            cache.put(createKey("select u from sec$User u where u.id = " + i, "sec$User"), i);
+        }
+
+        assertTrue(cache.counts.size() <= 3);
+        assertEquals(Long.valueOf(9), cache.get(createKey("select u from sec$User u where u.id = 9", "sec$User")));
+    }
+
+    @Test
+    public void testInvalidateAll() {
+        EntityCountCache.CountKey userKey = createKey("select u from sec$User u", "sec$User");
+        cache.put(userKey, 1);
+
+        cache.invalidateAll();
+
+        assertNull(cache.get(userKey));
+    }
+
+    private EntityCountCache.CountKey createKey(String queryString, String... typeNames) {
+        return new EntityCountCache.CountKey("_MAIN_", queryString, Collections.emptyMap(), true, 0,
+                Collections.emptyMap(), null, ImmutableSet.copyOf(typeNames));
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.Transaction;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class SequenceBlockAllocatorTest {
+
+    @Test
+    public void testIssuesNumbersFromBlocks() {
+        TestSequences sequences = new TestSequences();
+        SequenceBlockAllocator allocator = createAllocator(sequences, 0);
+        Sequence sequence = Sequence.withName("seq_unb_test").setStartValue(10).setIncrement(10);
+
+        assertNull(allocator.getLastIssued(sequence));
+        for (long i = 1; i <= 25; i++) {
+            assertEquals(i, allocator.getNext(sequence));
+        }
+        assertEquals(Long.valueOf(25), allocator.getLastIssued(sequence));
+        assertEquals(3, allocator.getReservedBlockCount());
+        assertEquals(22, allocator.getSavedDbCallCount());
+
+        allocator.discard(sequence);
+        assertNull(allocator.getLastIssued(sequence));
+        assertEquals(31, allocator.getNext(sequence));
+    }
+
+    @Test
+    public void testSetCurrentValue() {
+        TestSequences sequences = new TestSequences();
+        SequenceBlockAllocator allocator = createAllocator(sequences, 0);
+        Sequence sequence = Sequence.withName("seq_unb_test").setStartValue(10).setIncrement(10);
+
+        assertEquals(1, allocator.getNext(sequence));
+
+        sequences.setCurrentValue(sequence, 100);
+        allocator.discard(sequence);
+        assertEquals(101, allocator.getNext(sequence));
+        assertEquals(102, allocator.getNext(sequence));
+    }
+
+    @Test
+    public void testPrefetch() throws Exception {
+        SequenceBlockAllocator allocator = createAllocator(new TestSequences(), 50);
+        Sequence sequence = Sequence.withName("seq_unb_test").setStartValue(10).setIncrement(10);
+
+        for (long i = 1; i <= 4; i++) {
+            assertEquals(i, allocator.getNext(sequence));
+        }
+        assertEquals(1, allocator.getReservedBlockCount());
+
+        // the block is prefetched when half of it is left
+        assertEquals(5, allocator.getNext(sequence));
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (allocator.getReservedBlockCount() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, allocator.getReservedBlockCount());
+
+        for (long i = 6; i <= 20; i++) {
+            assertEquals(i, allocator.getNext(sequence));
+        }
+    }
+
+    @Test
+    public void testPrefetchAfterShutdown() {
+        SequenceBlockAllocator allocator = createAllocator(new TestSequences(), 50);
+        Sequence sequence = Sequence.withName("seq_unb_test").setStartValue(10).setIncrement(10);
+        allocator.prefetchExecutor.shutdownNow();
+
+        for (long i = 1; i <= 15; i++) {
+            assertEquals(i, allocator.getNext(sequence));
+        }
+        assertEquals(2, allocator.getReservedBlockCount());
+    }
+
+    @Test
+    public void testConcurrentAllocation() throws Exception {
+        SequenceBlockAllocator allocator = createAllocator(new TestSequences(), 20);
+        Sequence sequence = Sequence.withName("seq_unb_test").setStartValue(7).setIncrement(7);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                List<Long> numbers = new ArrayList<>();
+                for (int i = 0; i < 1000; i++) {
+                    numbers.add(allocator.getNext(sequence));
+                }
+                return numbers;
+            }));
+        }
+        Set<Long> numbers = new HashSet<>();
+        for (Future<List<Long>> future : futures) {
+            numbers.addAll(future.get());
+        }
+        executor.shutdown();
+
+        assertEquals(8000, numbers.size());
+        assertEquals(8000, allocator.getIssuedCount());
+    }
+
+    private SequenceBlockAllocator createAllocator(Sequences sequences, int prefetchPercent) {
+        SequenceBlockAllocator allocator = new SequenceBlockAllocator();
+        allocator.sequences = sequences;
+        allocator.persistence = stub(Persistence.class, (proxy, method, args) ->
+                "createTransaction".equals(method.getName()) ? stub(Transaction.class, (p, m, a) -> null) : null);
+        allocator.serverConfig = stub(ServerConfig.class, (proxy, method, args) ->
+                "getUniqueNumbersBlockPrefetchPercent".equals(method.getName()) ? prefetchPercent : null);
+        allocator.clusterManager = stub(ClusterManagerAPI.class, (proxy, method, args) -> null);
+        return allocator;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class[]{type}, handler);
+    }
+
+    /**
+     * Sequences having the semantics of database sequences: the first value is the start value.
+     */
+    private static class TestSequences implements Sequences {
+
+        private final ConcurrentMap<String, Long> values = new ConcurrentHashMap<>();
+
+        @Override
+        public long createNextValue(Sequence sequence) {
+            return values.compute(sequence.getName(), (name, value) ->
+                    value == null ? sequence.getStartValue() : value + sequence.getIncrement());
+        }
+
+        @Override
+        public long getCurrentValue(Sequence sequence) {
+            return values.getOrDefault(sequence.getName(), 0L);
+        }
+
+        @Override
+        public void setCurrentValue(Sequence sequence, long value) {
+            values.put(sequence.getName(), value);
+        }
+
+        @Override
+        public void deleteSequence(Sequence sequence) {
+            values.remove(sequence.getName());
+        }
+    }
+}
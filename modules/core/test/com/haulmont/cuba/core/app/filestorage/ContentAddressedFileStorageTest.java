@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.core.app.filestorage;
+
+import com.haulmont.cuba.core.entity.FileDescriptor;
+import com.haulmont.cuba.core.sys.AppComponents;
+import com.haulmont.cuba.core.sys.AppContext;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Date;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class ContentAddressedFileStorageTest {
+
+    private static final byte[] CONTENT = "The same attachment".getBytes(StandardCharsets.UTF_8);
+
+    private File primaryRoot;
+    private File secondaryRoot;
+    private TestFileStorage fileStorage;
+
+    @Before
+    public void setUp() throws Exception {
+        if (AppContext.getAppComponents() == null) {
+            AppContext.Internals.setAppComponents(new AppComponents("core"));
+        }
+        primaryRoot = Files.createTempDirectory("primary").toFile();
+        secondaryRoot = Files.createTempDirectory("secondary").toFile();
+        fileStorage = new TestFileStorage(primaryRoot, secondaryRoot);
+        assumeTrue(fileStorage.isLinksSupported(primaryRoot));
+    }
+
+    @After
+    public void tearDown() {
+        fileStorage.replicationExecutor.shutdownNow();
+        FileUtils.deleteQuietly(primaryRoot);
+        FileUtils.deleteQuietly(secondaryRoot);
+    }
+
+    @Test
+    public void testDeduplication() throws Exception {
+        FileDescriptor fd1 = createFileDescriptor();
+        FileDescriptor fd2 = createFileDescriptor();
+
+        assertEquals(CONTENT.length, fileStorage.saveStream(fd1, new ByteArrayInputStream(CONTENT)));
+        fileStorage.saveFile(fd2, CONTENT);
+        awaitReplication();
+
+        for (File root : new File[]{primaryRoot, secondaryRoot}) {
+            assertEquals(1, getBlobs(root).size());
+            assertEquals(3, fileStorage.getLinkCount(getBlobs(root).iterator().next()));
+        }
+        try (InputStream is = fileStorage.openStream(fd2)) {
+            assertArrayEquals(CONTENT, IOUtils.toByteArray(is));
+        }
+
+        fileStorage.removeFile(fd1);
+        assertFalse(fileStorage.fileExists(fd1));
+        assertTrue(fileStorage.fileExists(fd2));
+        assertEquals(1, getBlobs(primaryRoot).size());
+
+        fileStorage.removeFile(fd2);
+        assertFalse(fileStorage.fileExists(fd2));
+        assertTrue(getBlobs(primaryRoot).isEmpty());
+        assertTrue(getBlobs(secondaryRoot).isEmpty());
+    }
+
+    @Test
+    public void testDifferentContent() throws Exception {
+        FileDescriptor fd1 = createFileDescriptor();
+        FileDescriptor fd2 = createFileDescriptor();
+
+        fileStorage.saveFile(fd1, CONTENT);
+        fileStorage.saveFile(fd2, "Another attachment".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(2, getBlobs(primaryRoot).size());
+        assertArrayEquals(CONTENT, fileStorage.loadFile(fd1));
+    }
+
+    private FileDescriptor createFileDescriptor() {
+        FileDescriptor fd = new FileDescriptor();
+        fd.setCreateDate(new Date());
+        fd.setName("attachment.txt");
+        fd.setExtension("txt");
+        return fd;
+    }
+
+    private Collection<File> getBlobs(File root) {
+        File blobsDir = fileStorage.getBlobsDir(root);
+        Collection<File> files = FileUtils.listFiles(blobsDir, null, true);
+        files.removeIf(file -> file.getParentFile().getName().equals(ContentAddressedFileStorage.TEMP_DIR));
+        return files;
+    }
+
+    private void awaitReplication() throws InterruptedException {
+        fileStorage.replicationExecutor.shutdown();
+        assertTrue(fileStorage.replicationExecutor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    private static class TestFileStorage extends ContentAddressedFileStorage {
+
+        private TestFileStorage(File... roots) {
+            storageRoots = roots;
+            replicationExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(10));
+        }
+
+        @Override
+        protected void writeLog(File file, boolean remove) {
+        }
+    }
+}
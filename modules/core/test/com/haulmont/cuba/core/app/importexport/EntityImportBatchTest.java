@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app.importexport;
+
+import com.haulmont.bali.db.QueryRunner;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.DataManager;
+import com.haulmont.cuba.core.global.LoadContext;
+import com.haulmont.cuba.core.global.View;
+import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.security.entity.Group;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class EntityImportBatchTest {
+
+    @ClassRule
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private EntityImportExportAPI entityImportExport;
+    private DataManager dataManager;
+    private List<UUID> groupIds = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        entityImportExport = AppBeans.get(EntityImportExportAPI.NAME);
+        dataManager = AppBeans.get(DataManager.NAME);
+
+        AppContext.setProperty("cuba.entityImport.commitBatchSize", "2");
+        AppContext.setProperty("cuba.entityImport.loadBatchSize", "2");
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        AppContext.setProperty("cuba.entityImport.commitBatchSize", null);
+        AppContext.setProperty("cuba.entityImport.loadBatchSize", null);
+
+        QueryRunner runner = new QueryRunner(cont.persistence().getDataSource());
+        for (int i = groupIds.size() - 1; i >= 0; i--) {
+            runner.update("delete from SEC_GROUP_HIERARCHY where GROUP_ID = ?", groupIds.get(i).toString());
+            runner.update("delete from SEC_GROUP where ID = ?", groupIds.get(i).toString());
+        }
+    }
+
+    @Test
+    public void testReferencesWithinAndAcrossBatches() {
+        Group parent = createGroup("importParent", null);
+        List<Entity> groups = new ArrayList<>();
+        groups.add(parent);
+        for (int i = 0; i < 4; i++) {
+            groups.add(createGroup("importChild" + i, parent));
+        }
+
+        EntityImportView importView = new EntityImportView(Group.class)
+                .addLocalProperties()
+                .addManyToOneProperty("parent", ReferenceImportBehaviour.ERROR_ON_MISSING);
+        Collection<Entity> imported = entityImportExport.importEntities(groups, importView);
+        assertEquals(5, imported.size());
+
+        View view = new View(Group.class)
+                .addProperty("name")
+                .addProperty("parent", new View(Group.class).addProperty("name"));
+        for (int i = 1; i < groups.size(); i++) {
+            Group group = dataManager.load(LoadContext.create(Group.class)
+                    .setId(groups.get(i).getId())
+                    .setView(view));
+            assertNotNull(group);
+            assertEquals(parent, group.getParent());
+        }
+    }
+
+    @Test
+    public void testUpdateInBatches() {
+        List<Entity> groups = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            groups.add(createGroup("importGroup" + i, null));
+        }
+        EntityImportView importView = new EntityImportView(Group.class).addLocalProperties();
+        entityImportExport.importEntities(groups, importView);
+
+        for (Entity group : groups) {
+            ((Group) group).setName(((Group) group).getName() + "Updated");
+        }
+        entityImportExport.importEntities(groups, importView);
+
+        for (Entity group : groups) {
+            Group loaded = dataManager.load(LoadContext.create(Group.class).setId(group.getId()));
+            assertNotNull(loaded);
+            assertEquals(((Group) group).getName(), loaded.getName());
+        }
+    }
+
+    private Group createGroup(String name, Group parent) {
+        Group group = cont.metadata().create(Group.class);
+        group.setName(name);
+        group.setParent(parent);
+        groupIds.add(group.getId());
+        return group;
+    }
+}
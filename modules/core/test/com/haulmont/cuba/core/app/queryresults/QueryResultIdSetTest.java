@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app.queryresults;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class QueryResultIdSetTest {
+
+    @Test
+    public void testUuids() {
+        UUID id1 = UUID.fromString("60885987-1b61-4247-94c7-dff348347f93");
+        UUID id2 = UUID.fromString("0fa2b1a5-1d68-4d69-9fbd-dff348347f93");
+
+        QueryResultIdSet idSet = QueryResultIdSet.of(Arrays.asList(id1, id2, id1));
+
+        assertEquals(2, idSet.size());
+        assertEquals(Arrays.asList(id2, id1), idSet.toList());
+    }
+
+    @Test
+    public void testNumbers() {
+        assertEquals(Arrays.asList(1L, 5L, 7L), QueryResultIdSet.of(Arrays.asList(7L, 1L, 5L, 1L)).toList());
+        assertEquals(Arrays.asList(-3, 2), QueryResultIdSet.of(Arrays.asList(2, -3)).toList());
+    }
+
+    @Test
+    public void testOtherTypes() {
+        assertEquals(Arrays.asList("b", "a"), QueryResultIdSet.of(Arrays.asList("b", "a", "b")).toList());
+        assertTrue(QueryResultIdSet.of(Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    public void testNewEmptySet() {
+        QueryResultIdSet marker = QueryResultIdSet.newEmptySet();
+        assertTrue(marker.isEmpty());
+        assertNotSame(QueryResultIdSet.of(Collections.emptyList()), marker);
+        assertNotSame(QueryResultIdSet.newEmptySet(), marker);
+    }
+}
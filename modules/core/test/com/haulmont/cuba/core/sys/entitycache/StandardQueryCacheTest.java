@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.entitycache;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class StandardQueryCacheTest {
+
+    @Test
+    public void testIndexesFollowEviction() {
+        StandardQueryCache cache = createCache(2, 0);
+
+        QueryKey key1 = createKey("select u from sec$User u");
+        QueryKey key2 = createKey("select g from sec$Group g");
+        QueryKey key3 = createKey("select r from sec$Role r");
+        cache.put(key1, createResult("sec$User", 1));
+        cache.put(key2, createResult("sec$Group", 1));
+        cache.put(key3, createResult("sec$Role", 1));
+
+        assertEquals(2, cache.size());
+        assertNull(cache.findQueryKeyById(key1.getId()));
+        assertEquals(key3, cache.findQueryKeyById(key3.getId()));
+
+        long indexed = cache.typeIndex.values().stream().mapToLong(Set::size).sum();
+        assertEquals(2, indexed);
+        assertEquals(2, cache.idIndex.size());
+    }
+
+    @Test
+    public void testInvalidateByTypeAndId() {
+        StandardQueryCache cache = createCache(10, 0);
+
+        QueryKey key1 = createKey("select u from sec$User u");
+        QueryKey key2 = createKey("select u from sec$User u join u.group g");
+        cache.put(key1, new QueryResult(Collections.emptyList(), "sec$User", ImmutableSet.of("sec$User")));
+        cache.put(key2, new QueryResult(Collections.emptyList(), "sec$User", ImmutableSet.of("sec$User", "sec$Group")));
+
+        cache.invalidate("sec$Group");
+        assertNotNull(cache.get(key1));
+        assertNull(cache.get(key2));
+        assertTrue(cache.typeIndex.get("sec$User").contains(key1));
+        assertFalse(cache.typeIndex.get("sec$User").contains(key2));
+
+        assertEquals(key1, cache.invalidate(key1.getId()));
+        assertNull(cache.get(key1));
+        assertNull(cache.invalidate(key1.getId()));
+        assertTrue(cache.idIndex.isEmpty());
+    }
+
+    @Test
+    public void testPutAgain() {
+        StandardQueryCache cache = createCache(10, 0);
+
+        QueryKey key1 = createKey("select u from sec$User u");
+        QueryKey key2 = createKey("select u from sec$User u");
+        cache.put(key1, createResult("sec$User", 1));
+        cache.put(key2, createResult("sec$User", 2));
+
+        assertEquals(1, cache.size());
+        assertNull(cache.findQueryKeyById(key1.getId()));
+        assertEquals(key2, cache.findQueryKeyById(key2.getId()));
+        assertEquals(1, cache.idIndex.size());
+
+        cache.invalidate("sec$User");
+        assertNull(cache.get(key2));
+        assertTrue(cache.idIndex.isEmpty());
+        assertTrue(cache.keyIds.isEmpty());
+    }
+
+    @Test
+    public void testWeightBasedSize() {
+        StandardQueryCache cache = createCache(100, 10);
+
+        QueryKey key1 = createKey("select u from sec$User u");
+        QueryKey key2 = createKey("select g from sec$Group g");
+        cache.put(key1, createResult("sec$User", 6));
+        cache.put(key2, createResult("sec$Group", 6));
+
+        assertEquals(1, cache.size());
+        assertNotNull(cache.get(key2));
+    }
+
+    private StandardQueryCache createCache(int maxSize, int maxWeight) {
+        StandardQueryCache cache = new StandardQueryCache();
+        cache.queryCacheConfig = new QueryCacheConfig() {
+            @Override
+            public boolean getQueryCacheEnabled() {
+                return true;
+            }
+
+            @Override
+            public int getQueryCacheMaxSize() {
+                return maxSize;
+            }
+
+            @Override
+            public int getQueryCacheMaxWeight() {
+                return maxWeight;
+            }
+        };
+        cache.init();
+        return cache;
+    }
+
+    private QueryKey createKey(String query) {
+        return new QueryKey(query, 0, 0, true, false, null, null);
+    }
+
+    private QueryResult createResult(String type, int count) {
+        Object[] ids = new Object[count];
+        Arrays.fill(ids, 1L);
+        return new QueryResult(Arrays.asList(ids), type, ImmutableSet.of(type));
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.security.app;
+
+import com.haulmont.cuba.security.entity.EntityLogItem;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class EntityLogWriterTest {
+
+    @Test
+    public void testWritesInEnqueueOrder() throws Exception {
+        TestWriter writer = new TestWriter(100, 10, null);
+
+        List<EntityLogItem> items = createItems(35);
+        writer.enqueue(items.subList(0, 5));
+        writer.enqueue(items.subList(5, 20));
+        writer.enqueue(items.subList(20, 35));
+        writer.awaitWritten(35);
+
+        assertEquals(items, writer.getWritten());
+        for (List<EntityLogItem> batch : writer.batches) {
+            assertTrue(batch.size() <= 10);
+        }
+        assertEquals(0, writer.getQueueSize());
+    }
+
+    @Test
+    public void testFailedBatchDoesNotStopWriter() throws Exception {
+        TestWriter writer = new TestWriter(100, 10, null);
+        writer.failures = 1;
+
+        List<EntityLogItem> items = createItems(3);
+        writer.enqueue(items.subList(0, 1));
+        writer.awaitStarted(1);
+        writer.enqueue(items.subList(1, 3));
+        writer.awaitWritten(2);
+
+        assertEquals(items.subList(1, 3), writer.getWritten());
+    }
+
+    @Test
+    public void testShutdownWritesQueuedItems() throws Exception {
+        TestWriter writer = new TestWriter(100, 2, new CountDownLatch(1));
+
+        List<EntityLogItem> items = createItems(9);
+        writer.enqueue(items.subList(0, 1));
+        writer.awaitStarted(1);
+        writer.enqueue(items.subList(1, 9));
+
+        Thread stopThread = new Thread(writer::applicationStopped);
+        stopThread.start();
+        writer.writeLatch.countDown();
+        stopThread.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertFalse(stopThread.isAlive());
+        assertEquals(items, writer.getWritten());
+        assertEquals(0, writer.getQueueSize());
+
+        List<EntityLogItem> lateItems = createItems(1);
+        writer.enqueue(lateItems);
+        assertEquals(lateItems.get(0), writer.getWritten().get(9));
+    }
+
+    @Test
+    public void testCallerWritesWhenQueueIsFull() throws Exception {
+        TestWriter writer = new TestWriter(1, 10, new CountDownLatch(1));
+
+        List<EntityLogItem> items = createItems(4);
+        writer.enqueue(items.subList(0, 1));
+        writer.awaitStarted(1);
+        writer.enqueue(items.subList(1, 4));
+
+        assertEquals(2, writer.getCallerWrittenCount());
+        assertEquals(items.subList(2, 4), writer.getWritten());
+
+        writer.writeLatch.countDown();
+        writer.awaitWritten(4);
+        assertEquals(items.subList(0, 2), writer.getWritten().subList(2, 4));
+    }
+
+    private List<EntityLogItem> createItems(int count) {
+        List<EntityLogItem> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            EntityLogItem item = new EntityLogItem();
+            item.setEntity("test$Entity" + i);
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static class TestWriter extends EntityLogWriter {
+
+        private final List<List<EntityLogItem>> batches = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger startedBatches = new AtomicInteger();
+        private final CountDownLatch writeLatch;
+        private volatile int failures;
+
+        /**
+         * @param writeLatch if not null, the writer thread waits for it before writing a batch
+         */
+        private TestWriter(int queueCapacity, int batchSize, CountDownLatch writeLatch) {
+            this.config = new TestConfig(queueCapacity, batchSize);
+            this.writeLatch = writeLatch;
+        }
+
+        @Override
+        protected void write(List<EntityLogItem> items) {
+            if (Thread.currentThread() == writerThread) {
+                startedBatches.incrementAndGet();
+                if (writeLatch != null) {
+                    try {
+                        writeLatch.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            }
+            if (failures > 0) {
+                failures--;
+                throw new RuntimeException("Test failure");
+            }
+            batches.add(new ArrayList<>(items));
+            writtenCount.addAndGet(items.size());
+        }
+
+        private List<EntityLogItem> getWritten() {
+            List<EntityLogItem> written = new ArrayList<>();
+            synchronized (batches) {
+                batches.forEach(written::addAll);
+            }
+            return written;
+        }
+
+        private void awaitWritten(long count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+            while (getWrittenCount() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(count, getWrittenCount());
+        }
+
+        private void awaitStarted(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+            while (startedBatches.get() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(startedBatches.get() >= count);
+        }
+    }
+
+    private static class TestConfig implements EntityLogConfig {
+
+        private final int queueCapacity;
+        private final int batchSize;
+
+        private TestConfig(int queueCapacity, int batchSize) {
+            this.queueCapacity = queueCapacity;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public boolean getEnabled() {
+            return true;
+        }
+
+        @Override
+        public void setEnabled(boolean value) {
+        }
+
+        @Override
+        public boolean getAsyncWrite() {
+            return true;
+        }
+
+        @Override
+        public int getAsyncQueueCapacity() {
+            return queueCapacity;
+        }
+
+        @Override
+        public int getAsyncBatchSize() {
+            return batchSize;
+        }
+
+        @Override
+        public int getAsyncEnqueueTimeout() {
+            return 10;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.security.app;
+
+import com.haulmont.cuba.core.app.ClusterListener;
+import com.haulmont.cuba.core.app.ClusterManagerAPI;
+import com.haulmont.cuba.core.app.ServerConfig;
+import com.haulmont.cuba.core.global.Configuration;
+import com.haulmont.cuba.core.global.Events;
+import com.haulmont.cuba.core.global.TimeSource;
+import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.security.entity.User;
+import com.haulmont.cuba.security.global.UserSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.support.StaticApplicationContext;
+
+import java.io.Serializable;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class UserSessionsTest {
+
+    private UserSessions userSessions;
+    private List<Serializable> sentMessages;
+    private Map<Class, ClusterListener> clusterListeners;
+    private boolean touchMessagesEnabled;
+    private long now;
+
+    @Before
+    public void setUp() {
+        sentMessages = new ArrayList<>();
+        clusterListeners = new HashMap<>();
+        now = 1_000_000;
+    }
+
+    @After
+    public void tearDown() {
+        AppContext.Internals.stopContext();
+        AppContext.Internals.setApplicationContext(null);
+    }
+
+    @Test
+    public void testFullSessionsAreSentByDefault() {
+        createUserSessions();
+        UserSession session = createSession();
+        userSessions.add(session);
+        assertEquals(1, sentMessages.size());
+
+        now += 11_000;
+        userSessions.getAndRefresh(session.getId(), true);
+        userSessions.sendTouches();
+
+        assertEquals(2, sentMessages.size());
+        assertTrue(sentMessages.get(1) instanceof UserSessions.UserSessionInfo);
+    }
+
+    @Test
+    public void testTouchMessages() {
+        touchMessagesEnabled = true;
+        createUserSessions();
+        UserSession session = createSession();
+        userSessions.add(session);
+        sentMessages.clear();
+
+        now += 11_000;
+        userSessions.getAndRefresh(session.getId(), true);
+        assertTrue(sentMessages.isEmpty());
+
+        userSessions.sendTouches();
+        assertEquals(1, sentMessages.size());
+        UserSessions.UserSessionsTouchMsg message = (UserSessions.UserSessionsTouchMsg) sentMessages.get(0);
+        assertEquals(session.getId(), message.getId(0));
+        assertEquals(now, message.lastUsedTs[0]);
+
+        // the whole session is sent again after the full send timeout
+        now += 601_000;
+        userSessions.getAndRefresh(session.getId(), true);
+        userSessions.sendTouches();
+        assertEquals(2, sentMessages.size());
+        assertTrue(sentMessages.get(1) instanceof UserSessions.UserSessionInfo);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReceiveTouchMessage() {
+        touchMessagesEnabled = true;
+        createUserSessions();
+        UserSession session = createSession();
+        userSessions.add(session);
+
+        UserSessions.UserSessionsTouchMsg message = new UserSessions.UserSessionsTouchMsg(2);
+        message.idMostSigBits[0] = session.getId().getMostSignificantBits();
+        message.idLeastSigBits[0] = session.getId().getLeastSignificantBits();
+        message.lastUsedTs[0] = now + 5_000;
+        UUID unknownId = UUID.randomUUID();
+        message.idMostSigBits[1] = unknownId.getMostSignificantBits();
+        message.idLeastSigBits[1] = unknownId.getLeastSignificantBits();
+        message.lastUsedTs[1] = now + 5_000;
+        clusterListeners.get(UserSessions.UserSessionsTouchMsg.class).receive(message);
+
+        assertEquals(now + 5_000, userSessions.getSessionInfo(session.getId()).lastUsedTs);
+        assertNull(userSessions.getSessionInfo(unknownId));
+    }
+
+    private void createUserSessions() {
+        ServerConfig serverConfig = (ServerConfig) Proxy.newProxyInstance(ServerConfig.class.getClassLoader(),
+                new Class[]{ServerConfig.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getUserSessionExpirationTimeoutSec":
+                            return 1800;
+                        case "getUserSessionSendTimeoutSec":
+                            return 10;
+                        case "getUserSessionTouchTimeoutSec":
+                            return 1;
+                        case "getUserSessionTouchMessagesEnabled":
+                            return touchMessagesEnabled;
+                        case "getUserSessionFullSendTimeoutSec":
+                            return 600;
+                        case "getSyncNewUserSessionReplication":
+                            return false;
+                        default:
+                            return null;
+                    }
+                });
+
+        userSessions = new UserSessions();
+        userSessions.timeSource = (TimeSource) Proxy.newProxyInstance(TimeSource.class.getClassLoader(),
+                new Class[]{TimeSource.class}, (proxy, method, args) -> {
+                    if ("currentTimeMillis".equals(method.getName())) {
+                        return now;
+                    }
+                    return null;
+                });
+        userSessions.setConfiguration((Configuration) Proxy.newProxyInstance(Configuration.class.getClassLoader(),
+                new Class[]{Configuration.class}, (proxy, method, args) -> serverConfig));
+        userSessions.setClusterManager((ClusterManagerAPI) Proxy.newProxyInstance(ClusterManagerAPI.class.getClassLoader(),
+                new Class[]{ClusterManagerAPI.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "send":
+                        case "sendSync":
+                            sentMessages.add((Serializable) args[0]);
+                            return null;
+                        case "addListener":
+                            clusterListeners.put((Class) args[0], (ClusterListener) args[1]);
+                            return null;
+                        default:
+                            return null;
+                    }
+                }));
+    }
+
+    private UserSession createSession() {
+        User user = new User();
+        user.setLogin("test");
+        UserSession session = new UserSession(UUID.randomUUID(), user, Collections.emptyList(), Locale.ENGLISH, false);
+
+        // sessions are available when the application is started
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.getBeanFactory().registerSingleton(Events.NAME,
+                Proxy.newProxyInstance(Events.class.getClassLoader(), new Class[]{Events.class},
+                        (proxy, method, args) -> null));
+        AppContext.Internals.setApplicationContext(applicationContext);
+        AppContext.Internals.startContext();
+        return session;
+    }
+}
@@ -30,6 +30,7 @@ import spock.lang.Shared
 import spock.lang.Specification
 
 import javax.persistence.TemporalType
+import java.util.stream.Collectors
 
 class FluentLoaderTest extends Specification {
 
@@ -269,4 +270,38 @@ class FluentLoaderTest extends Specification {
         loadContext.query.firstResult == 10
         loadContext.query.maxResults == 100
     }
+
+    def "load stream by chunks"() {
+        def customers = (1..4).collect {
+            def c = cont.metadata().create(Customer)
+            c.name = 'Stream'
+            dataManager.commit(c)
+        }
+
+        when:
+
+        def ids = dataManager.load(Customer)
+                .query('select c from test$Customer c where c.name = :n order by c.name')
+                .parameter('n', 'Stream')
+                .stream(3)
+                .map { it.id }
+                .collect(Collectors.toList())
+
+        then:
+
+        ids.size() == 4
+        ids as Set == customers.collect { it.id } as Set
+
+        when:
+
+        dataManager.load(Customer).query('select c from test$Customer c').maxResults(10).stream()
+
+        then:
+
+        thrown(IllegalArgumentException)
+
+        cleanup:
+
+        customers.each { cont.deleteRecord(it) }
+    }
 }
@@ -59,4 +59,21 @@ class EntityJsonSerializationTest extends Specification {
         item2.relatedItem.order.id == parsedObject.id
         item2.relatedItem.order.name == null //order name should NOT exist, it is a cyclic reference
     }
+
+    def "collection is streamed to writer in the same form as serialized to string"() {
+        def order1 = cont.metadata().create(Serialization_Order.class)
+        order1.setNumber('order-1')
+        def order2 = cont.metadata().create(Serialization_Order.class)
+        order2.setNumber('order-2')
+
+        when:
+
+        def writer = new StringWriter()
+        entitySerializationAPI.toJson([order1, order2].iterator(), writer, null)
+
+        then:
+
+        def jsonSlurper = new JsonSlurper()
+        jsonSlurper.parseText(writer.toString()) == jsonSlurper.parseText(entitySerializationAPI.toJson([order1, order2]))
+    }
 }
@@ -16,61 +16,183 @@
  */
 package com.haulmont.chile.core.model.utils;
 
+import org.apache.commons.lang3.ClassUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.Method;
+import java.lang.invoke.*;
 import java.lang.reflect.InvocationTargetException;
-import java.util.Map;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
+/**
+ * Provides access to bean properties of a class through its getters and setters.
+ * <p>
+ * Accessors of public methods are compiled into lambdas with {@link LambdaMetafactory}, so property access
+ * costs about the same as a direct method call. Methods which cannot be linked this way (non-public declaring
+ * class, class not visible from this class loader, static methods) are invoked through reflection.
+ */
 public class MethodsCache {
 
-    private final transient Map<String, Method> getters = new HashMap<>();
-    private final transient Map<String, Method> setters = new HashMap<>();
+    private static final Logger log = LoggerFactory.getLogger(MethodsCache.class);
+
+    private final transient Map<String, Function<Object, Object>> getters = new HashMap<>();
+    private final transient Map<String, BiConsumer<Object, Object>> setters = new HashMap<>();
 
     public MethodsCache(Class clazz) {
+        Map<String, Method> getterMethods = new HashMap<>();
+        Map<String, Method> setterMethods = new HashMap<>();
+
         final Method[] methods = clazz.getMethods();
         for (Method method : methods) {
             String name = method.getName();
             if (name.startsWith("get") && method.getParameterTypes().length == 0) {
                 name = StringUtils.uncapitalize(name.substring(3));
-                method.setAccessible(true);
-                getters.put(name, method);
+                getterMethods.put(name, method);
             } else if (name.startsWith("is") && method.getParameterTypes().length == 0) {
                 name = StringUtils.uncapitalize(name.substring(2));
-                method.setAccessible(true);
-                getters.put(name, method);
+                getterMethods.put(name, method);
             } else if (name.startsWith("set") && method.getParameterTypes().length == 1) {
                 name = StringUtils.uncapitalize(name.substring(3));
-                method.setAccessible(true);
-                setters.put(name, method);
+                setterMethods.put(name, method);
             }
         }
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (Map.Entry<String, Method> entry : getterMethods.entrySet()) {
+            getters.put(entry.getKey(), createGetter(lookup, entry.getValue()));
+        }
+        for (Map.Entry<String, Method> entry : setterMethods.entrySet()) {
+            setters.put(entry.getKey(), createSetter(lookup, entry.getValue()));
+        }
     }
 
     public void invokeSetter(Object object, String property, Object value) {
-        final Method method = setters.get(property);
-        if (method == null) {
+        final BiConsumer<Object, Object> setter = setters.get(property);
+        if (setter == null) {
             throw new IllegalArgumentException(
                     String.format("Can't find setter for property '%s' at %s", property, object.getClass()));
         }
-        try {
-            method.invoke(object, value);
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            throw new RuntimeException(e);
-        }
+        setter.accept(object, value);
     }
 
     public Object invokeGetter(Object object, String property) {
-        final Method method = getters.get(property);
-        if (method == null) {
+        final Function<Object, Object> getter = getters.get(property);
+        if (getter == null) {
             throw new IllegalArgumentException(
                     String.format("Can't find getter for property '%s' at %s", property, object.getClass()));
         }
+        return getter.apply(object);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected Function<Object, Object> createGetter(MethodHandles.Lookup lookup, Method method) {
+        Function<Object, Object> reflectiveGetter = createReflectiveGetter(method);
+        if (canCompile(method)) {
+            try {
+                MethodHandle handle = lookup.unreflect(method);
+                CallSite site = LambdaMetafactory.metafactory(lookup, "apply",
+                        MethodType.methodType(Function.class),
+                        MethodType.methodType(Object.class, Object.class),
+                        handle,
+                        MethodType.methodType(ClassUtils.primitiveToWrapper(method.getReturnType()),
+                                method.getDeclaringClass()));
+                Function<Object, Object> getter = (Function<Object, Object>) site.getTarget().invoke();
+                Class<?> declaringClass = method.getDeclaringClass();
+                return object -> {
+                    // reflection reports invalid arguments with the same exceptions as before
+                    if (!declaringClass.isInstance(object)) {
+                        return reflectiveGetter.apply(object);
+                    }
+                    try {
+                        return getter.apply(object);
+                    } catch (Throwable e) {
+                        throw new RuntimeException(new InvocationTargetException(e));
+                    }
+                };
+            } catch (Throwable e) {
+                log.trace("Unable to compile getter {}, using reflection", method, e);
+            }
+        }
+        return reflectiveGetter;
+    }
+
+    @SuppressWarnings("unchecked")
+    protected BiConsumer<Object, Object> createSetter(MethodHandles.Lookup lookup, Method method) {
+        BiConsumer<Object, Object> reflectiveSetter = createReflectiveSetter(method);
+        if (canCompile(method)) {
+            try {
+                MethodHandle handle = lookup.unreflect(method);
+                Class<?> valueClass = ClassUtils.primitiveToWrapper(method.getParameterTypes()[0]);
+                CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+                        MethodType.methodType(BiConsumer.class),
+                        MethodType.methodType(void.class, Object.class, Object.class),
+                        handle,
+                        MethodType.methodType(void.class, method.getDeclaringClass(), valueClass));
+                BiConsumer<Object, Object> setter = (BiConsumer<Object, Object>) site.getTarget().invoke();
+                Class<?> declaringClass = method.getDeclaringClass();
+                boolean primitive = method.getParameterTypes()[0].isPrimitive();
+                return (object, value) -> {
+                    // reflection reports invalid arguments with the same exceptions as before
+                    // and performs widening conversions of primitive values
+                    if (!declaringClass.isInstance(object)
+                            || (value == null ? primitive : !valueClass.isInstance(value))) {
+                        reflectiveSetter.accept(object, value);
+                        return;
+                    }
+                    try {
+                        setter.accept(object, value);
+                    } catch (Throwable e) {
+                        throw new RuntimeException(new InvocationTargetException(e));
+                    }
+                };
+            } catch (Throwable e) {
+                log.trace("Unable to compile setter {}, using reflection", method, e);
+            }
+        }
+        return reflectiveSetter;
+    }
+
+    protected Function<Object, Object> createReflectiveGetter(Method method) {
+        method.setAccessible(true);
+        return object -> {
+            try {
+                return method.invoke(object);
+            } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    protected BiConsumer<Object, Object> createReflectiveSetter(Method method) {
+        method.setAccessible(true);
+        return (object, value) -> {
+            try {
+                method.invoke(object, value);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    /**
+     * Generated lambda classes are defined in the class loader of this class, so they can only call public
+     * instance methods of public classes visible from it.
+     */
+    protected boolean canCompile(Method method) {
+        Class<?> declaringClass = method.getDeclaringClass();
+        if (Modifier.isStatic(method.getModifiers()) || !Modifier.isPublic(declaringClass.getModifiers())) {
+            return false;
+        }
         try {
-            return method.invoke(object);
-        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-            throw new RuntimeException(e);
+            return Class.forName(declaringClass.getName(), false, MethodsCache.class.getClassLoader()) == declaringClass;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
         }
     }
-}
\ No newline at end of file
+}
@@ -22,6 +22,7 @@ import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Table;
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
 import com.haulmont.chile.core.datatypes.Datatype;
 import com.haulmont.chile.core.datatypes.Datatypes;
 import com.haulmont.chile.core.model.MetaClass;
@@ -42,6 +43,8 @@ import org.springframework.stereotype.Component;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.Writer;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
@@ -109,6 +112,27 @@ public class EntitySerialization implements EntitySerializationAPI {
         return createGsonForSerialization(view, options).toJson(entities);
     }
 
+    @Override
+    public void toJson(Iterator<? extends Entity> entities,
+                       Writer writer,
+                       @Nullable View view,
+                       EntitySerializationOption... options) {
+        context.remove();
+        Gson gson = createGsonForSerialization(view, options);
+        try {
+            JsonWriter jsonWriter = gson.newJsonWriter(writer);
+            jsonWriter.beginArray();
+            while (entities.hasNext()) {
+                Entity entity = entities.next();
+                gson.toJson(entity, entity.getClass(), jsonWriter);
+            }
+            jsonWriter.endArray();
+            jsonWriter.flush();
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+    }
+
     @Override
     public String objectToJson(Object object, EntitySerializationOption... options) {
         context.remove();
@@ -22,7 +22,9 @@ import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.global.View;
 
 import javax.annotation.Nullable;
+import java.io.Writer;
 import java.util.Collection;
+import java.util.Iterator;
 
 /**
  * Class that is used for serialization and deserialization of entities to JSON.
@@ -68,6 +70,21 @@ public interface EntitySerializationAPI {
                   @Nullable View view,
                   EntitySerializationOption... options);
 
+    /**
+     * Serializes entities to the JSON array written to the writer. Method works like the {@link #toJson(Collection,
+     * View, EntitySerializationOption...)}, but entities are serialized and written one by one, so the iterator can
+     * load them lazily and the whole JSON array is not kept in memory.
+     *
+     * @param entities an iterator over the entities to be serialized
+     * @param writer   a writer for the JSON array. The writer is flushed, but not closed.
+     * @param view     a view that defines which entity properties should be added to the result JSON object
+     * @param options  options specifying how an entity should be serialized
+     */
+    void toJson(Iterator<? extends Entity> entities,
+                Writer writer,
+                @Nullable View view,
+                EntitySerializationOption... options);
+
     /**
      * An overloaded version of the {@link #toJson(Entity, View, EntitySerializationOption...)} method with a null
      * {@code view} parameter and with no serialization options.
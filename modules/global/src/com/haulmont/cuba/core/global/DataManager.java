@@ -25,6 +25,7 @@ import com.haulmont.cuba.core.entity.contracts.Id;
 
 import javax.annotation.Nullable;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Central interface to provide CRUD functionality. Can be used on both middle and client tiers.
@@ -60,6 +61,19 @@ public interface DataManager {
      */
     <E extends Entity> List<E> loadList(LoadContext<E> context);
 
+    /**
+     * Loads entity instances in chunks ordered by primary key and returns them as a lazily populated stream.
+     * <p>Each chunk is loaded by {@link #loadList(LoadContext)} when the previous one is consumed, so only one chunk is
+     * kept in memory. Chunks are selected by the primary key of the last loaded instance instead of an offset,
+     * see {@link KeysetIterator}.</p>
+     * @param context   {@link LoadContext} object with a query without first and max results
+     * @param chunkSize number of instances loaded at once
+     * @return          a stream of detached instances
+     */
+    default <E extends Entity> Stream<E> loadStream(LoadContext<E> context, int chunkSize) {
+        return new KeysetIterator<>(this, context, chunkSize).stream();
+    }
+
     /**
      * Returns the number of entity instances for the given query passed in the {@link LoadContext}.
      * @param context   defines the query
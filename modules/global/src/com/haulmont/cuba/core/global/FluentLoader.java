@@ -23,6 +23,7 @@ import com.haulmont.cuba.core.global.queryconditions.Condition;
 
 import javax.persistence.TemporalType;
 import java.util.*;
+import java.util.stream.Stream;
 
 public class FluentLoader<E extends Entity<K>, K> {
 
@@ -78,6 +79,25 @@ public class FluentLoader<E extends Entity<K>, K> {
         return dataManager.loadList(loadContext);
     }
 
+    /**
+     * Loads entities in chunks of the default size and returns them as a lazily populated stream.
+     *
+     * @see DataManager#loadStream(LoadContext, int)
+     */
+    public Stream<E> stream() {
+        return stream(KeysetIterator.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Loads entities in chunks of the given size and returns them as a lazily populated stream.
+     *
+     * @see DataManager#loadStream(LoadContext, int)
+     */
+    public Stream<E> stream(int chunkSize) {
+        LoadContext<E> loadContext = createLoadContext();
+        return dataManager.loadStream(loadContext, chunkSize);
+    }
+
     /**
      * Loads a single instance and wraps it in Optional.
      */
@@ -266,6 +286,27 @@ public class FluentLoader<E extends Entity<K>, K> {
             return loader.dataManager.loadList(loadContext);
         }
 
+        /**
+         * Loads entities in chunks of the default size and returns them as a lazily populated stream.
+         * The query order is replaced by the primary key order.
+         *
+         * @see DataManager#loadStream(LoadContext, int)
+         */
+        public Stream<E> stream() {
+            return stream(KeysetIterator.DEFAULT_CHUNK_SIZE);
+        }
+
+        /**
+         * Loads entities in chunks of the given size and returns them as a lazily populated stream.
+         * The query order is replaced by the primary key order.
+         *
+         * @see DataManager#loadStream(LoadContext, int)
+         */
+        public Stream<E> stream(int chunkSize) {
+            LoadContext<E> loadContext = createLoadContext();
+            return loader.dataManager.loadStream(loadContext, chunkSize);
+        }
+
         /**
          * Loads a single instance and wraps it in Optional.
          */
@@ -156,6 +156,15 @@ public interface GlobalConfig extends Config {
     @DefaultBoolean(true)
     boolean getUseAstBasedJpqlTransformer();
 
+    /**
+     * Maximum number of parsed JPQL query trees kept by {@link com.haulmont.cuba.core.sys.jpql.QueryTreeCache}.
+     * Zero disables the cache.
+     * @return cache size
+     */
+    @Property("cuba.jpqlQueryTreeCacheSize")
+    @DefaultInt(1000)
+    int getJpqlQueryTreeCacheSize();
+
     /**
      * @return Overridden AppFolderEditWindow class name
      */
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.global;
+
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.IdProxy;
+
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates over entities loaded by {@link DataManager} in chunks using keyset pagination on the primary key.
+ * <p>
+ * The query is ordered by the primary key, and each next chunk is selected by the condition
+ * {@code pk > :lastLoadedPk} instead of an offset, so the database does not scan skipped rows. Every chunk is loaded
+ * by {@link DataManager#loadList(LoadContext)} in a separate call, so the entities are detached and security
+ * restrictions are applied as usual. Only the current chunk is kept in memory.
+ *
+ * @param <E> type of entities
+ * @see DataManager#loadStream(LoadContext, int)
+ */
+public class KeysetIterator<E extends Entity> implements Iterator<E> {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    protected static final String LAST_ID_PARAM = "_lastLoadedId";
+
+    protected final DataManager dataManager;
+    protected final LoadContext<E> context;
+    protected final int chunkSize;
+
+    protected final String firstChunkQuery;
+    protected final String nextChunkQuery;
+
+    protected Iterator<E> chunk = Collections.emptyIterator();
+    protected Object lastId;
+    protected boolean exhausted;
+
+    /**
+     * @param dataManager DataManager to load chunks
+     * @param context     load context with a query. The query must not define the first and max results, its order
+     *                    is replaced by the primary key order.
+     * @param chunkSize   number of entities loaded at once
+     */
+    public KeysetIterator(DataManager dataManager, LoadContext<E> context, int chunkSize) {
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException("Chunk size must be positive");
+
+        LoadContext.Query query = context.getQuery();
+        if (query == null)
+            throw new IllegalArgumentException("LoadContext must contain a query");
+        if (query.getFirstResult() != 0 || query.getMaxResults() != 0)
+            throw new IllegalArgumentException("firstResult and maxResults are not supported when loading by chunks");
+
+        MetaClass metaClass = AppBeans.get(Metadata.class).getClassNN(context.getMetaClass());
+        MetadataTools metadataTools = AppBeans.get(MetadataTools.class);
+        String pkName = metadataTools.getPrimaryKeyName(metaClass);
+        if (pkName == null || metadataTools.hasCompositePrimaryKey(metaClass))
+            throw new IllegalArgumentException("Loading by chunks is not supported for entities without a simple " +
+                    "primary key: " + metaClass.getName());
+
+        this.dataManager = dataManager;
+        this.context = context;
+        this.chunkSize = chunkSize;
+
+        QueryTransformer transformer = QueryTransformerFactory.createTransformer(query.getQueryString());
+        transformer.replaceOrderBy(false, pkName);
+        firstChunkQuery = transformer.getResult();
+        transformer.addWhere("{E}." + pkName + " > :" + LAST_ID_PARAM);
+        nextChunkQuery = transformer.getResult();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (chunk.hasNext())
+            return true;
+        if (exhausted)
+            return false;
+
+        List<E> entities = dataManager.loadList(createChunkContext());
+        if (entities.size() < chunkSize) {
+            exhausted = true;
+        }
+        if (entities.isEmpty())
+            return false;
+
+        Object id = entities.get(entities.size() - 1).getId();
+        lastId = id instanceof IdProxy ? ((IdProxy) id).getNN() : id;
+        chunk = entities.iterator();
+        return true;
+    }
+
+    @Override
+    public E next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        return chunk.next();
+    }
+
+    /**
+     * @return sequential stream backed by this iterator
+     */
+    public Stream<E> stream() {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected LoadContext<E> createChunkContext() {
+        LoadContext<E> chunkContext = (LoadContext<E>) context.copy();
+        LoadContext.Query query = context.getQuery();
+        LoadContext.Query chunkQuery = chunkContext.getQuery();
+        chunkQuery.setCondition(query.getCondition());
+        chunkQuery.setMaxResults(chunkSize);
+        if (lastId == null) {
+            chunkQuery.setQueryString(firstChunkQuery);
+        } else {
+            chunkQuery.setQueryString(nextChunkQuery);
+            chunkQuery.setParameter(LAST_ID_PARAM, lastId);
+        }
+        return chunkContext;
+    }
+}
@@ -55,6 +55,7 @@ public class LoadContext<E extends Entity> implements DataLoadContext, Serializa
     protected boolean loadPartialEntities = true;
     protected boolean authorizationRequired;
     protected boolean joinTransaction;
+    protected long countLimit;
 
     protected Map<String, Object> dbHints; // lazy initialized map
 
@@ -278,6 +279,25 @@ public class LoadContext<E extends Entity> implements DataLoadContext, Serializa
         return this;
     }
 
+    /**
+     * @return number of entities after which counting may stop, 0 if the exact count is required
+     */
+    public long getCountLimit() {
+        return countLimit;
+    }
+
+    /**
+     * Allows {@link DataManager#getCount(LoadContext)} to stop counting when the number of entities exceeds the limit.
+     * The returned count is exact if it does not exceed the limit, otherwise it is only known to be greater
+     * than the limit.
+     *
+     * @param countLimit number of entities after which counting may stop, 0 if the exact count is required
+     */
+    public LoadContext<E> setCountLimit(long countLimit) {
+        this.countLimit = countLimit;
+        return this;
+    }
+
     /**
      * Creates a copy of this LoadContext instance.
      */
@@ -301,6 +321,7 @@ public class LoadContext<E extends Entity> implements DataLoadContext, Serializa
         ctx.loadDynamicAttributes = loadDynamicAttributes;
         ctx.authorizationRequired = authorizationRequired;
         ctx.joinTransaction = joinTransaction;
+        ctx.countLimit = countLimit;
         return ctx;
     }
 
@@ -28,6 +28,7 @@ import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
+import javax.inject.Inject;
 import java.util.*;
 
 import static java.lang.String.format;
@@ -40,6 +41,9 @@ public class QueryParserAstBased implements QueryParser {
     protected QueryTree queryTree;
     protected QueryTreeAnalyzer queryAnalyzer;
 
+    @Inject
+    protected QueryTreeCache queryTreeCache;
+
     protected class EntityNameAndPath {
 
         String entityName;
@@ -65,7 +69,7 @@ public class QueryParserAstBased implements QueryParser {
     protected QueryTree getTree() {
         if (queryTree == null) {
             try {
-                queryTree = new QueryTree(model, query);
+                queryTree = queryTreeCache != null ? queryTreeCache.getTree(model, query) : new QueryTree(model, query);
             } catch (JPA2RecognitionException e) {
                 throw new JpqlSyntaxException(format("Errors found for input JPQL:[%s]\n%s", StringUtils.strip(query), e.getMessage()));
             }
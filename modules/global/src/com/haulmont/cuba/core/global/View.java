@@ -25,6 +25,9 @@ import javax.annotation.Nullable;
 import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 
 import static org.apache.commons.collections4.CollectionUtils.isNotEmpty;
 
@@ -40,6 +43,9 @@ import static org.apache.commons.collections4.CollectionUtils.isNotEmpty;
  * <li>{@link #MINIMAL}</li>
  * <li>{@link #BASE}</li>
  * </ul>
+ * Views stored in {@link ViewRepository} are <em>frozen</em>: they are shared between all callers and cannot be
+ * modified. The repository returns them wrapped by {@link #derive()}, so only nested views of the returned view
+ * are frozen.
  *
  */
 public class View implements Serializable {
@@ -104,6 +110,12 @@ public class View implements Serializable {
 
     private boolean loadPartialEntities;
 
+    private transient volatile boolean frozen;
+
+    private transient volatile Set<Class<? extends Entity>> entityClasses;
+
+    private transient volatile ConcurrentMap<Object, Object> cachedData;
+
     public View(Class<? extends Entity> entityClass) {
         this(entityClass, "", true);
     }
@@ -166,9 +178,12 @@ public class View implements Serializable {
                 View sourcePropertyView = sourceProperty.getView();
 
                 if (sourcePropertyView != null && isNotEmpty(sourcePropertyView.getProperties())) {
-
-                    Map<String, ViewProperty> thisViewProperties = thisProperties.get(sourcePropertyName).getView().properties;
-                    putProperties(thisViewProperties, sourcePropertyView.getProperties());
+                    // the view of the property can be shared with a source view, so merge into its derived copy
+                    ViewProperty thisProperty = thisProperties.get(sourcePropertyName);
+                    View thisPropertyView = thisProperty.getView().derive();
+                    putProperties(thisPropertyView.properties, sourcePropertyView.getProperties());
+                    thisProperties.put(sourcePropertyName,
+                            new ViewProperty(sourcePropertyName, thisPropertyView, thisProperty.getFetchMode()));
                 }
 
             } else {
@@ -193,6 +208,124 @@ public class View implements Serializable {
         return copy;
     }
 
+    /**
+     * Creates a modifiable view with the same entity class, name and properties as this view.
+     * <p>
+     * Unlike {@link #copy(View)}, nested views are not copied but shared with this view, so they must not be
+     * modified. To change a nested view, replace the property with a derived nested view:
+     * <pre>
+     * View view = viewRepository.getView(Order.class, "order-edit");
+     * View customerView = view.getProperty("customer").getView().derive().addProperty("email");
+     * view.addProperty("customer", customerView);
+     * </pre>
+     *
+     * @return new modifiable view
+     */
+    public View derive() {
+        View derived = new View(new ViewParams().entityClass(entityClass).name(name));
+        derived.properties.putAll(properties);
+        derived.loadPartialEntities = loadPartialEntities;
+        return derived;
+    }
+
+    /**
+     * Makes this view and all its nested views unmodifiable. Subsequent attempts to modify them throw
+     * {@code IllegalStateException}.
+     *
+     * @return this view instance for chaining
+     */
+    public View freeze() {
+        freeze(Collections.newSetFromMap(new IdentityHashMap<>()));
+        return this;
+    }
+
+    protected void freeze(Set<View> visited) {
+        if (!visited.add(this) || frozen)
+            return;
+        for (ViewProperty property : properties.values()) {
+            if (property.getView() != null) {
+                property.getView().freeze(visited);
+            }
+        }
+        frozen = true;
+    }
+
+    /**
+     * @return true if the view cannot be modified
+     * @see #freeze()
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * @return entity classes of this view and all its nested views. The set is computed once for a frozen view.
+     */
+    public Set<Class<? extends Entity>> getEntityClasses() {
+        Set<Class<? extends Entity>> result = entityClasses;
+        if (result == null) {
+            Set<Class<? extends Entity>> classes = new HashSet<>();
+            collectEntityClasses(this, classes, Collections.newSetFromMap(new IdentityHashMap<>()));
+            result = Collections.unmodifiableSet(classes);
+            if (frozen) {
+                entityClasses = result;
+            }
+        }
+        return result;
+    }
+
+    protected static void collectEntityClasses(View view, Set<Class<? extends Entity>> classes, Set<View> visited) {
+        if (!visited.add(view))
+            return;
+        classes.add(view.getEntityClass());
+        for (ViewProperty property : view.getProperties()) {
+            if (property.getView() != null) {
+                collectEntityClasses(property.getView(), classes, visited);
+            }
+        }
+    }
+
+    /**
+     * INTERNAL.
+     * Returns data calculated from the view. For a frozen view, the data is calculated once per key and then
+     * kept in the view, so the calculation must depend only on the view and the key.
+     *
+     * @param key      key of the data
+     * @param function function calculating the data
+     * @return calculated data
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getCachedData(Object key, Function<View, T> function) {
+        if (!frozen) {
+            return function.apply(this);
+        }
+        ConcurrentMap<Object, Object> data = cachedData;
+        if (data == null) {
+            synchronized (this) {
+                data = cachedData;
+                if (data == null) {
+                    data = new ConcurrentHashMap<>();
+                    cachedData = data;
+                }
+            }
+        }
+        Object value = data.get(key);
+        if (value == null) {
+            value = function.apply(this);
+            Object existing = data.putIfAbsent(key, value);
+            if (existing != null) {
+                value = existing;
+            }
+        }
+        return (T) value;
+    }
+
+    protected void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException(String.format("View %s is frozen and cannot be modified, use View.derive()", this));
+        }
+    }
+
     /**
      * @return entity class this view belongs to
      */
@@ -211,7 +344,7 @@ public class View implements Serializable {
      * @return collection of properties
      */
     public Collection<ViewProperty> getProperties() {
-        return properties.values();
+        return frozen ? Collections.unmodifiableCollection(properties.values()) : properties.values();
     }
 
     /**
@@ -222,12 +355,14 @@ public class View implements Serializable {
      * @return      this view instance for chaining
      */
     public View addProperty(String name, @Nullable View view, FetchMode fetchMode) {
+        checkNotFrozen();
         properties.put(name, new ViewProperty(name, view, fetchMode));
         return this;
     }
 
     @Deprecated
     public View addProperty(String name, @Nullable View view, boolean lazy) {
+        checkNotFrozen();
         properties.put(name, new ViewProperty(name, view, lazy));
         return this;
     }
@@ -239,6 +374,7 @@ public class View implements Serializable {
      * @return      this view instance for chaining
      */
     public View addProperty(String name, View view) {
+        checkNotFrozen();
         properties.put(name, new ViewProperty(name, view));
         return this;
     }
@@ -249,6 +385,7 @@ public class View implements Serializable {
      * @return      this view instance for chaining
      */
     public View addProperty(String name) {
+        checkNotFrozen();
         properties.put(name, new ViewProperty(name, null));
         return this;
     }
@@ -312,6 +449,7 @@ public class View implements Serializable {
      * @return this view instance for chaining
      */
     public View setLoadPartialEntities(boolean loadPartialEntities) {
+        checkNotFrozen();
         this.loadPartialEntities = loadPartialEntities;
         return this;
     }
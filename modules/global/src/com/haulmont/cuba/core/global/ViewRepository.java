@@ -26,6 +26,8 @@ import java.util.Collection;
 /**
  * Represents a repository of {@link View} objects, accessible by names.
  * <br>Repository contains all views defined in XML and deployed at runtime.
+ * <br>Returned views can be modified on the top level. Nested views are shared between callers and frozen, use
+ * {@link View#derive()} to modify them.
  */
 public interface ViewRepository {
 
@@ -59,6 +61,19 @@ public interface ViewRepository {
     @Nullable
     View findView(MetaClass metaClass, String name);
 
+    /**
+     * INTERNAL. Returns the frozen view instance shared between all callers, for code that only reads views.
+     *
+     * @param metaClass     entity class
+     * @param name          view name
+     * @return              frozen view instance. Throws {@link com.haulmont.cuba.core.global.ViewNotFoundException} if not found.
+     */
+    default View getFrozenView(MetaClass metaClass, String name) {
+        View view = getView(metaClass, name);
+        view.freeze();
+        return view;
+    }
+
     /**
      * Returns names of views defined for the metaClass
      * @param metaClass entity class
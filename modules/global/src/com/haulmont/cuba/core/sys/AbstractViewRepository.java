@@ -17,6 +17,7 @@
 package com.haulmont.cuba.core.sys;
 
 import com.google.common.base.Splitter;
+import com.google.common.collect.MapMaker;
 import com.haulmont.bali.util.Dom4j;
 import com.haulmont.bali.util.Preconditions;
 import com.haulmont.bali.util.ReflectionHelper;
@@ -46,6 +47,7 @@ import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
@@ -66,6 +68,12 @@ public class AbstractViewRepository implements ViewRepository {
 
     protected Map<MetaClass, Map<String, View>> storage = new ConcurrentHashMap<>();
 
+    /**
+     * Frozen copies of the views from the storage, by identity of the stored views.
+     * Cleared when views are deployed, because deployment can modify the stored views.
+     */
+    protected ConcurrentMap<View, View> frozenViews = new MapMaker().weakKeys().makeMap();
+
     @Inject
     protected Metadata metadata;
 
@@ -97,6 +105,7 @@ public class AbstractViewRepository implements ViewRepository {
         StopWatch initTiming = new Slf4JStopWatch("ViewRepository.init." + getClass().getSimpleName());
 
         storage.clear();
+        frozenViews.clear();
         readFileNames.clear();
 
         String configName = AppContext.getProperty("cuba.viewsConfig");
@@ -218,11 +227,29 @@ public class AbstractViewRepository implements ViewRepository {
      *
      * @param metaClass entity class
      * @param name      view name
-     * @return view instance or null if no view found
+     * @return view instance or null if no view found. The top level of the view can be modified, nested views are frozen.
      */
     @Override
     @Nullable
     public View findView(MetaClass metaClass, @Nullable String name) {
+        View view = findFrozenView(metaClass, name);
+        return view != null ? view.derive() : null;
+    }
+
+    @Override
+    public View getFrozenView(MetaClass metaClass, String name) {
+        Preconditions.checkNotNullArgument(metaClass, "MetaClass is null");
+
+        View view = findFrozenView(metaClass, name);
+
+        if (view == null) {
+            throw new ViewNotFoundException(String.format("View %s/%s not found", metaClass.getName(), name));
+        }
+        return view;
+    }
+
+    @Nullable
+    protected View findFrozenView(MetaClass metaClass, @Nullable String name) {
         if (metaClass == null) {
             throw new IllegalArgumentException("Passed metaClass should not be null");
         }
@@ -236,12 +263,44 @@ public class AbstractViewRepository implements ViewRepository {
             checkInitialized();
 
             View view = retrieveView(metaClass, name, new HashSet<>());
-            return copyView(view);
+            return getFrozenCopy(view);
         } finally {
             lock.readLock().unlock();
         }
     }
 
+    /**
+     * Returns a frozen copy of the stored view. Copies are cached, so the same instance is returned while the views
+     * are not redeployed, and nested views referenced from several views are shared between their copies.
+     */
+    protected View getFrozenCopy(@Nullable View view) {
+        if (view == null) {
+            return null;
+        }
+
+        View frozenView = frozenViews.get(view);
+        if (frozenView == null) {
+            View.ViewParams viewParams = new View.ViewParams()
+                    .entityClass(view.getEntityClass())
+                    .name(view.getName());
+            View copy = new View(viewParams);
+            for (ViewProperty property : view.getProperties()) {
+                copy.addProperty(property.getName(), getFrozenCopy(property.getView()), property.getFetchMode());
+            }
+            copy.freeze();
+
+            frozenView = frozenViews.putIfAbsent(view, copy);
+            if (frozenView == null) {
+                frozenView = copy;
+            }
+        }
+        return frozenView;
+    }
+
+    /**
+     * @deprecated views are copied by {@link #getFrozenCopy(View)} and {@link View#derive()}
+     */
+    @Deprecated
     protected View copyView(@Nullable View view) {
         if (view == null) {
             return null;
@@ -489,6 +548,7 @@ public class AbstractViewRepository implements ViewRepository {
         if (overwrite) {
             replaceOverridden(view);
         }
+        frozenViews.clear();
 
         return view;
     }
@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys;
+
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.MetaProperty;
+import com.haulmont.chile.core.model.Range;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.global.MetadataTools;
+import org.codehaus.groovy.runtime.ScriptBytecodeAdapter;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * INTERNAL.
+ * Groovy script of an in-memory constraint prepared for repeated evaluation.
+ * <p>
+ * A script consisting of a single comparison of an entity attribute with a literal, e.g.
+ * {@code {E}.createdBy == 'admin'}, is evaluated without Groovy if the path consists of entity properties, and can
+ * be translated to a JPQL condition.
+ * Other scripts are evaluated by {@link com.haulmont.cuba.core.global.Scripting}: either for a single entity
+ * by {@link #getScript()}, or for a list of entities in one call by {@link #getListScript()}.
+ */
+public class CompiledConstraint {
+
+    public static final String ENTITY_VARIABLE = "__entity__";
+    public static final String ENTITIES_VARIABLE = "__entities__";
+
+    protected static final Pattern PROPERTY_COMPARISON_PATTERN = Pattern.compile(
+            "^\\s*\\{E}((?:\\.[A-Za-z_][A-Za-z0-9_]*)+)\\s*(==|!=)\\s*" +
+                    "('[^'\\\\]*'|\"[^\"\\\\$]*\"|-?[0-9]{1,18}|true|false|null)\\s*;?\\s*$");
+
+    protected static final Pattern ENTITY_PATH_PATTERN = Pattern.compile(
+            "\\{E}((?:\\.[A-Za-z_][A-Za-z0-9_]*)*)");
+
+    protected final String script;
+
+    protected final String[] propertyPath;
+    protected final boolean equality;
+    protected final Object value;
+
+    protected final List<String[]> entityPaths;
+
+    protected volatile boolean listScriptSupported = true;
+
+    public CompiledConstraint(@Nullable String groovyScript) {
+        this.script = groovyScript != null ? groovyScript.replace("{E}", ENTITY_VARIABLE) : null;
+
+        Matcher matcher = groovyScript != null ? PROPERTY_COMPARISON_PATTERN.matcher(groovyScript) : null;
+        if (matcher != null && matcher.matches()) {
+            propertyPath = matcher.group(1).substring(1).split("\\.");
+            equality = "==".equals(matcher.group(2));
+            value = parseLiteral(matcher.group(3));
+        } else {
+            propertyPath = null;
+            equality = false;
+            value = null;
+        }
+
+        this.entityPaths = groovyScript != null ? parseEntityPaths(groovyScript) : null;
+    }
+
+    @Nullable
+    protected static List<String[]> parseEntityPaths(String groovyScript) {
+        List<String[]> paths = new ArrayList<>();
+        Matcher matcher = ENTITY_PATH_PATTERN.matcher(groovyScript);
+        while (matcher.find()) {
+            if (matcher.group(1).isEmpty()) {
+                return null;
+            }
+            paths.add(matcher.group(1).substring(1).split("\\."));
+        }
+        return paths;
+    }
+
+    protected static Object parseLiteral(String literal) {
+        if ("null".equals(literal)) {
+            return null;
+        }
+        if ("true".equals(literal) || "false".equals(literal)) {
+            return Boolean.valueOf(literal);
+        }
+        char first = literal.charAt(0);
+        if (first == '\'' || first == '"') {
+            return literal.substring(1, literal.length() - 1);
+        }
+        long number = Long.parseLong(literal);
+        if (number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE) {
+            return (int) number;
+        }
+        return number;
+    }
+
+    /**
+     * @return script with the entity placeholder replaced by the {@link #ENTITY_VARIABLE} variable
+     */
+    public String getScript() {
+        return script;
+    }
+
+    /**
+     * @return script evaluating the constraint for each entity of the {@link #ENTITIES_VARIABLE} list variable.
+     * The script returns the list of results, containing the exception instead of the result if the evaluation
+     * for an entity failed.
+     */
+    public String getListScript() {
+        return "def __constraint__ = { " + ENTITY_VARIABLE + " ->\n" +
+                script + "\n" +
+                "}\n" +
+                ENTITIES_VARIABLE + ".collect { __item__ ->\n" +
+                "    try {\n" +
+                "        __constraint__.call(__item__)\n" +
+                "    } catch (Exception __error__) {\n" +
+                "        __error__\n" +
+                "    }\n" +
+                "}";
+    }
+
+    /**
+     * @return false if the list script cannot be compiled, so the script must be evaluated for each entity separately
+     */
+    public boolean isListScriptSupported() {
+        return listScriptSupported;
+    }
+
+    public void setListScriptSupported(boolean listScriptSupported) {
+        this.listScriptSupported = listScriptSupported;
+    }
+
+    /**
+     * Returns chains of property names following the entity placeholder in the script, e.g. {@code [group, name]}
+     * for {@code {E}.group.name}. The last elements of a chain can be names of methods.
+     *
+     * @return property chains or null if the script uses the entity in another way, e.g. passes it to a method
+     */
+    @Nullable
+    public List<String[]> getEntityPaths() {
+        return entityPaths;
+    }
+
+    /**
+     * @return true if the script is a comparison of an attribute with a literal and can be evaluated
+     * by {@link #evaluatePropertyComparison(Entity)}
+     */
+    public boolean isPropertyComparison() {
+        return propertyPath != null;
+    }
+
+    /**
+     * Evaluates the comparison of an attribute with a literal in the same way as Groovy does.
+     *
+     * @return result of the comparison or null if the attribute path contains a value which is not an entity or
+     * a name which is not a property of the entity, e.g. {@code {E}.name.empty}, so the script must be evaluated
+     * by Groovy
+     * @throws NullPointerException if a reference in the attribute path is null, as the script would do
+     */
+    @Nullable
+    public Boolean evaluatePropertyComparison(Entity entity) {
+        Object propertyValue = entity;
+        for (String property : propertyPath) {
+            if (propertyValue == null) {
+                throw new NullPointerException(String.format("Cannot get property '%s' on null object", property));
+            }
+            if (!(propertyValue instanceof Entity)
+                    || ((Entity) propertyValue).getMetaClass().getProperty(property) == null) {
+                return null;
+            }
+            propertyValue = ((Entity) propertyValue).getValue(property);
+        }
+        return equality ?
+                ScriptBytecodeAdapter.compareEqual(propertyValue, value) :
+                ScriptBytecodeAdapter.compareNotEqual(propertyValue, value);
+    }
+
+    /**
+     * Translates the comparison of an attribute with a literal to a JPQL condition with the {@code {E}} placeholder
+     * returning the same result as the script. Only equality with a literal and null checks are translated.
+     *
+     * @return JPQL condition or null if the script cannot be translated for the given entity
+     */
+    @Nullable
+    public String getJpqlWhere(MetaClass metaClass, MetadataTools metadataTools) {
+        if (propertyPath == null || (!equality && value != null)) {
+            return null;
+        }
+
+        MetaClass currentMetaClass = metaClass;
+        MetaProperty metaProperty = null;
+        for (int i = 0; i < propertyPath.length; i++) {
+            metaProperty = currentMetaClass.getProperty(propertyPath[i]);
+            if (metaProperty == null
+                    || !metadataTools.isPersistent(metaProperty)
+                    || metadataTools.isEmbedded(metaProperty)
+                    || metaProperty.getRange().getCardinality().isMany()) {
+                return null;
+            }
+            Range range = metaProperty.getRange();
+            if (i < propertyPath.length - 1) {
+                if (!range.isClass()) {
+                    return null;
+                }
+                currentMetaClass = range.asClass();
+            }
+        }
+
+        String path = "{E}." + String.join(".", propertyPath);
+        if (value == null) {
+            return path + (equality ? " is null" : " is not null");
+        }
+
+        String literal = getJpqlLiteral(metaProperty);
+        return literal != null ? path + " = " + literal : null;
+    }
+
+    @Nullable
+    protected String getJpqlLiteral(MetaProperty metaProperty) {
+        if (!metaProperty.getRange().isDatatype()) {
+            return null;
+        }
+        Class<?> javaType = metaProperty.getJavaType();
+        // empty string is null in some databases
+        if (value instanceof String && javaType == String.class && !((String) value).isEmpty()) {
+            return "'" + ((String) value).replace("'", "''") + "'";
+        }
+        if (value instanceof Boolean && (javaType == Boolean.class || javaType == boolean.class)) {
+            return value.toString();
+        }
+        if ((value instanceof Integer || value instanceof Long)
+                && (javaType == Integer.class || javaType == int.class || javaType == Long.class || javaType == long.class)) {
+            return value.toString();
+        }
+        return null;
+    }
+}
@@ -17,6 +17,8 @@
 
 package com.haulmont.cuba.core.sys;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.haulmont.chile.core.datatypes.Datatype;
 import com.haulmont.chile.core.datatypes.Datatypes;
 import com.haulmont.chile.core.datatypes.impl.EnumClass;
@@ -36,6 +38,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.text.ParseException;
 import java.util.*;
@@ -50,6 +53,8 @@ import static java.lang.String.format;
 public class SecurityImpl implements Security {
     private final Logger log = LoggerFactory.getLogger(SecurityImpl.class);
 
+    protected static final int COMPILED_CONSTRAINTS_CACHE_SIZE = 1000;
+
     @Inject
     protected UserSessionSource userSessionSource;
 
@@ -65,6 +70,14 @@ public class SecurityImpl implements Security {
     @Inject
     protected Scripting scripting;
 
+    /**
+     * Compiled constraints by Groovy scripts. Constraints of user sessions are copied on each login, so the compiled
+     * form depends only on the script and is shared between sessions.
+     */
+    protected Cache<String, CompiledConstraint> compiledConstraints = CacheBuilder.newBuilder()
+            .maximumSize(COMPILED_CONSTRAINTS_CACHE_SIZE)
+            .build();
+
     @Override
     public boolean isScreenPermitted(String windowAlias) {
         return userSessionSource.getUserSession().isScreenPermitted(windowAlias);
@@ -214,33 +227,148 @@ public class SecurityImpl implements Security {
     }
 
     protected boolean isPermitted(Entity entity, ConstraintData constraint) {
-        String metaClassName = entity.getMetaClass().getName();
-        String groovyScript = constraint.getGroovyScript();
-        if (constraint.getCheckType().memory() && StringUtils.isNotBlank(groovyScript)) {
+        if (isInMemoryScriptConstraint(constraint)) {
+            CompiledConstraint compiledConstraint = getCompiledConstraint(constraint);
+            Object result = null;
             try {
-                Object o = evaluateConstraintScript(entity, groovyScript);
-                if (Boolean.FALSE.equals(o)) {
-                    log.trace("Entity does not match security constraint. Entity class [{}]. Entity [{}]. Constraint [{}].",
-                            metaClassName, entity.getId(), constraint.getCheckType());
-                    return false;
+                if (compiledConstraint.isPropertyComparison()) {
+                    result = compiledConstraint.evaluatePropertyComparison(entity);
+                }
+                if (result == null) {
+                    result = evaluateConstraintScript(entity, compiledConstraint);
                 }
             } catch (Exception e) {
-                log.error("An error occurred while applying constraint's Groovy script. The entity has been filtered out." +
-                        "Entity class [{}]. Entity [{}].", metaClassName, entity.getId(), e);
-                return false;
+                result = e;
+            }
+            return isPermittedByResult(entity, constraint, result);
+        }
+        return true;
+    }
+
+    /**
+     * Removes entities not permitted by the in-memory constraints selected by the predicate. Each constraint is
+     * evaluated for all entities of a class at once.
+     *
+     * @return true if some entities were removed
+     */
+    protected boolean filterPermitted(Collection<? extends Entity> entities, Predicate<ConstraintData> predicate) {
+        Map<MetaClass, List<Entity>> entitiesByClass = new LinkedHashMap<>();
+        for (Entity entity : entities) {
+            entitiesByClass.computeIfAbsent(entity.getMetaClass(), metaClass -> new ArrayList<>()).add(entity);
+        }
+
+        Set<Entity> notPermitted = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Map.Entry<MetaClass, List<Entity>> entry : entitiesByClass.entrySet()) {
+            List<Entity> permitted = entry.getValue();
+            for (ConstraintData constraint : getConstraints(entry.getKey(), predicate)) {
+                if (permitted.isEmpty()) {
+                    break;
+                }
+                if (!isInMemoryScriptConstraint(constraint)) {
+                    continue;
+                }
+                boolean[] results = isPermitted(permitted, constraint);
+                List<Entity> remaining = new ArrayList<>(permitted.size());
+                for (int i = 0; i < results.length; i++) {
+                    if (results[i]) {
+                        remaining.add(permitted.get(i));
+                    } else {
+                        notPermitted.add(permitted.get(i));
+                    }
+                }
+                permitted = remaining;
+            }
+        }
+
+        if (notPermitted.isEmpty()) {
+            return false;
+        }
+        entities.removeIf(notPermitted::contains);
+        return true;
+    }
+
+    protected boolean[] isPermitted(List<Entity> entities, ConstraintData constraint) {
+        boolean[] results = new boolean[entities.size()];
+        CompiledConstraint compiledConstraint = getCompiledConstraint(constraint);
+
+        if (entities.size() > 1 && !compiledConstraint.isPropertyComparison() && compiledConstraint.isListScriptSupported()) {
+            List<?> scriptResults = null;
+            try {
+                scriptResults = evaluateConstraintScript(entities, compiledConstraint);
+            } catch (Exception e) {
+                log.debug("Unable to evaluate constraint's Groovy script for a list of entities, " +
+                        "it will be evaluated for each entity. Constraint ID [{}].", constraint.getId(), e);
+                compiledConstraint.setListScriptSupported(false);
             }
+            if (scriptResults != null && scriptResults.size() == entities.size()) {
+                for (int i = 0; i < results.length; i++) {
+                    results[i] = isPermittedByResult(entities.get(i), constraint, scriptResults.get(i));
+                }
+                return results;
+            }
+        }
+
+        for (int i = 0; i < results.length; i++) {
+            results[i] = isPermitted(entities.get(i), constraint);
+        }
+        return results;
+    }
+
+    protected boolean isPermittedByResult(Entity entity, ConstraintData constraint, @Nullable Object result) {
+        String metaClassName = entity.getMetaClass().getName();
+        if (result instanceof Exception) {
+            log.error("An error occurred while applying constraint's Groovy script. The entity has been filtered out." +
+                    "Entity class [{}]. Entity [{}].", metaClassName, entity.getId(), result);
+            return false;
+        }
+        if (Boolean.FALSE.equals(result)) {
+            log.trace("Entity does not match security constraint. Entity class [{}]. Entity [{}]. Constraint [{}].",
+                    metaClassName, entity.getId(), constraint.getCheckType());
+            return false;
         }
         return true;
     }
 
+    protected boolean isInMemoryScriptConstraint(ConstraintData constraint) {
+        return constraint.getCheckType().memory() && StringUtils.isNotBlank(constraint.getGroovyScript());
+    }
+
+    /**
+     * @return constraint prepared for evaluation. It is created once for a script.
+     */
+    protected CompiledConstraint getCompiledConstraint(ConstraintData constraint) {
+        String groovyScript = constraint.getGroovyScript();
+        if (groovyScript == null) {
+            return new CompiledConstraint(null);
+        }
+        return compiledConstraints.asMap().computeIfAbsent(groovyScript, CompiledConstraint::new);
+    }
+
     @Override
     public Object evaluateConstraintScript(Entity entity, String groovyScript) {
+        Map<String, Object> context = createConstraintScriptContext();
+        context.put(CompiledConstraint.ENTITY_VARIABLE, entity);
+        return scripting.evaluateGroovy(groovyScript.replace("{E}", CompiledConstraint.ENTITY_VARIABLE), context);
+    }
+
+    protected Object evaluateConstraintScript(Entity entity, CompiledConstraint compiledConstraint) {
+        Map<String, Object> context = createConstraintScriptContext();
+        context.put(CompiledConstraint.ENTITY_VARIABLE, entity);
+        return scripting.evaluateGroovy(compiledConstraint.getScript(), context);
+    }
+
+    protected List<?> evaluateConstraintScript(List<Entity> entities, CompiledConstraint compiledConstraint) {
+        Map<String, Object> context = createConstraintScriptContext();
+        context.put(CompiledConstraint.ENTITIES_VARIABLE, entities);
+        return scripting.evaluateGroovy(compiledConstraint.getListScript(), context);
+    }
+
+    protected Map<String, Object> createConstraintScriptContext() {
         Map<String, Object> context = new HashMap<>();
-        context.put("__entity__", entity);
         context.put("parse", new MethodClosure(this, "parseValue"));
         context.put("userSession", userSessionSource.getUserSession());
         fillGroovyConstraintsContext(context);
-        return scripting.evaluateGroovy(groovyScript.replace("{E}", "__entity__"), context);
+        return context;
     }
 
     /**
@@ -42,18 +42,32 @@ public class QueryTree {
     }
 
     public QueryTree(DomainModel model, String query, boolean failOnErrors) {
-        Preconditions.checkNotNull(query, "query is null");
-        String modifiedQuery = StringUtils.replaceChars(query, "\n\r\t", "   ");
+        this(model, parse(query, failOnErrors));
+    }
 
+    /**
+     * Creates a query tree on top of an already parsed AST. The AST becomes owned by this instance,
+     * use {@link BaseCustomNode#dupTree(org.antlr.runtime.tree.Tree)} to pass a copy of a shared tree.
+     */
+    public QueryTree(DomainModel model, CommonTree tree) {
         this.model = model;
+        this.tree = tree;
+
+        this.idVarSelector = new IdVarSelector(model);
+        new TreeVisitor().visit(tree, idVarSelector);
+    }
+
+    /**
+     * Parses the query into a raw AST without resolving entity variables.
+     */
+    public static CommonTree parse(String query, boolean failOnErrors) {
+        Preconditions.checkNotNull(query, "query is null");
+        String modifiedQuery = StringUtils.replaceChars(query, "\n\r\t", "   ");
         try {
-            this.tree = Parser.parse(modifiedQuery, failOnErrors);
+            return Parser.parse(modifiedQuery, failOnErrors);
         } catch (RecognitionException e) {
             throw new JPA2RecognitionException("JPA grammar recognition error", e);
         }
-
-        this.idVarSelector = new IdVarSelector(model);
-        new TreeVisitor().visit(tree, idVarSelector);
     }
 
     public DomainModel getModel() {
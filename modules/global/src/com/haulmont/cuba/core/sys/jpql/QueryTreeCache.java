@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.jpql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.haulmont.cuba.core.global.Configuration;
+import com.haulmont.cuba.core.global.GlobalConfig;
+import com.haulmont.cuba.core.sys.jpql.tree.BaseCustomNode;
+import org.antlr.runtime.tree.CommonTree;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps parsed JPQL syntax trees to avoid running the ANTLR parser for the same query string again.
+ * <p>
+ * Cached trees are never exposed: each {@link #getTree(DomainModel, String)} call returns a {@link QueryTree}
+ * built on a copy of the cached AST, so callers are free to transform it.
+ */
+@Component(QueryTreeCache.NAME)
+public class QueryTreeCache {
+
+    public static final String NAME = "cuba_QueryTreeCache";
+
+    protected volatile Cache<Key, CommonTree> cache;
+
+    protected AtomicLong parseCount = new AtomicLong();
+    protected AtomicLong parseTimeNanos = new AtomicLong();
+
+    @Inject
+    public void setConfiguration(Configuration configuration) {
+        createCache(configuration.getConfig(GlobalConfig.class).getJpqlQueryTreeCacheSize());
+    }
+
+    protected void createCache(int maxSize) {
+        cache = maxSize > 0 ? CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().build() : null;
+    }
+
+    /**
+     * Returns a query tree for the query, parsing the query only if it is not in the cache yet.
+     *
+     * @param model domain model the query is resolved against
+     * @param query JPQL query string
+     * @return new query tree instance owned by the caller
+     */
+    public QueryTree getTree(DomainModel model, String query) {
+        Cache<Key, CommonTree> cache = this.cache;
+        if (cache == null) {
+            return new QueryTree(model, parse(query));
+        }
+
+        Key key = new Key(model, query);
+        CommonTree tree = cache.getIfPresent(key);
+        if (tree == null) {
+            tree = parse(query);
+            cache.put(key, tree);
+        }
+        return new QueryTree(model, (CommonTree) BaseCustomNode.dupTree(tree));
+    }
+
+    protected CommonTree parse(String query) {
+        long start = System.nanoTime();
+        try {
+            return QueryTree.parse(query, true);
+        } finally {
+            parseCount.incrementAndGet();
+            parseTimeNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    public long getSize() {
+        Cache<Key, CommonTree> cache = this.cache;
+        return cache != null ? cache.size() : 0;
+    }
+
+    public CacheStats getStats() {
+        Cache<Key, CommonTree> cache = this.cache;
+        return cache != null ? cache.stats() : new CacheStats(0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * @return number of queries parsed since startup, including queries parsed with the cache disabled
+     */
+    public long getParseCount() {
+        return parseCount.get();
+    }
+
+    /**
+     * @return total time spent in parsing, in milliseconds
+     */
+    public long getParseTime() {
+        return TimeUnit.NANOSECONDS.toMillis(parseTimeNanos.get());
+    }
+
+    public void invalidateAll() {
+        Cache<Key, CommonTree> cache = this.cache;
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    protected static class Key {
+        protected final DomainModel model;
+        protected final String query;
+
+        public Key(DomainModel model, String query) {
+            this.model = model;
+            this.query = query;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key key = (Key) o;
+            return model == key.model && query.equals(key.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(model) + query.hashCode();
+        }
+    }
+}
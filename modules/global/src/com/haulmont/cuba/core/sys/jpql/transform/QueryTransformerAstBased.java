@@ -32,6 +32,7 @@ import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
+import javax.inject.Inject;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -45,8 +46,12 @@ public class QueryTransformerAstBased implements QueryTransformer {
     protected QueryTree queryTree;
     protected QueryTreeTransformer queryTransformer;
     protected QueryTreeAnalyzer queryAnalyzer;
+
     protected Set<String> addedParams = new HashSet<>();
 
+    @Inject
+    protected QueryTreeCache queryTreeCache;
+
     public QueryTransformerAstBased(DomainModel model, String query) {
         this.model = model;
         this.query = query;
@@ -69,7 +74,7 @@ public class QueryTransformerAstBased implements QueryTransformer {
     protected QueryTree getTree() {
         if (queryTree == null) {
             try {
-                queryTree = new QueryTree(model, query);
+                queryTree = queryTreeCache != null ? queryTreeCache.getTree(model, query) : new QueryTree(model, query);
             } catch (JPA2RecognitionException e) {
                 throw new JpqlSyntaxException(format("Errors found for input JPQL:[%s]\n%s", StringUtils.strip(query), e.getMessage()));
             }
@@ -53,10 +53,25 @@ public class BaseCustomNode extends CommonTree implements TreeToQueryCapable {
     }
 
     protected void dupChildren(CommonTree result) {
+        if (children == null) {
+            return;
+        }
         for (Object child : children) {
-            CommonTree t = (CommonTree) child;
-            Tree copy = t.dupNode();
-            result.addChild(copy);
+            result.addChild(dupTree((Tree) child));
+        }
+    }
+
+    /**
+     * Makes a deep copy of the given subtree. Custom nodes copy their children in {@link #dupNode()},
+     * plain ANTLR nodes copy only themselves, so the missing children are copied here.
+     */
+    public static Tree dupTree(Tree tree) {
+        Tree copy = tree.dupNode();
+        if (copy.getChildCount() == 0) {
+            for (int i = 0; i < tree.getChildCount(); i++) {
+                copy.addChild(dupTree(tree.getChild(i)));
+            }
         }
+        return copy;
     }
 }
\ No newline at end of file
@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.servlet;
+
+import com.haulmont.cuba.core.entity.FileDescriptor;
+import com.haulmont.cuba.core.global.FileTypesHelper;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nullable;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Writes file contents to HTTP responses supporting conditional and range requests.
+ * <p>
+ * Files are identified by strong entity tags. A request with a matching {@code If-None-Match} header receives
+ * {@code 304 Not Modified}, a request with the {@code Range} header receives {@code 206 Partial Content} with one
+ * or several byte ranges. If the content is a local file, ranges are transferred from its {@link FileChannel}
+ * without reading the skipped bytes.
+ */
+public class FileDownloadHelper {
+
+    /**
+     * Maximum number of ranges in a request. Requests with more ranges receive the whole content.
+     */
+    public static final int MAX_RANGES = 16;
+
+    private static final String BYTES_UNIT = "bytes";
+
+    private FileDownloadHelper() {
+    }
+
+    /**
+     * Range of bytes, both positions are inclusive.
+     */
+    public static class ByteRange {
+        private final long start;
+        private final long end;
+
+        public ByteRange(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        public long getLength() {
+            return end - start + 1;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            ByteRange that = (ByteRange) o;
+            return start == that.start && end == that.end;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(start) + Long.hashCode(end);
+        }
+
+        @Override
+        public String toString() {
+            return start + "-" + end;
+        }
+    }
+
+    /**
+     * @return strong entity tag of the file contents. File contents never change, so the tag is built from
+     * the file id, size and creation date.
+     */
+    public static String getETag(FileDescriptor fd) {
+        return "\"" + fd.getId()
+                + "-" + (fd.getSize() != null ? fd.getSize() : "")
+                + "-" + (fd.getCreateDate() != null ? fd.getCreateDate().getTime() : "") + "\"";
+    }
+
+    /**
+     * Sets the {@code ETag} header and sends {@code 304 Not Modified} if the request contains a matching
+     * {@code If-None-Match} header.
+     *
+     * @return true if the response is sent and the content must not be written
+     */
+    public static boolean checkNotModified(HttpServletRequest request, HttpServletResponse response, String eTag) {
+        response.setHeader("ETag", eTag);
+
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch == null)
+            return false;
+
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(eTag)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the content to the response. The content type must be set in the response before invocation.
+     * <p>
+     * If the request contains the {@code Range} header, and the {@code If-Range} header is absent or matches
+     * the {@code ETag} header of the response, only the requested ranges are written. Otherwise the whole content
+     * is copied up to the end of the stream, and the length is not used.
+     *
+     * @param request request, or null to write the whole content
+     * @param content input stream with the whole content, is not closed by this method
+     * @param length  length of the content used to resolve ranges, or null if unknown. Ranges are not supported
+     *                for unknown length.
+     */
+    public static void writeContent(@Nullable HttpServletRequest request, HttpServletResponse response,
+                                    InputStream content, @Nullable Long length) throws IOException {
+        List<ByteRange> ranges = null;
+        if (length != null) {
+            response.setHeader("Accept-Ranges", BYTES_UNIT);
+
+            String rangeHeader = request != null ? request.getHeader("Range") : null;
+            if (rangeHeader != null && isRangeApplicable(request, response)) {
+                ranges = parseRanges(rangeHeader, length);
+            }
+        }
+
+        if (ranges == null) {
+            IOUtils.copyLarge(content, response.getOutputStream());
+        } else if (ranges.isEmpty()) {
+            response.setHeader("Content-Range", BYTES_UNIT + " */" + length);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        } else if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader("Content-Range", getContentRange(range, length));
+            response.setHeader("Content-Length", String.valueOf(range.getLength()));
+            copyRange(content, 0, response.getOutputStream(), range.getStart(), range.getLength());
+        } else {
+            writeMultipleRanges(response, content, length, ranges);
+        }
+    }
+
+    /**
+     * @return true if the request asks for a part of the content
+     */
+    public static boolean isRangeRequest(@Nullable HttpServletRequest request) {
+        return request != null && request.getHeader("Range") != null;
+    }
+
+    /**
+     * Parses the value of the {@code Range} header. Overlapping and adjacent ranges are merged, the result is sorted
+     * by position.
+     *
+     * @return satisfiable ranges, empty list if no range is satisfiable, or null if the header is invalid or
+     * not supported and the whole content must be sent
+     */
+    @Nullable
+    public static List<ByteRange> parseRanges(String rangeHeader, long length) {
+        String value = rangeHeader.trim();
+        if (!value.startsWith(BYTES_UNIT + "="))
+            return null;
+
+        String[] specs = value.substring(BYTES_UNIT.length() + 1).split(",");
+        if (specs.length > MAX_RANGES)
+            return null;
+
+        List<ByteRange> ranges = new ArrayList<>(specs.length);
+        for (String spec : specs) {
+            spec = spec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0)
+                return null;
+
+            long start, end;
+            try {
+                String first = spec.substring(0, dash).trim();
+                String last = spec.substring(dash + 1).trim();
+                if (first.isEmpty()) {
+                    // suffix range: last N bytes
+                    long suffixLength = Long.parseLong(last);
+                    if (suffixLength <= 0)
+                        continue;
+                    start = Math.max(0, length - suffixLength);
+                    end = length - 1;
+                } else {
+                    start = Long.parseLong(first);
+                    if (last.isEmpty()) {
+                        end = length - 1;
+                    } else {
+                        long lastPosition = Long.parseLong(last);
+                        if (lastPosition < start)
+                            return null;
+                        end = Math.min(lastPosition, length - 1);
+                    }
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (start < length) {
+                ranges.add(new ByteRange(start, end));
+            }
+        }
+        return mergeRanges(ranges);
+    }
+
+    protected static List<ByteRange> mergeRanges(List<ByteRange> ranges) {
+        if (ranges.size() < 2)
+            return ranges;
+
+        ranges.sort(Comparator.comparingLong(ByteRange::getStart));
+        List<ByteRange> result = new ArrayList<>(ranges.size());
+        ByteRange current = ranges.get(0);
+        for (int i = 1; i < ranges.size(); i++) {
+            ByteRange range = ranges.get(i);
+            if (range.getStart() <= current.getEnd() + 1) {
+                current = new ByteRange(current.getStart(), Math.max(current.getEnd(), range.getEnd()));
+            } else {
+                result.add(current);
+                current = range;
+            }
+        }
+        result.add(current);
+        return result;
+    }
+
+    protected static boolean isRangeApplicable(HttpServletRequest request, HttpServletResponse response) {
+        String ifRange = request.getHeader("If-Range");
+        return ifRange == null || ifRange.trim().equals(response.getHeader("ETag"));
+    }
+
+    protected static String getContentRange(ByteRange range, long length) {
+        return BYTES_UNIT + " " + range.getStart() + "-" + range.getEnd() + "/" + length;
+    }
+
+    protected static void writeMultipleRanges(HttpServletResponse response, InputStream content, long length,
+                                              List<ByteRange> ranges) throws IOException {
+        String contentType = StringUtils.defaultIfEmpty(response.getContentType(), FileTypesHelper.DEFAULT_MIME_TYPE);
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+
+        OutputStream out = response.getOutputStream();
+        long position = 0;
+        for (ByteRange range : ranges) {
+            String partHeader = "\r\n--" + boundary + "\r\n"
+                    + "Content-Type: " + contentType + "\r\n"
+                    + "Content-Range: " + getContentRange(range, length) + "\r\n\r\n";
+            out.write(partHeader.getBytes(StandardCharsets.US_ASCII));
+            copyRange(content, position, out, range.getStart(), range.getLength());
+            position = range.getEnd() + 1;
+        }
+        out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Copies the range of the content. Local files are transferred through the file channel from the given offset,
+     * other streams are skipped up to the offset.
+     *
+     * @param position current position of the stream
+     */
+    protected static void copyRange(InputStream content, long position, OutputStream out,
+                                    long offset, long count) throws IOException {
+        if (content instanceof FileInputStream) {
+            FileChannel channel = ((FileInputStream) content).getChannel();
+            WritableByteChannel target = Channels.newChannel(out);
+            long transferred = 0;
+            while (transferred < count) {
+                long n = channel.transferTo(offset + transferred, count - transferred, target);
+                if (n <= 0)
+                    break;
+                transferred += n;
+            }
+        } else {
+            IOUtils.skipFully(content, offset - position);
+            IOUtils.copyLarge(content, out, 0, count);
+        }
+    }
+}
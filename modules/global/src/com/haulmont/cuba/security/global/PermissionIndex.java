@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.security.global;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.cuba.security.entity.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * INTERNAL.
+ * Immutable set of permissions compiled for a combination of role types and permission values.
+ * <p>
+ * Instances are shared between all user sessions having equal permissions, see {@link #of(Set, Map[])}.
+ * Effective values of entity operations and attributes are calculated once per entity and cached, so the checks
+ * do not build target strings and do not iterate over role types.
+ */
+public final class PermissionIndex {
+
+    private static final Interner<PermissionIndex> interner = Interners.newWeakInterner();
+
+    /**
+     * Effective value of a target that has no permission value: everything is permitted.
+     */
+    private static final int NOT_RESTRICTED = Integer.MAX_VALUE;
+
+    private static final EntityOp[] ENTITY_OPS = EntityOp.values();
+
+    private final EnumSet<RoleType> roleTypes;
+    private final boolean superRole;
+    private final Map<String, Integer>[] permissions;
+    private final int hashCode;
+
+    private final ConcurrentMap<String, EntityPermissions> entityPermissions = new ConcurrentHashMap<>();
+
+    private PermissionIndex(Set<RoleType> roleTypes, Map<String, Integer>[] permissions) {
+        this.roleTypes = roleTypes.isEmpty() ? EnumSet.noneOf(RoleType.class) : EnumSet.copyOf(roleTypes);
+        this.superRole = roleTypes.contains(RoleType.SUPER);
+        //noinspection unchecked
+        this.permissions = new Map[permissions.length];
+        for (int i = 0; i < permissions.length; i++) {
+            this.permissions[i] = Collections.unmodifiableMap(new HashMap<>(permissions[i]));
+        }
+        this.hashCode = 31 * this.roleTypes.hashCode() + Arrays.hashCode(this.permissions);
+    }
+
+    /**
+     * Returns the shared index for the given role types and permissions.
+     *
+     * @param roleTypes   role types of the user
+     * @param permissions permission values indexed by {@link PermissionType} ordinal
+     */
+    public static PermissionIndex of(Set<RoleType> roleTypes, Map<String, Integer>[] permissions) {
+        return interner.intern(new PermissionIndex(roleTypes, permissions));
+    }
+
+    public boolean isPermitted(PermissionType type, String target, int value) {
+        return superRole || getEffectiveValue(type, target) >= value;
+    }
+
+    public boolean isEntityOpPermitted(MetaClass metaClass, EntityOp entityOp) {
+        return superRole || getEntityPermissions(metaClass).opValues[entityOp.ordinal()] >= 1;
+    }
+
+    public boolean isEntityAttrPermitted(MetaClass metaClass, String property, EntityAttrAccess access) {
+        return superRole || getEntityPermissions(metaClass).getAttrValue(property) >= access.getId();
+    }
+
+    private EntityPermissions getEntityPermissions(MetaClass metaClass) {
+        String entityName = metaClass.getName();
+        EntityPermissions result = entityPermissions.get(entityName);
+        if (result == null) {
+            result = entityPermissions.computeIfAbsent(entityName, EntityPermissions::new);
+        }
+        return result;
+    }
+
+    private int getEffectiveValue(PermissionType type, String target) {
+        // Get permission value assigned by the set of permissions
+        Integer v = permissions[type.ordinal()].get(target);
+        // Get permission value assigned by non-standard roles
+        for (RoleType roleType : roleTypes) {
+            Integer v1 = roleType.permissionValue(type, target);
+            if (v1 != null && (v == null || v < v1)) {
+                v = v1;
+            }
+        }
+        return v == null ? NOT_RESTRICTED : v;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        PermissionIndex that = (PermissionIndex) o;
+        return hashCode == that.hashCode
+                && roleTypes.equals(that.roleTypes)
+                && Arrays.equals(permissions, that.permissions);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    private class EntityPermissions {
+
+        private final String prefix;
+        private final int[] opValues = new int[ENTITY_OPS.length];
+        private final ConcurrentMap<String, Integer> attrValues = new ConcurrentHashMap<>();
+
+        private EntityPermissions(String entityName) {
+            prefix = entityName + Permission.TARGET_PATH_DELIMETER;
+            for (EntityOp entityOp : ENTITY_OPS) {
+                opValues[entityOp.ordinal()] = getEffectiveValue(PermissionType.ENTITY_OP, prefix + entityOp.getId());
+            }
+        }
+
+        private int getAttrValue(String property) {
+            Integer value = attrValues.get(property);
+            if (value == null) {
+                value = getEffectiveValue(PermissionType.ENTITY_ATTR, prefix + property);
+                attrValues.putIfAbsent(property, value);
+            }
+            return value;
+        }
+    }
+}
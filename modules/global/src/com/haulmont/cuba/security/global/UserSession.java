@@ -51,6 +51,12 @@ public class UserSession implements Serializable {
     protected String clientInfo;
     protected boolean system;
 
+    /**
+     * Permission values of this session. They are kept in plain maps owned by the session, so the serialized form
+     * is compatible with other cluster nodes and clients, and addPermission/removePermission do not need to copy
+     * shared maps. Checks use the {@link #permissionIndex} instead, which is shared between sessions with equal
+     * permissions, so the per-session memory is the same as without the index.
+     */
     protected Map<String, Integer>[] permissions;
     protected Map<String, List<ConstraintData>> constraints;
 
@@ -58,6 +64,8 @@ public class UserSession implements Serializable {
 
     protected transient Map<String, Object> localAttributes;
 
+    protected transient volatile PermissionIndex permissionIndex;
+
     /**
      * INTERNAL
      * Used only for kryo serialization
@@ -115,11 +123,16 @@ public class UserSession implements Serializable {
         roles = src.roles;
         locale = src.locale;
         timeZone = src.timeZone;
-        permissions = src.permissions;
+        //noinspection unchecked
+        permissions = new Map[src.permissions.length];
+        for (int i = 0; i < permissions.length; i++) {
+            permissions[i] = new HashMap<>(src.permissions[i]);
+        }
         constraints = src.constraints;
         attributes = src.attributes;
-        roleTypes = src.roleTypes;
+        roleTypes = EnumSet.copyOf(src.roleTypes);
         localAttributes = src.localAttributes;
+        permissionIndex = src.permissionIndex;
         address = src.address;
         clientInfo = src.clientInfo;
     }
@@ -264,6 +277,7 @@ public class UserSession implements Serializable {
             permissions[type.ordinal()].put(target, value);
             if (extTarget != null)
                 permissions[type.ordinal()].put(extTarget, value);
+            permissionIndex = null;
         }
     }
 
@@ -271,7 +285,24 @@ public class UserSession implements Serializable {
      * INTERNAL
      */
     public void removePermission(PermissionType type, String target) {
-        permissions[type.ordinal()].remove(target);
+        if (permissions[type.ordinal()].remove(target) != null) {
+            permissionIndex = null;
+        }
+    }
+
+    /**
+     * INTERNAL.
+     * Returns the compiled permissions of this session. The index is shared with other sessions having the same
+     * role types and permissions, it is built again after the permissions of the session are changed. Building
+     * the index copies the permission maps once, the copy is dropped if an equal index already exists.
+     */
+    public PermissionIndex getPermissionIndex() {
+        PermissionIndex index = permissionIndex;
+        if (index == null) {
+            index = PermissionIndex.of(roleTypes, permissions);
+            permissionIndex = index;
+        }
+        return index;
     }
 
     /**
@@ -299,17 +330,14 @@ public class UserSession implements Serializable {
      * Check user permission for the entity operation
      */
     public boolean isEntityOpPermitted(MetaClass metaClass, EntityOp entityOp) {
-        return isPermitted(PermissionType.ENTITY_OP,
-                metaClass.getName() + Permission.TARGET_PATH_DELIMETER + entityOp.getId());
+        return getPermissionIndex().isEntityOpPermitted(metaClass, entityOp);
     }
 
     /**
      * Check user permission for the entity attribute
      */
     public boolean isEntityAttrPermitted(MetaClass metaClass, String property, EntityAttrAccess access) {
-        return isPermitted(PermissionType.ENTITY_ATTR,
-                metaClass.getName() + Permission.TARGET_PATH_DELIMETER + property,
-                access.getId());
+        return getPermissionIndex().isEntityAttrPermitted(metaClass, property, access);
     }
 
     /**
@@ -356,17 +384,8 @@ public class UserSession implements Serializable {
         // If we have super-role no need to check anything
         if (roleTypes.contains(RoleType.SUPER))
             return true;
-        // Get permission value assigned by the set of permissions
-        Integer v = permissions[type.ordinal()].get(target);
-        // Get permission value assigned by non-standard roles
-        for (RoleType roleType : roleTypes) {
-            Integer v1 = roleType.permissionValue(type, target);
-            if (v1 != null && (v == null || v < v1)) {
-                v = v1;
-            }
-        }
         // Return true if no value set for this target, or if the value is more than requested
-        return v == null || v >= value;
+        return getPermissionIndex().isPermitted(type, target, value);
     }
 
     /**
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.chile.core.model.utils;
+
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+
+import static org.junit.Assert.*;
+
+public class MethodsCacheTest {
+
+    @Test
+    public void testGettersAndSetters() {
+        MethodsCache cache = new MethodsCache(Bean.class);
+        Bean bean = new Bean();
+
+        cache.invokeSetter(bean, "name", "foo");
+        cache.invokeSetter(bean, "count", 10);
+        cache.invokeSetter(bean, "active", true);
+
+        assertEquals("foo", cache.invokeGetter(bean, "name"));
+        assertEquals(10, cache.invokeGetter(bean, "count"));
+        assertEquals(true, cache.invokeGetter(bean, "active"));
+        assertEquals("base", cache.invokeGetter(bean, "baseName"));
+    }
+
+    @Test
+    public void testNonPublicClass() {
+        MethodsCache cache = new MethodsCache(HiddenBean.class);
+        HiddenBean bean = new HiddenBean();
+
+        cache.invokeSetter(bean, "value", 5L);
+        assertEquals(5L, cache.invokeGetter(bean, "value"));
+    }
+
+    @Test
+    public void testMissingProperty() {
+        MethodsCache cache = new MethodsCache(Bean.class);
+        try {
+            cache.invokeGetter(new Bean(), "unknown");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("unknown"));
+        }
+        try {
+            cache.invokeSetter(new Bean(), "baseName", "x");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("baseName"));
+        }
+    }
+
+    @Test
+    public void testWrongValueType() {
+        MethodsCache cache = new MethodsCache(Bean.class);
+        try {
+            cache.invokeSetter(new Bean(), "count", "not a number");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            cache.invokeSetter(new Bean(), "count", null);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testWrongObjectType() {
+        MethodsCache cache = new MethodsCache(Bean.class);
+        try {
+            cache.invokeGetter(new BaseBean(), "name");
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    @Test
+    public void testWideningConversion() {
+        MethodsCache cache = new MethodsCache(Bean.class);
+        Bean bean = new Bean();
+
+        cache.invokeSetter(bean, "total", 7);
+        assertEquals(7L, cache.invokeGetter(bean, "total"));
+    }
+
+    @Test
+    public void testAccessorExceptions() {
+        MethodsCache cache = new MethodsCache(Bean.class);
+        try {
+            cache.invokeGetter(new Bean(), "failing");
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof InvocationTargetException);
+            assertTrue(e.getCause().getCause() instanceof IllegalStateException);
+        }
+        try {
+            cache.invokeSetter(new Bean(), "failing", "x");
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof InvocationTargetException);
+            assertTrue(e.getCause().getCause() instanceof IllegalStateException);
+        }
+    }
+
+    public static class BaseBean {
+        public String getBaseName() {
+            return "base";
+        }
+    }
+
+    public static class Bean extends BaseBean {
+        private String name;
+        private int count;
+        private boolean active;
+        private long total;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public void setActive(boolean active) {
+            this.active = active;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public void setTotal(long total) {
+            this.total = total;
+        }
+
+        public String getFailing() {
+            throw new IllegalStateException("getter");
+        }
+
+        public void setFailing(String value) {
+            throw new IllegalStateException("setter");
+        }
+    }
+
+    static class HiddenBean {
+        private Long value;
+
+        public Long getValue() {
+            return value;
+        }
+
+        public void setValue(Long value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys;
+
+import com.haulmont.chile.core.datatypes.Datatype;
+import com.haulmont.cuba.core.app.keyvalue.KeyValueMetaClass;
+import com.haulmont.cuba.core.app.keyvalue.KeyValueMetaProperty;
+import com.haulmont.cuba.core.entity.KeyValueEntity;
+import groovy.lang.Binding;
+import groovy.lang.GroovyShell;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CompiledConstraintTest {
+
+    @Test
+    public void testPropertyComparison() {
+        KeyValueEntity entity = createEntity("name", "count", "active");
+        entity.setValue("name", "admin");
+        entity.setValue("count", 10L);
+
+        assertTrue(compile("{E}.name == 'admin'").isPropertyComparison());
+        assertEquals(Boolean.TRUE, compile("{E}.name == 'admin'").evaluatePropertyComparison(entity));
+        assertEquals(Boolean.FALSE, compile("{E}.name != \"admin\"").evaluatePropertyComparison(entity));
+        assertEquals(Boolean.TRUE, compile(" {E}.count == 10 ").evaluatePropertyComparison(entity));
+        assertEquals(Boolean.TRUE, compile("{E}.active == null").evaluatePropertyComparison(entity));
+        assertEquals(Boolean.TRUE, compile("{E}.active != true").evaluatePropertyComparison(entity));
+
+        assertFalse(compile("{E}.name == \"${userSession.user.login}\"").isPropertyComparison());
+        assertFalse(compile("{E}.name == 'admin' && {E}.count > 1").isPropertyComparison());
+        assertFalse(compile("userSession.user.login == 'admin'").isPropertyComparison());
+    }
+
+    @Test
+    public void testPropertyComparisonFallback() {
+        KeyValueEntity entity = createEntity("name");
+        entity.setValue("name", "admin");
+
+        // not an entity in the middle of the path
+        assertTrue(compile("{E}.name.empty == false").isPropertyComparison());
+        assertNull(compile("{E}.name.empty == false").evaluatePropertyComparison(entity));
+        // not a property of the entity
+        assertNull(compile("{E}.instanceName == 'admin'").evaluatePropertyComparison(entity));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testPropertyComparisonWithNullReference() {
+        compile("{E}.group.name == 'Company'").evaluatePropertyComparison(createEntity("group"));
+    }
+
+    @Test
+    public void testListScript() {
+        Binding binding = new Binding();
+        binding.setVariable(CompiledConstraint.ENTITIES_VARIABLE, Arrays.asList(
+                Collections.singletonMap("count", 1), Collections.singletonMap("count", 5), Collections.emptyMap()));
+        List<?> results = (List<?>) new GroovyShell(binding)
+                .evaluate(compile("{E}.count.intValue() > 2").getListScript());
+
+        assertEquals(3, results.size());
+        assertEquals(Boolean.FALSE, results.get(0));
+        assertEquals(Boolean.TRUE, results.get(1));
+        assertTrue(results.get(2) instanceof NullPointerException);
+    }
+
+    @Test
+    public void testEntityPaths() {
+        List<String[]> paths = compile("{E}.group.name == 'Company' || {E}.login.startsWith('a')").getEntityPaths();
+        assertNotNull(paths);
+        assertEquals(2, paths.size());
+        assertArrayEquals(new String[]{"group", "name"}, paths.get(0));
+        assertArrayEquals(new String[]{"login", "startsWith"}, paths.get(1));
+
+        assertNull(compile("userSession.user == {E}.createdBy || isAllowed({E})").getEntityPaths());
+    }
+
+    private KeyValueEntity createEntity(String... properties) {
+        Datatype datatype = (Datatype) Proxy.newProxyInstance(Datatype.class.getClassLoader(),
+                new Class[]{Datatype.class}, (proxy, method, args) -> null);
+        KeyValueMetaClass metaClass = new KeyValueMetaClass();
+        for (String property : properties) {
+            metaClass.addProperty(new KeyValueMetaProperty(metaClass, property, datatype));
+        }
+        KeyValueEntity entity = new KeyValueEntity();
+        entity.setMetaClass(metaClass);
+        return entity;
+    }
+
+    private CompiledConstraint compile(String script) {
+        return new CompiledConstraint(script);
+    }
+}
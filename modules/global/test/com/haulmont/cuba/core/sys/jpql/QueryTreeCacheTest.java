@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.jpql;
+
+import com.haulmont.cuba.core.sys.jpql.model.EntityBuilder;
+import com.haulmont.cuba.core.sys.jpql.model.JpqlEntityModel;
+import com.haulmont.cuba.core.sys.jpql.transform.QueryTreeTransformer;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+public class QueryTreeCacheTest {
+
+    private QueryTreeCache cache;
+    private DomainModel model;
+
+    @Before
+    public void setUp() {
+        cache = new QueryTreeCache();
+        cache.createCache(10);
+
+        EntityBuilder builder = new EntityBuilder();
+        JpqlEntityModel userEntity = builder.produceImmediately("sec$User", "name", "login", "active");
+        model = new DomainModel(userEntity);
+    }
+
+    @Test
+    public void testParsesOnce() {
+        String query = "select u from sec$User u where u.active = true order by u.name";
+
+        QueryTree tree1 = cache.getTree(model, query);
+        QueryTree tree2 = cache.getTree(model, query);
+
+        assertNotSame(tree1.getAstTree(), tree2.getAstTree());
+        assertEquals(1, cache.getParseCount());
+        assertEquals(1, cache.getStats().hitCount());
+        assertEquals(toQuery(tree1), toQuery(tree2));
+        assertEquals("u", tree2.getVariableNameByEntity("sec$User"));
+    }
+
+    @Test
+    public void testTransformationDoesNotAffectCachedTree() {
+        String query = "select u from sec$User u where u.active = true order by u.name";
+
+        QueryTree tree = cache.getTree(model, query);
+        new QueryTreeTransformer(tree).removeOrderBy();
+        assertEquals("select u from sec$User u where u.active = true", toQuery(tree));
+
+        assertEquals("select u from sec$User u where u.active = true order by u.name",
+                toQuery(cache.getTree(model, query)));
+    }
+
+    @Test
+    public void testDifferentModels() {
+        String query = "select u from sec$User u";
+
+        cache.getTree(model, query);
+        cache.getTree(new DomainModel(new EntityBuilder().produceImmediately("sec$User", "name")), query);
+
+        assertEquals(2, cache.getParseCount());
+    }
+
+    private String toQuery(QueryTree tree) {
+        return tree.visit(new TreeToQuery()).getQueryString().trim();
+    }
+}
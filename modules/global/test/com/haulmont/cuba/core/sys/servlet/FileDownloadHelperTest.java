@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.servlet;
+
+import com.haulmont.cuba.core.sys.servlet.FileDownloadHelper.ByteRange;
+import org.junit.Test;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.*;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class FileDownloadHelperTest {
+
+    @Test
+    public void testParseRanges() {
+        assertEquals(Collections.singletonList(new ByteRange(0, 99)), FileDownloadHelper.parseRanges("bytes=0-99", 1000));
+        assertEquals(Collections.singletonList(new ByteRange(900, 999)), FileDownloadHelper.parseRanges("bytes=900-", 1000));
+        assertEquals(Collections.singletonList(new ByteRange(500, 999)), FileDownloadHelper.parseRanges("bytes=-500", 1000));
+        assertEquals(Collections.singletonList(new ByteRange(0, 999)), FileDownloadHelper.parseRanges("bytes=-5000", 1000));
+        assertEquals(Collections.singletonList(new ByteRange(990, 999)), FileDownloadHelper.parseRanges("bytes=990-2000", 1000));
+
+        assertEquals(Arrays.asList(new ByteRange(0, 9), new ByteRange(100, 199)),
+                FileDownloadHelper.parseRanges("bytes=100-199, 0-9", 1000));
+    }
+
+    @Test
+    public void testMergeRanges() {
+        assertEquals(Collections.singletonList(new ByteRange(0, 199)),
+                FileDownloadHelper.parseRanges("bytes=0-99,50-150,151-199", 1000));
+    }
+
+    @Test
+    public void testInvalidRanges() {
+        assertNull(FileDownloadHelper.parseRanges("items=0-9", 1000));
+        assertNull(FileDownloadHelper.parseRanges("bytes=9-0", 1000));
+        assertNull(FileDownloadHelper.parseRanges("bytes=a-b", 1000));
+        assertNull(FileDownloadHelper.parseRanges("bytes=5", 1000));
+
+        assertTrue(FileDownloadHelper.parseRanges("bytes=1000-", 1000).isEmpty());
+    }
+
+    @Test
+    public void testCopyRange() throws Exception {
+        byte[] data = new byte[1000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        byte[] expected = Arrays.copyOfRange(data, 100, 150);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FileDownloadHelper.copyRange(new ByteArrayInputStream(data), 0, out, 100, 50);
+        assertArrayEquals(expected, out.toByteArray());
+
+        File file = File.createTempFile("FileDownloadHelperTest", ".bin");
+        try {
+            Files.write(file.toPath(), data);
+            out = new ByteArrayOutputStream();
+            try (FileInputStream in = new FileInputStream(file)) {
+                FileDownloadHelper.copyRange(in, 0, out, 100, 50);
+            }
+            assertArrayEquals(expected, out.toByteArray());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testWholeContentIgnoresLength() throws Exception {
+        byte[] data = "0123456789".getBytes(StandardCharsets.US_ASCII);
+
+        for (Long length : Arrays.asList(5L, 20L, null)) {
+            Map<String, String> headers = new HashMap<>();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            FileDownloadHelper.writeContent(createRequest(null), createResponse(headers, out),
+                    new ByteArrayInputStream(data), length);
+            assertArrayEquals(data, out.toByteArray());
+            assertNull(headers.get("Content-Length"));
+        }
+    }
+
+    @Test
+    public void testRangeContent() throws Exception {
+        byte[] data = "0123456789".getBytes(StandardCharsets.US_ASCII);
+
+        Map<String, String> headers = new HashMap<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FileDownloadHelper.writeContent(createRequest("bytes=2-4"), createResponse(headers, out),
+                new ByteArrayInputStream(data), 10L);
+        assertEquals("234", new String(out.toByteArray(), StandardCharsets.US_ASCII));
+        assertEquals("3", headers.get("Content-Length"));
+        assertEquals("bytes 2-4/10", headers.get("Content-Range"));
+    }
+
+    private HttpServletRequest createRequest(String range) {
+        return (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                    if ("getHeader".equals(method.getName()) && "Range".equals(args[0])) {
+                        return range;
+                    }
+                    return null;
+                });
+    }
+
+    private HttpServletResponse createResponse(Map<String, String> headers, OutputStream out) {
+        ServletOutputStream servletOut = new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+            }
+        };
+        return (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{HttpServletResponse.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "setHeader":
+                            headers.put((String) args[0], (String) args[1]);
+                            return null;
+                        case "getHeader":
+                            return headers.get(args[0]);
+                        case "getOutputStream":
+                            return servletOut;
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.security.global;
+
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.cuba.security.entity.*;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class PermissionIndexTest {
+
+    private MetaClass userMetaClass = createMetaClass("sec$User");
+
+    @Test
+    public void testEntityPermissions() {
+        UserSession session = createSession(null);
+        session.addPermission(PermissionType.ENTITY_OP, "sec$User:delete", null, 0);
+        session.addPermission(PermissionType.ENTITY_ATTR, "sec$User:password", null, EntityAttrAccess.VIEW.getId());
+
+        assertTrue(session.isEntityOpPermitted(userMetaClass, EntityOp.READ));
+        assertFalse(session.isEntityOpPermitted(userMetaClass, EntityOp.DELETE));
+        assertTrue(session.isEntityAttrPermitted(userMetaClass, "password", EntityAttrAccess.VIEW));
+        assertFalse(session.isEntityAttrPermitted(userMetaClass, "password", EntityAttrAccess.MODIFY));
+        assertTrue(session.isEntityAttrPermitted(userMetaClass, "login", EntityAttrAccess.MODIFY));
+
+        session.removePermission(PermissionType.ENTITY_OP, "sec$User:delete");
+        assertTrue(session.isEntityOpPermitted(userMetaClass, EntityOp.DELETE));
+    }
+
+    @Test
+    public void testRoleTypes() {
+        UserSession session = createSession(RoleType.READONLY);
+        session.addPermission(PermissionType.ENTITY_OP, "sec$User:read", null, 1);
+
+        assertTrue(session.isEntityOpPermitted(userMetaClass, EntityOp.READ));
+        assertFalse(session.isEntityOpPermitted(userMetaClass, EntityOp.UPDATE));
+        assertTrue(session.isEntityAttrPermitted(userMetaClass, "login", EntityAttrAccess.MODIFY));
+
+        assertTrue(createSession(RoleType.SUPER).isEntityOpPermitted(userMetaClass, EntityOp.DELETE));
+    }
+
+    @Test
+    public void testSharedBetweenSessions() {
+        UserSession session1 = createSession(null);
+        session1.addPermission(PermissionType.SCREEN, "sec$User.browse", null, 0);
+        UserSession session2 = createSession(null);
+        session2.addPermission(PermissionType.SCREEN, "sec$User.browse", null, 0);
+
+        assertFalse(session1.isScreenPermitted("sec$User.browse"));
+        assertSame(session1.getPermissionIndex(), session2.getPermissionIndex());
+
+        // modification of one session does not affect another
+        session2.addPermission(PermissionType.SCREEN, "sec$User.browse", null, 1);
+        assertTrue(session2.isScreenPermitted("sec$User.browse"));
+        assertFalse(session1.isScreenPermitted("sec$User.browse"));
+        assertNotSame(session1.getPermissionIndex(), session2.getPermissionIndex());
+    }
+
+    @Test
+    public void testCopiedSession() {
+        UserSession session = createSession(null);
+        session.addPermission(PermissionType.SCREEN, "sec$User.browse", null, 0);
+        assertFalse(session.isScreenPermitted("sec$User.browse"));
+
+        UserSession copy = new UserSession(session);
+        copy.addPermission(PermissionType.SCREEN, "sec$User.browse", null, 1);
+        assertTrue(copy.isScreenPermitted("sec$User.browse"));
+        assertFalse(session.isScreenPermitted("sec$User.browse"));
+
+        session.removePermission(PermissionType.SCREEN, "sec$User.browse");
+        assertTrue(session.isScreenPermitted("sec$User.browse"));
+        assertEquals(Integer.valueOf(1), copy.getPermissionValue(PermissionType.SCREEN, "sec$User.browse"));
+    }
+
+    @Test
+    public void testSerializedPermissions() throws Exception {
+        UserSession session = createSession(null);
+        session.addPermission(PermissionType.SCREEN, "sec$User.browse", null, 0);
+        assertFalse(session.isScreenPermitted("sec$User.browse"));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(session);
+        }
+        UserSession deserialized;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            deserialized = (UserSession) in.readObject();
+        }
+
+        for (Map<String, Integer> permissions : deserialized.permissions) {
+            assertEquals(HashMap.class, permissions.getClass());
+        }
+        assertFalse(deserialized.isScreenPermitted("sec$User.browse"));
+        assertSame(session.getPermissionIndex(), deserialized.getPermissionIndex());
+    }
+
+    private UserSession createSession(RoleType roleType) {
+        Role role = new Role();
+        role.setName("role");
+        role.setType(roleType);
+        return new UserSession(UUID.randomUUID(), new User(), Collections.singletonList(role), Locale.ENGLISH, false);
+    }
+
+    private MetaClass createMetaClass(String name) {
+        return (MetaClass) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{MetaClass.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getName")) {
+                        return name;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -53,6 +53,8 @@ public class ContainerGroupTableItems<E extends Entity<K>, K>
     protected Map<K, GroupInfo> itemGroups;
 
     protected boolean isGrouping;
+    // true while an item set change is published after groups have been updated according to changes of items
+    protected boolean groupsUpdated;
 
     protected Object[] sortProperties;
     protected boolean[] sortAscending;
@@ -111,6 +113,9 @@ public class ContainerGroupTableItems<E extends Entity<K>, K>
         if (isGrouping) {
             return;
         }
+        if (groupsUpdated && hasGroups() && Arrays.equals(groupProperties, properties)) {
+            return;
+        }
         isGrouping = true;
         try {
             if (properties != null) {
@@ -186,6 +191,239 @@ public class ContainerGroupTableItems<E extends Entity<K>, K>
         return groupInfo;
     }
 
+    @Override
+    protected void containerCollectionChanged(CollectionContainer.CollectionChangeEvent<E> e) {
+        if (hasGroups() && !isGrouping && updateGroups(e)) {
+            publishGroupsUpdated(() -> super.containerCollectionChanged(e));
+        } else {
+            super.containerCollectionChanged(e);
+        }
+    }
+
+    @Override
+    protected void containerItemPropertyChanged(CollectionContainer.ItemPropertyChangeEvent<E> e) {
+        super.containerItemPropertyChanged(e);
+
+        if (hasGroups() && !isGrouping && isGroupingAffected(e.getProperty())) {
+            K itemId = e.getItem().getId();
+            GroupInfo prevGroup = itemGroups.get(itemId);
+            if (prevGroup == null) {
+                return;
+            }
+            int prevIndex = groupItems.get(prevGroup).indexOf(itemId);
+
+            removeFromGroups(itemId);
+            addToGroups(e.getItem());
+
+            GroupInfo group = itemGroups.get(itemId);
+            if (!group.equals(prevGroup) || groupItems.get(group).indexOf(itemId) != prevIndex) {
+                publishGroupsUpdated(() ->
+                        events.publish(ItemSetChangeEvent.class, new ItemSetChangeEvent<>(this)));
+            }
+        }
+    }
+
+    protected void publishGroupsUpdated(Runnable publisher) {
+        groupsUpdated = true;
+        try {
+            publisher.run();
+        } finally {
+            groupsUpdated = false;
+        }
+    }
+
+    /**
+     * Moves added, removed and replaced items between groups instead of grouping all items again.
+     *
+     * @return false if the change cannot be applied to the groups, so items must be grouped again
+     */
+    protected boolean updateGroups(CollectionContainer.CollectionChangeEvent<E> e) {
+        switch (e.getChangeType()) {
+            case ADD_ITEMS:
+                for (E item : e.getChanges()) {
+                    removeFromGroups(item.getId());
+                    addToGroups(item);
+                }
+                break;
+            case REMOVE_ITEMS:
+                for (E item : e.getChanges()) {
+                    removeFromGroups(item.getId());
+                }
+                break;
+            case SET_ITEM:
+                for (E item : e.getChanges()) {
+                    // the replaced item is unknown if the new item has another id
+                    if (!itemGroups.containsKey(item.getId())) {
+                        return false;
+                    }
+                    removeFromGroups(item.getId());
+                    addToGroups(item);
+                }
+                break;
+            default:
+                return false;
+        }
+        return itemGroups.size() == container.getItems().size();
+    }
+
+    protected boolean isGroupingAffected(String property) {
+        for (Object groupProperty : groupProperties) {
+            if (((MetaPropertyPath) groupProperty).getMetaProperties()[0].getName().equals(property)) {
+                return true;
+            }
+        }
+        MetaPropertyPath sortPropertyPath = getItemSortPropertyPath();
+        return sortPropertyPath != null && sortPropertyPath.getMetaProperties()[0].getName().equals(property);
+    }
+
+    protected void addToGroups(E item) {
+        List<GroupInfo<MetaPropertyPath>> groupPath = new ArrayList<>(groupProperties.length);
+        GroupInfo<MetaPropertyPath> parent = null;
+        LinkedMap<MetaPropertyPath, Object> groupValues = new LinkedMap<>();
+        for (Object groupProperty : groupProperties) {
+            MetaPropertyPath property = (MetaPropertyPath) groupProperty;
+            groupValues.put(property, getValueByProperty(item, property));
+
+            GroupInfo<MetaPropertyPath> groupInfo = new GroupInfo<>(groupValues);
+            if (!parents.containsKey(groupInfo)) {
+                parents.put(groupInfo, parent);
+                children.put(groupInfo, new ArrayList<>());
+                getSiblings(parent).add(groupInfo);
+            }
+
+            groupPath.add(groupInfo);
+            parent = groupInfo;
+        }
+
+        itemGroups.put(item.getId(), parent);
+        List<K> itemIds = groupItems.computeIfAbsent(parent, k -> new ArrayList<>());
+        itemIds.add(getItemInsertionIndex(itemIds, item.getId()), item.getId());
+
+        // the order of a group depends on the order of its children
+        for (int i = groupPath.size() - 1; i >= 0; i--) {
+            placeGroup(groupPath.get(i));
+        }
+    }
+
+    protected void removeFromGroups(K itemId) {
+        GroupInfo groupInfo = itemGroups.remove(itemId);
+        if (groupInfo == null) {
+            return;
+        }
+        List<K> itemIds = groupItems.get(groupInfo);
+        if (itemIds != null) {
+            itemIds.remove(itemId);
+        }
+
+        // remove groups left without items
+        while (groupInfo != null
+                && CollectionUtils.isEmpty(groupItems.get(groupInfo))
+                && CollectionUtils.isEmpty(children.get(groupInfo))) {
+            GroupInfo parent = parents.remove(groupInfo);
+            children.remove(groupInfo);
+            groupItems.remove(groupInfo);
+            getSiblings(parent).remove(groupInfo);
+            groupInfo = parent;
+        }
+
+        for (; groupInfo != null; groupInfo = parents.get(groupInfo)) {
+            placeGroup(groupInfo);
+        }
+    }
+
+    protected List<GroupInfo> getSiblings(@Nullable GroupInfo parent) {
+        return parent != null ? children.get(parent) : roots;
+    }
+
+    /**
+     * Moves the group among its siblings to the position {@link #doGroup()} and {@link #doGroupSort(Sort)} would
+     * place it at: ordered by the group value if the items are sorted by the group property, otherwise in the order
+     * of the first items of the groups in the container. If items are sorted inside groups, first items of groups
+     * are not known, so new groups are placed last.
+     */
+    protected void placeGroup(GroupInfo<MetaPropertyPath> groupInfo) {
+        List<GroupInfo> siblings = getSiblings(parents.get(groupInfo));
+        Comparator<GroupInfo> comparator;
+        if (isSortedByGroupProperty(groupInfo.getProperty())) {
+            comparator = new GroupInfoComparator(sortAscending[0]);
+        } else if (getItemSortPropertyPath() == null) {
+            int firstItemIndex = getFirstItemIndex(groupInfo);
+            comparator = Comparator.comparingInt(group ->
+                    group.equals(groupInfo) ? firstItemIndex : getFirstItemIndex(group));
+        } else {
+            return;
+        }
+
+        siblings.remove(groupInfo);
+        siblings.add(upperBound(siblings, groupInfo, comparator), groupInfo);
+    }
+
+    protected int getFirstItemIndex(GroupInfo groupInfo) {
+        List<K> itemIds = groupItems.get(groupInfo);
+        if (itemIds != null) {
+            return itemIds.isEmpty() ? Integer.MAX_VALUE : container.getItemIndex(itemIds.get(0));
+        }
+
+        List<GroupInfo> groupChildren = children.get(groupInfo);
+        if (CollectionUtils.isEmpty(groupChildren)) {
+            return Integer.MAX_VALUE;
+        }
+        if (!isSortedByGroupProperty(groupChildren.get(0).getProperty())) {
+            return getFirstItemIndex(groupChildren.get(0));
+        }
+        int firstItemIndex = Integer.MAX_VALUE;
+        for (GroupInfo child : groupChildren) {
+            firstItemIndex = Math.min(firstItemIndex, getFirstItemIndex(child));
+        }
+        return firstItemIndex;
+    }
+
+    protected int getItemInsertionIndex(List<K> itemIds, K itemId) {
+        MetaPropertyPath sortPropertyPath = getItemSortPropertyPath();
+        Comparator<K> comparator = sortPropertyPath != null ?
+                new EntityByIdComparator<>(sortPropertyPath, container, sortAscending[0]) :
+                Comparator.comparingInt(id -> container.getItemIndex(id));
+        return upperBound(itemIds, itemId, comparator);
+    }
+
+    protected boolean isSortedByGroupProperty(Object groupProperty) {
+        MetaPropertyPath sortPropertyPath = getSortPropertyPath();
+        return sortPropertyPath != null && sortPropertyPath.equals(groupProperty);
+    }
+
+    /**
+     * @return property by which items are sorted inside groups or null
+     */
+    @Nullable
+    protected MetaPropertyPath getItemSortPropertyPath() {
+        MetaPropertyPath sortPropertyPath = getSortPropertyPath();
+        return sortPropertyPath != null && !ArrayUtils.contains(groupProperties, sortPropertyPath) ?
+                sortPropertyPath : null;
+    }
+
+    @Nullable
+    protected MetaPropertyPath getSortPropertyPath() {
+        if (sortProperties == null || sortProperties.length == 0) {
+            return null;
+        }
+        Sort.Order order = createSort(sortProperties, sortAscending).getOrders().get(0);
+        return container.getEntityMetaClass().getPropertyPath(order.getProperty());
+    }
+
+    protected static <T> int upperBound(List<T> list, T element, Comparator<? super T> comparator) {
+        int low = 0;
+        int high = list.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparator.compare(list.get(mid), element) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
     protected Object getValueByProperty(E item, MetaPropertyPath property) {
         Preconditions.checkNotNullArgument(item);
 
@@ -29,6 +29,7 @@ import com.haulmont.cuba.gui.components.data.AggregatableTableItems;
 import com.haulmont.cuba.gui.components.data.meta.ContainerDataUnit;
 import com.haulmont.cuba.gui.components.data.meta.EntityTableItems;
 import com.haulmont.cuba.gui.data.impl.AggregatableDelegate;
+import com.haulmont.cuba.gui.data.impl.IncrementalAggregatableDelegate;
 import com.haulmont.cuba.gui.model.CollectionContainer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -62,7 +63,17 @@ public class ContainerTableItems<E extends Entity> implements EntityTableItems<E
     }
 
     public AggregatableDelegate createAggregatableDelegate() {
-        return new AggregatableDelegate() {
+        return new IncrementalAggregatableDelegate() {
+            @Override
+            public Collection getItemIds() {
+                return ContainerTableItems.this.getItemIds();
+            }
+
+            @Override
+            public int getItemCount() {
+                return container.getItems().size();
+            }
+
             @Override
             public Object getItem(Object itemId) {
                 return ContainerTableItems.this.getItem(itemId);
@@ -83,16 +94,47 @@ public class ContainerTableItems<E extends Entity> implements EntityTableItems<E
         events.publish(SelectedItemChangeEvent.class, new SelectedItemChangeEvent<>(this, event.getItem()));
     }
 
-    protected void containerCollectionChanged(@SuppressWarnings("unused") CollectionContainer.CollectionChangeEvent<E> e) {
+    protected void containerCollectionChanged(CollectionContainer.CollectionChangeEvent<E> e) {
+        updateAggregation(e);
+
         events.publish(ItemSetChangeEvent.class, new ItemSetChangeEvent<>(this));
     }
 
     @SuppressWarnings("unchecked")
     protected void containerItemPropertyChanged(CollectionContainer.ItemPropertyChangeEvent<E> e) {
+        if (aggregatableDelegate instanceof IncrementalAggregatableDelegate) {
+            ((IncrementalAggregatableDelegate) aggregatableDelegate).itemChanged(e.getItem().getId());
+        }
+
         events.publish(ValueChangeEvent.class, new ValueChangeEvent(this,
                 e.getItem(), e.getProperty(), e.getPrevValue(), e.getValue()));
     }
 
+    @SuppressWarnings("unchecked")
+    protected void updateAggregation(CollectionContainer.CollectionChangeEvent<E> e) {
+        if (!(aggregatableDelegate instanceof IncrementalAggregatableDelegate)) {
+            return;
+        }
+
+        IncrementalAggregatableDelegate delegate = (IncrementalAggregatableDelegate) aggregatableDelegate;
+        List<Object> itemIds = e.getChanges().stream()
+                .map(Entity::getId)
+                .collect(Collectors.toList());
+        switch (e.getChangeType()) {
+            case ADD_ITEMS:
+                delegate.itemsAdded(itemIds);
+                break;
+            case REMOVE_ITEMS:
+                delegate.itemsRemoved(itemIds);
+                break;
+            case SET_ITEM:
+                delegate.itemsReplaced(itemIds);
+                break;
+            default:
+                delegate.reset();
+        }
+    }
+
     @Override
     public Collection<?> getItemIds() {
         return container.getItems().stream().map(Entity::getId).collect(Collectors.toList());
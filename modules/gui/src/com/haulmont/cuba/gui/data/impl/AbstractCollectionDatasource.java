@@ -37,10 +37,13 @@ import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.util.ReflectionUtils;
 
 import javax.annotation.Nullable;
+import java.lang.reflect.Method;
 import java.util.*;
 import java.util.function.Consumer;
+import java.util.function.IntSupplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -491,6 +494,23 @@ public abstract class AbstractCollectionDatasource<T extends Entity<K>, K>
         }
     }
 
+    protected EntityListSorter createEntityListSorter() {
+        return EntityListSorter.create(sortInfos);
+    }
+
+    /**
+     * @return true if a subclass overrides {@link #createEntityComparator()}, so it is used for sorting in memory
+     * instead of {@link #createEntityListSorter()}
+     */
+    protected boolean isEntityComparatorOverridden() {
+        Method method = ReflectionUtils.findMethod(getClass(), "createEntityComparator");
+        return method != null && method.getDeclaringClass() != AbstractCollectionDatasource.class;
+    }
+
+    /**
+     * Creates a comparator for sorting in memory. It is used only if overridden in a subclass, otherwise the data is
+     * sorted by {@link #createEntityListSorter()}.
+     */
     protected Comparator<T> createEntityComparator() {
         // In case of generated column the sortInfos can actually contain string as a column identifier.
         if (sortInfos[0].getPropertyPath() != null) {
@@ -571,26 +591,69 @@ public abstract class AbstractCollectionDatasource<T extends Entity<K>, K>
      * @return number of rows. In case of error returns 0 and sets {@link #dataLoadError} field to the exception object
      */
     public int getCount() {
-        LoadContext<Entity> context = new LoadContext<>(metaClass);
-        LoadContext.Query q = (LoadContext.Query) createDataQuery(context, savedParameters == null ? Collections.<String, Object>emptyMap() : savedParameters);
-        context.setSoftDeletion(isSoftDeletion());
-        if (q == null)
-            return 0;
+        return getCount(0);
+    }
 
-        prepareLoadContext(context);
+    /**
+     * Return number of rows for the current query set in the datasource, counting may stop when the limit is
+     * exceeded.
+     *
+     * @param countLimit number of rows after which counting may stop, 0 to count all rows
+     * @return exact number of rows if it does not exceed the limit, otherwise any number greater than the limit.
+     * In case of error returns 0 and sets {@link #dataLoadError} field to the exception object
+     */
+    public int getCount(int countLimit) {
+        IntSupplier countSupplier = createCountSupplier(countLimit);
 
         dataLoadError = null;
         try {
-            long res = dataSupplier.getCount(context);
-            if (res > Integer.MAX_VALUE)
-                throw new RuntimeException("Number of records is too big: " + res);
-            return (int) res;
+            return countSupplier.getAsInt();
         } catch (Throwable e) {
             dataLoadError = e;
         }
         return 0;
     }
 
+    /**
+     * Prepares counting rows of the last loaded query in the current thread. The returned supplier does not change
+     * the state of the datasource, so it can be invoked in another thread. It throws the exception if counting fails.
+     *
+     * @param countLimit number of rows after which counting may stop, 0 to count all rows
+     */
+    public IntSupplier createCountSupplier(int countLimit) {
+        LoadContext<Entity> context = createCountLoadContext(countLimit);
+        if (context == null)
+            return () -> 0;
+
+        DataSupplier supplier = dataSupplier;
+        return () -> {
+            long res = supplier.getCount(context);
+            if (res > Integer.MAX_VALUE)
+                throw new RuntimeException("Number of records is too big: " + res);
+            return (int) res;
+        };
+    }
+
+    /**
+     * Creates the context for counting rows of the last loaded query. The context can be passed to the
+     * {@link #getDataSupplier() data supplier} in another thread.
+     *
+     * @param countLimit number of rows after which counting may stop, 0 to count all rows
+     * @return load context or null if the query is not set
+     */
+    @Nullable
+    public LoadContext<Entity> createCountLoadContext(int countLimit) {
+        LoadContext<Entity> context = new LoadContext<>(metaClass);
+        LoadContext.Query q = (LoadContext.Query) createDataQuery(context, savedParameters == null ? Collections.<String, Object>emptyMap() : savedParameters);
+        context.setSoftDeletion(isSoftDeletion());
+        if (q == null)
+            return null;
+
+        prepareLoadContext(context);
+        context.setCountLimit(countLimit);
+        return context;
+    }
+
     protected String getLoggingTag(String prefix) {
         String windowId = "";
         if (dsContext != null) {
@@ -620,9 +683,38 @@ public abstract class AbstractCollectionDatasource<T extends Entity<K>, K>
         }
     }
 
+    /**
+     * Checks that the sort can be passed to the middleware. The ORDER BY clause is built with a single direction
+     * for all properties.
+     */
+    protected void checkSortInfos(Sortable.SortInfo[] sortInfos) {
+        for (Sortable.SortInfo sortInfo : sortInfos) {
+            if (!Objects.equals(sortInfos[0].getOrder(), sortInfo.getOrder())) {
+                throw new UnsupportedOperationException("Sorting by multiple properties in different directions is not supported");
+            }
+        }
+    }
+
     protected void setSortDirection(LoadContext.Query q) {
         boolean asc = Sortable.Order.ASC.equals(sortInfos[0].getOrder());
-        MetaPropertyPath propertyPath = sortInfos[0].getPropertyPath();
+        List<String> allSortProperties = new ArrayList<>();
+        for (Sortable.SortInfo<MetaPropertyPath> sortInfo : sortInfos) {
+            String[] sortProperties = getSortProperties(sortInfo.getPropertyPath());
+            if (sortProperties != null) {
+                Collections.addAll(allSortProperties, sortProperties);
+            }
+        }
+
+        if (!allSortProperties.isEmpty()) {
+            QueryTransformer transformer = QueryTransformerFactory.createTransformer(q.getQueryString());
+            transformer.replaceOrderBy(!asc, allSortProperties.toArray(new String[0]));
+            String jpqlQuery = transformer.getResult();
+            q.setQueryString(jpqlQuery);
+        }
+    }
+
+    @Nullable
+    protected String[] getSortProperties(MetaPropertyPath propertyPath) {
         String[] sortProperties = null;
 
         if (metadata.getTools().isPersistent(propertyPath)) {
@@ -645,13 +737,7 @@ public abstract class AbstractCollectionDatasource<T extends Entity<K>, K>
                     sortProperties = sortPropertiesList.toArray(new String[sortPropertiesList.size()]);
             }
         }
-
-        if (sortProperties != null && sortProperties.length != 0) {
-            QueryTransformer transformer = QueryTransformerFactory.createTransformer(q.getQueryString());
-            transformer.replaceOrderBy(!asc, sortProperties);
-            String jpqlQuery = transformer.getResult();
-            q.setQueryString(jpqlQuery);
-        }
+        return sortProperties;
     }
 
     @Nullable
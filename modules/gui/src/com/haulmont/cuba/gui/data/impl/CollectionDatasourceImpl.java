@@ -248,8 +248,12 @@ public class CollectionDatasourceImpl<T extends Entity<K>, K>
 
     @Override
     public void sort(SortInfo[] sortInfos) {
-        if (sortInfos.length != 1) {
-            throw new UnsupportedOperationException("Supporting sort by one field only");
+        if (sortInfos.length == 0) {
+            throw new IllegalArgumentException("Sort infos are empty");
+        }
+        // reject the sort even if the current data could be sorted in memory
+        if (sortOnDb) {
+            checkSortInfos(sortInfos);
         }
 
         //noinspection unchecked
@@ -275,9 +279,15 @@ public class CollectionDatasourceImpl<T extends Entity<K>, K>
     }
 
     protected void doSort() {
-        @SuppressWarnings("unchecked")
-        List<T> list = new ArrayList<>(data.values());
-        list.sort(createEntityComparator());
+        List<T> list;
+        if (isEntityComparatorOverridden()) {
+            //noinspection unchecked
+            list = new ArrayList<>(data.values());
+            list.sort(createEntityComparator());
+        } else {
+            //noinspection unchecked
+            list = createEntityListSorter().sort((Collection<T>) data.values());
+        }
         data.clear();
         for (T t : list) {
             data.put(t.getId(), t);
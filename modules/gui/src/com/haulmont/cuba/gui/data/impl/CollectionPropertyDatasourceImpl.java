@@ -32,7 +32,9 @@ import com.haulmont.cuba.security.entity.PermissionType;
 import org.apache.commons.collections4.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.util.ReflectionUtils;
 
+import java.lang.reflect.Method;
 import java.util.*;
 
 import static com.haulmont.bali.util.Preconditions.checkNotNullArgument;
@@ -852,8 +854,8 @@ public class CollectionPropertyDatasourceImpl<T extends Entity<K>, K>
     //Implementation of CollectionDatasource.Sortable<T, K> interface
     @Override
     public void sort(SortInfo[] sortInfos) {
-        if (sortInfos.length != 1) {
-            throw new UnsupportedOperationException("Supporting sort by one field only");
+        if (sortInfos.length == 0) {
+            throw new IllegalArgumentException("Sort infos are empty");
         }
 
         //noinspection unchecked
@@ -873,12 +875,34 @@ public class CollectionPropertyDatasourceImpl<T extends Entity<K>, K>
         if (collection == null)
             return;
 
-        List<T> list = new LinkedList<>(collection);
-        list.sort(createEntityComparator());
+        List<T> list;
+        if (isEntityComparatorOverridden()) {
+            list = new ArrayList<>(collection);
+            list.sort(createEntityComparator());
+        } else {
+            list = createEntityListSorter().sort(collection);
+        }
         collection.clear();
         collection.addAll(list);
     }
 
+    protected EntityListSorter createEntityListSorter() {
+        return EntityListSorter.create(sortInfos);
+    }
+
+    /**
+     * @return true if a subclass overrides {@link #createEntityComparator()}, so it is used for sorting instead of
+     * {@link #createEntityListSorter()}
+     */
+    protected boolean isEntityComparatorOverridden() {
+        Method method = ReflectionUtils.findMethod(getClass(), "createEntityComparator");
+        return method != null && method.getDeclaringClass() != CollectionPropertyDatasourceImpl.class;
+    }
+
+    /**
+     * Creates a comparator for sorting. It is used only if overridden in a subclass, otherwise the collection is
+     * sorted by {@link #createEntityListSorter()}.
+     */
     protected EntityComparator<T> createEntityComparator() {
         MetaPropertyPath propertyPath = sortInfos[0].getPropertyPath();
         boolean asc = Order.ASC.equals(sortInfos[0].getOrder());
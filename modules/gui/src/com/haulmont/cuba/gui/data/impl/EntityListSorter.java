@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.gui.data.impl;
+
+import com.haulmont.chile.core.model.Instance;
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.MetaProperty;
+import com.haulmont.chile.core.model.MetaPropertyPath;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.IdProxy;
+import com.haulmont.cuba.core.global.Sort;
+import com.haulmont.cuba.gui.data.CollectionDatasource;
+
+import java.util.*;
+
+/**
+ * Sorts lists of entities in memory by one or several properties.
+ * <p>
+ * Values of the properties are extracted once for each entity before sorting, numeric values are stored in
+ * primitive arrays. Values are compared in the same way as {@link EntityComparator} does. Large lists are sorted
+ * in parallel. The sort is stable.
+ */
+public class EntityListSorter {
+
+    /**
+     * Minimum size of a list to sort it in parallel.
+     */
+    public static final int PARALLEL_SORT_THRESHOLD = 10000;
+
+    protected final MetaPropertyPath[] propertyPaths;
+    protected final boolean[] ascending;
+
+    protected KeyComparator keyComparator;
+
+    public EntityListSorter(MetaPropertyPath[] propertyPaths, boolean[] ascending) {
+        if (propertyPaths.length != ascending.length) {
+            throw new IllegalArgumentException("Number of property paths and directions must be the same");
+        }
+        this.propertyPaths = propertyPaths;
+        this.ascending = ascending;
+    }
+
+    /**
+     * Creates a sorter for the given sort of entities of the given class.
+     *
+     * @throws IllegalArgumentException if a property of the sort is invalid
+     */
+    public static EntityListSorter create(MetaClass metaClass, Sort sort) {
+        List<Sort.Order> orders = sort.getOrders();
+        MetaPropertyPath[] propertyPaths = new MetaPropertyPath[orders.size()];
+        boolean[] ascending = new boolean[orders.size()];
+        for (int i = 0; i < orders.size(); i++) {
+            Sort.Order order = orders.get(i);
+            propertyPaths[i] = metaClass.getPropertyPath(order.getProperty());
+            if (propertyPaths[i] == null) {
+                throw new IllegalArgumentException("Property " + order.getProperty() + " is invalid");
+            }
+            ascending[i] = order.getDirection() == Sort.Direction.ASC;
+        }
+        return new EntityListSorter(propertyPaths, ascending);
+    }
+
+    /**
+     * Creates a sorter for the sort infos of a datasource. Sort infos not containing a property path,
+     * e.g. of generated columns, are ignored.
+     */
+    public static EntityListSorter create(CollectionDatasource.Sortable.SortInfo[] sortInfos) {
+        List<MetaPropertyPath> propertyPaths = new ArrayList<>(sortInfos.length);
+        List<Boolean> ascending = new ArrayList<>(sortInfos.length);
+        for (CollectionDatasource.Sortable.SortInfo sortInfo : sortInfos) {
+            Object propertyPath = sortInfo.getPropertyPath();
+            if (propertyPath instanceof MetaPropertyPath) {
+                propertyPaths.add((MetaPropertyPath) propertyPath);
+                ascending.add(CollectionDatasource.Sortable.Order.ASC.equals(sortInfo.getOrder()));
+            }
+        }
+        boolean[] ascendingArray = new boolean[ascending.size()];
+        for (int i = 0; i < ascendingArray.length; i++) {
+            ascendingArray[i] = ascending.get(i);
+        }
+        return new EntityListSorter(propertyPaths.toArray(new MetaPropertyPath[0]), ascendingArray);
+    }
+
+    /**
+     * @return new list containing the given entities in sorted order
+     */
+    public <E extends Entity> List<E> sort(Collection<E> entities) {
+        List<E> list = new ArrayList<>(entities);
+        if (list.size() < 2 || propertyPaths.length == 0) {
+            return list;
+        }
+
+        SortColumn[] columns = new SortColumn[propertyPaths.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = createColumn(list, propertyPaths[i]);
+        }
+
+        Integer[] indexes = new Integer[list.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = i;
+        }
+
+        Comparator<Integer> comparator = (i1, i2) -> {
+            for (int i = 0; i < columns.length; i++) {
+                int c = columns[i].compare(i1, i2);
+                if (c != 0) {
+                    return ascending[i] ? c : -c;
+                }
+            }
+            return 0;
+        };
+        if (indexes.length >= PARALLEL_SORT_THRESHOLD) {
+            Arrays.parallelSort(indexes, comparator);
+        } else {
+            Arrays.sort(indexes, comparator);
+        }
+
+        List<E> sorted = new ArrayList<>(indexes.length);
+        for (Integer index : indexes) {
+            sorted.add(list.get(index));
+        }
+        return sorted;
+    }
+
+    protected SortColumn createColumn(List<? extends Entity> entities, MetaPropertyPath propertyPath) {
+        String propertyName = propertyPath.getMetaProperties().length == 1 ? propertyPath.getMetaProperty().getName() : null;
+
+        Object[] values = new Object[entities.size()];
+        Class<?> valueClass = null;
+        boolean sameClass = true;
+        for (int i = 0; i < values.length; i++) {
+            Entity entity = entities.get(i);
+            Object value = propertyName != null ? entity.getValue(propertyName) : entity.getValueEx(propertyPath);
+            value = getSortKey(value);
+            if (value != null && sameClass) {
+                if (valueClass == null) {
+                    valueClass = value.getClass();
+                } else if (valueClass != value.getClass()) {
+                    sameClass = false;
+                }
+            }
+            values[i] = value;
+        }
+
+        if (sameClass && (valueClass == Integer.class || valueClass == Long.class
+                || valueClass == Short.class || valueClass == Byte.class)) {
+            return new LongColumn(values);
+        }
+        if (sameClass && (valueClass == Double.class || valueClass == Float.class)) {
+            return new DoubleColumn(values);
+        }
+        return new ObjectColumn(values);
+    }
+
+    protected Object getSortKey(Object value) {
+        if (value instanceof IdProxy) {
+            return ((IdProxy) value).get();
+        }
+        if (value instanceof Instance && !(value instanceof Comparable)) {
+            return createInstanceKey((Instance) value);
+        }
+        if (value != null && !(value instanceof Comparable)) {
+            return value.toString();
+        }
+        return value;
+    }
+
+    protected InstanceKey createInstanceKey(Instance instance) {
+        KeyComparator comparator = getKeyComparator();
+        MetaClass metaClass = comparator.metadata.getClassNN(instance.getClass());
+        Collection<MetaProperty> properties = comparator.metadata.getTools().getNamePatternProperties(metaClass, true);
+        if (properties.isEmpty()) {
+            return new InstanceKey(new Object[]{instance.getInstanceName()});
+        }
+        Object[] values = new Object[properties.size()];
+        int i = 0;
+        for (MetaProperty property : properties) {
+            values[i++] = instance.getValue(property.getName());
+        }
+        return new InstanceKey(values);
+    }
+
+    protected KeyComparator getKeyComparator() {
+        if (keyComparator == null) {
+            keyComparator = new KeyComparator();
+        }
+        return keyComparator;
+    }
+
+    /**
+     * Sort keys of a property extracted from the entities.
+     */
+    protected interface SortColumn {
+
+        int compare(int index1, int index2);
+    }
+
+    /**
+     * Values of name pattern properties of an entity that is a value of a sort property.
+     */
+    protected static class InstanceKey {
+
+        protected final Object[] values;
+
+        protected InstanceKey(Object[] values) {
+            this.values = values;
+        }
+    }
+
+    protected static class KeyComparator extends AbstractComparator<Object> {
+
+        protected KeyComparator() {
+            super(true);
+        }
+
+        @Override
+        public int compare(Object o1, Object o2) {
+            if (o1 instanceof InstanceKey && o2 instanceof InstanceKey) {
+                Object[] values1 = ((InstanceKey) o1).values;
+                Object[] values2 = ((InstanceKey) o2).values;
+                for (int i = 0; i < values1.length && i < values2.length; i++) {
+                    int c = compareAsc(values1[i], values2[i]);
+                    if (c != 0) {
+                        return c;
+                    }
+                }
+                return 0;
+            }
+            return compareAsc(o1, o2);
+        }
+
+        protected int compareNulls(boolean null1, boolean null2) {
+            if (null1) {
+                return null2 ? 0 : nullsLast;
+            }
+            return -nullsLast;
+        }
+    }
+
+    protected class ObjectColumn implements SortColumn {
+
+        protected final Object[] values;
+        protected final KeyComparator comparator = getKeyComparator();
+
+        protected ObjectColumn(Object[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public int compare(int index1, int index2) {
+            return comparator.compare(values[index1], values[index2]);
+        }
+    }
+
+    protected class LongColumn implements SortColumn {
+
+        protected final long[] values;
+        protected final boolean[] nulls;
+        protected final KeyComparator comparator = getKeyComparator();
+
+        protected LongColumn(Object[] objects) {
+            values = new long[objects.length];
+            nulls = new boolean[objects.length];
+            for (int i = 0; i < objects.length; i++) {
+                if (objects[i] == null) {
+                    nulls[i] = true;
+                } else {
+                    values[i] = ((Number) objects[i]).longValue();
+                }
+            }
+        }
+
+        @Override
+        public int compare(int index1, int index2) {
+            if (nulls[index1] || nulls[index2]) {
+                return comparator.compareNulls(nulls[index1], nulls[index2]);
+            }
+            return Long.compare(values[index1], values[index2]);
+        }
+    }
+
+    protected class DoubleColumn implements SortColumn {
+
+        protected final double[] values;
+        protected final boolean[] nulls;
+        protected final KeyComparator comparator = getKeyComparator();
+
+        protected DoubleColumn(Object[] objects) {
+            values = new double[objects.length];
+            nulls = new boolean[objects.length];
+            for (int i = 0; i < objects.length; i++) {
+                if (objects[i] == null) {
+                    nulls[i] = true;
+                } else {
+                    values[i] = ((Number) objects[i]).doubleValue();
+                }
+            }
+        }
+
+        @Override
+        public int compare(int index1, int index2) {
+            if (nulls[index1] || nulls[index2]) {
+                return comparator.compareNulls(nulls[index1], nulls[index2]);
+            }
+            return Double.compare(values[index1], values[index2]);
+        }
+    }
+}
@@ -41,6 +41,15 @@ public class GroupDatasourceImpl<T extends Entity<K>, K>
         groupDelegate.groupBy(properties, sortInfos);
     }
 
+    @Override
+    protected void fireCollectionChanged(Operation operation, List<T> items) {
+        if (!listenersSuspended && groupDelegate.updateGroups(operation, items, sortInfos)) {
+            groupDelegate.publishGroupsUpdated(() -> super.fireCollectionChanged(operation, items));
+        } else {
+            super.fireCollectionChanged(operation, items);
+        }
+    }
+
     @Override
     protected void doSort() {
         if (hasGroups()) {
@@ -46,6 +46,10 @@ public abstract class GroupDelegate<T extends Entity<K>, K> {
     protected Map<K, GroupInfo> itemGroups;
 
     protected boolean isGrouping;
+    // true while a collection change is published after groups have been updated according to changes of items
+    protected boolean groupsUpdated;
+    // indexes of items in the datasource while groups are updated
+    protected Map<K, Integer> itemIndexes;
 
     protected CollectionDatasource<T, K> datasource;
 
@@ -57,6 +61,9 @@ public abstract class GroupDelegate<T extends Entity<K>, K> {
         if (isGrouping) {
             return;
         }
+        if (groupsUpdated && hasGroups() && Arrays.equals(groupProperties, properties)) {
+            return;
+        }
         isGrouping = true;
         try {
             if (properties != null) {
@@ -147,6 +154,225 @@ public abstract class GroupDelegate<T extends Entity<K>, K> {
         return groupInfo;
     }
 
+    /**
+     * Moves added, removed and updated items between groups instead of grouping all items again. Groups and items
+     * are placed where {@link #doGroup()} and {@link #doGroupSort(CollectionDatasource.Sortable.SortInfo[])} would
+     * place them.
+     *
+     * @return false if the change cannot be applied to the groups, so items must be grouped again
+     */
+    public boolean updateGroups(CollectionDatasource.Operation operation, List<T> items,
+                                CollectionDatasource.Sortable.SortInfo<MetaPropertyPath>[] sortInfos) {
+        if (!hasGroups() || isGrouping) {
+            return false;
+        }
+
+        try {
+            switch (operation) {
+                case ADD:
+                    for (T item : items) {
+                        removeFromGroups(item.getId(), sortInfos);
+                        addToGroups(item, sortInfos);
+                    }
+                    break;
+                case REMOVE:
+                    for (T item : items) {
+                        removeFromGroups(item.getId(), sortInfos);
+                    }
+                    break;
+                case UPDATE:
+                    for (T item : items) {
+                        if (!itemGroups.containsKey(item.getId())) {
+                            return false;
+                        }
+                        removeFromGroups(item.getId(), sortInfos);
+                        addToGroups(item, sortInfos);
+                    }
+                    break;
+                default:
+                    return false;
+            }
+        } finally {
+            itemIndexes = null;
+        }
+        return itemGroups.size() == datasource.size();
+    }
+
+    /**
+     * Runs the publisher of a collection change, preventing grouping of items which have been already moved
+     * between groups by {@link #updateGroups(CollectionDatasource.Operation, List, CollectionDatasource.Sortable.SortInfo[])}.
+     */
+    public void publishGroupsUpdated(Runnable publisher) {
+        groupsUpdated = true;
+        try {
+            publisher.run();
+        } finally {
+            groupsUpdated = false;
+        }
+    }
+
+    protected void addToGroups(T item, CollectionDatasource.Sortable.SortInfo<MetaPropertyPath>[] sortInfos) {
+        List<GroupInfo<MetaPropertyPath>> groupPath = new ArrayList<>(groupProperties.length);
+        GroupInfo<MetaPropertyPath> parent = null;
+        LinkedMap<MetaPropertyPath, Object> groupValues = new LinkedMap<>();
+        for (Object groupProperty : groupProperties) {
+            MetaPropertyPath property = (MetaPropertyPath) groupProperty;
+            groupValues.put(property, getValueByProperty(item, property));
+
+            GroupInfo<MetaPropertyPath> groupInfo = new GroupInfo<>(groupValues);
+            if (!parents.containsKey(groupInfo)) {
+                parents.put(groupInfo, parent);
+                children.put(groupInfo, new ArrayList<>());
+                getSiblings(parent).add(groupInfo);
+            }
+
+            groupPath.add(groupInfo);
+            parent = groupInfo;
+        }
+
+        itemGroups.put(item.getId(), parent);
+        List<K> itemIds = groupItems.computeIfAbsent(parent, k -> new ArrayList<>());
+        itemIds.add(getItemInsertionIndex(itemIds, item.getId(), sortInfos), item.getId());
+
+        // the order of a group depends on the order of its children
+        for (int i = groupPath.size() - 1; i >= 0; i--) {
+            placeGroup(groupPath.get(i), sortInfos);
+        }
+    }
+
+    protected void removeFromGroups(K itemId, CollectionDatasource.Sortable.SortInfo<MetaPropertyPath>[] sortInfos) {
+        GroupInfo groupInfo = itemGroups.remove(itemId);
+        if (groupInfo == null) {
+            return;
+        }
+        List<K> itemIds = groupItems.get(groupInfo);
+        if (itemIds != null) {
+            itemIds.remove(itemId);
+        }
+
+        // remove groups left without items
+        while (groupInfo != null
+                && CollectionUtils.isEmpty(groupItems.get(groupInfo))
+                && CollectionUtils.isEmpty(children.get(groupInfo))) {
+            GroupInfo parent = parents.remove(groupInfo);
+            children.remove(groupInfo);
+            groupItems.remove(groupInfo);
+            getSiblings(parent).remove(groupInfo);
+            groupInfo = parent;
+        }
+
+        for (; groupInfo != null; groupInfo = parents.get(groupInfo)) {
+            placeGroup(groupInfo, sortInfos);
+        }
+    }
+
+    protected List<GroupInfo> getSiblings(GroupInfo parent) {
+        return parent != null ? children.get(parent) : roots;
+    }
+
+    /**
+     * Moves the group among its siblings to the position {@link #doGroup()} and
+     * {@link #doGroupSort(CollectionDatasource.Sortable.SortInfo[])} would place it at: ordered by the group value if
+     * the items are sorted by the group property, otherwise in the order of the first items of the groups in the
+     * datasource. If items are sorted inside groups, first items of groups are not known, so new groups are placed
+     * last.
+     */
+    @SuppressWarnings("unchecked")
+    protected void placeGroup(GroupInfo<MetaPropertyPath> groupInfo,
+                              CollectionDatasource.Sortable.SortInfo<MetaPropertyPath>[] sortInfos) {
+        List<GroupInfo> siblings = getSiblings(parents.get(groupInfo));
+        Comparator<GroupInfo> comparator;
+        if (isSortedByGroupProperty(groupInfo.getProperty(), sortInfos)) {
+            comparator = new GroupInfoComparator(isSortAscending(sortInfos));
+        } else if (getItemSortPropertyPath(sortInfos) == null) {
+            int firstItemIndex = getFirstItemIndex(groupInfo, sortInfos);
+            comparator = Comparator.comparingInt(group ->
+                    group.equals(groupInfo) ? firstItemIndex : getFirstItemIndex(group, sortInfos));
+        } else {
+            return;
+        }
+
+        siblings.remove(groupInfo);
+        siblings.add(upperBound(siblings, groupInfo, comparator), groupInfo);
+    }
+
+    protected int getFirstItemIndex(GroupInfo groupInfo,
+                                    CollectionDatasource.Sortable.SortInfo<MetaPropertyPath>[] sortInfos) {
+        List<K> itemIds = groupItems.get(groupInfo);
+        if (itemIds != null) {
+            return itemIds.isEmpty() ? Integer.MAX_VALUE : getItemIndex(itemIds.get(0));
+        }
+
+        List<GroupInfo> groupChildren = children.get(groupInfo);
+        if (CollectionUtils.isEmpty(groupChildren)) {
+            return Integer.MAX_VALUE;
+        }
+        if (!isSortedByGroupProperty(groupChildren.get(0).getProperty(), sortInfos)) {
+            return getFirstItemIndex(groupChildren.get(0), sortInfos);
+        }
+        int firstItemIndex = Integer.MAX_VALUE;
+        for (GroupInfo child : groupChildren) {
+            firstItemIndex = Math.min(firstItemIndex, getFirstItemIndex(child, sortInfos));
+        }
+        return firstItemIndex;
+    }
+
+    /**
+     * @return index of the item in the datasource, items removed from the datasource are considered last
+     */
+    protected int getItemIndex(K itemId) {
+        // datasource indexes are not constant time, so they are collected once for all changed items
+        if (itemIndexes == null) {
+            itemIndexes = new HashMap<>();
+            for (K id : datasource.getItemIds()) {
+                itemIndexes.put(id, itemIndexes.size());
+            }
+        }
+        return itemIndexes.getOrDefault(itemId, Integer.MAX_VALUE);
+    }
+
+    protected int getItemInsertionIndex(List<K> itemIds, K itemId,
+                                        CollectionDatasource.Sortable.SortInfo<MetaPropertyPath>[] sortInfos) {
+        MetaPropertyPath sortPropertyPath = getItemSortPropertyPath(sortInfos);
+        Comparator<K> comparator = sortPropertyPath != null ?
+                new EntityByIdComparator<>(sortPropertyPath, datasource, isSortAscending(sortInfos)) :
+                Comparator.comparingInt(this::getItemIndex);
+        return upperBound(itemIds, itemId, comparator);
+    }
+
+    protected boolean isSortedByGroupProperty(Object groupProperty,
+                                              CollectionDatasource.Sortable.SortInfo<MetaPropertyPath>[] sortInfos) {
+        return !ArrayUtils.isEmpty(sortInfos) && sortInfos[0].getPropertyPath().equals(groupProperty);
+    }
+
+    /**
+     * @return property by which items are sorted inside groups or null
+     */
+    protected MetaPropertyPath getItemSortPropertyPath(CollectionDatasource.Sortable.SortInfo<MetaPropertyPath>[] sortInfos) {
+        if (ArrayUtils.isEmpty(sortInfos) || ArrayUtils.contains(groupProperties, sortInfos[0].getPropertyPath())) {
+            return null;
+        }
+        return sortInfos[0].getPropertyPath();
+    }
+
+    protected boolean isSortAscending(CollectionDatasource.Sortable.SortInfo<MetaPropertyPath>[] sortInfos) {
+        return CollectionDatasource.Sortable.Order.ASC.equals(sortInfos[0].getOrder());
+    }
+
+    protected static <E> int upperBound(List<E> list, E element, Comparator<? super E> comparator) {
+        int low = 0;
+        int high = list.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparator.compare(list.get(mid), element) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
     protected abstract void doSort(CollectionDatasource.Sortable.SortInfo<MetaPropertyPath>[] sortInfo);
 
     protected void doGroupSort(CollectionDatasource.Sortable.SortInfo<MetaPropertyPath>[] sortInfo) {
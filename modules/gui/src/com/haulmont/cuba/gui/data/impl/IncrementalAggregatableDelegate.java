@@ -0,0 +1,342 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.gui.data.impl;
+
+import com.haulmont.chile.core.model.MetaPropertyPath;
+import com.haulmont.cuba.gui.components.AggregationInfo;
+import com.haulmont.cuba.gui.data.aggregation.Aggregation;
+import com.haulmont.cuba.gui.data.aggregation.Aggregations;
+import com.haulmont.cuba.gui.data.aggregation.impl.BasicNumberAggregation;
+import com.haulmont.cuba.gui.data.aggregation.impl.DateAggregation;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Aggregatable delegate keeping running aggregates of all items for the built-in aggregation types.
+ * <p>
+ * The owner must notify the delegate about changes of items by {@link #itemsAdded(Collection)},
+ * {@link #itemsRemoved(Collection)}, {@link #itemsReplaced(Collection)}, {@link #itemChanged(Object)} and
+ * {@link #reset()}. Aggregation of all items then takes constant time, aggregation of a subset of items, e.g. of a
+ * group, uses values kept for the running aggregates. Aggregation by custom strategies and of nested properties,
+ * whose changes are not reported by items, is always recomputed from scratch.
+ */
+public abstract class IncrementalAggregatableDelegate<K> extends AggregatableDelegate<K> {
+
+    protected Map<AggregationInfo, RunningAggregation<K>> runningAggregations = new HashMap<>();
+
+    /**
+     * @return ids of all items
+     */
+    public abstract Collection<K> getItemIds();
+
+    /**
+     * @return number of all items
+     */
+    public int getItemCount() {
+        return getItemIds().size();
+    }
+
+    public void itemsAdded(Collection<K> itemIds) {
+        for (RunningAggregation<K> running : runningAggregations.values()) {
+            for (K itemId : itemIds) {
+                running.add(itemId, getItemValue(running.propertyPath, itemId));
+            }
+        }
+    }
+
+    public void itemsRemoved(Collection<K> itemIds) {
+        for (RunningAggregation<K> running : runningAggregations.values()) {
+            for (K itemId : itemIds) {
+                running.remove(itemId);
+            }
+        }
+    }
+
+    /**
+     * Updates values of items replaced in the same positions. If an item has been replaced by an item with another
+     * id, the running aggregates are discarded, because the id of the replaced item is unknown.
+     */
+    public void itemsReplaced(Collection<K> itemIds) {
+        for (Iterator<RunningAggregation<K>> it = runningAggregations.values().iterator(); it.hasNext(); ) {
+            RunningAggregation<K> running = it.next();
+            if (!running.values.keySet().containsAll(itemIds)) {
+                it.remove();
+                continue;
+            }
+            for (K itemId : itemIds) {
+                running.add(itemId, getItemValue(running.propertyPath, itemId));
+            }
+        }
+    }
+
+    public void itemChanged(K itemId) {
+        for (RunningAggregation<K> running : runningAggregations.values()) {
+            running.add(itemId, getItemValue(running.propertyPath, itemId));
+        }
+    }
+
+    /**
+     * Discards running aggregates, they are computed again on the next aggregation of all items.
+     */
+    public void reset() {
+        runningAggregations.clear();
+    }
+
+    @Override
+    protected Object doPropertyAggregation(AggregationInfo aggregationInfo, Collection<K> itemIds) {
+        if (!isIncrementalAggregationSupported(aggregationInfo)) {
+            return super.doPropertyAggregation(aggregationInfo, itemIds);
+        }
+
+        RunningAggregation<K> running = runningAggregations.get(aggregationInfo);
+        // the size differs if the owner has missed a change of items
+        if (running == null || running.size() != getItemCount()) {
+            if (itemIds.size() != getItemCount()) {
+                return super.doPropertyAggregation(aggregationInfo, itemIds);
+            }
+            running = createRunningAggregation(aggregationInfo, getItemIds());
+            runningAggregations.put(aggregationInfo, running);
+        }
+
+        // item ids are a subset of all items, so the same size means all items
+        if (itemIds.size() == running.size() && running.isExact()) {
+            Class resultClass = Aggregations.get(aggregationInfo.getPropertyPath().getRangeJavaClass()).getResultClass();
+            return running.getResult(aggregationInfo.getType(), resultClass);
+        }
+        return super.doPropertyAggregation(aggregationInfo, itemIds);
+    }
+
+    protected boolean isIncrementalAggregationSupported(AggregationInfo aggregationInfo) {
+        MetaPropertyPath propertyPath = aggregationInfo.getPropertyPath();
+        // items report changes of their own properties only
+        if (aggregationInfo.getStrategy() != null || propertyPath == null || propertyPath.getMetaProperties().length > 1) {
+            return false;
+        }
+        Aggregation aggregation = Aggregations.get(propertyPath.getRangeJavaClass());
+        if (aggregation == null || !aggregation.getSupportedAggregationTypes().contains(aggregationInfo.getType())) {
+            return false;
+        }
+        switch (aggregationInfo.getType()) {
+            case COUNT:
+                return true;
+            case SUM:
+            case AVG:
+                return aggregation instanceof BasicNumberAggregation;
+            case MIN:
+            case MAX:
+                return aggregation instanceof BasicNumberAggregation || aggregation instanceof DateAggregation;
+            default:
+                return false;
+        }
+    }
+
+    protected RunningAggregation<K> createRunningAggregation(AggregationInfo aggregationInfo, Collection<K> itemIds) {
+        AggregationInfo.Type type = aggregationInfo.getType();
+        RunningAggregation<K> running = new RunningAggregation<>(aggregationInfo.getPropertyPath(),
+                type == AggregationInfo.Type.SUM || type == AggregationInfo.Type.AVG,
+                type == AggregationInfo.Type.MIN || type == AggregationInfo.Type.MAX);
+        for (K itemId : itemIds) {
+            running.add(itemId, getItemValue(running.propertyPath, itemId));
+        }
+        return running;
+    }
+
+    @Override
+    protected List valuesByProperty(MetaPropertyPath propertyPath, Collection<K> itemIds) {
+        RunningAggregation<K> running = null;
+        for (RunningAggregation<K> runningAggregation : runningAggregations.values()) {
+            if (runningAggregation.propertyPath.equals(propertyPath)) {
+                running = runningAggregation;
+                break;
+            }
+        }
+        if (running == null) {
+            return super.valuesByProperty(propertyPath, itemIds);
+        }
+
+        List<Object> values = new ArrayList<>(itemIds.size());
+        for (K itemId : itemIds) {
+            Object value = running.values.containsKey(itemId) ?
+                    running.values.get(itemId) : getItemValue(propertyPath, itemId);
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Values of a property of all items and aggregates of the values.
+     * <p>
+     * Values are aggregated in doubles and converted to results in the same way as {@link BasicNumberAggregation}
+     * and {@link DateAggregation} do. Minimum and maximum are kept in a sorted map of value counts. The sum is
+     * updated by the added and removed values with compensated summation, so each change takes constant time and
+     * rounding errors of subtractions do not accumulate. The compensated sum can differ from the plain sum of the
+     * strategies in the last digit.
+     */
+    protected static class RunningAggregation<K> {
+
+        protected final MetaPropertyPath propertyPath;
+        protected final Map<K, Object> values = new LinkedHashMap<>();
+
+        protected int count;
+        protected boolean keepSum;
+        protected double sum;
+        protected double sumCompensation;
+        protected int inexactCount;
+        protected TreeMap<Double, Integer> sortedValues;
+
+        protected RunningAggregation(MetaPropertyPath propertyPath, boolean keepSum, boolean keepSortedValues) {
+            this.propertyPath = propertyPath;
+            this.keepSum = keepSum;
+            this.sortedValues = keepSortedValues ? new TreeMap<>() : null;
+        }
+
+        public int size() {
+            return values.size();
+        }
+
+        /**
+         * @return false if the values contain infinities or NaNs, which cannot be aggregated incrementally
+         */
+        public boolean isExact() {
+            return inexactCount == 0;
+        }
+
+        /**
+         * Adds the value of an item or replaces the previous value of the item.
+         */
+        public void add(K itemId, Object value) {
+            if (values.containsKey(itemId)) {
+                Object prevValue = values.get(itemId);
+                if (Objects.equals(prevValue, value)) {
+                    return;
+                }
+                remove(itemId);
+            }
+
+            values.put(itemId, value);
+            if (value == null) {
+                return;
+            }
+            count++;
+            if (!isFinite(value)) {
+                inexactCount++;
+                return;
+            }
+            if (keepSum && value instanceof Number) {
+                addToSum(((Number) value).doubleValue());
+            }
+            if (sortedValues != null) {
+                sortedValues.merge(toDouble(value), 1, Integer::sum);
+            }
+        }
+
+        public void remove(K itemId) {
+            if (!values.containsKey(itemId)) {
+                return;
+            }
+
+            Object value = values.remove(itemId);
+            if (value == null) {
+                return;
+            }
+            count--;
+            if (!isFinite(value)) {
+                inexactCount--;
+                return;
+            }
+            if (keepSum && value instanceof Number) {
+                addToSum(-((Number) value).doubleValue());
+            }
+            if (sortedValues != null) {
+                Double key = toDouble(value);
+                Integer keyCount = sortedValues.get(key);
+                if (keyCount != null && keyCount > 1) {
+                    sortedValues.put(key, keyCount - 1);
+                } else {
+                    sortedValues.remove(key);
+                }
+            }
+        }
+
+        public Object getResult(AggregationInfo.Type type, Class resultClass) {
+            switch (type) {
+                case COUNT:
+                    return count;
+                case SUM:
+                    return convert(getSum(), resultClass);
+                case AVG:
+                    return count == 0 ? null : convert(getSum() / count, resultClass);
+                case MIN:
+                    return sortedValues.isEmpty() ? null : convert(sortedValues.firstKey(), resultClass);
+                case MAX:
+                    return sortedValues.isEmpty() ? null : convert(sortedValues.lastKey(), resultClass);
+                default:
+                    throw new IllegalArgumentException(String.format("Unknown aggregation type: %s", type));
+            }
+        }
+
+        /**
+         * Adds the value keeping the sum as an unevaluated sum of two doubles, the rounded sum and its error.
+         */
+        protected void addToSum(double value) {
+            double newSum = sum + value;
+            double compensation = sumCompensation + getRoundingError(sum, value, newSum);
+            sum = newSum + compensation;
+            sumCompensation = getRoundingError(newSum, compensation, sum);
+        }
+
+        protected double getRoundingError(double a, double b, double sum) {
+            double virtualB = sum - a;
+            return (a - (sum - virtualB)) + (b - virtualB);
+        }
+
+        protected double getSum() {
+            return sum;
+        }
+
+        protected boolean isFinite(Object value) {
+            if (value instanceof Double || value instanceof Float) {
+                double doubleValue = ((Number) value).doubleValue();
+                return !Double.isNaN(doubleValue) && !Double.isInfinite(doubleValue);
+            }
+            return true;
+        }
+
+        protected Double toDouble(Object value) {
+            if (value instanceof Date) {
+                return (double) ((Date) value).getTime();
+            }
+            return ((Number) value).doubleValue();
+        }
+
+        protected Object convert(double value, Class resultClass) {
+            if (Date.class.isAssignableFrom(resultClass)) {
+                return new Date((long) value);
+            }
+            if (resultClass == Long.class) {
+                return (long) value;
+            }
+            if (resultClass == BigDecimal.class) {
+                return BigDecimal.valueOf(value);
+            }
+            return value;
+        }
+    }
+}
@@ -123,27 +123,23 @@ public class DynamicAttributesGuiTools {
 
         DynamicAttributes dynamicAttributes = AppBeans.get(DynamicAttributes.class);
         Metadata metadata = AppBeans.get(Metadata.class);
-        return collectEntityClasses(view, new HashSet<>()).stream()
+        return collectEntityClasses(view).stream()
                 .filter(BaseGenericIdEntity.class::isAssignableFrom)
                 .filter(aClass -> !dynamicAttributes.getAttributesForMetaClass(metadata.getClassNN(aClass)).isEmpty())
                 .collect(Collectors.toSet());
     }
 
-    protected Set<Class> collectEntityClasses(View view, Set<View> visited) {
-        if (visited.contains(view)) {
-            return Collections.emptySet();
-        } else {
-            visited.add(view);
-        }
+    @SuppressWarnings("unchecked")
+    protected Set<Class> collectEntityClasses(View view) {
+        return (Set) view.getEntityClasses();
+    }
 
-        HashSet<Class> classes = new HashSet<>();
-        classes.add(view.getEntityClass());
-        for (ViewProperty viewProperty : view.getProperties()) {
-            if (viewProperty.getView() != null) {
-                classes.addAll(collectEntityClasses(viewProperty.getView(), visited));
-            }
-        }
-        return classes;
+    /**
+     * @deprecated use {@link #collectEntityClasses(View)}
+     */
+    @Deprecated
+    protected Set<Class> collectEntityClasses(View view, Set<View> visited) {
+        return collectEntityClasses(view);
     }
 
 
@@ -20,6 +20,7 @@ import com.haulmont.chile.core.datatypes.Datatype;
 import com.haulmont.chile.core.datatypes.Datatypes;
 import com.haulmont.chile.core.datatypes.impl.EnumClass;
 import com.haulmont.chile.core.model.Instance;
+import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.chile.core.model.MetaPropertyPath;
 import com.haulmont.chile.core.model.Range;
@@ -27,37 +28,55 @@ import com.haulmont.chile.core.model.utils.InstanceUtils;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.entity.IdProxy;
 import com.haulmont.cuba.core.entity.annotation.IgnoreUserTimeZone;
-import com.haulmont.cuba.core.global.AppBeans;
-import com.haulmont.cuba.core.global.Messages;
-import com.haulmont.cuba.core.global.MetadataTools;
-import com.haulmont.cuba.core.global.UserSessionSource;
+import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.gui.components.*;
 import com.haulmont.cuba.gui.components.data.*;
+import com.haulmont.cuba.gui.components.data.meta.ContainerDataUnit;
 import com.haulmont.cuba.gui.components.data.meta.EntityDataGridItems;
 import com.haulmont.cuba.gui.components.data.meta.EntityTableItems;
 import com.haulmont.cuba.gui.data.GroupInfo;
+import com.haulmont.cuba.gui.model.CollectionContainer;
+import com.haulmont.cuba.gui.model.CollectionLoader;
+import com.haulmont.cuba.gui.model.DataLoader;
+import com.haulmont.cuba.gui.model.HasLoader;
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.poi.hssf.usermodel.*;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.DataFormat;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.VerticalAlignment;
+import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.util.LocaleUtil;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.dom4j.Element;
 
 import javax.annotation.Nullable;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.io.*;
 import java.text.ParseException;
 import java.util.*;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
  * Use this class to export {@link com.haulmont.cuba.gui.components.Table} into Excel format
  * and show using {@link ExportDisplay}.
  * <br>Just create an instance of this class and invoke one of <code>exportTable</code> methods.
+ * <p>
+ * By default the document is built in memory in XLS format, which is limited to {@link #MAX_ROW_COUNT} rows.
+ * An exporter created with {@link ExportFormat#XLSX} uses a streaming workbook keeping only a window of
+ * {@link #setStreamingWindowSize(int) streamingWindowSize} rows in memory and writes the document through
+ * a temporary file. In this mode, if a table or data grid is bound to a {@link CollectionLoader}, all rows
+ * of the loader's query are exported by loading them page by page instead of taking the already loaded items.
  */
 public class ExcelExporter {
     protected static final int COL_WIDTH_MAGIC = 48;
@@ -66,23 +85,29 @@ public class ExcelExporter {
 
     public static final int MAX_ROW_COUNT = 65535;
 
-    protected HSSFWorkbook wb;
+    public static final int DEFAULT_STREAMING_WINDOW_SIZE = 100;
 
-    protected HSSFFont boldFont;
+    public static final int DEFAULT_PAGE_SIZE = 1000;
 
-    protected HSSFFont stdFont;
+    protected static final Pattern ORDER_BY_PATTERN = Pattern.compile("\\border\\s+by\\b", Pattern.CASE_INSENSITIVE);
 
-    protected HSSFSheet sheet;
+    protected Workbook wb;
 
-    protected HSSFCellStyle timeFormatCellStyle;
+    protected Font boldFont;
 
-    protected HSSFCellStyle dateFormatCellStyle;
+    protected Font stdFont;
 
-    protected HSSFCellStyle dateTimeFormatCellStyle;
+    protected Sheet sheet;
 
-    protected HSSFCellStyle integerFormatCellStyle;
+    protected CellStyle timeFormatCellStyle;
 
-    protected HSSFCellStyle doubleFormatCellStyle;
+    protected CellStyle dateFormatCellStyle;
+
+    protected CellStyle dateTimeFormatCellStyle;
+
+    protected CellStyle integerFormatCellStyle;
+
+    protected CellStyle doubleFormatCellStyle;
 
     protected ExcelAutoColumnSizer[] sizers;
 
@@ -100,12 +125,32 @@ public class ExcelExporter {
 
     protected boolean isRowNumberExceeded = false;
 
+    protected final ExportFormat exportFormat;
+
+    protected int streamingWindowSize = DEFAULT_STREAMING_WINDOW_SIZE;
+
+    protected int pageSize = DEFAULT_PAGE_SIZE;
+
+    protected int outlineLevel;
+
     public enum ExportMode {
         SELECTED_ROWS,
         ALL_ROWS
     }
 
     public ExcelExporter() {
+        this(ExportFormat.XLS);
+    }
+
+    /**
+     * @param exportFormat {@link ExportFormat#XLS} or {@link ExportFormat#XLSX}
+     */
+    public ExcelExporter(ExportFormat exportFormat) {
+        if (exportFormat != ExportFormat.XLS && exportFormat != ExportFormat.XLSX) {
+            throw new IllegalArgumentException("Unsupported export format: " + exportFormat.getFileExt());
+        }
+        this.exportFormat = exportFormat;
+
         messages = AppBeans.get(Messages.NAME);
         userSessionSource = AppBeans.get(UserSessionSource.NAME);
         metadataTools = AppBeans.get(MetadataTools.NAME);
@@ -123,8 +168,20 @@ public class ExcelExporter {
     }
 
     protected void createWorkbookWithSheet() {
-        wb = new HSSFWorkbook();
+        if (isStreaming()) {
+            SXSSFWorkbook workbook = new SXSSFWorkbook(streamingWindowSize);
+            workbook.setCompressTempFiles(true);
+            wb = workbook;
+        } else {
+            wb = new HSSFWorkbook();
+        }
         sheet = wb.createSheet("Export");
+        outlineLevel = 0;
+        isRowNumberExceeded = false;
+    }
+
+    protected boolean isStreaming() {
+        return exportFormat == ExportFormat.XLSX;
     }
 
     protected void createFonts() {
@@ -165,24 +222,25 @@ public class ExcelExporter {
         if (filterDescription != null) {
             for (r = 0; r < filterDescription.size(); r++) {
                 String line = filterDescription.get(r);
-                HSSFRow row = sheet.createRow(r);
+                Row row = sheet.createRow(r);
                 if (r == 0) {
-                    HSSFRichTextString richTextFilterName = new HSSFRichTextString(line);
-                    richTextFilterName.applyFont(boldFont);
-                    row.createCell(0).setCellValue(richTextFilterName);
+                    Cell cell = row.createCell(0);
+                    cell.setCellValue(createBoldString(line));
+                    cell.setCellStyle(boldCellStyle());
                 } else {
                     row.createCell(0).setCellValue(line);
                 }
             }
             r++;
         }
-        HSSFRow row = sheet.createRow(r);
+        Row row = sheet.createRow(r);
         createAutoColumnSizers(columns.size());
 
         float maxHeight = sheet.getDefaultRowHeightInPoints();
 
         CellStyle headerCellStyle = wb.createCellStyle();
         headerCellStyle.setVerticalAlignment(VerticalAlignment.CENTER);
+        headerCellStyle.setFont(boldFont);
         for (Table.Column column : columns) {
             String caption = column.getCaption();
 
@@ -198,10 +256,8 @@ public class ExcelExporter {
             Table.Column column = columns.get(c);
             String caption = column.getCaption();
 
-            HSSFCell cell = row.createCell(c);
-            HSSFRichTextString richTextString = new HSSFRichTextString(caption);
-            richTextString.applyFont(boldFont);
-            cell.setCellValue(richTextString);
+            Cell cell = row.createCell(c);
+            cell.setCellValue(createBoldString(caption));
 
             ExcelAutoColumnSizer sizer = new ExcelAutoColumnSizer();
             sizer.notifyCellValue(caption, boldFont);
@@ -254,12 +310,18 @@ public class ExcelExporter {
                     r = createGroupRow((GroupTable) table, columns, ++r, (GroupInfo) item, 0);
                 }
             } else {
-                for (Object itemId : tableItems.getItemIds()) {
-                    if (checkIsRowNumberExceed(r)) {
-                        break;
-                    }
+                CollectionLoader<Entity> loader = getPagingLoader(tableItems);
+                if (loader != null) {
+                    r = createRowsFromLoader(loader, r, (rowNumber, instance) ->
+                            createRow(table, columns, 0, rowNumber, instance, 0));
+                } else {
+                    for (Object itemId : tableItems.getItemIds()) {
+                        if (checkIsRowNumberExceed(r)) {
+                            break;
+                        }
 
-                    createRow(table, columns, 0, ++r, itemId);
+                        createRow(table, columns, 0, ++r, itemId);
+                    }
                 }
             }
             if (table.isAggregatable() && exportAggregation) {
@@ -273,17 +335,11 @@ public class ExcelExporter {
             sheet.setColumnWidth(c, sizers[c].getWidth() * COL_WIDTH_MAGIC);
         }
 
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        try {
-            wb.write(out);
-        } catch (IOException e) {
-            throw new RuntimeException("Unable to write document", e);
-        }
         if (fileName == null) {
             fileName = messages.getTools().getEntityCaption(((EntityTableItems) tableItems).getEntityMetaClass());
         }
 
-        display.show(new ByteArrayDataProvider(out.toByteArray()), fileName + ".xls", ExportFormat.XLS);
+        showDocument(display, fileName);
     }
 
     public void exportDataGrid(DataGrid dataGrid, ExportDisplay display) {
@@ -319,24 +375,25 @@ public class ExcelExporter {
         if (filterDescription != null) {
             for (r = 0; r < filterDescription.size(); r++) {
                 String line = filterDescription.get(r);
-                HSSFRow row = sheet.createRow(r);
+                Row row = sheet.createRow(r);
                 if (r == 0) {
-                    HSSFRichTextString richTextFilterName = new HSSFRichTextString(line);
-                    richTextFilterName.applyFont(boldFont);
-                    row.createCell(0).setCellValue(richTextFilterName);
+                    Cell cell = row.createCell(0);
+                    cell.setCellValue(createBoldString(line));
+                    cell.setCellStyle(boldCellStyle());
                 } else {
                     row.createCell(0).setCellValue(line);
                 }
             }
             r++;
         }
-        HSSFRow row = sheet.createRow(r);
+        Row row = sheet.createRow(r);
         createAutoColumnSizers(columns.size());
 
         float maxHeight = sheet.getDefaultRowHeightInPoints();
 
         CellStyle headerCellStyle = wb.createCellStyle();
         headerCellStyle.setVerticalAlignment(VerticalAlignment.CENTER);
+        headerCellStyle.setFont(boldFont);
         for (DataGrid.Column column : columns) {
             String caption = column.getCaption();
 
@@ -352,10 +409,8 @@ public class ExcelExporter {
             DataGrid.Column column = columns.get(c);
             String caption = column.getCaption();
 
-            HSSFCell cell = row.createCell(c);
-            HSSFRichTextString richTextString = new HSSFRichTextString(caption);
-            richTextString.applyFont(boldFont);
-            cell.setCellValue(richTextString);
+            Cell cell = row.createCell(c);
+            cell.setCellValue(createBoldString(caption));
 
             ExcelAutoColumnSizer sizer = new ExcelAutoColumnSizer();
             sizer.notifyCellValue(caption, boldFont);
@@ -382,12 +437,18 @@ public class ExcelExporter {
                 createDataGridRow(dataGrid, columns, 0, ++r, item.getId());
             }
         } else {
-            for (Object itemId : dataGridSource.getItems().map(Entity::getId).collect(Collectors.toList())) {
-                if (checkIsRowNumberExceed(r)) {
-                    break;
-                }
+            CollectionLoader<Entity> loader = getPagingLoader(dataGridSource);
+            if (loader != null) {
+                r = createRowsFromLoader(loader, r, (rowNumber, instance) ->
+                        createDataGridRow(dataGrid, columns, 0, rowNumber, instance));
+            } else {
+                for (Object itemId : dataGridSource.getItems().map(Entity::getId).collect(Collectors.toList())) {
+                    if (checkIsRowNumberExceed(r)) {
+                        break;
+                    }
 
-                createDataGridRow(dataGrid, columns, 0, ++r, itemId);
+                    createDataGridRow(dataGrid, columns, 0, ++r, itemId);
+                }
             }
         }
 
@@ -395,31 +456,194 @@ public class ExcelExporter {
             sheet.setColumnWidth(c, sizers[c].getWidth() * COL_WIDTH_MAGIC);
         }
 
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (fileName == null) {
+            fileName = messages.getTools().getEntityCaption(dataGridSource.getEntityMetaClass());
+        }
+
+        showDocument(display, fileName);
+    }
+
+    protected void showDocument(ExportDisplay display, String fileName) {
+        if (wb instanceof SXSSFWorkbook) {
+            File file = writeToTempFile((SXSSFWorkbook) wb);
+            display.show(new TempFileDataProvider(file), fileName + ".xlsx", ExportFormat.XLSX);
+        } else {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                wb.write(out);
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to write document", e);
+            }
+            display.show(new ByteArrayDataProvider(out.toByteArray()), fileName + ".xls", ExportFormat.XLS);
+        }
+    }
+
+    protected File writeToTempFile(SXSSFWorkbook workbook) {
+        GlobalConfig globalConfig = AppBeans.get(Configuration.class).getConfig(GlobalConfig.class);
+        File file = null;
         try {
-            wb.write(out);
+            file = File.createTempFile("excel-export", ".xlsx", new File(globalConfig.getTempDir()));
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+                workbook.write(out);
+            }
+            return file;
         } catch (IOException e) {
+            if (file != null) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
             throw new RuntimeException("Unable to write document", e);
+        } finally {
+            workbook.dispose();
         }
-        if (fileName == null) {
-            fileName = messages.getTools().getEntityCaption(dataGridSource.getEntityMetaClass());
+    }
+
+    /**
+     * Returns the loader which can be used to export all rows of the query page by page, or null if the rows
+     * should be taken from the component items.
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable
+    protected CollectionLoader<Entity> getPagingLoader(Object items) {
+        if (!isStreaming() || !(items instanceof ContainerDataUnit)) {
+            return null;
+        }
+        CollectionContainer container = ((ContainerDataUnit) items).getContainer();
+        if (!(container instanceof HasLoader)) {
+            return null;
+        }
+        DataLoader loader = ((HasLoader) container).getLoader();
+        if (!(loader instanceof CollectionLoader)
+                || ((CollectionLoader) loader).getLoadDelegate() != null
+                || loader.getQuery() == null) {
+            return null;
+        }
+        // pages are selected by the primary key
+        MetadataTools metadataTools = AppBeans.get(MetadataTools.NAME);
+        MetaClass metaClass = container.getEntityMetaClass();
+        if (metadataTools.getPrimaryKeyName(metaClass) == null || metadataTools.hasCompositePrimaryKey(metaClass)) {
+            return null;
+        }
+        return (CollectionLoader<Entity>) loader;
+    }
+
+    /**
+     * Loads entities of the loader's query by pages of {@link #getPageSize()} rows and passes them to the row
+     * creator with their row numbers.
+     * <p>
+     * If the query is sorted, e.g. by a table column, pages are loaded by offset in the query order with the primary
+     * key as the last sort property, so every row is exported once. Otherwise the entities are ordered by the primary
+     * key and loaded by {@link KeysetIterator}, which does not skip rows of previous pages in the database.
+     *
+     * @return the last row number
+     */
+    protected int createRowsFromLoader(CollectionLoader<Entity> loader, int rowNumber,
+                                       BiConsumer<Integer, Instance> rowCreator) {
+        DataManager dataManager = AppBeans.get(DataManager.NAME);
+        LoadContext<Entity> loadContext = loader.createLoadContext();
+        LoadContext.Query query = loadContext.getQuery();
+        query.setFirstResult(0);
+        query.setMaxResults(0);
+
+        if (!isSorted(query)) {
+            Iterator<Entity> iterator = new KeysetIterator<>(dataManager, loadContext, pageSize);
+            while (iterator.hasNext()) {
+                if (checkIsRowNumberExceed(rowNumber)) {
+                    break;
+                }
+                rowCreator.accept(++rowNumber, iterator.next());
+            }
+            return rowNumber;
+        }
+
+        addPrimaryKeyOrder(loadContext);
+        query.setMaxResults(pageSize);
+        for (int firstResult = 0; ; firstResult += pageSize) {
+            query.setFirstResult(firstResult);
+            List<Entity> entities = dataManager.loadList(loadContext);
+            for (Entity entity : entities) {
+                if (checkIsRowNumberExceed(rowNumber)) {
+                    return rowNumber;
+                }
+                rowCreator.accept(++rowNumber, entity);
+            }
+            if (entities.size() < pageSize) {
+                return rowNumber;
+            }
+        }
+    }
+
+    protected boolean isSorted(LoadContext.Query query) {
+        Sort sort = query.getSort();
+        return sort != null && !sort.getOrders().isEmpty()
+                || ORDER_BY_PATTERN.matcher(query.getQueryString()).find();
+    }
+
+    /**
+     * Makes the order of the query unique, so pages loaded by offset do not overlap.
+     */
+    protected void addPrimaryKeyOrder(LoadContext<Entity> loadContext) {
+        Metadata metadata = AppBeans.get(Metadata.NAME);
+        String primaryKeyName = metadata.getTools().getPrimaryKeyName(metadata.getClassNN(loadContext.getMetaClass()));
+
+        LoadContext.Query query = loadContext.getQuery();
+        Sort sort = query.getSort();
+        if (sort != null && !sort.getOrders().isEmpty()) {
+            // the store replaces the order of the query with the sort
+            List<Sort.Order> orders = new ArrayList<>(sort.getOrders());
+            if (orders.stream().noneMatch(order -> order.getProperty().equals(primaryKeyName))) {
+                orders.add(orders.get(0).getDirection() == Sort.Direction.ASC
+                        ? Sort.Order.asc(primaryKeyName)
+                        : Sort.Order.desc(primaryKeyName));
+            }
+            query.setSort(Sort.by(orders));
+        } else {
+            QueryTransformer transformer = QueryTransformerFactory.createTransformer(query.getQueryString());
+            transformer.addOrderByIdIfNotExists(primaryKeyName);
+            query.setQueryString(transformer.getResult());
+        }
+    }
+
+    protected RichTextString createBoldString(String text) {
+        RichTextString richTextString = wb.getCreationHelper().createRichTextString(text);
+        richTextString.applyFont(boldFont);
+        return richTextString;
+    }
+
+    protected CellStyle boldCellStyle() {
+        CellStyle cellStyle = wb.createCellStyle();
+        cellStyle.setFont(boldFont);
+        return cellStyle;
+    }
+
+    /**
+     * Creates a row at the current outline level. A streaming workbook flushes rows to disk, so the levels
+     * cannot be set by {@link Sheet#groupRow(int, int)} after the group rows are written.
+     */
+    protected Row createSheetRow(int rowNumber) {
+        Row row = sheet.createRow(rowNumber);
+        if (outlineLevel > 0 && sheet instanceof SXSSFSheet) {
+            ((SXSSFSheet) sheet).setRowOutlineLevel(rowNumber, outlineLevel);
         }
+        return row;
+    }
 
-        display.show(new ByteArrayDataProvider(out.toByteArray()), fileName + ".xls", ExportFormat.XLS);
+    protected int getMaxRowCount() {
+        return wb != null ? wb.getSpreadsheetVersion().getLastRowIndex() : MAX_ROW_COUNT;
     }
 
     protected void createFormats() {
         timeFormatCellStyle = wb.createCellStyle();
-        timeFormatCellStyle.setDataFormat(HSSFDataFormat.getBuiltinFormat("h:mm"));
+        timeFormatCellStyle.setDataFormat((short) BuiltinFormats.getBuiltinFormat("h:mm"));
 
         dateFormatCellStyle = wb.createCellStyle();
-        dateFormatCellStyle.setDataFormat(HSSFDataFormat.getBuiltinFormat("m/d/yy"));
+        dateFormatCellStyle.setDataFormat((short) BuiltinFormats.getBuiltinFormat("m/d/yy"));
 
         dateTimeFormatCellStyle = wb.createCellStyle();
-        dateTimeFormatCellStyle.setDataFormat(HSSFDataFormat.getBuiltinFormat("m/d/yy h:mm"));
+        dateTimeFormatCellStyle.setDataFormat((short) BuiltinFormats.getBuiltinFormat("m/d/yy h:mm"));
 
         integerFormatCellStyle = wb.createCellStyle();
-        integerFormatCellStyle.setDataFormat(HSSFDataFormat.getBuiltinFormat("#,##0"));
+        integerFormatCellStyle.setDataFormat((short) BuiltinFormats.getBuiltinFormat("#,##0"));
 
         DataFormat format = wb.createDataFormat();
         doubleFormatCellStyle = wb.createCellStyle();
@@ -451,7 +675,7 @@ public class ExcelExporter {
     @SuppressWarnings("unchecked")
     protected int createAggregatableRow(Table table, List<Table.Column> columns, int rowNumber,
                                         int aggregatableRow) {
-        HSSFRow row = sheet.createRow(rowNumber);
+        Row row = sheet.createRow(rowNumber);
         Map<Object, Object> results = table.getAggregationResults();
 
         int i = 0;
@@ -461,7 +685,7 @@ public class ExcelExporter {
                 Object key = agr.getPropertyPath() != null ? agr.getPropertyPath() : column.getId();
                 Object aggregationResult = results.get(key);
                 if (aggregationResult != null) {
-                    HSSFCell cell = row.createCell(i);
+                    Cell cell = row.createCell(i);
                     formatValueCell(cell, aggregationResult, null, i, rowNumber, 0, null);
                 }
             }
@@ -475,7 +699,7 @@ public class ExcelExporter {
                                  GroupInfo groupInfo, int groupNumber) {
         GroupTableItems<Entity> groupTableSource = (GroupTableItems) table.getItems();
 
-        HSSFRow row = sheet.createRow(rowNumber);
+        Row row = createSheetRow(rowNumber);
         Map<Object, Object> aggregations = table.isAggregatable()
                 ? table.getAggregationResults(groupInfo)
                 : Collections.emptyMap();
@@ -484,7 +708,7 @@ public class ExcelExporter {
         int initialGroupNumber = groupNumber;
         for (Table.Column column : columns) {
             if (i == initialGroupNumber) {
-                HSSFCell cell = row.createCell(i);
+                Cell cell = row.createCell(i);
                 Object val = groupInfo.getValue();
 
                 if (val == null) {
@@ -539,7 +763,7 @@ public class ExcelExporter {
                     Object key = agr.getPropertyPath() != null ? agr.getPropertyPath() : column.getId();
                     Object aggregationResult = aggregations.get(key);
                     if (aggregationResult != null) {
-                        HSSFCell cell = row.createCell(i);
+                        Cell cell = row.createCell(i);
                         formatValueCell(cell, aggregationResult, null, i, rowNumber, 0, null);
                     }
                 }
@@ -549,6 +773,7 @@ public class ExcelExporter {
         }
 
         int oldRowNumber = rowNumber;
+        outlineLevel++;
         List<GroupInfo> children = groupTableSource.getChildren(groupInfo);
         if (children.size() > 0) {
             for (GroupInfo child : children) {
@@ -560,11 +785,14 @@ public class ExcelExporter {
                 createRow(table, columns, groupNumber, ++rowNumber, itemId);
             }
         }
+        outlineLevel--;
 
-        if (checkIsRowNumberExceed(rowNumber)) {
-            sheet.groupRow(oldRowNumber + 1, MAX_ROW_COUNT);
-        } else {
-            sheet.groupRow(oldRowNumber + 1, rowNumber);
+        if (!(sheet instanceof SXSSFSheet)) {
+            if (checkIsRowNumberExceed(rowNumber)) {
+                sheet.groupRow(oldRowNumber + 1, MAX_ROW_COUNT);
+            } else {
+                sheet.groupRow(oldRowNumber + 1, rowNumber);
+            }
         }
 
         return rowNumber;
@@ -576,19 +804,32 @@ public class ExcelExporter {
             return;
         }
 
-        if (rowNumber > MAX_ROW_COUNT) {
+        if (rowNumber > getMaxRowCount()) {
             return;
         }
 
-        HSSFRow row = sheet.createRow(rowNumber);
         Instance instance = (Instance) table.getItems().getItem(itemId);
 
         int level = 0;
         if (table instanceof TreeTable) {
             level = ((TreeTable) table).getLevel(itemId);
         }
+        createRow(table, columns, startColumn, rowNumber, instance, level);
+    }
+
+    protected void createRow(Table table, List<Table.Column> columns, int startColumn, int rowNumber,
+                             Instance instance, int level) {
+        if (startColumn >= columns.size()) {
+            return;
+        }
+
+        if (rowNumber > getMaxRowCount()) {
+            return;
+        }
+
+        Row row = createSheetRow(rowNumber);
         for (int c = startColumn; c < columns.size(); c++) {
-            HSSFCell cell = row.createCell(c);
+            Cell cell = row.createCell(c);
 
             Table.Column column = columns.get(c);
             Object cellValue = null;
@@ -627,12 +868,21 @@ public class ExcelExporter {
         if (startColumn >= columns.size()) {
             return;
         }
-        HSSFRow row = sheet.createRow(rowNumber);
         Instance instance = (Instance) dataGrid.getItems().getItem(itemId);
+        createDataGridRow(dataGrid, columns, startColumn, rowNumber, instance);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected void createDataGridRow(DataGrid dataGrid, List<DataGrid.Column> columns,
+                                     int startColumn, int rowNumber, Instance instance) {
+        if (startColumn >= columns.size()) {
+            return;
+        }
+        Row row = sheet.createRow(rowNumber);
 
         int level = 0;
         for (int c = startColumn; c < columns.size(); c++) {
-            HSSFCell cell = row.createCell(c);
+            Cell cell = row.createCell(c);
 
             DataGrid.Column column = columns.get(c);
             Object cellValue;
@@ -673,7 +923,7 @@ public class ExcelExporter {
         return sb.toString();
     }
 
-    protected void formatValueCell(HSSFCell cell, @Nullable Object cellValue, @Nullable MetaPropertyPath metaPropertyPath,
+    protected void formatValueCell(Cell cell, @Nullable Object cellValue, @Nullable MetaPropertyPath metaPropertyPath,
                                    int sizersIndex, int notificationRequired, int level, @Nullable Integer groupChildCount) {
 
         if (cellValue == null) {
@@ -783,7 +1033,7 @@ public class ExcelExporter {
                 str += createSpaceString(level);
             }
             str += ((Boolean) cellValue) ? trueStr : falseStr;
-            cell.setCellValue(new HSSFRichTextString(str));
+            cell.setCellValue(str);
             if (sizers[sizersIndex].isNotificationRequired(notificationRequired)) {
                 sizers[sizersIndex].notifyCellValue(str, stdFont);
             }
@@ -801,13 +1051,13 @@ public class ExcelExporter {
             String instanceName = entityVal.getInstanceName();
             String str = sizersIndex == 0 ? createSpaceString(level) + instanceName : instanceName;
             str = str + childCountValue;
-            cell.setCellValue(new HSSFRichTextString(str));
+            cell.setCellValue(str);
             if (sizers[sizersIndex].isNotificationRequired(notificationRequired)) {
                 sizers[sizersIndex].notifyCellValue(str, stdFont);
             }
         } else if (cellValue instanceof Collection) {
             String str = "";
-            cell.setCellValue(new HSSFRichTextString(str));
+            cell.setCellValue(str);
             if (sizers[sizersIndex].isNotificationRequired(notificationRequired)) {
                 sizers[sizersIndex].notifyCellValue(str, stdFont);
             }
@@ -815,7 +1065,7 @@ public class ExcelExporter {
             String strValue = cellValue == null ? "" : cellValue.toString();
             String str = sizersIndex == 0 ? createSpaceString(level) + strValue : strValue;
             str = str + childCountValue;
-            cell.setCellValue(new HSSFRichTextString(str));
+            cell.setCellValue(str);
             if (sizers[sizersIndex].isNotificationRequired(notificationRequired)) {
                 sizers[sizersIndex].notifyCellValue(str, stdFont);
             }
@@ -823,11 +1073,12 @@ public class ExcelExporter {
     }
 
     protected boolean checkIsRowNumberExceed(int r) {
-        return isRowNumberExceeded = r >= MAX_ROW_COUNT;
+        return isRowNumberExceeded = r >= getMaxRowCount();
     }
 
     /**
-     * @return true if exported table contains more than 65536 records
+     * @return true if exported table contains more rows than the export format allows: 65536 for XLS
+     * and 1048576 for XLSX
      */
     public boolean isXlsMaxRowNumberExceeded() {
         return isRowNumberExceeded;
@@ -840,4 +1091,33 @@ public class ExcelExporter {
     public boolean getExportAggregation() {
         return exportAggregation;
     }
-}
\ No newline at end of file
+
+    public ExportFormat getExportFormat() {
+        return exportFormat;
+    }
+
+    public int getStreamingWindowSize() {
+        return streamingWindowSize;
+    }
+
+    /**
+     * Sets the number of rows kept in memory in {@link ExportFormat#XLSX} mode.
+     */
+    public void setStreamingWindowSize(int streamingWindowSize) {
+        this.streamingWindowSize = streamingWindowSize;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Sets the number of entities loaded at once when exporting rows of a {@link CollectionLoader}.
+     */
+    public void setPageSize(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        this.pageSize = pageSize;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.gui.export;
+
+import java.io.*;
+
+/**
+ * Data provider for a temporary file. The file is deleted when the stream returned by {@link #provide()} is closed,
+ * so the data can be provided once. {@link #dispose()} deletes the file if it has not been provided, e.g. when the UI
+ * showing the file is closed before the download.
+ */
+public class TempFileDataProvider implements ExportDataProvider {
+
+    protected File file;
+
+    public TempFileDataProvider(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public InputStream provide() {
+        try {
+            return new FileInputStream(file) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        dispose();
+                    }
+                }
+            };
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException("Unable to read temporary file " + file, e);
+        }
+    }
+
+    /**
+     * Deletes the file. The data cannot be provided afterwards.
+     */
+    public void dispose() {
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    public File getFile() {
+        return file;
+    }
+}
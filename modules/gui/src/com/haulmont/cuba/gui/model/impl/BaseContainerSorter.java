@@ -21,9 +21,13 @@ import com.haulmont.chile.core.model.MetaPropertyPath;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.global.Sort;
 import com.haulmont.cuba.gui.data.impl.EntityComparator;
+import com.haulmont.cuba.gui.data.impl.EntityListSorter;
 import com.haulmont.cuba.gui.model.CollectionContainer;
 import com.haulmont.cuba.gui.model.Sorter;
 
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
@@ -57,22 +61,46 @@ public abstract class BaseContainerSorter implements Sorter {
         if (sort.getOrders().isEmpty()) {
             return;
         }
-        List list = new ArrayList(container.getItems());
-        list.sort(createComparator(sort, container.getEntityMetaClass()));
+        List list;
+        if (isComparatorOverridden()) {
+            list = new ArrayList(container.getItems());
+            list.sort(createComparator(sort, container.getEntityMetaClass()));
+        } else {
+            list = createSorter(sort, container.getEntityMetaClass()).sort(container.getItems());
+        }
         setItemsToContainer(list);
     }
 
+    /**
+     * @return true if a subclass overrides {@link #createComparator(Sort, MetaClass)}, so it is used instead of
+     * {@link #createSorter(Sort, MetaClass)}
+     */
+    protected boolean isComparatorOverridden() {
+        Method method = ReflectionUtils.findMethod(getClass(), "createComparator", Sort.class, MetaClass.class);
+        return method != null && method.getDeclaringClass() != BaseContainerSorter.class;
+    }
+
+    protected EntityListSorter createSorter(Sort sort, MetaClass metaClass) {
+        return EntityListSorter.create(metaClass, sort);
+    }
+
     protected abstract void setItemsToContainer(List list);
 
+    /**
+     * Creates a comparator for sorting in memory. It is used only if overridden in a subclass, otherwise the list is
+     * sorted by {@link #createSorter(Sort, MetaClass)}.
+     */
     protected Comparator<Entity> createComparator(Sort sort, MetaClass metaClass) {
-        if (sort.getOrders().size() > 1) {
-            throw new UnsupportedOperationException("Sort by multiple properties is not supported");
-        }
-        MetaPropertyPath propertyPath = metaClass.getPropertyPath(sort.getOrders().get(0).getProperty());
-        if (propertyPath == null) {
-            throw new IllegalArgumentException("Property " + sort.getOrders().get(0).getProperty() + " is invalid");
+        Comparator<Entity> comparator = null;
+        for (Sort.Order order : sort.getOrders()) {
+            MetaPropertyPath propertyPath = metaClass.getPropertyPath(order.getProperty());
+            if (propertyPath == null) {
+                throw new IllegalArgumentException("Property " + order.getProperty() + " is invalid");
+            }
+            boolean asc = order.getDirection() == Sort.Direction.ASC;
+            EntityComparator<Entity> propertyComparator = new EntityComparator<>(propertyPath, asc);
+            comparator = comparator == null ? propertyComparator : comparator.thenComparing(propertyComparator);
         }
-        boolean asc = sort.getOrders().get(0).getDirection() == Sort.Direction.ASC;
-        return new EntityComparator<>(propertyPath, asc);
+        return comparator != null ? comparator : (o1, o2) -> 0;
     }
 }
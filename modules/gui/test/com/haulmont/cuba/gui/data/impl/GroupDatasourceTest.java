@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.gui.data.impl;
+
+import com.haulmont.chile.core.model.MetaPropertyPath;
+import com.haulmont.cuba.client.testsupport.CubaClientTestCase;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.gui.data.CollectionDatasource;
+import com.haulmont.cuba.gui.data.GroupInfo;
+import com.haulmont.cuba.gui.data.impl.testmodel1.TestDetailEntity;
+import com.haulmont.cuba.gui.executors.BackgroundWorker;
+import mockit.Expectations;
+import mockit.Mocked;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+
+public class GroupDatasourceTest extends CubaClientTestCase {
+
+    @Mocked
+    protected BackgroundWorker backgroundWorker;
+
+    private GroupDatasourceImpl<TestDetailEntity, UUID> ds;
+    private Object[] groupProperties;
+
+    @Before
+    public void setUp() throws Exception {
+        addEntityPackage("com.haulmont.cuba");
+        setupInfrastructure();
+
+        new Expectations() {
+            {
+                backgroundWorker.checkUIAccess(); result = null; minTimes = 0;
+                AppBeans.get(BackgroundWorker.NAME); result = backgroundWorker; minTimes = 0;
+                AppBeans.get(BackgroundWorker.class); result = backgroundWorker; minTimes = 0;
+                AppBeans.get(BackgroundWorker.NAME, BackgroundWorker.class); result = backgroundWorker; minTimes = 0;
+            }
+        };
+
+        ds = new GroupDatasourceImpl<>();
+        ds.setMetaClass(metadata.getClassNN(TestDetailEntity.class));
+        ds.setRefreshMode(CollectionDatasource.RefreshMode.NEVER);
+        ds.valid();
+
+        for (String name : Arrays.asList("a", "b", "a", "c")) {
+            TestDetailEntity entity = createEntity(name);
+            ds.data.put(entity.getId(), entity);
+        }
+
+        MetaPropertyPath propertyPath = ds.getMetaClass().getPropertyPath("detailName");
+        groupProperties = new Object[]{propertyPath};
+        ds.groupBy(groupProperties);
+    }
+
+    @Test
+    public void testAddedItems() {
+        ds.addItem(createEntity("b"));
+        assertGroupedAgain();
+
+        ds.addItemFirst(createEntity("c"));
+        assertGroupedAgain();
+        assertEquals(Arrays.asList("c", "a", "b"), getRootValues());
+
+        ds.addItem(createEntity("d"));
+        assertGroupedAgain();
+    }
+
+    @Test
+    public void testUpdatedItems() {
+        TestDetailEntity first = ds.getItems().iterator().next();
+
+        TestDetailEntity updated = createEntity("c");
+        updated.setId(first.getId());
+        ds.updateItem(updated);
+        assertGroupedAgain();
+        assertEquals(Arrays.asList("c", "b", "a"), getRootValues());
+    }
+
+    @Test
+    public void testRemovedItems() {
+        TestDetailEntity first = ds.getItems().iterator().next();
+
+        ds.removeItem(first);
+        assertGroupedAgain();
+        assertEquals(Arrays.asList("b", "a", "c"), getRootValues());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSortedGroups() {
+        ds.sortOnDb = false;
+        ds.sort(new CollectionDatasource.Sortable.SortInfo[]{createSortInfo("detailName", false)});
+
+        ds.addItem(createEntity("b"));
+        ds.addItemFirst(createEntity("d"));
+        ds.removeItem(ds.getItems().iterator().next());
+        assertGroupedAgain();
+        assertEquals(Arrays.asList("c", "b", "a"), getRootValues());
+    }
+
+    private TestDetailEntity createEntity(String name) {
+        TestDetailEntity entity = new TestDetailEntity();
+        entity.setDetailName(name);
+        return entity;
+    }
+
+    private CollectionDatasource.Sortable.SortInfo<MetaPropertyPath> createSortInfo(String property, boolean asc) {
+        CollectionDatasource.Sortable.SortInfo<MetaPropertyPath> sortInfo = new CollectionDatasource.Sortable.SortInfo<>();
+        sortInfo.setPropertyPath(ds.getMetaClass().getPropertyPath(property));
+        sortInfo.setOrder(asc ? CollectionDatasource.Sortable.Order.ASC : CollectionDatasource.Sortable.Order.DESC);
+        return sortInfo;
+    }
+
+    private void assertGroupedAgain() {
+        List<String> groups = getGroups();
+        ds.groupBy(groupProperties);
+        assertEquals(getGroups(), groups);
+    }
+
+    private List<String> getGroups() {
+        List<String> groups = new ArrayList<>();
+        for (GroupInfo groupInfo : ds.rootGroups()) {
+            groups.add(groupInfo.getValue() + ": " + ds.getGroupItemIds(groupInfo));
+        }
+        return groups;
+    }
+
+    private List<Object> getRootValues() {
+        List<Object> values = new ArrayList<>();
+        for (GroupInfo groupInfo : ds.rootGroups()) {
+            values.add(groupInfo.getValue());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.gui.data.impl;
+
+import com.haulmont.cuba.gui.components.AggregationInfo.Type;
+import com.haulmont.cuba.gui.data.aggregation.impl.BigDecimalAggregation;
+import com.haulmont.cuba.gui.data.aggregation.impl.DoubleAggregation;
+import com.haulmont.cuba.gui.data.impl.IncrementalAggregatableDelegate.RunningAggregation;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RunningAggregationTest {
+
+    @Test
+    public void testNumberAggregates() {
+        RunningAggregation<Integer> running = new RunningAggregation<>(null, true, true);
+        running.add(1, 10L);
+        running.add(2, 30L);
+        running.add(3, null);
+        running.add(4, 20L);
+
+        assertEquals(4, running.size());
+        assertEquals(3, running.getResult(Type.COUNT, Long.class));
+        assertEquals(60L, running.getResult(Type.SUM, Long.class));
+        assertEquals(20L, running.getResult(Type.AVG, Long.class));
+        assertEquals(10L, running.getResult(Type.MIN, Long.class));
+        assertEquals(30L, running.getResult(Type.MAX, Long.class));
+
+        running.add(2, 5L);
+        assertEquals(35L, running.getResult(Type.SUM, Long.class));
+        assertEquals(5L, running.getResult(Type.MIN, Long.class));
+        assertEquals(20L, running.getResult(Type.MAX, Long.class));
+
+        running.remove(4);
+        running.remove(3);
+        assertEquals(2, running.size());
+        assertEquals(2, running.getResult(Type.COUNT, Long.class));
+        assertEquals(15L, running.getResult(Type.SUM, Long.class));
+        assertEquals(10L, running.getResult(Type.MAX, Long.class));
+    }
+
+    @Test
+    public void testDuplicateValues() {
+        RunningAggregation<Integer> running = new RunningAggregation<>(null, false, true);
+        running.add(1, 7.5);
+        running.add(2, 7.5);
+        running.add(3, 1.0);
+
+        running.remove(1);
+        assertEquals(7.5, running.getResult(Type.MAX, Double.class));
+
+        running.remove(2);
+        assertEquals(1.0, running.getResult(Type.MAX, Double.class));
+
+        running.remove(3);
+        assertNull(running.getResult(Type.MAX, Double.class));
+    }
+
+    @Test
+    public void testSameArithmeticAsStrategies() {
+        RunningAggregation<Integer> running = new RunningAggregation<>(null, true, true);
+        running.add(1, 0.1);
+        running.add(2, 0.2);
+        assertEquals(new DoubleAggregation().sum(Arrays.asList(0.1, 0.2)), running.getResult(Type.SUM, Double.class));
+
+        running.remove(1);
+        running.add(3, 0.1);
+
+        List<BigDecimal> values = Arrays.asList(new BigDecimal("0.2"), new BigDecimal("0.1"));
+        BigDecimalAggregation aggregation = new BigDecimalAggregation();
+        assertEquals(aggregation.sum(values), running.getResult(Type.SUM, BigDecimal.class));
+        assertEquals(aggregation.avg(values), running.getResult(Type.AVG, BigDecimal.class));
+        assertEquals(aggregation.min(values), running.getResult(Type.MIN, BigDecimal.class));
+        assertEquals(aggregation.max(values), running.getResult(Type.MAX, BigDecimal.class));
+    }
+
+    @Test
+    public void testCompensatedSum() {
+        RunningAggregation<Integer> running = new RunningAggregation<>(null, true, false);
+        running.add(1, 1e16);
+        running.add(2, 1.0);
+        running.add(3, 1.0);
+        running.remove(1);
+        assertEquals(2.0, running.getResult(Type.SUM, Double.class));
+
+        for (int i = 0; i < 10000; i++) {
+            running.add(2, 0.1 * (i % 7));
+            running.add(3, 0.3);
+        }
+        assertEquals(new DoubleAggregation().sum(Arrays.asList(0.1 * (9999 % 7), 0.3)),
+                running.getResult(Type.SUM, Double.class));
+    }
+
+    @Test
+    public void testEmpty() {
+        RunningAggregation<Integer> running = new RunningAggregation<>(null, true, true);
+
+        assertEquals(0, running.getResult(Type.COUNT, Long.class));
+        assertEquals(0L, running.getResult(Type.SUM, Long.class));
+        assertNull(running.getResult(Type.AVG, Long.class));
+        assertNull(running.getResult(Type.MIN, Long.class));
+    }
+
+    @Test
+    public void testNotFiniteValues() {
+        RunningAggregation<Integer> running = new RunningAggregation<>(null, true, false);
+        running.add(1, 1.0);
+        running.add(2, Double.NaN);
+        assertFalse(running.isExact());
+
+        running.remove(2);
+        assertTrue(running.isExact());
+        assertEquals(1.0, running.getResult(Type.SUM, Double.class));
+    }
+
+    @Test
+    public void testDates() {
+        RunningAggregation<Integer> running = new RunningAggregation<>(null, false, true);
+        running.add(1, new Date(2000));
+        running.add(2, new Date(1000));
+
+        assertEquals(new Date(1000), running.getResult(Type.MIN, Date.class));
+        assertEquals(new Date(2000), running.getResult(Type.MAX, Date.class));
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.gui.export;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class TempFileDataProviderTest {
+
+    @Test
+    public void testDeleteOnClose() throws Exception {
+        File file = File.createTempFile("export", ".xlsx");
+        FileUtils.writeStringToFile(file, "data", StandardCharsets.UTF_8);
+        TempFileDataProvider provider = new TempFileDataProvider(file);
+
+        try (InputStream stream = provider.provide()) {
+            assertEquals("data", IOUtils.toString(stream, StandardCharsets.UTF_8));
+            assertTrue(file.exists());
+        }
+        assertFalse(file.exists());
+
+        provider.dispose();
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testDisposeWithoutDownload() throws Exception {
+        File file = File.createTempFile("export", ".xlsx");
+        TempFileDataProvider provider = new TempFileDataProvider(file);
+
+        provider.dispose();
+        assertFalse(file.exists());
+    }
+}
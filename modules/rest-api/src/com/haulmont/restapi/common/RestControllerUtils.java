@@ -72,7 +72,7 @@ public class RestControllerUtils {
      */
     public View getView(MetaClass metaClass, String viewName) {
         try {
-            return viewRepository.getView(metaClass, viewName);
+            return viewRepository.getFrozenView(metaClass, viewName);
         } catch (ViewNotFoundException e) {
             throw new RestAPIException("View not found",
                     String.format("View %s for entity %s not found", viewName, metaClass.getName()),
@@ -21,6 +21,7 @@ import com.haulmont.cuba.core.config.Property;
 import com.haulmont.cuba.core.config.Source;
 import com.haulmont.cuba.core.config.SourceType;
 import com.haulmont.cuba.core.config.defaults.DefaultBoolean;
+import com.haulmont.cuba.core.config.defaults.DefaultInt;
 import com.haulmont.cuba.core.config.type.CommaSeparatedStringListTypeFactory;
 import com.haulmont.cuba.core.config.type.Factory;
 
@@ -73,6 +74,37 @@ public interface RestApiConfig extends Config {
     @DefaultBoolean(false)
     boolean getOptimisticLockingEnabled();
 
+    /**
+     * @return whether lists of entities are written to the response while they are serialized, instead of building
+     * the whole JSON in memory
+     */
+    @Property("cuba.rest.streamEntitiesList")
+    @DefaultBoolean(false)
+    boolean getStreamEntitiesList();
+
+    /**
+     * @return number of entities loaded from the database at once when a list of entities is streamed.
+     * 0 means that the whole list is loaded at once.
+     */
+    @Property("cuba.rest.entitiesListChunkSize")
+    @DefaultInt(1000)
+    int getEntitiesListChunkSize();
+
+    /**
+     * @return maximum number of sub-requests in a request to the batch endpoint
+     */
+    @Property("cuba.rest.batchMaxRequests")
+    @DefaultInt(100)
+    int getBatchMaxRequests();
+
+    /**
+     * @return number of threads executing read-only sub-requests of batch requests concurrently.
+     * The pool is shared by all batch requests.
+     */
+    @Property("cuba.rest.batchThreadPoolSize")
+    @DefaultInt(4)
+    int getBatchThreadPoolSize();
+
 
     /**
      * @return Whether to use an login/password authentication on client
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.restapi.controllers;
+
+import com.haulmont.restapi.service.BatchControllerManager;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.inject.Inject;
+
+/**
+ * Controller that executes several entity, query and service operations in one request
+ */
+@RestController("cuba_BatchController")
+@RequestMapping(value = "/v2/batch", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+public class BatchController {
+
+    @Inject
+    protected BatchControllerManager batchControllerManager;
+
+    @PostMapping
+    public String executeBatch(@RequestBody String batchJson) {
+        return batchControllerManager.executeBatch(batchJson);
+    }
+}
@@ -34,6 +34,11 @@ import org.springframework.web.util.UriComponentsBuilder;
 
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Controller that performs CRUD entity operations
@@ -64,14 +69,11 @@ public class EntitiesController {
                                                    @RequestParam(required = false) Boolean returnNulls,
                                                    @RequestParam(required = false) Boolean returnCount,
                                                    @RequestParam(required = false) Boolean dynamicAttributes,
-                                                   @RequestParam(required = false) String modelVersion) {
+                                                   @RequestParam(required = false) String modelVersion,
+                                                   HttpServletResponse response) throws IOException {
         EntitiesSearchResult entitiesSearchResult = entitiesControllerManager.loadEntitiesList(entityName, view, limit,
                 offset, sort, returnNulls, returnCount, dynamicAttributes, modelVersion);
-        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.status(HttpStatus.OK);
-        if (BooleanUtils.isTrue(returnCount)) {
-            responseBuilder.header("X-Total-Count", entitiesSearchResult.getCount().toString());
-        }
-        return responseBuilder.body(entitiesSearchResult.getJson());
+        return createResponse(entitiesSearchResult, BooleanUtils.isTrue(returnCount), response);
     }
 
     @GetMapping("/{entityName}/search")
@@ -84,27 +86,21 @@ public class EntitiesController {
                                                         @RequestParam(required = false) Boolean returnNulls,
                                                         @RequestParam(required = false) Boolean returnCount,
                                                         @RequestParam(required = false) Boolean dynamicAttributes,
-                                                        @RequestParam(required = false) String modelVersion) {
+                                                        @RequestParam(required = false) String modelVersion,
+                                                        HttpServletResponse response) throws IOException {
         EntitiesSearchResult entitiesSearchResult = entitiesControllerManager.searchEntities(entityName, filter,
                 view, limit, offset, sort, returnNulls, returnCount, dynamicAttributes, modelVersion);
-        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.status(HttpStatus.OK);
-        if (BooleanUtils.isTrue(returnCount)) {
-            responseBuilder.header("X-Total-Count", entitiesSearchResult.getCount().toString());
-        }
-        return responseBuilder.body(entitiesSearchResult.getJson());
+        return createResponse(entitiesSearchResult, BooleanUtils.isTrue(returnCount), response);
     }
 
     @PostMapping("/{entityName}/search")
     public ResponseEntity<String> searchEntitiesListPost(@PathVariable String entityName,
-                                                         @RequestBody String requestBodyJson) {
+                                                         @RequestBody String requestBodyJson,
+                                                         HttpServletResponse response) throws IOException {
         EntitiesSearchResult entitiesSearchResult = entitiesControllerManager.searchEntities(entityName, requestBodyJson);
-        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.status(HttpStatus.OK);
         JsonObject requestJsonObject = new JsonParser().parse(requestBodyJson).getAsJsonObject();
         JsonPrimitive returnCount = requestJsonObject.getAsJsonPrimitive("returnCount");
-        if (returnCount != null && returnCount.getAsBoolean()) {
-            responseBuilder.header("X-Total-Count", entitiesSearchResult.getCount().toString());
-        }
-        return responseBuilder.body(entitiesSearchResult.getJson());
+        return createResponse(entitiesSearchResult, returnCount != null && returnCount.getAsBoolean(), response);
     }
 
     @PostMapping("/{entityName}")
@@ -138,4 +134,30 @@ public class EntitiesController {
                              @RequestParam(required = false) String modelVersion) {
         entitiesControllerManager.deleteEntity(entityName, entityId, modelVersion);
     }
-}
\ No newline at end of file
+
+    /**
+     * Creates a response with the JSON of the search result. A streamed result is written to the servlet response
+     * directly and null is returned.
+     */
+    protected ResponseEntity<String> createResponse(EntitiesSearchResult entitiesSearchResult, boolean returnCount,
+                                                    HttpServletResponse response) throws IOException {
+        EntitiesSearchResult.JsonStream jsonStream = entitiesSearchResult.getJsonStream();
+        if (jsonStream != null) {
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+            if (returnCount) {
+                response.setHeader("X-Total-Count", entitiesSearchResult.getCount().toString());
+            }
+            Writer writer = new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8);
+            jsonStream.write(writer);
+            writer.flush();
+            return null;
+        }
+
+        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.status(HttpStatus.OK);
+        if (returnCount) {
+            responseBuilder.header("X-Total-Count", entitiesSearchResult.getCount().toString());
+        }
+        return responseBuilder.body(entitiesSearchResult.getJson());
+    }
+}
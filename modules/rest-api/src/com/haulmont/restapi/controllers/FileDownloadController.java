@@ -20,8 +20,8 @@ import com.haulmont.cuba.core.app.DataService;
 import com.haulmont.cuba.core.entity.FileDescriptor;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.remoting.discovery.ServerSelector;
+import com.haulmont.cuba.core.sys.servlet.FileDownloadHelper;
 import com.haulmont.restapi.exception.RestAPIException;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -29,9 +29,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 
+import javax.annotation.Nullable;
 import javax.annotation.Resource;
 import javax.inject.Inject;
 import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.InputStream;
@@ -63,6 +65,7 @@ public class FileDownloadController {
     @GetMapping("/{fileDescriptorId}")
     public void downloadFile(@PathVariable String fileDescriptorId,
                              @RequestParam(required = false) Boolean attachment,
+                             HttpServletRequest request,
                              HttpServletResponse response) {
         UUID uuid;
         try {
@@ -80,24 +83,47 @@ public class FileDownloadController {
         }
 
         try {
-            response.setHeader("Cache-Control", "no-cache");
-            response.setHeader("Pragma", "no-cache");
+            // revalidate on each request, contents of a file descriptor never change
+            response.setHeader("Cache-Control", "private, no-cache");
             response.setDateHeader("Expires", 0);
+            if (FileDownloadHelper.checkNotModified(request, response, FileDownloadHelper.getETag(fd)))
+                return;
             response.setHeader("Content-Type", getContentType(fd));
             response.setHeader("Content-Disposition", (BooleanUtils.isTrue(attachment) ? "attachment" : "inline")
                     + "; filename=\"" + fd.getName() + "\"");
 
-            downloadFromMiddlewareAndWriteResponse(fd, response);
+            downloadFromMiddlewareAndWriteResponse(fd, request, response);
         } catch (Exception e) {
             log.error("Error on downloading the file {}", fileDescriptorId, e);
             throw new RestAPIException("Error on downloading the file", "", HttpStatus.INTERNAL_SERVER_ERROR, e);
         }
     }
 
+    /**
+     * Writes the whole file to the response.
+     */
     protected void downloadFromMiddlewareAndWriteResponse(FileDescriptor fd, HttpServletResponse response) throws IOException {
+        writeResponse(fd, null, response);
+    }
+
+    /**
+     * Writes the file or the ranges requested by the {@code Range} header to the response. Requests without
+     * ranges are passed to {@link #downloadFromMiddlewareAndWriteResponse(FileDescriptor, HttpServletResponse)}.
+     */
+    protected void downloadFromMiddlewareAndWriteResponse(FileDescriptor fd, @Nullable HttpServletRequest request,
+                                                          HttpServletResponse response) throws IOException {
+        if (FileDownloadHelper.isRangeRequest(request)) {
+            writeResponse(fd, request, response);
+        } else {
+            downloadFromMiddlewareAndWriteResponse(fd, response);
+        }
+    }
+
+    protected void writeResponse(FileDescriptor fd, @Nullable HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
         ServletOutputStream os = response.getOutputStream();
         try (InputStream is = fileLoader.openStream(fd)) {
-            IOUtils.copy(is, os);
+            FileDownloadHelper.writeContent(request, response, is, fd.getSize());
             os.flush();
         } catch (FileStorageException e) {
             throw new RestAPIException("Unable to download file from FileStorage",
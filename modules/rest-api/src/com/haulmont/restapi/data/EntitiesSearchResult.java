@@ -16,8 +16,13 @@
 
 package com.haulmont.restapi.data;
 
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.Writer;
+
 public class EntitiesSearchResult {
     protected String json;
+    protected JsonStream jsonStream;
     protected Long count;
 
     public EntitiesSearchResult(String json, Long count) {
@@ -25,11 +30,35 @@ public class EntitiesSearchResult {
         this.count = count;
     }
 
+    public EntitiesSearchResult(JsonStream jsonStream, Long count) {
+        this.jsonStream = jsonStream;
+        this.count = count;
+    }
+
+    /**
+     * @return JSON of the result, or null if the result is streamed by {@link #getJsonStream()}
+     */
+    @Nullable
     public String getJson() {
         return json;
     }
 
+    /**
+     * @return stream writing JSON of the result, or null if the JSON is returned by {@link #getJson()}
+     */
+    @Nullable
+    public JsonStream getJsonStream() {
+        return jsonStream;
+    }
+
     public Long getCount() {
         return count;
     }
+
+    /**
+     * Writes JSON to the response while entities are loaded and serialized.
+     */
+    public interface JsonStream {
+        void write(Writer writer) throws IOException;
+    }
 }
@@ -0,0 +1,412 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.restapi.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.*;
+import com.google.gson.stream.JsonWriter;
+import com.haulmont.cuba.core.global.RowLevelSecurityException;
+import com.haulmont.cuba.core.global.validation.CustomValidationException;
+import com.haulmont.cuba.core.global.validation.MethodParametersValidationException;
+import com.haulmont.cuba.core.global.validation.MethodResultValidationException;
+import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.SecurityContext;
+import com.haulmont.restapi.config.RestApiConfig;
+import com.haulmont.restapi.controllers.RestControllerExceptionHandler;
+import com.haulmont.restapi.data.CreatedEntityInfo;
+import com.haulmont.restapi.data.EntitiesSearchResult;
+import com.haulmont.restapi.exception.ErrorInfo;
+import com.haulmont.restapi.exception.RestAPIException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.validation.ConstraintViolationException;
+import javax.validation.ValidationException;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Class that executes batch requests of the {@link com.haulmont.restapi.controllers.BatchController}.
+ * <p>
+ * A batch request is a JSON array of sub-requests. Every sub-request is a JSON object with the {@code type} property
+ * and the parameters of the corresponding REST API endpoint, for example:
+ * <pre>
+ * [
+ *   {"id": "car", "type": "loadEntity", "entityName": "ref$Car", "entityId": "...", "view": "_local"},
+ *   {"id": "colours", "type": "executeQuery", "entityName": "ref$Colour", "queryName": "all", "params": {...}},
+ *   {"id": "newCar", "type": "createEntity", "entityName": "ref$Car", "entity": {...}}
+ * ]
+ * </pre>
+ * Consecutive read-only sub-requests are executed concurrently on a bounded thread pool under the security context
+ * of the caller. Sub-requests that modify data and service invocations are executed one by one in the request order,
+ * after all preceding sub-requests are completed. If such a sub-request fails, the subsequent sub-requests are
+ * skipped with the {@code 424 Failed Dependency} status.
+ * <p>
+ * The response is a JSON array of results in the order of sub-requests, each containing the {@code id} of the
+ * sub-request, the HTTP {@code status} and the {@code body} that the corresponding endpoint would return.
+ */
+@Component("cuba_BatchControllerManager")
+public class BatchControllerManager {
+
+    public static final String LOAD_ENTITY = "loadEntity";
+    public static final String LOAD_ENTITIES = "loadEntities";
+    public static final String SEARCH_ENTITIES = "searchEntities";
+    public static final String EXECUTE_QUERY = "executeQuery";
+    public static final String QUERY_COUNT = "queryCount";
+    public static final String CREATE_ENTITY = "createEntity";
+    public static final String UPDATE_ENTITY = "updateEntity";
+    public static final String DELETE_ENTITY = "deleteEntity";
+    public static final String INVOKE_SERVICE = "invokeService";
+
+    protected static final Set<String> READ_ONLY_TYPES = ImmutableSet.of(
+            LOAD_ENTITY, LOAD_ENTITIES, SEARCH_ENTITIES, EXECUTE_QUERY, QUERY_COUNT);
+
+    @Inject
+    protected EntitiesControllerManager entitiesControllerManager;
+
+    @Inject
+    protected QueriesControllerManager queriesControllerManager;
+
+    @Inject
+    protected ServicesControllerManager servicesControllerManager;
+
+    @Inject
+    protected RestControllerExceptionHandler restControllerExceptionHandler;
+
+    @Inject
+    protected RestApiConfig restApiConfig;
+
+    protected ObjectMapper objectMapper = new ObjectMapper();
+
+    protected ExecutorService executor;
+
+    @PostConstruct
+    protected void init() {
+        int poolSize = restApiConfig.getBatchThreadPoolSize();
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(poolSize, poolSize,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(restApiConfig.getBatchMaxRequests(), 1)),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("RestBatch-%d")
+                        .setDaemon(true)
+                        .build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        executor = threadPoolExecutor;
+    }
+
+    @PreDestroy
+    protected void destroy() {
+        executor.shutdownNow();
+    }
+
+    public String executeBatch(String batchJson) {
+        JsonArray requests = parseRequests(batchJson);
+
+        SecurityContext securityContext = AppContext.getSecurityContext();
+        List<BatchResult> results = new ArrayList<>(requests.size());
+        List<Future<BatchResult>> pendingReads = new ArrayList<>();
+        boolean failed = false;
+
+        for (int i = 0; i < requests.size(); i++) {
+            JsonObject request = requests.get(i).getAsJsonObject();
+            String id = getRequestId(request, i);
+            String type = getString(request, "type");
+
+            if (failed) {
+                results.add(createErrorResult(id, HttpStatus.FAILED_DEPENDENCY,
+                        new ErrorInfo("Sub-request skipped", "A previous sub-request has failed")));
+            } else if (READ_ONLY_TYPES.contains(type)) {
+                pendingReads.add(executor.submit(() -> executeWithSecurityContext(request, id, type, securityContext)));
+            } else {
+                awaitResults(pendingReads, results);
+                BatchResult result = execute(request, id, type);
+                results.add(result);
+                failed = result.status >= 400;
+            }
+        }
+        awaitResults(pendingReads, results);
+
+        return writeResults(results);
+    }
+
+    protected JsonArray parseRequests(String batchJson) {
+        JsonElement element;
+        try {
+            element = new JsonParser().parse(batchJson);
+        } catch (JsonParseException e) {
+            throw new RestAPIException("Cannot parse batch request", e.getMessage(), HttpStatus.BAD_REQUEST, e);
+        }
+        if (element == null || !element.isJsonArray()) {
+            throw new RestAPIException("Cannot parse batch request", "Batch request must be a JSON array",
+                    HttpStatus.BAD_REQUEST);
+        }
+        JsonArray requests = element.getAsJsonArray();
+        if (requests.size() > restApiConfig.getBatchMaxRequests()) {
+            throw new RestAPIException("Too many sub-requests",
+                    String.format("Batch request cannot contain more than %d sub-requests", restApiConfig.getBatchMaxRequests()),
+                    HttpStatus.BAD_REQUEST);
+        }
+        for (JsonElement request : requests) {
+            if (!request.isJsonObject()) {
+                throw new RestAPIException("Cannot parse batch request", "Sub-request must be a JSON object",
+                        HttpStatus.BAD_REQUEST);
+            }
+        }
+        return requests;
+    }
+
+    protected BatchResult executeWithSecurityContext(JsonObject request, String id, String type,
+                                                     SecurityContext securityContext) {
+        // the task may also be executed by the request thread if the pool is saturated
+        SecurityContext previousSecurityContext = AppContext.getSecurityContext();
+        AppContext.setSecurityContext(securityContext);
+        try {
+            return execute(request, id, type);
+        } finally {
+            AppContext.setSecurityContext(previousSecurityContext);
+        }
+    }
+
+    protected void awaitResults(List<Future<BatchResult>> futures, List<BatchResult> results) {
+        try {
+            for (Future<BatchResult> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new RestAPIException("Batch request interrupted", "", HttpStatus.SERVICE_UNAVAILABLE, e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error executing batch sub-request", e.getCause());
+        } finally {
+            futures.clear();
+        }
+    }
+
+    protected BatchResult execute(JsonObject request, String id, @Nullable String type) {
+        try {
+            if (type == null) {
+                throw new RestAPIException("Invalid sub-request", "Sub-request type is not specified", HttpStatus.BAD_REQUEST);
+            }
+            String modelVersion = getString(request, "modelVersion");
+            switch (type) {
+                case LOAD_ENTITY: {
+                    String json = entitiesControllerManager.loadEntity(getString(request, "entityName"),
+                            getString(request, "entityId"), getString(request, "view"),
+                            getBoolean(request, "returnNulls"), getBoolean(request, "dynamicAttributes"), modelVersion);
+                    return new BatchResult(id, HttpStatus.OK, json, true, null);
+                }
+                case LOAD_ENTITIES: {
+                    EntitiesSearchResult result = entitiesControllerManager.loadEntitiesList(getString(request, "entityName"),
+                            getString(request, "view"), getInteger(request, "limit"), getInteger(request, "offset"),
+                            getString(request, "sort"), getBoolean(request, "returnNulls"),
+                            getBoolean(request, "returnCount"), getBoolean(request, "dynamicAttributes"), modelVersion);
+                    return new BatchResult(id, HttpStatus.OK, getJson(result), true, result.getCount());
+                }
+                case SEARCH_ENTITIES: {
+                    EntitiesSearchResult result = entitiesControllerManager.searchEntities(
+                            getString(request, "entityName"), request.toString());
+                    return new BatchResult(id, HttpStatus.OK, getJson(result), true, result.getCount());
+                }
+                case EXECUTE_QUERY: {
+                    String json = queriesControllerManager.executeQueryPost(getString(request, "entityName"),
+                            getString(request, "queryName"), getInteger(request, "limit"), getInteger(request, "offset"),
+                            getString(request, "view"), getBoolean(request, "returnNulls"),
+                            getBoolean(request, "dynamicAttributes"), modelVersion, getJsonString(request, "params"));
+                    return new BatchResult(id, HttpStatus.OK, json, true, null);
+                }
+                case QUERY_COUNT: {
+                    String count = queriesControllerManager.getCountPost(getString(request, "entityName"),
+                            getString(request, "queryName"), modelVersion, getJsonString(request, "params"));
+                    return new BatchResult(id, HttpStatus.OK, count, true, null);
+                }
+                case CREATE_ENTITY: {
+                    CreatedEntityInfo entityInfo = entitiesControllerManager.createEntity(
+                            getJsonString(request, "entity"), getString(request, "entityName"), modelVersion);
+                    return new BatchResult(id, HttpStatus.CREATED, entityInfo.getJson(), true, null);
+                }
+                case UPDATE_ENTITY: {
+                    CreatedEntityInfo entityInfo = entitiesControllerManager.updateEntity(
+                            getJsonString(request, "entity"), getString(request, "entityName"),
+                            getString(request, "entityId"), modelVersion);
+                    return new BatchResult(id, HttpStatus.OK, entityInfo.getJson(), true, null);
+                }
+                case DELETE_ENTITY: {
+                    entitiesControllerManager.deleteEntity(getString(request, "entityName"),
+                            getString(request, "entityId"), modelVersion);
+                    return new BatchResult(id, HttpStatus.OK, null, false, null);
+                }
+                case INVOKE_SERVICE: {
+                    ServicesControllerManager.ServiceCallResult result = servicesControllerManager.invokeServiceMethodPost(
+                            getString(request, "serviceName"), getString(request, "methodName"),
+                            getJsonString(request, "params"), modelVersion);
+                    if (result == null) {
+                        return new BatchResult(id, HttpStatus.NO_CONTENT, null, false, null);
+                    }
+                    return new BatchResult(id, HttpStatus.OK, result.getStringValue(), result.isValidJson(), null);
+                }
+                default:
+                    throw new RestAPIException("Invalid sub-request",
+                            String.format("Sub-request type %s is not supported", type), HttpStatus.BAD_REQUEST);
+            }
+        } catch (Exception e) {
+            return createErrorResult(id, e);
+        }
+    }
+
+    /**
+     * Converts an exception to the result in the same way as {@link RestControllerExceptionHandler} converts it
+     * to the response of a single request.
+     */
+    protected BatchResult createErrorResult(String id, Exception e) {
+        ResponseEntity<?> responseEntity;
+        if (e instanceof RestAPIException) {
+            responseEntity = restControllerExceptionHandler.handleRestAPIException((RestAPIException) e);
+        } else if (e instanceof MethodResultValidationException) {
+            responseEntity = restControllerExceptionHandler.handleMethodResultValidationException((MethodResultValidationException) e);
+        } else if (e instanceof MethodParametersValidationException) {
+            responseEntity = restControllerExceptionHandler.handleMethodParametersViolation((MethodParametersValidationException) e);
+        } else if (e instanceof ConstraintViolationException) {
+            responseEntity = restControllerExceptionHandler.handleConstraintViolation((ConstraintViolationException) e);
+        } else if (e instanceof CustomValidationException) {
+            responseEntity = restControllerExceptionHandler.handleCustomValidationException((CustomValidationException) e);
+        } else if (e instanceof ValidationException) {
+            responseEntity = restControllerExceptionHandler.handleValidationException((ValidationException) e);
+        } else if (e instanceof RowLevelSecurityException) {
+            responseEntity = restControllerExceptionHandler.handleRowLevelSecurityException((RowLevelSecurityException) e);
+        } else {
+            responseEntity = restControllerExceptionHandler.handleException(e);
+        }
+        return createErrorResult(id, responseEntity.getStatusCode(), responseEntity.getBody());
+    }
+
+    protected BatchResult createErrorResult(String id, HttpStatus status, Object body) {
+        try {
+            return new BatchResult(id, status, objectMapper.writeValueAsString(body), true, null);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error writing batch sub-request error", e);
+        }
+    }
+
+    protected String writeResults(List<BatchResult> results) {
+        StringWriter stringWriter = new StringWriter();
+        try (JsonWriter writer = new JsonWriter(stringWriter)) {
+            writer.beginArray();
+            for (BatchResult result : results) {
+                writer.beginObject();
+                writer.name("id").value(result.id);
+                writer.name("status").value(result.status);
+                if (result.count != null) {
+                    writer.name("count").value(result.count);
+                }
+                if (result.body != null) {
+                    writer.name("body");
+                    if (result.json) {
+                        writer.jsonValue(result.body);
+                    } else {
+                        writer.value(result.body);
+                    }
+                }
+                writer.endObject();
+            }
+            writer.endArray();
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing batch response", e);
+        }
+        return stringWriter.toString();
+    }
+
+    protected String getJson(EntitiesSearchResult result) throws IOException {
+        if (result.getJsonStream() != null) {
+            StringWriter writer = new StringWriter();
+            result.getJsonStream().write(writer);
+            return writer.toString();
+        }
+        return result.getJson();
+    }
+
+    protected String getRequestId(JsonObject request, int index) {
+        String id = getString(request, "id");
+        return id != null ? id : String.valueOf(index);
+    }
+
+    @Nullable
+    protected String getString(JsonObject request, String name) {
+        JsonElement element = request.get(name);
+        return element == null || element.isJsonNull() ? null : element.getAsString();
+    }
+
+    @Nullable
+    protected String getJsonString(JsonObject request, String name) {
+        JsonElement element = request.get(name);
+        return element == null || element.isJsonNull() ? null : element.toString();
+    }
+
+    @Nullable
+    protected Integer getInteger(JsonObject request, String name) {
+        JsonElement element = request.get(name);
+        try {
+            return element == null || element.isJsonNull() ? null : element.getAsInt();
+        } catch (NumberFormatException | UnsupportedOperationException e) {
+            throw new RestAPIException("Invalid sub-request", String.format("Invalid value of %s", name),
+                    HttpStatus.BAD_REQUEST, e);
+        }
+    }
+
+    @Nullable
+    protected Boolean getBoolean(JsonObject request, String name) {
+        JsonElement element = request.get(name);
+        if (element == null || element.isJsonNull())
+            return null;
+        // getAsBoolean() of a string or a number does not fail, but treats anything except "true" as false
+        if (!element.isJsonPrimitive() || !element.getAsJsonPrimitive().isBoolean()) {
+            throw new RestAPIException("Invalid sub-request", String.format("Invalid value of %s", name),
+                    HttpStatus.BAD_REQUEST);
+        }
+        return element.getAsBoolean();
+    }
+
+    protected static class BatchResult {
+
+        protected final String id;
+        protected final int status;
+        protected final String body;
+        protected final boolean json;
+        protected final Long count;
+
+        protected BatchResult(String id, HttpStatus status, @Nullable String body, boolean json, @Nullable Long count) {
+            this.id = id;
+            this.status = status.value();
+            this.body = body;
+            this.json = json;
+            this.count = count;
+        }
+    }
+}
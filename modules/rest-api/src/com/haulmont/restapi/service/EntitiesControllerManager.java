@@ -17,8 +17,10 @@
 package com.haulmont.restapi.service;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.Iterators;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.cuba.client.sys.PersistenceManagerClient;
 import com.haulmont.cuba.core.app.importexport.EntityImportException;
@@ -138,6 +140,12 @@ public class EntitiesControllerManager {
         checkCanReadEntity(metaClass);
 
         String queryString = "select e from " + entityName + " e";
+        if (restApiConfig.getStreamEntitiesList()) {
+            EntitiesSearchResult.JsonStream jsonStream = _streamEntitiesList(queryString, viewName, limit, offset, sort,
+                    returnNulls, dynamicAttributes, modelVersion, metaClass, new HashMap<>());
+            return new EntitiesSearchResult(jsonStream, getCount(returnCount, metaClass, queryString, new HashMap<>()));
+        }
+
         String json = _loadEntitiesList(queryString, viewName, limit, offset, sort, returnNulls, dynamicAttributes, modelVersion,
                 metaClass, new HashMap<>());
 
@@ -182,6 +190,12 @@ public class EntitiesControllerManager {
         Map<String, Object> queryParameters = filterParseResult.getQueryParameters();
 
         String queryString = "select e from " + entityName + " e where " + jpqlWhere;
+        if (restApiConfig.getStreamEntitiesList()) {
+            EntitiesSearchResult.JsonStream jsonStream = _streamEntitiesList(queryString, viewName, limit, offset, sort,
+                    returnNulls, dynamicAttributes, modelVersion, metaClass, queryParameters);
+            return new EntitiesSearchResult(jsonStream, getCount(returnCount, metaClass, queryString, queryParameters));
+        }
+
         String json = _loadEntitiesList(queryString, viewName, limit, offset, sort, returnNulls,
                 dynamicAttributes, modelVersion, metaClass, queryParameters);
         Long count = null;
@@ -231,6 +245,85 @@ public class EntitiesControllerManager {
                                        @Nullable String modelVersion,
                                        MetaClass metaClass,
                                        Map<String, Object> queryParameters) {
+        LoadContext<Entity> ctx = createEntitiesListLoadContext(queryString, viewName, limit, offset, sort,
+                dynamicAttributes, metaClass, queryParameters);
+
+        List<Entity> entities = dataManager.loadList(ctx);
+        entities.forEach(entity -> restControllerUtils.applyAttributesSecurity(entity));
+
+        String json = entitySerializationAPI.toJson(entities, ctx.getView(), getSerializationOptions(returnNulls));
+        json = restControllerUtils.transformJsonIfRequired(metaClass.getName(), modelVersion, JsonTransformationDirection.TO_VERSION, json);
+        return json;
+    }
+
+    /**
+     * Returns a stream writing entities to the response as they are loaded and serialized. If the list is not sorted
+     * and has no offset, entities are loaded by chunks of {@link RestApiConfig#getEntitiesListChunkSize()} ordered
+     * by the primary key. Model version transformations are applied to each entity separately.
+     */
+    protected EntitiesSearchResult.JsonStream _streamEntitiesList(String queryString,
+                                                                  @Nullable String viewName,
+                                                                  @Nullable Integer limit,
+                                                                  @Nullable Integer offset,
+                                                                  @Nullable String sort,
+                                                                  @Nullable Boolean returnNulls,
+                                                                  @Nullable Boolean dynamicAttributes,
+                                                                  @Nullable String modelVersion,
+                                                                  MetaClass metaClass,
+                                                                  Map<String, Object> queryParameters) {
+        LoadContext<Entity> ctx = createEntitiesListLoadContext(queryString, viewName, limit, offset, sort,
+                dynamicAttributes, metaClass, queryParameters);
+        View view = ctx.getView();
+        EntitySerializationOption[] serializationOptions = getSerializationOptions(returnNulls);
+
+        Iterator<Entity> entities = Iterators.transform(createEntitiesIterator(ctx, metaClass, Strings.isNullOrEmpty(sort)),
+                entity -> {
+                    restControllerUtils.applyAttributesSecurity(entity);
+                    return entity;
+                });
+        // load the first chunk before the response is committed, so errors are reported as usual
+        entities.hasNext();
+
+        return writer -> {
+            if (Strings.isNullOrEmpty(modelVersion)) {
+                entitySerializationAPI.toJson(entities, writer, view, serializationOptions);
+            } else {
+                JsonWriter jsonWriter = new JsonWriter(writer);
+                jsonWriter.beginArray();
+                while (entities.hasNext()) {
+                    String json = entitySerializationAPI.toJson(entities.next(), view, serializationOptions);
+                    jsonWriter.jsonValue(restControllerUtils.transformJsonIfRequired(metaClass.getName(), modelVersion,
+                            JsonTransformationDirection.TO_VERSION, json));
+                }
+                jsonWriter.endArray();
+                jsonWriter.flush();
+            }
+        };
+    }
+
+    protected Iterator<Entity> createEntitiesIterator(LoadContext<Entity> ctx, MetaClass metaClass, boolean unsorted) {
+        int chunkSize = restApiConfig.getEntitiesListChunkSize();
+        LoadContext.Query query = ctx.getQuery();
+        MetadataTools metadataTools = metadata.getTools();
+        if (chunkSize > 0 && unsorted && query.getFirstResult() == 0
+                && metadataTools.getPrimaryKeyName(metaClass) != null
+                && !metadataTools.hasCompositePrimaryKey(metaClass)) {
+            int limit = query.getMaxResults();
+            query.setMaxResults(0);
+            Iterator<Entity> iterator = new KeysetIterator<>(dataManager, ctx, limit > 0 ? Math.min(chunkSize, limit) : chunkSize);
+            return limit > 0 ? Iterators.limit(iterator, limit) : iterator;
+        }
+        return dataManager.loadList(ctx).iterator();
+    }
+
+    protected LoadContext<Entity> createEntitiesListLoadContext(String queryString,
+                                                                @Nullable String viewName,
+                                                                @Nullable Integer limit,
+                                                                @Nullable Integer offset,
+                                                                @Nullable String sort,
+                                                                @Nullable Boolean dynamicAttributes,
+                                                                MetaClass metaClass,
+                                                                Map<String, Object> queryParameters) {
         LoadContext<Entity> ctx = new LoadContext<>(metaClass);
         if (!Strings.isNullOrEmpty(sort)) {
             boolean descSortOrder = false;
@@ -256,24 +349,30 @@ public class EntitiesControllerManager {
         }
         ctx.setQuery(query);
 
-        View view = null;
         if (!Strings.isNullOrEmpty(viewName)) {
-            view = restControllerUtils.getView(metaClass, viewName);
+            View view = restControllerUtils.getView(metaClass, viewName);
             ctx.setView(view);
         }
 
         ctx.setLoadDynamicAttributes(BooleanUtils.isTrue(dynamicAttributes));
+        return ctx;
+    }
 
-        List<Entity> entities = dataManager.loadList(ctx);
-        entities.forEach(entity -> restControllerUtils.applyAttributesSecurity(entity));
-
+    protected EntitySerializationOption[] getSerializationOptions(@Nullable Boolean returnNulls) {
         List<EntitySerializationOption> serializationOptions = new ArrayList<>();
         serializationOptions.add(EntitySerializationOption.SERIALIZE_INSTANCE_NAME);
         if (BooleanUtils.isTrue(returnNulls)) serializationOptions.add(EntitySerializationOption.SERIALIZE_NULLS);
+        return serializationOptions.toArray(new EntitySerializationOption[0]);
+    }
 
-        String json = entitySerializationAPI.toJson(entities, view, serializationOptions.toArray(new EntitySerializationOption[0]));
-        json = restControllerUtils.transformJsonIfRequired(metaClass.getName(), modelVersion, JsonTransformationDirection.TO_VERSION, json);
-        return json;
+    @Nullable
+    protected Long getCount(@Nullable Boolean returnCount, MetaClass metaClass, String queryString,
+                            Map<String, Object> queryParameters) {
+        if (!BooleanUtils.isTrue(returnCount))
+            return null;
+        LoadContext ctx = LoadContext.create(metaClass.getJavaClass())
+                .setQuery(LoadContext.createQuery(queryString).setParameters(queryParameters));
+        return dataManager.getCount(ctx);
     }
 
     public CreatedEntityInfo createEntity(String entityJson, String entityName, String modelVersion) {
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.restapi.service;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.haulmont.cuba.core.sys.AppComponents;
+import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.restapi.config.RestApiConfig;
+import com.haulmont.restapi.controllers.RestControllerExceptionHandler;
+import com.haulmont.restapi.data.CreatedEntityInfo;
+import com.haulmont.restapi.exception.RestAPIException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BatchControllerManagerTest {
+
+    private BatchControllerManager manager;
+    private TestEntitiesControllerManager entities;
+
+    @Before
+    public void setUp() {
+        // sub-requests are executed under the security context of the caller
+        AppContext.Internals.setAppComponents(new AppComponents("test"));
+
+        entities = new TestEntitiesControllerManager();
+
+        manager = new BatchControllerManager();
+        manager.entitiesControllerManager = entities;
+        manager.restControllerExceptionHandler = new RestControllerExceptionHandler();
+        manager.restApiConfig = (RestApiConfig) Proxy.newProxyInstance(RestApiConfig.class.getClassLoader(),
+                new Class[]{RestApiConfig.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getBatchMaxRequests":
+                            return 3;
+                        case "getBatchThreadPoolSize":
+                            return 2;
+                        default:
+                            return null;
+                    }
+                });
+        manager.init();
+    }
+
+    @After
+    public void tearDown() {
+        manager.destroy();
+    }
+
+    @Test
+    public void testResultPerSubRequest() {
+        JsonArray results = execute("[" +
+                "{\"id\": \"car\", \"type\": \"loadEntity\", \"entityName\": \"ref$Car\", \"entityId\": \"1\"}," +
+                "{\"type\": \"createEntity\", \"entityName\": \"ref$Car\", \"entity\": {\"name\": \"new\"}}," +
+                "{\"type\": \"deleteEntity\", \"entityName\": \"ref$Car\", \"entityId\": \"2\"}" +
+                "]");
+
+        assertEquals(3, results.size());
+        assertResult(results, 0, "car", 200);
+        assertEquals("1", results.get(0).getAsJsonObject().getAsJsonObject("body").get("id").getAsString());
+        assertResult(results, 1, "1", 201);
+        assertEquals("new", results.get(1).getAsJsonObject().getAsJsonObject("body").get("name").getAsString());
+        assertResult(results, 2, "2", 200);
+        assertNull(results.get(2).getAsJsonObject().get("body"));
+        assertEquals(Collections.singletonList("2"), entities.deleted);
+    }
+
+    @Test
+    public void testFailedReadDoesNotAffectOtherSubRequests() {
+        JsonArray results = execute("[" +
+                "{\"type\": \"loadEntity\", \"entityName\": \"ref$Car\", \"entityId\": \"missing\"}," +
+                "{\"type\": \"loadEntity\", \"entityName\": \"ref$Car\", \"entityId\": \"1\"}," +
+                "{\"type\": \"deleteEntity\", \"entityName\": \"ref$Car\", \"entityId\": \"2\"}" +
+                "]");
+
+        assertResult(results, 0, "0", 404);
+        assertEquals("Entity not found", results.get(0).getAsJsonObject().getAsJsonObject("body")
+                .get("error").getAsString());
+        assertResult(results, 1, "1", 200);
+        assertResult(results, 2, "2", 200);
+    }
+
+    @Test
+    public void testFailedModificationSkipsSubsequentSubRequests() {
+        JsonArray results = execute("[" +
+                "{\"type\": \"deleteEntity\", \"entityName\": \"ref$Car\", \"entityId\": \"missing\"}," +
+                "{\"type\": \"loadEntity\", \"entityName\": \"ref$Car\", \"entityId\": \"1\"}," +
+                "{\"type\": \"deleteEntity\", \"entityName\": \"ref$Car\", \"entityId\": \"2\"}" +
+                "]");
+
+        assertResult(results, 0, "0", 404);
+        assertResult(results, 1, "1", 424);
+        assertResult(results, 2, "2", 424);
+        assertTrue(entities.deleted.isEmpty());
+    }
+
+    @Test
+    public void testInvalidSubRequests() {
+        JsonArray results = execute("[" +
+                "{\"type\": \"loadEntity\", \"entityName\": \"ref$Car\", \"entityId\": \"1\", \"returnNulls\": \"yes\"}," +
+                "{\"type\": \"loadEntity\", \"entityName\": \"ref$Car\", \"entityId\": \"1\", \"returnNulls\": 1}," +
+                "{\"entityName\": \"ref$Car\"}" +
+                "]");
+
+        assertResult(results, 0, "0", 400);
+        assertEquals("Invalid value of returnNulls", results.get(0).getAsJsonObject().getAsJsonObject("body")
+                .get("details").getAsString());
+        assertResult(results, 1, "1", 400);
+        assertResult(results, 2, "2", 400);
+    }
+
+    @Test
+    public void testBooleanParameters() {
+        execute("[{\"type\": \"loadEntity\", \"entityName\": \"ref$Car\", \"entityId\": \"1\", \"returnNulls\": true}]");
+        assertEquals(Boolean.TRUE, entities.returnNulls);
+
+        execute("[{\"type\": \"loadEntity\", \"entityName\": \"ref$Car\", \"entityId\": \"1\", \"returnNulls\": null}]");
+        assertNull(entities.returnNulls);
+    }
+
+    @Test
+    public void testTooManySubRequests() {
+        try {
+            execute("[{\"type\": \"unknown\"}, {\"type\": \"unknown\"}, {\"type\": \"unknown\"}, {\"type\": \"unknown\"}]");
+            fail();
+        } catch (RestAPIException e) {
+            assertEquals(HttpStatus.BAD_REQUEST, e.getHttpStatus());
+        }
+    }
+
+    @Test
+    public void testInvalidBatch() {
+        for (String batch : new String[]{"{\"type\": \"unknown\"}", "[1]", "[{"}) {
+            try {
+                execute(batch);
+                fail(batch);
+            } catch (RestAPIException e) {
+                assertEquals(HttpStatus.BAD_REQUEST, e.getHttpStatus());
+            }
+        }
+    }
+
+    private JsonArray execute(String batch) {
+        return new JsonParser().parse(manager.executeBatch(batch)).getAsJsonArray();
+    }
+
+    private void assertResult(JsonArray results, int index, String id, int status) {
+        JsonObject result = results.get(index).getAsJsonObject();
+        assertEquals(id, result.get("id").getAsString());
+        assertEquals(status, result.get("status").getAsInt());
+    }
+
+    private static class TestEntitiesControllerManager extends EntitiesControllerManager {
+
+        private final List<String> deleted = Collections.synchronizedList(new ArrayList<>());
+        private volatile Boolean returnNulls;
+
+        @Override
+        public String loadEntity(String entityName, String entityId, String viewName, Boolean returnNulls,
+                                 Boolean dynamicAttributes, String modelVersion) {
+            this.returnNulls = returnNulls;
+            checkExists(entityId);
+            return "{\"id\": \"" + entityId + "\"}";
+        }
+
+        @Override
+        public CreatedEntityInfo createEntity(String entityJson, String entityName, String modelVersion) {
+            return new CreatedEntityInfo("new", entityJson);
+        }
+
+        @Override
+        public void deleteEntity(String entityName, String entityId, String modelVersion) {
+            checkExists(entityId);
+            deleted.add(entityId);
+        }
+
+        private void checkExists(String entityId) {
+            if ("missing".equals(entityId)) {
+                throw new RestAPIException("Entity not found", "Entity with id " + entityId + " not found",
+                        HttpStatus.NOT_FOUND);
+            }
+        }
+    }
+}
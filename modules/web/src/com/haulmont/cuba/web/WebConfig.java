@@ -131,6 +131,15 @@ public interface WebConfig extends Config {
     @DefaultInt(180)
     int getAppFoldersRefreshPeriodSec();
 
+    /**
+     * @return Whether AppFolders of all folder panes of the web node are refreshed by one scheduled task, which pushes
+     * changed quantities to the UIs, instead of a polling timer in each UI.
+     * See {@link com.haulmont.cuba.web.app.folders.AppFoldersRefresher}.
+     */
+    @Property("cuba.web.appFoldersPushRefresh")
+    @DefaultBoolean(false)
+    boolean getAppFoldersPushRefreshEnabled();
+
     /**
      * @return Whether to use icons for folders.
      */
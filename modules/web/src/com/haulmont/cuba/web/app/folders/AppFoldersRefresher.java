@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.web.app.folders;
+
+import com.haulmont.cuba.core.app.FoldersService;
+import com.haulmont.cuba.core.entity.AppFolder;
+import com.haulmont.cuba.core.global.Configuration;
+import com.haulmont.cuba.core.global.MetadataTools;
+import com.haulmont.cuba.core.global.TimeSource;
+import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.SecurityContext;
+import com.haulmont.cuba.gui.executors.UIAccessor;
+import com.haulmont.cuba.security.global.NoUserSessionException;
+import com.haulmont.cuba.security.global.UserSession;
+import com.haulmont.cuba.web.WebConfig;
+import com.vaadin.ui.UIDetachedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refreshes AppFolders of all folder panes of the web node in one scheduled task and pushes changed quantities to
+ * the UIs, if {@link WebConfig#getAppFoldersPushRefreshEnabled()} is set.
+ * <p>
+ * Folder panes of the same user session share one call of {@link FoldersService#reloadAppFolders(List)}, which
+ * returns cached quantities in most cases. A pane is updated in its UI by {@link UIAccessor} only if quantities or
+ * styles of its folders have changed.
+ */
+@Component(AppFoldersRefresher.NAME)
+public class AppFoldersRefresher {
+
+    public static final String NAME = "cuba_AppFoldersRefresher";
+
+    private static final Logger log = LoggerFactory.getLogger(AppFoldersRefresher.class);
+
+    @Inject
+    protected FoldersService foldersService;
+
+    @Inject
+    protected MetadataTools metadataTools;
+
+    @Inject
+    protected TimeSource timeSource;
+
+    @Inject
+    protected Configuration configuration;
+
+    protected ConcurrentMap<CubaFoldersPane, PaneRegistration> panes = new ConcurrentHashMap<>();
+
+    protected volatile long lastRefreshTs;
+
+    /**
+     * Registers a folder pane for refreshing. Must be invoked in the UI thread of the pane.
+     *
+     * @param pane        folder pane
+     * @param uiAccessor  accessor of the UI of the pane
+     * @param userSession user session of the UI
+     * @param folders     folders of the pane in the order of the pane
+     */
+    public void register(CubaFoldersPane pane, UIAccessor uiAccessor, UserSession userSession,
+                         List<AppFolder> folders) {
+        List<AppFolder> folderCopies = new ArrayList<>(folders.size());
+        for (AppFolder folder : folders) {
+            folderCopies.add(metadataTools.copy(folder));
+        }
+        panes.put(pane, new PaneRegistration(pane, uiAccessor, userSession, folderCopies));
+    }
+
+    public void unregister(CubaFoldersPane pane) {
+        panes.remove(pane);
+    }
+
+    /**
+     * Invoked by the scheduler, refreshes folders once in {@link WebConfig#getAppFoldersRefreshPeriodSec()}.
+     */
+    public void refresh() {
+        if (!AppContext.isStarted() || panes.isEmpty()) {
+            return;
+        }
+
+        WebConfig webConfig = configuration.getConfig(WebConfig.class);
+        if (!webConfig.getAppFoldersPushRefreshEnabled()) {
+            return;
+        }
+        long now = timeSource.currentTimeMillis();
+        if (now - lastRefreshTs < TimeUnit.SECONDS.toMillis(webConfig.getAppFoldersRefreshPeriodSec())) {
+            return;
+        }
+        lastRefreshTs = now;
+
+        Map<UUID, List<PaneRegistration>> registrationsBySession = new HashMap<>();
+        for (PaneRegistration registration : panes.values()) {
+            registrationsBySession.computeIfAbsent(registration.userSession.getId(), id -> new ArrayList<>())
+                    .add(registration);
+        }
+
+        log.debug("Refreshing AppFolders of {} panes in {} sessions", panes.size(), registrationsBySession.size());
+
+        for (List<PaneRegistration> registrations : registrationsBySession.values()) {
+            refreshSession(registrations);
+        }
+    }
+
+    protected void refreshSession(List<PaneRegistration> registrations) {
+        UserSession userSession = registrations.get(0).userSession;
+
+        Map<UUID, AppFolder> folders = new LinkedHashMap<>();
+        for (PaneRegistration registration : registrations) {
+            for (AppFolder folder : registration.folders) {
+                folders.computeIfAbsent(folder.getId(), id -> metadataTools.copy(folder));
+            }
+        }
+
+        List<AppFolder> reloadedFolders;
+        try {
+            reloadedFolders = AppContext.withSecurityContext(new SecurityContext(userSession),
+                    () -> foldersService.reloadAppFolders(new ArrayList<>(folders.values())));
+        } catch (NoUserSessionException e) {
+            log.debug("User session {} is closed, its folder panes are not refreshed anymore", userSession.getId());
+            for (PaneRegistration registration : registrations) {
+                panes.remove(registration.pane, registration);
+            }
+            return;
+        } catch (RuntimeException e) {
+            log.error("Unable to refresh AppFolders of user session {}", userSession.getId(), e);
+            return;
+        }
+
+        Map<UUID, AppFolder> reloadedById = new HashMap<>();
+        for (AppFolder folder : reloadedFolders) {
+            reloadedById.put(folder.getId(), folder);
+        }
+
+        for (PaneRegistration registration : registrations) {
+            List<AppFolder> paneFolders = new ArrayList<>(registration.folders.size());
+            boolean changed = false;
+            for (AppFolder folder : registration.folders) {
+                AppFolder reloadedFolder = reloadedById.getOrDefault(folder.getId(), folder);
+                changed |= !Objects.equals(folder.getQuantity(), reloadedFolder.getQuantity())
+                        || !Objects.equals(folder.getItemStyle(), reloadedFolder.getItemStyle());
+                paneFolders.add(reloadedFolder);
+            }
+            if (changed) {
+                PaneRegistration updated = new PaneRegistration(registration.pane, registration.uiAccessor,
+                        registration.userSession, paneFolders);
+                if (panes.replace(registration.pane, registration, updated)) {
+                    pushFolders(updated);
+                }
+            }
+        }
+    }
+
+    protected void pushFolders(PaneRegistration registration) {
+        // the pane changes the folders it receives, so it gets its own copies
+        List<AppFolder> folders = new ArrayList<>(registration.folders.size());
+        for (AppFolder folder : registration.folders) {
+            folders.add(metadataTools.copy(folder));
+        }
+        try {
+            registration.uiAccessor.access(() -> registration.pane.updateAppFolders(folders));
+        } catch (UIDetachedException e) {
+            log.debug("UI of folder pane is closed, the pane is not refreshed anymore");
+            panes.remove(registration.pane, registration);
+        }
+    }
+
+    protected static class PaneRegistration {
+
+        protected final CubaFoldersPane pane;
+        protected final UIAccessor uiAccessor;
+        protected final UserSession userSession;
+        protected final List<AppFolder> folders;
+
+        protected PaneRegistration(CubaFoldersPane pane, UIAccessor uiAccessor, UserSession userSession,
+                                   List<AppFolder> folders) {
+            this.pane = pane;
+            this.uiAccessor = uiAccessor;
+            this.userSession = userSession;
+            this.folders = folders;
+        }
+    }
+}
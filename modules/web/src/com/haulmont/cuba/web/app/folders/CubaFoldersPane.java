@@ -34,6 +34,7 @@ import com.haulmont.cuba.gui.components.Frame;
 import com.haulmont.cuba.gui.config.WindowConfig;
 import com.haulmont.cuba.gui.config.WindowInfo;
 import com.haulmont.cuba.gui.executors.BackgroundTask;
+import com.haulmont.cuba.gui.executors.BackgroundWorker;
 import com.haulmont.cuba.gui.executors.BackgroundTaskWrapper;
 import com.haulmont.cuba.gui.executors.TaskLifeCycle;
 import com.haulmont.cuba.gui.export.ByteArrayDataProvider;
@@ -125,6 +126,10 @@ public class CubaFoldersPane extends VerticalLayout {
 
     protected EntityStates entityStates = AppBeans.get(EntityStates.class);
 
+    protected AppFoldersRefresher appFoldersRefresher = AppBeans.get(AppFoldersRefresher.NAME);
+
+    protected BackgroundWorker backgroundWorker = AppBeans.get(BackgroundWorker.NAME);
+
     protected BackgroundTaskWrapper<Integer, List<AppFolder>> folderUpdateBackgroundTaskWrapper;
 
     protected Frame frame;
@@ -137,6 +142,13 @@ public class CubaFoldersPane extends VerticalLayout {
         setStyleName(C_FOLDERS_PANE);
         //noinspection unchecked
         folderUpdateBackgroundTaskWrapper = new BackgroundTaskWrapper(new AppFolderUpdateBackgroundTask(10));
+
+        addAttachListener(event -> {
+            if (visible) {
+                registerForPushRefresh();
+            }
+        });
+        addDetachListener(event -> appFoldersRefresher.unregister(this));
     }
 
     public void loadFolders() {
@@ -182,6 +194,7 @@ public class CubaFoldersPane extends VerticalLayout {
         } else {
             if (timer != null)
                 timer.stop();
+            appFoldersRefresher.unregister(this);
 
             removeAllComponents();
             setMargin(false);
@@ -264,6 +277,11 @@ public class CubaFoldersPane extends VerticalLayout {
 
     protected void setupUpdateTimer() {
         if (webConfig.getFoldersPaneEnabled()) {
+            if (webConfig.getAppFoldersPushRefreshEnabled()) {
+                registerForPushRefresh();
+                return;
+            }
+
             int period = webConfig.getAppFoldersRefreshPeriodSec() * 1000;
 
             timer = new FoldersPaneTimer();
@@ -287,6 +305,20 @@ public class CubaFoldersPane extends VerticalLayout {
         }
     }
 
+    /**
+     * Registers the pane in {@link AppFoldersRefresher}, which refreshes folders of all panes of the web node and
+     * pushes changes to the UIs.
+     */
+    protected void registerForPushRefresh() {
+        if (appFoldersTree == null || !webConfig.getAppFoldersPushRefreshEnabled()) {
+            return;
+        }
+        List<AppFolder> folders = appFoldersTree.getItems()
+                .collect(Collectors.toList());
+        appFoldersRefresher.register(this, backgroundWorker.getUIAccessor(), userSessionSource.getUserSession(),
+                folders);
+    }
+
     protected void stopExistingFoldersPaneTimer(AppUI ui) {
         for (CubaTimer t : ui.getTimers()) {
             if (t instanceof FoldersPaneTimer) {
@@ -410,6 +442,19 @@ public class CubaFoldersPane extends VerticalLayout {
         updateFolders(reloadedFolders);
     }
 
+    /**
+     * Updates quantities and styles of folders by the reloaded folders, e.g. pushed by {@link AppFoldersRefresher}.
+     *
+     * @param reloadedFolders reloaded folders of the pane in the order of the pane
+     */
+    public void updateAppFolders(List<AppFolder> reloadedFolders) {
+        if (appFoldersTree == null || appFoldersTree.getItems().count() != reloadedFolders.size())
+            return;
+
+        reloadParentFolders(reloadedFolders);
+        updateFolders(reloadedFolders);
+    }
+
     public void asyncReloadAppFolders() {
         if (appFoldersTree == null)
             return;
@@ -25,10 +25,10 @@ import com.haulmont.cuba.core.global.FileTypesHelper;
 import com.haulmont.cuba.core.global.LoadContext;
 import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.SecurityContext;
+import com.haulmont.cuba.core.sys.servlet.FileDownloadHelper;
 import com.haulmont.cuba.security.app.UserSessionService;
 import com.haulmont.cuba.security.global.NoUserSessionException;
 import com.haulmont.cuba.security.global.UserSession;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpHeaders;
 import org.slf4j.Logger;
@@ -38,6 +38,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.servlet.ModelAndView;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
@@ -93,26 +94,49 @@ public class FileDownloadController {
 
             String fileName = URLEncodeUtils.encodeUtf8(fd.getName());
 
-            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+            // revalidate on each request, contents of a file descriptor never change
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
             response.setDateHeader(HttpHeaders.EXPIRES, 0);
+            if (FileDownloadHelper.checkNotModified(request, response, FileDownloadHelper.getETag(fd)))
+                return null;
             response.setHeader(HttpHeaders.CONTENT_TYPE, getContentType(fd));
-            response.setHeader(HttpHeaders.PRAGMA, "no-cache");
 
             boolean attach = Boolean.valueOf(request.getParameter("a"));
             response.setHeader("Content-Disposition", (attach ? "attachment" : "inline")
                     + "; filename=" + fileName);
 
-            downloadFromMiddlewareAndWriteResponse(fd, response);
+            downloadFromMiddlewareAndWriteResponse(fd, request, response);
         } finally {
             AppContext.setSecurityContext(null);
         }
         return null;
     }
 
+    /**
+     * Writes the whole file to the response.
+     */
     protected void downloadFromMiddlewareAndWriteResponse(FileDescriptor fd, HttpServletResponse response) throws IOException {
+        writeResponse(fd, null, response);
+    }
+
+    /**
+     * Writes the file or the ranges requested by the {@code Range} header to the response. Requests without
+     * ranges are passed to {@link #downloadFromMiddlewareAndWriteResponse(FileDescriptor, HttpServletResponse)}.
+     */
+    protected void downloadFromMiddlewareAndWriteResponse(FileDescriptor fd, @Nullable HttpServletRequest request,
+                                                          HttpServletResponse response) throws IOException {
+        if (FileDownloadHelper.isRangeRequest(request)) {
+            writeResponse(fd, request, response);
+        } else {
+            downloadFromMiddlewareAndWriteResponse(fd, response);
+        }
+    }
+
+    protected void writeResponse(FileDescriptor fd, @Nullable HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
         ServletOutputStream os = response.getOutputStream();
         try (InputStream is = fileLoader.openStream(fd)) {
-            IOUtils.copy(is, os);
+            FileDownloadHelper.writeContent(request, response, is, fd.getSize());
             os.flush();
         } catch (FileStorageException e) {
             log.error("Unable to load file from middleware", e);
@@ -101,7 +101,13 @@ public class WebExportDisplay implements ExportDisplay {
             }
         }
 
-        CubaFileDownloader fileDownloader = AppUI.getCurrent().getFileDownloader();
+        AppUI ui = AppUI.getCurrent();
+        CubaFileDownloader fileDownloader = ui.getFileDownloader();
+
+        if (dataProvider instanceof TempFileDataProvider) {
+            // the file is deleted after the download, or when the UI is closed if it is never downloaded
+            ui.addDetachListener(event -> ((TempFileDataProvider) dataProvider).dispose());
+        }
 
         StreamResource resource = new StreamResource(dataProvider::provide, resourceName);
 
@@ -17,6 +17,7 @@
 package com.haulmont.cuba.web.gui.components;
 
 import com.haulmont.bali.events.Subscription;
+import com.haulmont.cuba.client.ClientConfig;
 import com.haulmont.cuba.core.entity.KeyValueEntity;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.gui.components.*;
@@ -26,7 +27,12 @@ import com.haulmont.cuba.gui.components.data.meta.DatasourceDataUnit;
 import com.haulmont.cuba.gui.data.CollectionDatasource;
 import com.haulmont.cuba.gui.data.CollectionDatasource.Operation;
 import com.haulmont.cuba.gui.data.Datasource;
+import com.haulmont.cuba.gui.data.impl.AbstractCollectionDatasource;
 import com.haulmont.cuba.gui.data.impl.WeakCollectionChangeListener;
+import com.haulmont.cuba.gui.executors.BackgroundTask;
+import com.haulmont.cuba.gui.executors.BackgroundTaskHandler;
+import com.haulmont.cuba.gui.executors.BackgroundWorker;
+import com.haulmont.cuba.gui.executors.TaskLifeCycle;
 import com.haulmont.cuba.gui.model.*;
 import com.haulmont.cuba.web.gui.icons.IconResolver;
 import com.haulmont.cuba.web.widgets.CubaRowsCount;
@@ -39,6 +45,8 @@ import javax.inject.Inject;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntSupplier;
 
 import static com.haulmont.bali.util.Preconditions.checkNotNullArgument;
 
@@ -56,6 +64,13 @@ public class WebRowsCount extends WebAbstractComponent<CubaRowsCount> implements
     @Inject
     protected DataManager dataManager;
 
+    @Inject
+    protected Configuration configuration;
+
+    protected BackgroundWorker backgroundWorker;
+
+    protected BackgroundTaskHandler<Integer> countTaskHandler;
+
     protected boolean refreshing;
     protected State state;
     protected State lastState;
@@ -75,6 +90,11 @@ public class WebRowsCount extends WebAbstractComponent<CubaRowsCount> implements
         this.messages = messages;
     }
 
+    @Inject
+    protected void setBackgroundWorker(BackgroundWorker backgroundWorker) {
+        this.backgroundWorker = backgroundWorker;
+    }
+
     @Inject
     public void setIconResolver(IconResolver iconResolver) {
         // todo extract icon constants
@@ -99,6 +119,7 @@ public class WebRowsCount extends WebAbstractComponent<CubaRowsCount> implements
         checkNotNullArgument(datasource, "datasource is null");
 
         if (adapter != null) {
+            cancelCountLoading();
             adapter.unbind();
         }
         adapter = createDatasourceAdapter(datasource);
@@ -180,6 +201,7 @@ public class WebRowsCount extends WebAbstractComponent<CubaRowsCount> implements
 
         if (((ListComponent) target).getItems() != null) {
             if (adapter != null) {
+                cancelCountLoading();
                 adapter.unbind();
             }
             adapter = createAdapter(target);
@@ -243,7 +265,10 @@ public class WebRowsCount extends WebAbstractComponent<CubaRowsCount> implements
     }
 
     protected void onLastClick() {
-        int count = adapter.getCount();
+        loadCount(0, this::showLastPage);
+    }
+
+    protected void showLastPage(int count) {
         int itemsToDisplay = count % adapter.getMaxResults();
         if (itemsToDisplay == 0) itemsToDisplay = adapter.getMaxResults();
 
@@ -286,10 +311,58 @@ public class WebRowsCount extends WebAbstractComponent<CubaRowsCount> implements
     }
 
     protected void onLinkClick() {
-        int count = adapter.getCount();
-        component.getCountButton().setCaption(String.valueOf(count)); // todo rework with datatype
-        component.getCountButton().addStyleName("c-paging-count-number");
+        int countLimit = configuration.getConfig(ClientConfig.class).getRowsCountLimit();
         component.getCountButton().setEnabled(false);
+        loadCount(countLimit, count -> {
+            String caption = countLimit > 0 && count > countLimit ? countLimit + "+" : String.valueOf(count);
+            component.getCountButton().setCaption(caption); // todo rework with datatype
+            component.getCountButton().addStyleName("c-paging-count-number");
+        });
+    }
+
+    /**
+     * Loads the number of rows and passes it to the consumer. If {@link ClientConfig#getLoadRowsCountInBackground()}
+     * is set, the count query is executed in a background thread and the consumer is invoked in the UI thread
+     * when the query completes.
+     */
+    protected void loadCount(int countLimit, IntConsumer consumer) {
+        cancelCountLoading();
+
+        if (!configuration.getConfig(ClientConfig.class).getLoadRowsCountInBackground()) {
+            consumer.accept(adapter.getCount(countLimit));
+            return;
+        }
+
+        IntSupplier countSupplier = adapter.createCountSupplier(countLimit);
+
+        countTaskHandler = backgroundWorker.handle(new BackgroundTask<Integer, Integer>(0) {
+            @Override
+            public Integer run(TaskLifeCycle<Integer> taskLifeCycle) {
+                return countSupplier.getAsInt();
+            }
+
+            @Override
+            public void done(Integer result) {
+                countTaskHandler = null;
+                consumer.accept(result);
+            }
+
+            @Override
+            public boolean handleException(Exception ex) {
+                log.error("Error loading rows count", ex);
+                countTaskHandler = null;
+                component.getCountButton().setEnabled(true);
+                return true;
+            }
+        });
+        countTaskHandler.execute();
+    }
+
+    protected void cancelCountLoading() {
+        if (countTaskHandler != null) {
+            countTaskHandler.cancel();
+            countTaskHandler = null;
+        }
     }
 
     protected void onCollectionChanged() {
@@ -386,6 +459,7 @@ public class WebRowsCount extends WebAbstractComponent<CubaRowsCount> implements
         component.getLabel().setValue(messages.formatMainMessage(msgKey, countValue));
 
         if (component.getCountButton().isVisible() && !refreshing || refreshSizeButton) {
+            cancelCountLoading();
             component.getCountButton().setCaption(messages.getMainMessage("table.rowsCount.msg3"));
             component.getCountButton().removeStyleName("c-paging-count-number");
             component.getCountButton().setEnabled(true);
@@ -426,6 +500,25 @@ public class WebRowsCount extends WebAbstractComponent<CubaRowsCount> implements
         void setFirstResult(int startPosition);
         void setMaxResults(int maxResults);
         int getCount();
+
+        /**
+         * @param countLimit number of rows after which counting may stop, 0 to count all rows
+         * @return exact number of rows if it does not exceed the limit, otherwise any number greater than the limit
+         */
+        default int getCount(int countLimit) {
+            return getCount();
+        }
+
+        /**
+         * Prepares counting of rows in the current thread. The returned supplier can be invoked in another thread.
+         *
+         * @param countLimit number of rows after which counting may stop, 0 to count all rows
+         */
+        default IntSupplier createCountSupplier(int countLimit) {
+            int count = getCount(countLimit);
+            return () -> count;
+        }
+
         int size();
         void refresh();
     }
@@ -483,15 +576,28 @@ public class WebRowsCount extends WebAbstractComponent<CubaRowsCount> implements
                 loader.setMaxResults(maxResults);
         }
 
-        @SuppressWarnings("unchecked")
         @Override
         public int getCount() {
+            return getCount(0);
+        }
+
+        @Override
+        public int getCount(int countLimit) {
+            return createCountSupplier(countLimit).getAsInt();
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public IntSupplier createCountSupplier(int countLimit) {
             if (loader == null) {
-                return container.getItems().size();
+                int size = container.getItems().size();
+                return () -> size;
             }
 
             if (loader instanceof CollectionLoader) {
-                return (int) dataManager.getCount(((CollectionLoader) loader).createLoadContext());
+                LoadContext loadContext = ((CollectionLoader) loader).createLoadContext();
+                loadContext.setCountLimit(countLimit);
+                return () -> (int) dataManager.getCount(loadContext);
             } else if (loader instanceof KeyValueCollectionLoader) {
                 ValueLoadContext context = ((KeyValueCollectionLoader) loader).createLoadContext();
                 QueryTransformer transformer = QueryTransformerFactory.createTransformer(context.getQuery().getQueryString());
@@ -499,12 +605,14 @@ public class WebRowsCount extends WebAbstractComponent<CubaRowsCount> implements
                 transformer.replaceWithCount();
                 context.getQuery().setQueryString(transformer.getResult());
                 context.setProperties(Collections.singletonList("cnt"));
-                List<KeyValueEntity> list = dataManager.loadValues(context);
-                Number count = list.get(0).getValue("cnt");
-                return count == null ? 0 : count.intValue();
+                return () -> {
+                    List<KeyValueEntity> list = dataManager.loadValues(context);
+                    Number count = list.get(0).getValue("cnt");
+                    return count == null ? 0 : count.intValue();
+                };
             } else {
                 log.warn("Unsupported loader type: {}", loader.getClass().getName());
-                return 0;
+                return () -> 0;
             }
         }
 
@@ -577,6 +685,22 @@ public class WebRowsCount extends WebAbstractComponent<CubaRowsCount> implements
             return datasource.getCount();
         }
 
+        @Override
+        public int getCount(int countLimit) {
+            if (datasource instanceof AbstractCollectionDatasource) {
+                return ((AbstractCollectionDatasource) datasource).getCount(countLimit);
+            }
+            return datasource.getCount();
+        }
+
+        @Override
+        public IntSupplier createCountSupplier(int countLimit) {
+            if (datasource instanceof AbstractCollectionDatasource) {
+                return ((AbstractCollectionDatasource) datasource).createCountSupplier(countLimit);
+            }
+            return Adapter.super.createCountSupplier(countLimit);
+        }
+
         @Override
         public int size() {
             return datasource.size();
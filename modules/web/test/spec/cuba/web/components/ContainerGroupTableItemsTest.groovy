@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.web.components
+
+import com.haulmont.cuba.gui.components.data.table.ContainerGroupTableItems
+import com.haulmont.cuba.gui.data.GroupInfo
+import com.haulmont.cuba.gui.model.CollectionContainer
+import com.haulmont.cuba.web.testmodel.sales.Product
+import spec.cuba.web.WebSpec
+
+class ContainerGroupTableItemsTest extends WebSpec {
+
+    private CollectionContainer<Product> container
+    private ContainerGroupTableItems<Product, UUID> tableItems
+
+    @Override
+    void setup() {
+        container = dataComponents.createCollectionContainer(Product)
+        container.setItems([
+                new Product(name: 'p1', price: 10),
+                new Product(name: 'p2', price: 20),
+                new Product(name: 'p3', price: 10)
+        ])
+        tableItems = new ContainerGroupTableItems<>(container)
+        tableItems.groupBy([container.entityMetaClass.getPropertyPath('price')] as Object[])
+    }
+
+    def "added, removed and changed items are moved between groups"() {
+
+        when:
+
+        container.mutableItems.add(new Product(name: 'p4', price: 30))
+        container.mutableItems.add(0, new Product(name: 'p5', price: 20))
+
+        then:
+
+        groups(tableItems) == groups(regroup())
+        tableItems.rootGroups()*.value == [20, 10, 30]
+
+        when:
+
+        container.items.find { it.name == 'p1' }.price = 30
+
+        then:
+
+        groups(tableItems) == groups(regroup())
+
+        when:
+
+        container.mutableItems.remove(container.items.find { it.name == 'p3' })
+
+        then:
+
+        groups(tableItems) == groups(regroup())
+        tableItems.rootGroups()*.value == [20, 30]
+    }
+
+    private ContainerGroupTableItems<Product, UUID> regroup() {
+        def items = new ContainerGroupTableItems<Product, UUID>(container)
+        items.groupBy(tableItems.groupProperties as Object[])
+        return items
+    }
+
+    private static Map<GroupInfo, Collection<UUID>> groups(ContainerGroupTableItems<Product, UUID> items) {
+        items.rootGroups().collectEntries { [(it): items.getGroupItemIds(it)] }
+    }
+}
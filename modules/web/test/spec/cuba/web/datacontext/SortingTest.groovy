@@ -16,10 +16,13 @@
 
 package spec.cuba.web.datacontext
 
+import com.haulmont.chile.core.model.MetaClass
 import com.haulmont.cuba.core.app.DataService
+import com.haulmont.cuba.core.entity.Entity
 import com.haulmont.cuba.core.global.Sort
 import com.haulmont.cuba.gui.model.CollectionContainer
 import com.haulmont.cuba.gui.model.CollectionLoader
+import com.haulmont.cuba.gui.model.impl.CollectionContainerSorter
 import com.haulmont.cuba.web.testmodel.sales.Product
 import com.haulmont.cuba.web.testsupport.TestServiceProxy
 import spec.cuba.web.WebSpec
@@ -71,6 +74,76 @@ class SortingTest extends WebSpec {
         container.items[0].name == 'p2'
     }
 
+    def "sort in memory by multiple properties"() {
+        def products = [
+                new Product(name: 'p2', price: 10),
+                new Product(name: 'p1', price: 10),
+                new Product(name: 'p1', price: 20),
+                new Product(name: 'p3', price: 5)
+        ]
+        def dataService = Mock(DataService)
+        TestServiceProxy.mock(DataService, dataService)
+
+        when:
+
+        loader.setQuery('select p from test$Product p')
+        loader.setFirstResult(0)
+        loader.setMaxResults(10)
+        loader.load()
+
+        then:
+
+        1 * dataService.loadList(_) >> products
+
+        when:
+
+        container.getSorter().sort(Sort.by(Sort.Order.desc('price'), Sort.Order.asc('name')))
+
+        then:
+
+        0 * dataService.loadList(_)
+        container.items.collect { it.name } == ['p1', 'p1', 'p2', 'p3']
+        container.items[0].price == 20
+        container.getItem(container.items[2].id).name == 'p2'
+    }
+
+    def "sort in memory by comparator of a sorter subclass"() {
+        def products = [
+                new Product(name: 'p1', price: 10),
+                new Product(name: 'p22', price: 20),
+                new Product(name: 'p333', price: 5)
+        ]
+        def dataService = Mock(DataService)
+        TestServiceProxy.mock(DataService, dataService)
+
+        container.setSorter(new CollectionContainerSorter(container, loader) {
+            @Override
+            protected Comparator<Entity> createComparator(Sort sort, MetaClass metaClass) {
+                return Comparator.comparing({ Entity e -> e.getValue('name').length() }).reversed()
+            }
+        })
+
+        when:
+
+        loader.setQuery('select p from test$Product p')
+        loader.setFirstResult(0)
+        loader.setMaxResults(10)
+        loader.load()
+
+        then:
+
+        1 * dataService.loadList(_) >> products
+
+        when:
+
+        container.getSorter().sort(Sort.by(Sort.Direction.ASC, 'name'))
+
+        then:
+
+        0 * dataService.loadList(_)
+        container.items.collect { it.name } == ['p333', 'p22', 'p1']
+    }
+
     def "sort on middleware when not all data is loaded"() {
         def products = [
                 new Product(name: 'p1', price: 10),